@@ -45,8 +45,8 @@ import net.preibisch.mvrecon.fiji.plugin.queryXML.GenericLoadParseQueryXML;
 import net.preibisch.mvrecon.fiji.plugin.queryXML.LoadParseQueryXML;
 import net.preibisch.mvrecon.fiji.plugin.util.GUIHelper;
 import net.preibisch.mvrecon.fiji.spimdata.SpimData2;
-import net.preibisch.mvrecon.fiji.spimdata.interestpoints.CorrespondingInterestPoints;
-import net.preibisch.mvrecon.fiji.spimdata.interestpoints.InterestPoint;
+import net.preibisch.mvrecon.fiji.spimdata.interestpoints.CorrespondenceStore;
+import net.preibisch.mvrecon.fiji.spimdata.interestpoints.InterestPointStore;
 import net.preibisch.mvrecon.fiji.spimdata.interestpoints.ViewInterestPointLists;
 import net.preibisch.mvrecon.process.interestpointdetection.InterestPointTools;
 import net.preibisch.mvrecon.process.interestpointregistration.pairwise.constellation.grouping.Group;
@@ -102,8 +102,8 @@ public class Analyze_Errors implements PlugIn
 			{
 				if ( vip.getInterestPointList( e.getKey() ) != null )
 				{
-					vip.getInterestPointList( e.getKey() ).getInterestPointsCopy();
-					vip.getInterestPointList( e.getKey() ).getCorrespondingInterestPointsCopy();
+					vip.getInterestPointList( e.getKey() ).getInterestPointStore();
+					vip.getInterestPointList( e.getKey() ).getCorrespondenceStore();
 				}
 			}
 		});
@@ -133,29 +133,36 @@ public class Analyze_Errors implements PlugIn
 					final double[] tmpA = new double[ 3 ];
 					final double[] tmpB = new double[ 3 ];
 
-					final List<InterestPoint> plA = vipA.getInterestPointList( l ).getInterestPointsCopy();
-					final List<InterestPoint> plB = vipB.getInterestPointList( l ).getInterestPointsCopy();
+					final double[] lA = new double[ 3 ];
+					final double[] lB = new double[ 3 ];
+
+					// read-only, shared with other pairs of the same view
+					final InterestPointStore plA = vipA.getInterestPointList( l ).getInterestPointStore();
+					final InterestPointStore plB = vipB.getInterestPointList( l ).getInterestPointStore();
 	
 					//System.out.println( Group.pvid( pair.getA() ) + " <-> " + Group.pvid( pair.getB() ) + ": " + pA.size() + ", " + pB.size() );
-					final List<CorrespondingInterestPoints> cA = vipA.getInterestPointList( l ).getCorrespondingInterestPointsCopy();
-					//final List<CorrespondingInterestPoints> cB = vipA.getInterestPointList( l ).getCorrespondingInterestPointsCopy();
+					final CorrespondenceStore cA = vipA.getInterestPointList( l ).getCorrespondenceStore();
 
 					//final ArrayList< PointMatch > pm = new ArrayList<>();
-					cA.forEach( cpA ->
+					for ( int i = 0; i < cA.size(); ++i )
 					{
-						if ( cpA.getCorrespondingViewId().equals( pair.getB() ) && cpA.getCorrespodingLabel().equals( l ) )
+						final int code = cA.getCode( i );
+
+						if ( cA.getCorrespondingTimePointId( code ) == pair.getB().getTimePointId() &&
+								cA.getCorrespondingViewSetupId( code ) == pair.getB().getViewSetupId() &&
+								l.equals( cA.getCorrespondingLabel( code ) ) )
 						{
-							final InterestPoint pA = plA.get( cpA.getDetectionId() );
-							final InterestPoint pB = plB.get( cpA.getCorrespondingDetectionId() );
+							plA.localize( cA.getDetectionId( i ), lA );
+							plB.localize( cA.getCorrespondingDetectionId( i ), lB );
 
-							mA.apply( pA.getL(), tmpA );
-							mB.apply( pB.getL(), tmpB );
+							mA.apply( lA, tmpA );
+							mB.apply( lB, tmpB );
 
 							final double distance = Point.distance( new Point( tmpA, tmpA ), new Point( tmpB, tmpB ) );
 							sum.add( distance * w );
 							sumWeights.add( w );
 						}
-					});
+					}
 				}
 			});
 
@@ -22,7 +22,9 @@
  */
 package net.preibisch.mvrecon.fiji.plugin;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -38,6 +40,7 @@ import net.imglib2.img.ImgFactory;
 import net.imglib2.img.array.ArrayImg;
 import net.imglib2.type.numeric.real.FloatType;
 import net.imglib2.util.Pair;
+import net.imglib2.util.Util;
 import net.preibisch.legacy.io.IOFunctions;
 import net.preibisch.mvrecon.fiji.plugin.fusion.DeconvolutionGUI;
 import net.preibisch.mvrecon.fiji.plugin.queryXML.GenericLoadParseQueryXML;
@@ -50,9 +53,12 @@ import net.preibisch.mvrecon.process.deconvolution.MultiViewDeconvolution;
 import net.preibisch.mvrecon.process.deconvolution.MultiViewDeconvolutionMul;
 import net.preibisch.mvrecon.process.deconvolution.MultiViewDeconvolutionSeq;
 import net.preibisch.mvrecon.process.deconvolution.init.PsiInitFactory;
+import net.preibisch.mvrecon.process.deconvolution.init.PsiInitFromCheckpointFactory;
 import net.preibisch.mvrecon.process.deconvolution.iteration.ComputeBlockThreadFactory;
 import net.preibisch.mvrecon.process.deconvolution.iteration.mul.ComputeBlockMulThreadCPUFactory;
 import net.preibisch.mvrecon.process.deconvolution.iteration.sequential.ComputeBlockSeqThread;
+import net.preibisch.mvrecon.process.deconvolution.util.DeconvolutionCheckpoint;
+import net.preibisch.mvrecon.process.deconvolution.util.OutOfCoreStorage;
 import net.preibisch.mvrecon.process.deconvolution.util.PSFPreparation;
 import net.preibisch.mvrecon.process.deconvolution.util.ProcessInputImages;
 import net.preibisch.mvrecon.process.export.Calibrateable;
@@ -156,32 +162,58 @@ public class Image_Deconvolution implements PlugIn
 			IOFunctions.println( "(" + new Date(System.currentTimeMillis()) + "): Normalizing weights ... " );
 			fusion.normalizeWeights( decon.getOSEMSpeedUp(), decon.getAdditionalSmoothBlending(), 0.1f, 0.05f );
 
-			if ( decon.getInputImgCacheType() == ImgDataType.CACHED )
-			{
-				IOFunctions.println( "(" + new Date(System.currentTimeMillis()) + "): Caching fused input images ... " );
-				fusion.cacheImages();
-			}
-			else if ( decon.getInputImgCacheType() == ImgDataType.PRECOMPUTED )
-			{
-				IOFunctions.println( "(" + new Date(System.currentTimeMillis()) + "): Precomputing fused input images ... " );
-				fusion.copyImages( decon.getCopyFactory() );
-			}
+			final OutOfCoreStorage storage;
 
-			if ( decon.getWeightCacheType() == ImgDataType.CACHED )
+			if ( decon.isOutOfCore() )
 			{
-				IOFunctions.println( "(" + new Date(System.currentTimeMillis()) + "): Caching weight images ... " );
-				fusion.cacheUnnormalizedWeights();
-				fusion.cacheNormalizedWeights();
+				try
+				{
+					// one input image and one weight per group share the memory for caching
+					storage = new OutOfCoreStorage( decon.getScratchDirectory(), decon.getScratchCellDim(), 2 * fusion.getGroups().size() );
+				}
+				catch ( final IOException e )
+				{
+					IOFunctions.println( "Cannot create scratch directory in '" + decon.getScratchDirectory() + "': " + e );
+					return false;
+				}
+
+				IOFunctions.println( "(" + new Date(System.currentTimeMillis()) + "): Writing fused input images to scratch ... " );
+				fusion.storeImages( storage );
+
+				IOFunctions.println( "(" + new Date(System.currentTimeMillis()) + "): Writing weight images to scratch ... " );
+				fusion.storeNormalizedWeights( storage );
 			}
-			if ( decon.getWeightCacheType() == ImgDataType.PRECOMPUTED )
+			else
 			{
-				IOFunctions.println( "(" + new Date(System.currentTimeMillis()) + "): Precomputing weight images ... " );
-				// we cache the unnormalized ones so the copying is efficient
-				fusion.cacheUnnormalizedWeights();
-				fusion.copyNormalizedWeights( decon.getCopyFactory() );
+				storage = null;
+
+				if ( decon.getInputImgCacheType() == ImgDataType.CACHED )
+				{
+					IOFunctions.println( "(" + new Date(System.currentTimeMillis()) + "): Caching fused input images ... " );
+					fusion.cacheImages();
+				}
+				else if ( decon.getInputImgCacheType() == ImgDataType.PRECOMPUTED )
+				{
+					IOFunctions.println( "(" + new Date(System.currentTimeMillis()) + "): Precomputing fused input images ... " );
+					fusion.copyImages( decon.getCopyFactory() );
+				}
+
+				if ( decon.getWeightCacheType() == ImgDataType.CACHED )
+				{
+					IOFunctions.println( "(" + new Date(System.currentTimeMillis()) + "): Caching weight images ... " );
+					fusion.cacheUnnormalizedWeights();
+					fusion.cacheNormalizedWeights();
+				}
+				if ( decon.getWeightCacheType() == ImgDataType.PRECOMPUTED )
+				{
+					IOFunctions.println( "(" + new Date(System.currentTimeMillis()) + "): Precomputing weight images ... " );
+					// we cache the unnormalized ones so the copying is efficient
+					fusion.cacheUnnormalizedWeights();
+					fusion.copyNormalizedWeights( decon.getCopyFactory() );
+				}
 			}
 
-			final ImgFactory< FloatType > psiFactory = decon.getPsiFactory();
+			ImgFactory< FloatType > psiFactory = decon.getPsiFactory();
 			final int[] blockSize = decon.getComputeBlockSize();
 			final int numIterations = decon.getNumIterations();
 			final PSFTYPE psfType = decon.getPSFType();
@@ -190,7 +222,7 @@ public class Image_Deconvolution implements PlugIn
 			final int debugInterval = decon.getDebugInterval();
 			final ComputeBlockThreadFactory< ? > cptf = decon.getComputeBlockThreadFactory();
 			final boolean mul = decon.isMultiplicative();
-			final PsiInitFactory psiInitFactory = decon.getPsiInitFactory();
+			PsiInitFactory psiInitFactory = decon.getPsiInitFactory();
 
 			IOFunctions.println( "(" + new Date(System.currentTimeMillis()) + "): Grouping, and transforming PSF's " );
 
@@ -200,6 +232,68 @@ public class Image_Deconvolution implements PlugIn
 			final HashMap< Group< ViewDescription >, ArrayImg< FloatType, ? > > psfs =
 					PSFPreparation.loadGroupTransformPSFs( spimData.getPointSpreadFunctions(), fusion, mul );
 
+			final DeconvolutionCheckpoint checkpoint;
+
+			if ( decon.useCheckpoints() )
+			{
+				final ArrayList< String > virtualViews = new ArrayList<>();
+				for ( final Group< ViewDescription > virtualView : deconVirtualViews )
+					virtualViews.add( Group.gvids( Group.getViewsSorted( virtualView.getViews() ) ) );
+
+				// the registrations of all views and the (transformed) PSF of each virtual view
+				final ArrayList< String > registrations = new ArrayList<>();
+				for ( final Group< ViewDescription > virtualView : deconVirtualViews )
+					for ( final ViewDescription view : Group.getViewsSorted( virtualView.getViews() ) )
+						registrations.add( Arrays.toString( spimData.getViewRegistrations().getViewRegistration( view ).getModel().getRowPackedCopy() ) );
+
+				final ArrayList< String > psfHashes = new ArrayList<>();
+				for ( final Group< ViewDescription > virtualView : Group.getGroupsSorted( fusion.getGroups() ) )
+					psfHashes.add( DeconvolutionCheckpoint.hash( psfs.get( virtualView ) ) );
+
+				// everything that changes the result, the number of iterations can be increased when resuming
+				checkpoint = new DeconvolutionCheckpoint(
+						decon.getCheckpointDirectory(),
+						"group_" + i,
+						DeconvolutionCheckpoint.parameters(
+								virtualViews,
+								registrations,
+								psfHashes,
+								Util.printInterval( bb ),
+								downsampling,
+								decon.getBlendingRange(),
+								decon.getBlendingBorder(),
+								decon.adjustIntensities(),
+								decon.getOSEMSpeedUp(),
+								decon.getAdditionalSmoothBlending(),
+								psfType,
+								mul,
+								decon.getLambda(),
+								blockSize,
+								filterBlocksForContent,
+								decon.accelerate(),
+								decon.getStoppingTolerance() ),
+						decon.getCheckpointInterval() );
+
+				if ( checkpoint.exists() )
+				{
+					if ( checkpoint.matchesParameters() )
+					{
+						IOFunctions.println( "(" + new Date(System.currentTimeMillis()) + "): Found checkpoint '" + checkpoint.getGroup() + "' in '" + decon.getCheckpointDirectory() + "', resuming." );
+						psiInitFactory = new PsiInitFromCheckpointFactory( checkpoint );
+					}
+					else
+					{
+						// it is overwritten by the first checkpoint of this run
+						IOFunctions.println( "(" + new Date(System.currentTimeMillis()) + "): Checkpoint '" + checkpoint.getGroup() + "' in '" + decon.getCheckpointDirectory() + "' is stale "
+								+ "(written with different deconvolution parameters), starting over." );
+					}
+				}
+			}
+			else
+			{
+				checkpoint = null;
+			}
+
 			try
 			{
 				if ( filterBlocksForContent )
@@ -232,6 +326,10 @@ public class Image_Deconvolution implements PlugIn
 
 				final DeconViews views = new DeconViews( deconViews, service );
 
+				// the psi chunks that need to be resident are defined by the block schedule
+				if ( storage != null )
+					psiFactory = storage.psiFactory( OutOfCoreStorage.residentCells( deconViews, views.getPSIDimensions(), storage.getCellDim() ) );
+
 				final MultiViewDeconvolution< ? > mvDecon;
 
 				if ( mul )
@@ -255,6 +353,14 @@ public class Image_Deconvolution implements PlugIn
 					return false;
 				mvDecon.setDebug( debug );
 				mvDecon.setDebugInterval( debugInterval );
+
+				if ( storage != null )
+					mvDecon.setPrefetching( storage.getCellDim() );
+
+				mvDecon.setCheckpoint( checkpoint );
+				mvDecon.setAcceleration( decon.accelerate() );
+				mvDecon.setStoppingTolerance( decon.getStoppingTolerance() );
+
 				mvDecon.runIterations();
 
 				if ( !export( mvDecon.getPSI(), decon, exporter, deconGroup ) )
@@ -262,18 +368,29 @@ public class Image_Deconvolution implements PlugIn
 					IOFunctions.println( "ERROR exporting the image using '" + exporter.getClass().getSimpleName() + "'" );
 					return false;
 				}
+
+				if ( checkpoint != null )
+					checkpoint.delete();
 			}
 			catch ( OutOfMemoryError oome )
 			{
 				oome.printStackTrace();
 
-				IOFunctions.println( "Out of memory.  Use smaller blocks, virtual/cached inputs, and check \"Edit > Options > Memory & Threads\"" );
+				IOFunctions.println( "Out of memory.  Use smaller blocks, virtual/cached inputs, out-of-core, and check \"Edit > Options > Memory & Threads\"" );
 				IOFunctions.println( "Your java instance has access to a total amount of RAM of: " + Runtime.getRuntime().maxMemory() / (1024*1024) );
 
 				service.shutdown();
 
 				return false;
 			}
+			finally
+			{
+				if ( storage != null )
+					storage.delete();
+
+				if ( checkpoint != null )
+					checkpoint.close();
+			}
 		}
 
 		service.shutdown();
@@ -58,12 +58,13 @@ import net.preibisch.mvrecon.fiji.plugin.fusion.FusionGUI;
 import net.preibisch.mvrecon.fiji.plugin.queryXML.GenericLoadParseQueryXML;
 import net.preibisch.mvrecon.fiji.plugin.queryXML.LoadParseQueryXML;
 import net.preibisch.mvrecon.fiji.spimdata.SpimData2;
+import net.preibisch.mvrecon.fiji.spimdata.imgloaders.util.PlanePrefetcher;
 import net.preibisch.mvrecon.process.export.Calibrateable;
 import net.preibisch.mvrecon.process.export.ImgExport;
 import net.preibisch.mvrecon.process.fusion.FusionTools;
 import net.preibisch.mvrecon.process.fusion.blk.BlkAffineFusion;
+import net.preibisch.mvrecon.process.fusion.blk.BlkNonRigidFusion;
 import net.preibisch.mvrecon.process.fusion.lazy.LazyAffineFusion;
-import net.preibisch.mvrecon.process.fusion.lazy.LazyNonRigidFusion;
 import net.preibisch.mvrecon.process.fusion.transformed.TransformVirtual;
 import net.preibisch.mvrecon.process.fusion.transformed.nonrigid.NonRigidTools;
 import net.preibisch.mvrecon.process.interestpointregistration.TransformationTools;
@@ -201,7 +202,7 @@ public class Image_Fusion implements PlugIn
 
 			if ( fusion.getNonRigidParameters().isActive() )
 			{
-				lazy = LazyNonRigidFusion.init(
+				lazy = BlkNonRigidFusion.init(
 						conv,
 						spimData.getSequenceDescription().getImgLoader(),
 						registrations,
@@ -296,6 +297,8 @@ public class Image_Fusion implements PlugIn
 		
 		taskExecutor.shutdown();
 
+		PlanePrefetcher.printStatistics();
+
 		IOFunctions.println( "(" + new Date(System.currentTimeMillis()) + "): DONE." );
 
 		return true;
@@ -198,6 +198,9 @@ public class Intensity_Adjustment implements PlugIn
 			intensityMapping = IntensityAdjustmentTools.computeIntensityAdjustment( data, viewIds, model, allBoxes.get( boundingBox ), downsampling, maxInliers, data.getIntensityAdjustments().getIntensityAdjustments() );
 		}
 
+		if ( intensityMapping == null )
+			return false;
+
 		data.getIntensityAdjustments().getIntensityAdjustments().putAll( intensityMapping );
 
 		if ( saveXML )
@@ -40,10 +40,12 @@ import net.preibisch.mvrecon.fiji.plugin.interestpointdetection.DifferenceOfGaus
 import net.preibisch.mvrecon.fiji.plugin.interestpointdetection.InterestPointDetectionGUI;
 import net.preibisch.mvrecon.fiji.plugin.queryXML.LoadParseQueryXML;
 import net.preibisch.mvrecon.fiji.plugin.util.GUIHelper;
+import net.preibisch.mvrecon.fiji.plugin.util.PluginHelper;
 import net.preibisch.mvrecon.fiji.spimdata.SpimData2;
 import net.preibisch.mvrecon.fiji.spimdata.XmlIoSpimData2;
 import net.preibisch.mvrecon.fiji.spimdata.explorer.ExplorerWindow;
 import net.preibisch.mvrecon.fiji.spimdata.imgloaders.AbstractImgLoader;
+import net.preibisch.mvrecon.fiji.spimdata.imgloaders.util.PlanePrefetcher;
 import net.preibisch.mvrecon.fiji.spimdata.interestpoints.InterestPoint;
 import net.preibisch.mvrecon.process.interestpointdetection.InterestPointTools;
 
@@ -135,6 +137,7 @@ public class Interest_Point_Detection implements PlugIn
 		gd.addCheckbox( "Define_anisotropy for segmentation", defaultDefineAnisotropy );
 		gd.addCheckbox( "Set_minimal_and_maximal_intensity", defaultSetMinMax );
 		gd.addCheckbox( "Limit_amount_of_detections" , defaultLimitDetections );
+		PluginHelper.addCacheMemory( gd );
 
 		gd.addMessage( "" );
 
@@ -175,6 +178,7 @@ public class Interest_Point_Detection implements PlugIn
 		final boolean defineAnisotropy = defaultDefineAnisotropy = gd.getNextBoolean();
 		final boolean setMinMax = defaultSetMinMax = gd.getNextBoolean();
 		final boolean limitDetections = defaultLimitDetections = gd.getNextBoolean();
+		PluginHelper.parseCacheMemory( gd );
 
 		boolean groupTiles = false;
 		if ( tiles.size() > 1 )
@@ -224,6 +228,8 @@ public class Interest_Point_Detection implements PlugIn
 				new XmlIoSpimData2().saveWithFilename( data, xmlFileName );
 		}
 
+		PlanePrefetcher.printStatistics();
+
 		IOFunctions.println( "(" + new Date( System.currentTimeMillis() ) + "): DONE." );
 
 		return true;
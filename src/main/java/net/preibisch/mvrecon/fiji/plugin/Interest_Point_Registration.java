@@ -367,7 +367,7 @@ public class Interest_Point_Registration implements PlugIn
 
 				if ( globalOptParameters.method == GlobalOptType.ONE_ROUND_SIMPLE )
 				{
-					final ConvergenceStrategy cs = new ConvergenceStrategy( pairwiseMatching.globalOptError() );
+					final ConvergenceStrategy cs = globalOptParameters.setNumThreads( new ConvergenceStrategy( pairwiseMatching.globalOptError() ) );
 
 					models = GlobalOpt.computeTiles(
 									model,
@@ -381,7 +381,7 @@ public class Interest_Point_Registration implements PlugIn
 					models = GlobalOptIterative.computeTiles(
 									model,
 									pmc,
-									new SimpleIterativeConvergenceStrategy( Double.MAX_VALUE, globalOptParameters.relativeThreshold, globalOptParameters.absoluteThreshold ),
+									globalOptParameters.setNumThreads( new SimpleIterativeConvergenceStrategy( Double.MAX_VALUE, globalOptParameters.relativeThreshold, globalOptParameters.absoluteThreshold ) ),
 									new MaxErrorLinkRemoval(),
 									removedInconsistentPairs,
 									fixedViews,
@@ -392,13 +392,13 @@ public class Interest_Point_Registration implements PlugIn
 					models = GlobalOptTwoRound.computeTiles(
 							model,
 							pmc,
-							new SimpleIterativeConvergenceStrategy( Double.MAX_VALUE, globalOptParameters.relativeThreshold, globalOptParameters.absoluteThreshold ), // if it's simple, both will be Double.MAX
+							globalOptParameters.setNumThreads( new SimpleIterativeConvergenceStrategy( Double.MAX_VALUE, globalOptParameters.relativeThreshold, globalOptParameters.absoluteThreshold ) ), // if it's simple, both will be Double.MAX
 							new MaxErrorLinkRemoval(),
 							removedInconsistentPairs,
 							new MetaDataWeakLinkFactory(
 									registrations,
 									new SimpleBoundingBoxOverlap<>( viewSetups, registrations ) ),
-							new ConvergenceStrategy( Double.MAX_VALUE ),
+							globalOptParameters.setNumThreads( new ConvergenceStrategy( Double.MAX_VALUE ) ),
 							fixedViews,
 							subset.getGroups() );
 				}
@@ -466,7 +466,7 @@ public class Interest_Point_Registration implements PlugIn
 
 				if ( globalOptParameters.method == GlobalOptType.ONE_ROUND_SIMPLE )
 				{
-					final ConvergenceStrategy cs = new ConvergenceStrategy( pairwiseMatching.globalOptError() );
+					final ConvergenceStrategy cs = globalOptParameters.setNumThreads( new ConvergenceStrategy( pairwiseMatching.globalOptError() ) );
 
 					models = GlobalOpt.computeTiles(
 									model,
@@ -480,7 +480,7 @@ public class Interest_Point_Registration implements PlugIn
 					models = GlobalOptIterative.computeTiles(
 									model,
 									pmc,
-									new SimpleIterativeConvergenceStrategy( Double.MAX_VALUE, globalOptParameters.relativeThreshold, globalOptParameters.absoluteThreshold ),
+									globalOptParameters.setNumThreads( new SimpleIterativeConvergenceStrategy( Double.MAX_VALUE, globalOptParameters.relativeThreshold, globalOptParameters.absoluteThreshold ) ),
 									new MaxErrorLinkRemoval(),
 									removedInconsistentPairs,
 									fixedViews,
@@ -492,13 +492,13 @@ public class Interest_Point_Registration implements PlugIn
 					models = GlobalOptTwoRound.computeTiles(
 							model,
 							pmc,
-							new SimpleIterativeConvergenceStrategy( Double.MAX_VALUE, globalOptParameters.relativeThreshold, globalOptParameters.absoluteThreshold ), // if it's simple, both will be Double.MAX
+							globalOptParameters.setNumThreads( new SimpleIterativeConvergenceStrategy( Double.MAX_VALUE, globalOptParameters.relativeThreshold, globalOptParameters.absoluteThreshold ) ), // if it's simple, both will be Double.MAX
 							new MaxErrorLinkRemoval(),
 							removedInconsistentPairs,
 							new MetaDataWeakLinkFactory(
 									registrations,
 									new SimpleBoundingBoxOverlap<>( viewSetups, registrations ) ),
-							new ConvergenceStrategy( Double.MAX_VALUE ),
+							globalOptParameters.setNumThreads( new ConvergenceStrategy( Double.MAX_VALUE ) ),
 							fixedViews,
 							groups );
 				}
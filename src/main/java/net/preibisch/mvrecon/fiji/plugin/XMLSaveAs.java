@@ -100,8 +100,8 @@ public class XMLSaveAs implements PlugIn
 			vipl.getHashMap().values().forEach( ipl ->
 			{
 				// first load
-				ipl.getInterestPointsCopy();
-				ipl.getCorrespondingInterestPointsCopy();
+				ipl.getInterestPointStore();
+				ipl.getCorrespondenceStore();
 
 				// then set base dir (otherwise loading fails)
 				ipl.setBaseDir( newBaseDir ); // also sets 'isModified' flags
@@ -73,6 +73,8 @@ import net.preibisch.mvrecon.process.deconvolution.iteration.ComputeBlockThreadF
 import net.preibisch.mvrecon.process.deconvolution.iteration.mul.ComputeBlockMulThreadCPUFactory;
 import net.preibisch.mvrecon.process.deconvolution.iteration.sequential.ComputeBlockSeqThreadCPUFactory;
 import net.preibisch.mvrecon.process.deconvolution.iteration.sequential.ComputeBlockSeqThreadCUDAFactory;
+import net.preibisch.mvrecon.process.deconvolution.util.DeconvolutionCheckpoint;
+import net.preibisch.mvrecon.process.deconvolution.util.OutOfCoreStorage;
 import net.preibisch.mvrecon.process.downsampling.DownsampleTools;
 import net.preibisch.mvrecon.process.export.DisplayImage;
 import net.preibisch.mvrecon.process.export.ExportN5Api;
@@ -149,6 +151,8 @@ public class DeconvolutionGUI implements FusionExportInterface
 	public static int defaultPsiInit = 0;
 	public static double defaultOsemSpeedup = 1;
 	public static int defaultNumIterations = 10;
+	public static boolean defaultAccelerate = false;
+	public static double defaultStoppingTolerance = 0;
 	public static boolean defaultDebugMode = false;
 	public static int defaultDebugInterval = 1;
 	public static boolean defaultUseTikhonovRegularization = true;
@@ -170,6 +174,12 @@ public class DeconvolutionGUI implements FusionExportInterface
 	public static int defaultImgExportAlgorithm = 0;
 	public static String defaultPsiStartFile = "";
 	public static boolean defaultPreciseAvgMax = true;
+	public static boolean defaultOutOfCore = false;
+	public static String defaultScratchDirectory = OutOfCoreStorage.defaultScratchDirectory;
+	public static int defaultScratchCellDim = OutOfCoreStorage.defaultCellDim;
+	public static boolean defaultCheckpoint = false;
+	public static String defaultCheckpointDirectory = "";
+	public static int defaultCheckpointInterval = DeconvolutionCheckpoint.defaultInterval;
 
 
 	protected int boundingBox = defaultBB;
@@ -182,6 +192,8 @@ public class DeconvolutionGUI implements FusionExportInterface
 	protected int psiInit = defaultPsiInit;
 	protected double osemSpeedup = defaultOsemSpeedup;
 	protected int numIterations = defaultNumIterations;
+	protected boolean accelerate = defaultAccelerate;
+	protected double stoppingTolerance = defaultStoppingTolerance;
 	protected boolean debugMode = defaultDebugMode;
 	protected int debugInterval = defaultDebugInterval;
 	protected boolean useTikhonov = defaultUseTikhonovRegularization;
@@ -208,6 +220,12 @@ public class DeconvolutionGUI implements FusionExportInterface
 	protected long[] maxBlock = null;
 	protected String psiStartFile = "";
 	protected boolean preciseAvgMax = true;
+	protected boolean outOfCore = defaultOutOfCore;
+	protected String scratchDirectory = defaultScratchDirectory;
+	protected int scratchCellDim = defaultScratchCellDim;
+	protected boolean checkpoint = defaultCheckpoint;
+	protected String checkpointDirectory = defaultCheckpointDirectory;
+	protected int checkpointInterval = defaultCheckpointInterval;
 
 	protected NonRigidParametersGUI nrgui;
 
@@ -287,6 +305,8 @@ public class DeconvolutionGUI implements FusionExportInterface
 	public PSFTYPE getPSFType() { return PSFTYPE.values()[ psfType ]; }
 	public double getOSEMSpeedUp() { return osemSpeedup; }
 	public int getNumIterations() { return numIterations; }
+	public boolean accelerate() { return accelerate; }
+	public double getStoppingTolerance() { return stoppingTolerance; }
 	public boolean getDebugMode() { return debugMode; }
 	public int getDebugInterval() { return debugInterval; }
 	public boolean getUseTikhonov() { return useTikhonov; }
@@ -307,6 +327,12 @@ public class DeconvolutionGUI implements FusionExportInterface
 	public boolean groupTiles() { return groupTiles; }
 	public boolean groupIllums() { return groupIllums; }
 	public NonRigidParametersGUI getNonRigidParameters() { return nrgui; }
+	public boolean isOutOfCore() { return outOfCore; }
+	public String getScratchDirectory() { return scratchDirectory; }
+	public int getScratchCellDim() { return scratchCellDim; }
+	public boolean useCheckpoints() { return checkpoint; }
+	public String getCheckpointDirectory() { return checkpointDirectory; }
+	public int getCheckpointInterval() { return checkpointInterval; }
 	public PsiInitFactory getPsiInitFactory()
 	{
 		final PsiInitType psiInitType = PsiInitType.values()[ psiInit ];
@@ -376,6 +402,8 @@ public class DeconvolutionGUI implements FusionExportInterface
 		gd.addCheckbox( "Fast_sequential_iterations (OSEM)", !defaultMul );
 		gd.addNumericField( "OSEM_acceleration", defaultOsemSpeedup, 1 );
 		gd.addNumericField( "Number_of_iterations", defaultNumIterations, 0 );
+		gd.addCheckbox( "Accelerate_iterations (Biggs-Andrews, 3 more images of the output size, on scratch if out-of-core)", defaultAccelerate );
+		gd.addNumericField( "Stop_at_relative_change (0 = always run all iterations)", defaultStoppingTolerance, 4 );
 		gd.addCheckbox( "Debug_mode", defaultDebugMode );
 		gd.addCheckbox( "Use_Tikhonov_regularization", defaultUseTikhonovRegularization );
 		gd.addNumericField( "Tikhonov_parameter", defaultLambda, 4 );
@@ -387,6 +415,8 @@ public class DeconvolutionGUI implements FusionExportInterface
 		gd.addChoice( "Compute_on", computationOnChoice, computationOnChoice[ defaultComputeOnIndex ] );
 		if ( !PluginHelper.isHeadless() ) computeOnChoice = (Choice)gd.getChoices().lastElement();
 		gd.addCheckbox( "Adjust_blending & grouping parameters", defaultAdjustBlending );
+		gd.addCheckbox( "Out-of-core (deconvolved, input & weight images on local scratch)", defaultOutOfCore );
+		gd.addCheckbox( "Checkpoint_iterations (resume interrupted deconvolution)", defaultCheckpoint );
 
 		gd.addMessage( "" );
 
@@ -442,12 +472,16 @@ public class DeconvolutionGUI implements FusionExportInterface
 		mul = defaultMul = !gd.getNextBoolean();
 		osemSpeedup = defaultOsemSpeedup = gd.getNextNumber();
 		numIterations = defaultNumIterations = (int)Math.round( gd.getNextNumber() );
+		accelerate = defaultAccelerate = gd.getNextBoolean();
+		stoppingTolerance = defaultStoppingTolerance = Math.max( 0, gd.getNextNumber() );
 		debugMode = defaultDebugMode = gd.getNextBoolean();
 		useTikhonov = defaultUseTikhonovRegularization = gd.getNextBoolean();
 		lambda = defaultLambda = gd.getNextNumber();
 		blockSizeIndex = defaultBlockSizeIndex = gd.getNextChoiceIndex();
 		computeOnIndex = defaultComputeOnIndex = gd.getNextChoiceIndex();
 		adjustBlending = defaultAdjustBlending = gd.getNextBoolean();
+		outOfCore = defaultOutOfCore = gd.getNextBoolean();
+		checkpoint = defaultCheckpoint = gd.getNextBoolean();
 		splittingType = defaultSplittingType = gd.getNextChoiceIndex();
 		imgExport = defaultImgExportAlgorithm = gd.getNextChoiceIndex();
 
@@ -473,6 +507,12 @@ public class DeconvolutionGUI implements FusionExportInterface
 		if ( !getBlocks() )
 			return false;
 
+		if ( outOfCore && !getScratch() )
+			return false;
+
+		if ( checkpoint && !getCheckpoint() )
+			return false;
+
 		psiFactory = new CellImgFactory<>( psiCopyBlockSize );
 		copyFactory = new CellImgFactory<>( psiCopyBlockSize );
 
@@ -494,6 +534,8 @@ public class DeconvolutionGUI implements FusionExportInterface
 		IOFunctions.println( "Psi Init: " + psiInitChoice[ psiInit ] );
 		IOFunctions.println( "OSEMSpeedup: " + osemSpeedup );
 		IOFunctions.println( "Num Iterations: " + numIterations );
+		IOFunctions.println( "Accelerate (Biggs-Andrews): " + accelerate );
+		IOFunctions.println( "Stop at relative change: " + stoppingTolerance );
 		IOFunctions.println( "Debug Mode: " + debugMode );
 		if ( debugMode ) IOFunctions.println( "DebugInterval: " + debugInterval );
 		IOFunctions.println( "use Tikhonov: " + useTikhonov );
@@ -503,6 +545,10 @@ public class DeconvolutionGUI implements FusionExportInterface
 		IOFunctions.println( "Cache block size: " + cacheBlockSize );
 		IOFunctions.println( "Cache max num blocks: " + cacheMaxNumBlocks );
 		IOFunctions.println( "Deconvolved/Copy block size: " + psiCopyBlockSize );
+		IOFunctions.println( "Out-of-core: " + outOfCore );
+		if ( outOfCore ) IOFunctions.println( "Scratch directory: " + scratchDirectory + ", chunk size: " + scratchCellDim );
+		IOFunctions.println( "Checkpoints: " + checkpoint );
+		if ( checkpoint ) IOFunctions.println( "Checkpoint directory: " + checkpointDirectory + ", every " + checkpointInterval + " iterations" );
 		IOFunctions.println( "Compute on: " + computationOnChoice[ computeOnIndex ] );
 		IOFunctions.println( "ComputeBlockThread Factory: " + computeFactory.getClass().getSimpleName() + ": " + computeFactory );
 		IOFunctions.println( "Blending range: " + blendingRange );
@@ -579,6 +625,44 @@ public class DeconvolutionGUI implements FusionExportInterface
 		return true;
 	}
 
+	protected boolean getScratch()
+	{
+		GenericDialogPlus gd = new GenericDialogPlus( "Out-of-core deconvolution" );
+		gd.addDirectoryField( "Scratch_directory", defaultScratchDirectory, 80 );
+		gd.addNumericField( "Scratch_chunk_size", defaultScratchCellDim, 0 );
+		gd.addMessage( "Note: the deconvolved image, the input images and the weights are written to a fast\n"
+				+ "local disk, only the chunks needed by the current blocks are kept in memory.", GUIHelper.smallStatusFont );
+
+		gd.showDialog();
+
+		if ( gd.wasCanceled() )
+			return false;
+
+		defaultScratchDirectory = scratchDirectory = gd.getNextString();
+		defaultScratchCellDim = scratchCellDim = Math.max( 16, (int)Math.round( gd.getNextNumber() ) );
+
+		return true;
+	}
+
+	protected boolean getCheckpoint()
+	{
+		GenericDialogPlus gd = new GenericDialogPlus( "Checkpoint deconvolution" );
+		gd.addDirectoryField( "Checkpoint_directory", defaultCheckpointDirectory, 80 );
+		gd.addNumericField( "Checkpoint_every_n_iterations", defaultCheckpointInterval, 0 );
+		gd.addMessage( "Note: if the directory contains a checkpoint written with the same parameters, the\n"
+				+ "deconvolution resumes from it, a checkpoint with different parameters is not used.", GUIHelper.smallStatusFont );
+
+		gd.showDialog();
+
+		if ( gd.wasCanceled() )
+			return false;
+
+		defaultCheckpointDirectory = checkpointDirectory = gd.getNextString();
+		defaultCheckpointInterval = checkpointInterval = Math.max( 1, (int)Math.round( gd.getNextNumber() ) );
+
+		return true;
+	}
+
 	protected boolean getDebug()
 	{
 		if ( debugMode )
@@ -362,6 +362,7 @@ public class FusionGUI implements FusionExportInterface
 		splitChoice = PluginHelper.isHeadless() ? null : (Choice)gd.getChoices().lastElement();
 
 		gd.addChoice( "Fused_image", imgExportDescriptions, imgExportDescriptions[ defaultImgExportAlgorithm ] );
+		PluginHelper.addCacheMemory( gd );
 
 		gd.addMessage( "Estimated size: ", GUIHelper.largestatusfont, GUIHelper.good );
 		if ( !PluginHelper.isHeadless() )  label1 = (Label)gd.getMessage();
@@ -438,6 +439,7 @@ public class FusionGUI implements FusionExportInterface
 
 		splittingType = defaultSplittingType = gd.getNextChoiceIndex();
 		imgExport = defaultImgExportAlgorithm = gd.getNextChoiceIndex();
+		final long cacheMemory = PluginHelper.parseCacheMemory( gd );
 
 		if ( this.nrgui.isActive() && this.nrgui.userSelectedAdvancedParameters() )
 			if ( !this.nrgui.advancedParameters() )
@@ -477,6 +479,7 @@ public class FusionGUI implements FusionExportInterface
 		IOFunctions.println( "AnisotropyFactor: " + avgAnisoF );
 		IOFunctions.println( "Split by: " + splittingTypes[ getSplittingType() ] );
 		IOFunctions.println( "Image Export: " + imgExportDescriptions[ imgExport ] );
+		IOFunctions.println( "Cache memory: " + ( cacheMemory > 0 ? cacheMemory / ( 1024 * 1024 ) + " MB" : "unbounded" ) );
 		IOFunctions.println( "ImgLoader.isVirtual(): " + isImgLoaderVirtual() );
 		IOFunctions.println( "ImgLoader.isMultiResolution(): " + isMultiResolution() );
 
@@ -64,6 +64,7 @@ import net.preibisch.mvrecon.process.downsampling.DownsampleTools;
 import net.preibisch.mvrecon.process.export.DisplayImage;
 import net.preibisch.mvrecon.process.fusion.FusionTools;
 import net.preibisch.mvrecon.process.fusion.transformed.TransformVirtual;
+import net.preibisch.mvrecon.process.interestpointdetection.IntensityRangeEstimation;
 import net.preibisch.mvrecon.process.interestpointdetection.InterestPointTools;
 import net.preibisch.mvrecon.process.interestpointregistration.TransformationTools;
 import net.preibisch.mvrecon.process.interestpointregistration.pairwise.constellation.grouping.Group;
@@ -139,7 +140,7 @@ public abstract class DifferenceOfGUI extends InterestPointDetectionGUI
 			// we set the min & max intensity for all individual views
 			if ( Double.isNaN( minIntensity ) || Double.isNaN( maxIntensity ) )
 			{
-				IOFunctions.println( "(" + new Date( System.currentTimeMillis() ) + "): Determining it approximate Min & Max for all views at lowest resolution levels ... " );
+				IOFunctions.println( "(" + new Date( System.currentTimeMillis() ) + "): Determining it approximate Min & Max for all views at the lowest resolution levels ... " );
 
 				IJ.showProgress( 0 );
 
@@ -151,7 +152,20 @@ public abstract class DifferenceOfGUI extends InterestPointDetectionGUI
 				int count = 0;
 				for ( final ViewId view : viewIdsToProcess )
 				{
-					final double[] minmax = FusionTools.minMaxApprox1( DownsampleTools.openAtLowestLevel( imgLoader, view ) );
+					// downsampleXY == 0 : a bit less then z-resolution
+					// downsampleXY == -1 : a bit more then z-resolution
+					final int downsampleXY;
+
+					if ( downsampleXYIndex < 1 )
+						downsampleXY = DownsampleTools.downsampleFactor( downsampleXYIndex, downsampleZ, spimData.getSequenceDescription().getViewDescription( view ).getViewSetup().getVoxelSize() );
+					else
+						downsampleXY = downsampleXYIndex;
+
+					final double[] minmax = IntensityRangeEstimation.getOrEstimateAtLowestLevel(
+							imgLoader,
+							view,
+							new long[] { downsampleXY, downsampleXY, downsampleZ },
+							spimData.getIntensityRanges() );
 					min = Math.min( min, minmax[ 0 ] );
 					max = Math.max( max, minmax[ 1 ] );
 
@@ -25,7 +25,9 @@ package net.preibisch.mvrecon.fiji.plugin.interestpointdetection;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map.Entry;
 
 import ij.ImagePlus;
 import ij.gui.GenericDialog;
@@ -47,7 +49,6 @@ import net.preibisch.mvrecon.process.downsampling.DownsampleTools;
 import net.preibisch.mvrecon.process.fusion.FusionTools;
 import net.preibisch.mvrecon.process.interestpointdetection.methods.dog.DoG;
 import net.preibisch.mvrecon.process.interestpointdetection.methods.dog.DoGParameters;
-import net.preibisch.mvrecon.process.interestpointregistration.pairwise.constellation.grouping.Group;
 
 public class DifferenceOfGaussianGUI extends DifferenceOfGUI implements GenericDialogAppender
 {
@@ -108,6 +109,7 @@ public class DifferenceOfGaussianGUI extends DifferenceOfGUI implements GenericD
 
 		dog.minIntensity = this.minIntensity;
 		dog.maxIntensity = this.maxIntensity;
+		dog.intensityRanges = spimData.getIntensityRanges();
 
 		dog.sigma = this.sigma;
 		dog.threshold = this.threshold;
@@ -125,30 +127,41 @@ public class DifferenceOfGaussianGUI extends DifferenceOfGUI implements GenericD
 
 		final HashMap< ViewId, List< InterestPoint > > interestPoints = new HashMap< ViewId, List< InterestPoint > >();
 
+		// views with the same downsampling are processed together, so they can be scheduled concurrently (see DoG.addInterestPoints)
+		final LinkedHashMap< Integer, ArrayList< ViewDescription > > viewsPerDownsampling = new LinkedHashMap<>();
+
 		for ( final ViewDescription vd : SpimData2.getAllViewIdsForTimePointSorted( spimData, viewIdsToProcess, t ) )
+		{
+			if ( !vd.isPresent() )
+				continue;
+
+			// downsampleXY == 0 : a bit less then z-resolution
+			// downsampleXY == -1 : a bit more then z-resolution
+			final int downsampleXY;
+
+			if ( downsampleXYIndex < 1 )
+				downsampleXY = DownsampleTools.downsampleFactor( downsampleXYIndex, downsampleZ, vd.getViewSetup().getVoxelSize() );
+			else
+				downsampleXY = downsampleXYIndex;
+
+			viewsPerDownsampling.computeIfAbsent( downsampleXY, k -> new ArrayList<>() ).add( vd );
+		}
+
+		for ( final Entry< Integer, ArrayList< ViewDescription > > entry : viewsPerDownsampling.entrySet() )
 		{
 			// make sure not everything crashes if one file is missing
 			try
 			{
-				if ( !vd.isPresent() )
-					continue;
-
 				dog.toProcess.clear();
-				dog.toProcess.add( vd );
-
-				// downsampleXY == 0 : a bit less then z-resolution
-				// downsampleXY == -1 : a bit more then z-resolution
-				if ( downsampleXYIndex < 1 )
-					dog.downsampleXY = DownsampleTools.downsampleFactor( downsampleXYIndex, downsampleZ, vd.getViewSetup().getVoxelSize() );
-				else
-					dog.downsampleXY = downsampleXYIndex;
+				dog.toProcess.addAll( entry.getValue() );
+				dog.downsampleXY = entry.getKey();
 
 				DoG.addInterestPoints( interestPoints, dog );
 			}
 			catch ( Exception  e )
 			{
 				IOFunctions.println( "An error occured (DOG): " + e ); 
-				IOFunctions.println( "Failed to segment viewId: " + Group.pvid( vd ) + ". Continuing with next one." );
+				IOFunctions.println( "Failed to segment views: " + entry.getValue().size() + ". Continuing with next one." );
 				e.printStackTrace();
 			}
 		}
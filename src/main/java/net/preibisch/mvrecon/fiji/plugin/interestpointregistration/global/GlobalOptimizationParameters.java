@@ -23,6 +23,7 @@
 package net.preibisch.mvrecon.fiji.plugin.interestpointregistration.global;
 
 import ij.gui.GenericDialog;
+import net.preibisch.mvrecon.process.interestpointregistration.global.convergence.ConvergenceStrategy;
 
 public class GlobalOptimizationParameters
 {
@@ -36,6 +37,7 @@ public class GlobalOptimizationParameters
 	public static double defaultAbsoluteError = absoluteBase;
 
 	public static boolean defaultExpertGrouping = false;
+	public static int defaultNumThreads = ConvergenceStrategy.defaultNumThreads;
 
 	public enum GlobalOptType
 	{
@@ -66,6 +68,7 @@ public class GlobalOptimizationParameters
 	public double relativeThreshold;
 	public double absoluteThreshold;
 	public boolean showExpertGrouping;
+	public int numThreads = defaultNumThreads;
 
 	public GlobalOptimizationParameters()
 	{
@@ -80,14 +83,28 @@ public class GlobalOptimizationParameters
 		this.showExpertGrouping = showExpertGrouping;
 	}
 
+	/**
+	 * @param cs - a convergence strategy
+	 * @return the same convergence strategy, set to use the number of threads of these parameters
+	 */
+	public < C extends ConvergenceStrategy > C setNumThreads( final C cs )
+	{
+		cs.setNumThreads( numThreads );
+		return cs;
+	}
+
 	public static void addSimpleParametersToDialog( final GenericDialog gd )
 	{
 		gd.addChoice( "Global_optimization_strategy", methodDescriptionsSimple, methodDescriptionsSimple[ defaultSimple ] );
+		gd.addNumericField( "Global_optimization_threads (1 = sequential)", defaultNumThreads, 0 );
 	}
 
 	public static GlobalOptimizationParameters parseSimpleParametersFromDialog( final GenericDialog gd )
 	{
-		return getGlobalOptimizationParametersForSelection( defaultSimple = gd.getNextChoiceIndex() );
+		final int selected = defaultSimple = gd.getNextChoiceIndex();
+		defaultNumThreads = Math.max( 1, (int)Math.round( gd.getNextNumber() ) );
+
+		return getGlobalOptimizationParametersForSelection( selected );
 	}
 
 	public static GlobalOptimizationParameters getGlobalOptimizationParametersForSelection( final int selected )
@@ -149,6 +166,7 @@ public class GlobalOptimizationParameters
 		gd.addChoice( "Global_optimization_strategy", methodDescriptions, methodDescriptions[ defaultGlobalOpt ] );
 		gd.addNumericField( "relative error threshold (for handling wrong links)", 2.5, 3 );
 		gd.addNumericField( "absolute error threshold (for handling wrong links)", 3.5, 3 );
+		gd.addNumericField( "Global_optimization_threads (1 = sequential)", defaultNumThreads, 0 );
 		if (askForGrouping )
 			gd.addCheckbox( "show_expert_grouping_options", defaultExpertGrouping );
 		gd.showDialog();
@@ -158,6 +176,7 @@ public class GlobalOptimizationParameters
 
 		double relTh = gd.getNextNumber();
 		double absTh = gd.getNextNumber();
+		defaultNumThreads = Math.max( 1, (int)Math.round( gd.getNextNumber() ) );
 		final int methodIdx = defaultGlobalOpt = gd.getNextChoiceIndex();
 		final boolean expertGrouping = askForGrouping ? gd.getNextBoolean() : false;
 
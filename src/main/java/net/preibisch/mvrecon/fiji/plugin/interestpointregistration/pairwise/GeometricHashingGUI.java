@@ -84,6 +84,7 @@ public class GeometricHashingGUI extends PairwiseGUI
 		gd.addSlider( "Allowed_error_for_RANSAC (px)", 0.5, 100.0, RANSACParameters.max_epsilon );
 		gd.addSlider( "Inlier_factor (minimal amount of inliers)", 1, 20, min_inlier_factor );
 		gd.addChoice( "Number_of_RANSAC_iterations", RANSACParameters.ransacChoices, RANSACParameters.ransacChoices[ defaultRANSACIterationChoice ] );
+		gd.addNumericField( "RANSAC_threads (1 = sequential)", RANSACParameters.num_threads, 0 );
 	}
 
 	@Override
@@ -109,6 +110,7 @@ public class GeometricHashingGUI extends PairwiseGUI
 		final float maxEpsilon = RANSACParameters.max_epsilon = (float)gd.getNextNumber();
 		final float inlierFactor = min_inlier_factor = (float)gd.getNextNumber();
 		final int ransacIterations = RANSACParameters.ransacChoicesIterations[ defaultRANSACIterationChoice = gd.getNextChoiceIndex() ];
+		final int ransacThreads = RANSACParameters.num_threads = Math.max( 1, (int)Math.round( gd.getNextNumber() ) );
 
 		final float minInlierRatio;
 		if ( ratioOfDistance >= 2 )
@@ -119,7 +121,7 @@ public class GeometricHashingGUI extends PairwiseGUI
 			minInlierRatio = RANSACParameters.min_inlier_ratio / 100;
 
 		this.ghParams = new GeometricHashingParameters( model.getModel(), GeometricHashingParameters.differenceThreshold, ratioOfDistance, redundancy );
-		this.ransacParams = new RANSACParameters( maxEpsilon, minInlierRatio, inlierFactor, ransacIterations );
+		this.ransacParams = new RANSACParameters( maxEpsilon, minInlierRatio, inlierFactor, ransacIterations ).setNumThreads( ransacThreads );
 
 		IOFunctions.println( "Selected Paramters:" );
 		IOFunctions.println( "model: " + defaultModel );
@@ -128,6 +130,7 @@ public class GeometricHashingGUI extends PairwiseGUI
 		IOFunctions.println( "maxEpsilon: " + maxEpsilon );
 		IOFunctions.println( "inlierFactor: " + inlierFactor );
 		IOFunctions.println( "ransacIterations: " + ransacIterations );
+		IOFunctions.println( "ransacThreads: " + ransacThreads );
 		IOFunctions.println( "minInlierRatio: " + minInlierRatio );
 
 		return true;
@@ -94,6 +94,7 @@ public class RGLDMGUI extends PairwiseGUI
 		gd.addSlider( "Allowed_error_for_RANSAC (px)", 0.5, 100.0, RANSACParameters.max_epsilon );
 		gd.addSlider( "Inlier_factor (minimal amount of inliers)", 1, 20, min_inlier_factor );
 		gd.addChoice( "RANSAC_iterations", RANSACParameters.ransacChoices, RANSACParameters.ransacChoices[ defaultRANSACIterationChoice ] );
+		gd.addNumericField( "RANSAC_threads (1 = sequential)", RANSACParameters.num_threads, 0 );
 	}
 
 	@Override
@@ -122,6 +123,7 @@ public class RGLDMGUI extends PairwiseGUI
 		final float maxEpsilon = RANSACParameters.max_epsilon = (float)gd.getNextNumber();
 		final float inlierFactor = min_inlier_factor = (float)gd.getNextNumber();
 		final int ransacIterations = RANSACParameters.ransacChoicesIterations[ defaultRANSACIterationChoice = gd.getNextChoiceIndex() ];
+		final int ransacThreads = RANSACParameters.num_threads = Math.max( 1, (int)Math.round( gd.getNextNumber() ) );
 
 		final float minInlierRatio;
 		if ( ratioOfDistance >= 2 )
@@ -139,7 +141,7 @@ public class RGLDMGUI extends PairwiseGUI
 				searchRadius,
 				numNeighbors,
 				redundancy );
-		this.ransacParams = new RANSACParameters( maxEpsilon, minInlierRatio, inlierFactor, ransacIterations );
+		this.ransacParams = new RANSACParameters( maxEpsilon, minInlierRatio, inlierFactor, ransacIterations ).setNumThreads( ransacThreads );
 
 		IOFunctions.println( "Selected Paramters:" );
 		IOFunctions.println( "model: " + defaultModel );
@@ -149,6 +151,7 @@ public class RGLDMGUI extends PairwiseGUI
 		IOFunctions.println( "maxEpsilon: " + maxEpsilon );
 		IOFunctions.println( "inlierFactor: " + inlierFactor );
 		IOFunctions.println( "ransacIterations: " + ransacIterations );
+		IOFunctions.println( "ransacThreads: " + ransacThreads );
 		IOFunctions.println( "minInlierRatio: " + minInlierRatio );
 
 		return true;
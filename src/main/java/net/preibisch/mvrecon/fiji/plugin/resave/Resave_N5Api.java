@@ -58,6 +58,7 @@ import net.preibisch.mvrecon.fiji.plugin.queryXML.LoadParseQueryXML;
 import net.preibisch.mvrecon.fiji.spimdata.SpimData2;
 import net.preibisch.mvrecon.fiji.spimdata.XmlIoSpimData2;
 import net.preibisch.mvrecon.fiji.spimdata.imgloaders.AllenOMEZarrLoader;
+import net.preibisch.mvrecon.process.n5api.N5ApiCompletionManifest;
 import net.preibisch.mvrecon.process.n5api.N5ApiTools;
 import net.preibisch.mvrecon.process.n5api.N5ApiTools.MultiResolutionLevelInfo;
 import net.preibisch.mvrecon.process.n5api.SpimData2Tools;
@@ -200,6 +201,9 @@ public class Resave_N5Api implements PlugIn
 		IOFunctions.println( "Created BDV-metadata, took: " + (System.currentTimeMillis() - time ) + " ms." );
 		IOFunctions.println( "Number of compute blocks: " + grid.size() );
 
+		// record finished compute blocks per dataset so an interrupted resave can be resumed
+		final Map< ViewId, N5ApiCompletionManifest > manifests = createManifests( n5Writer, vidsToResave, viewIdToMrInfo, 0, grid, n5Params.resume );
+
 		final AtomicInteger progress = new AtomicInteger( 0 );
 		IJ.showProgress( progress.get(), grid.size() );
 
@@ -215,6 +219,14 @@ public class Resave_N5Api implements PlugIn
 			myPool.submit(() -> grid.parallelStream().forEach(
 					gridBlock -> 
 					{
+						final N5ApiCompletionManifest manifest = manifests.get( N5ApiTools.gridBlockToViewId( gridBlock ) );
+
+						if ( manifest.isComplete( gridBlock ) )
+						{
+							IJ.showProgress( progress.incrementAndGet(), grid.size() );
+							return;
+						}
+
 						N5ApiTools.resaveS0Block(
 							data,
 							n5Writer,
@@ -223,8 +235,12 @@ public class Resave_N5Api implements PlugIn
 							N5ApiTools.gridToDatasetBdv( 0, n5Params.format ), // a function mapping the gridblock to the dataset name for level 0 and N5
 							gridBlock );
 
+						manifest.markComplete( gridBlock );
+
 						IJ.showProgress( progress.incrementAndGet(), grid.size() );
 					})).get();
+
+			manifests.values().forEach( N5ApiCompletionManifest::flush );
 		}
 		catch (InterruptedException | ExecutionException e)
 		{
@@ -249,6 +265,8 @@ public class Resave_N5Api implements PlugIn
 									viewId,
 									viewIdToMrInfo.get(viewId)[s] )).flatMap(List::stream).collect( Collectors.toList() );
 
+			final Map< ViewId, N5ApiCompletionManifest > levelManifests = createManifests( n5Writer, vidsToResave, viewIdToMrInfo, s, allBlocks, n5Params.resume );
+
 			IOFunctions.println( "Downsampling level s" + s + "... " );
 			IOFunctions.println( "Number of compute blocks: " + allBlocks.size() );
 			IJ.showProgress( progress.get(), allBlocks.size() );
@@ -260,6 +278,14 @@ public class Resave_N5Api implements PlugIn
 				myPool.submit(() -> allBlocks.parallelStream().forEach(
 						gridBlock -> 
 						{
+							final N5ApiCompletionManifest manifest = levelManifests.get( N5ApiTools.gridBlockToViewId( gridBlock ) );
+
+							if ( manifest.isComplete( gridBlock ) )
+							{
+								IJ.showProgress( progress.incrementAndGet(), allBlocks.size() );
+								return;
+							}
+
 							// 5D OME-ZARR CONTAINER
 							if ( n5Params.format == StorageFormat.ZARR )
 							{
@@ -280,8 +306,12 @@ public class Resave_N5Api implements PlugIn
 									gridBlock );
 							}
 
+							manifest.markComplete( gridBlock );
+
 							IJ.showProgress( progress.incrementAndGet(), allBlocks.size() );
 						} ) ).get();
+
+				levelManifests.values().forEach( N5ApiCompletionManifest::flush );
 			}
 			catch (InterruptedException | ExecutionException e)
 			{
@@ -346,6 +376,34 @@ public class Resave_N5Api implements PlugIn
 		return sdReduced;
 	}
 
+	protected static Map< ViewId, N5ApiCompletionManifest > createManifests(
+			final N5Writer n5Writer,
+			final Collection<? extends ViewId> viewIds,
+			final Map< ViewId, MultiResolutionLevelInfo[] > viewIdToMrInfo,
+			final int level,
+			final List<long[][]> allBlocks,
+			final boolean resume )
+	{
+		final Map< ViewId, N5ApiCompletionManifest > manifests = new HashMap<>();
+		final Map< ViewId, List<long[][]> > viewIdToBlocks = allBlocks.stream().collect( Collectors.groupingBy( N5ApiTools::gridBlockToViewId ) );
+
+		for ( final ViewId viewId : viewIds )
+		{
+			final ViewId key = new ViewId( viewId.getTimePointId(), viewId.getViewSetupId() );
+
+			manifests.put(
+					key,
+					new N5ApiCompletionManifest(
+							n5Writer,
+							viewIdToMrInfo.get( viewId )[ level ].dataset,
+							N5ApiCompletionManifest.defaultAttributeKey,
+							viewIdToBlocks.getOrDefault( key, new ArrayList<>() ),
+							resume ) );
+		}
+
+		return manifests;
+	}
+
 	public static void main(String[] args)
 	{
 		List<long[][]> grid = Grid.create( new long[] { 500, 500 }, new int[] { 400, 400 }, new int[] { 200, 200 } );
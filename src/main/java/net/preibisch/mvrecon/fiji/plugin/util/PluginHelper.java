@@ -54,6 +54,7 @@ import org.janelia.scicomp.n5.zstandard.ZstandardCompression;
 import fiji.util.gui.GenericDialogPlus;
 import ij.gui.GenericDialog;
 import net.imagej.patcher.HeadlessGenericDialog;
+import util.Lazy;
 
 public class PluginHelper
 {
@@ -124,6 +125,27 @@ public class PluginHelper
 		return comp;
 	}
 
+	/**
+	 * Adds a macro-recordable field for the memory budget of the lazily computed images (fusion, detection), see {@link Lazy#defaultMaxCacheBytes}.
+	 *
+	 * @param gd - the dialog
+	 */
+	public static void addCacheMemory( final GenericDialog gd )
+	{
+		gd.addNumericField( "Cache_memory (MB, 0 = unbounded)", Math.max( 0, Lazy.defaultMaxCacheBytes / ( 1024 * 1024 ) ), 0 );
+	}
+
+	/**
+	 * @param gd - the dialog
+	 * @return the budget in bytes, also set as {@link Lazy#defaultMaxCacheBytes}
+	 */
+	public static long parseCacheMemory( final GenericDialog gd )
+	{
+		final long mb = Math.max( 0, Math.round( gd.getNextNumber() ) );
+
+		return Lazy.defaultMaxCacheBytes = mb > 0 ? mb * 1024 * 1024 : -1;
+	}
+
 	public static boolean isHeadless() { return GenericDialog.class.getSuperclass().equals( HeadlessGenericDialog.class ); }
 
 	public static void addSaveAsFileField( final GenericDialogPlus dialog, final String label, final String defaultPath, final int columns)
@@ -49,6 +49,7 @@ import mpicbg.spim.data.sequence.ViewId;
 import mpicbg.spim.data.sequence.ViewSetup;
 import net.preibisch.mvrecon.fiji.spimdata.boundingbox.BoundingBoxes;
 import net.preibisch.mvrecon.fiji.spimdata.intensityadjust.IntensityAdjustments;
+import net.preibisch.mvrecon.fiji.spimdata.intensityrange.IntensityRanges;
 import net.preibisch.mvrecon.fiji.spimdata.interestpoints.ViewInterestPoints;
 import net.preibisch.mvrecon.fiji.spimdata.pointspreadfunctions.PointSpreadFunctions;
 import net.preibisch.mvrecon.fiji.spimdata.stitchingresults.StitchingResults;
@@ -67,6 +68,7 @@ public class SpimData2 extends SpimData
 	private PointSpreadFunctions pointSpreadFunctions;
 	private StitchingResults stitchingResults;
 	private IntensityAdjustments intensityAdjustments;
+	private IntensityRanges intensityRanges = new IntensityRanges();
 	public boolean gridMoveRequested = false;
 
 	/*
@@ -111,6 +113,7 @@ public class SpimData2 extends SpimData
 	public PointSpreadFunctions getPointSpreadFunctions() { return pointSpreadFunctions; }
 	public StitchingResults getStitchingResults() { return stitchingResults; }
 	public  IntensityAdjustments getIntensityAdjustments() { return intensityAdjustments; }
+	public IntensityRanges getIntensityRanges() { return intensityRanges; }
 
 	protected void setViewsInterestPoints( final ViewInterestPoints viewsInterestPoints )
 	{
@@ -137,6 +140,11 @@ public class SpimData2 extends SpimData
 		this.intensityAdjustments = intensityAdjustments;
 	}
 
+	protected void setIntensityRanges( final IntensityRanges intensityRanges )
+	{
+		this.intensityRanges = intensityRanges;
+	}
+
 	/**
 	 * @param seqDesc the sequence description
 	 * @param t  - the timepoint
@@ -42,6 +42,8 @@ import net.preibisch.mvrecon.fiji.spimdata.boundingbox.BoundingBoxes;
 import net.preibisch.mvrecon.fiji.spimdata.boundingbox.XmlIoBoundingBoxes;
 import net.preibisch.mvrecon.fiji.spimdata.intensityadjust.IntensityAdjustments;
 import net.preibisch.mvrecon.fiji.spimdata.intensityadjust.XmlIoIntensityAdjustments;
+import net.preibisch.mvrecon.fiji.spimdata.intensityrange.IntensityRanges;
+import net.preibisch.mvrecon.fiji.spimdata.intensityrange.XmlIoIntensityRanges;
 import net.preibisch.mvrecon.fiji.spimdata.interestpoints.InterestPoints;
 import net.preibisch.mvrecon.fiji.spimdata.interestpoints.ViewInterestPointLists;
 import net.preibisch.mvrecon.fiji.spimdata.interestpoints.ViewInterestPoints;
@@ -61,6 +63,7 @@ public class XmlIoSpimData2 extends XmlIoAbstractSpimData< SequenceDescription,
 	final XmlIoPointSpreadFunctions xmlPointSpreadFunctions;
 	final XmlIoStitchingResults xmlStitchingResults;
 	final XmlIoIntensityAdjustments xmlIntensityAdjustments;
+	final XmlIoIntensityRanges xmlIntensityRanges;
 
 	URI lastURI;
 	public static int numBackups = 5;
@@ -85,6 +88,9 @@ public class XmlIoSpimData2 extends XmlIoAbstractSpimData< SequenceDescription,
 		this.xmlIntensityAdjustments = new XmlIoIntensityAdjustments();
 		this.handledTags.add( xmlIntensityAdjustments.getTag() );
 
+		this.xmlIntensityRanges = new XmlIoIntensityRanges();
+		this.handledTags.add( xmlIntensityRanges.getTag() );
+
 		if ( initN5Writing )
 		{
 			try
@@ -254,6 +260,14 @@ public class XmlIoSpimData2 extends XmlIoAbstractSpimData< SequenceDescription,
 			intensityAdjustments = xmlIntensityAdjustments.fromXml( elem );
 		spimData.setIntensityAdjustments( intensityAdjustments );
 
+		final IntensityRanges intensityRanges;
+		elem = root.getChild( xmlIntensityRanges.getTag() );
+		if ( elem == null )
+			intensityRanges = new IntensityRanges();
+		else
+			intensityRanges = xmlIntensityRanges.fromXml( elem );
+		spimData.setIntensityRanges( intensityRanges );
+
 		return spimData;
 	}
 
@@ -273,6 +287,7 @@ public class XmlIoSpimData2 extends XmlIoAbstractSpimData< SequenceDescription,
 		root.addContent( xmlPointSpreadFunctions.toXml( spimData.getPointSpreadFunctions() ) );
 		root.addContent( xmlStitchingResults.toXml( spimData.getStitchingResults() ) );
 		root.addContent( xmlIntensityAdjustments.toXml( spimData.getIntensityAdjustments() ) );
+		root.addContent( xmlIntensityRanges.toXml( spimData.getIntensityRanges() ) );
 
 		return root;
 	}
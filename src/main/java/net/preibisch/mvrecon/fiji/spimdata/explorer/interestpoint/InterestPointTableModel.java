@@ -41,7 +41,7 @@ import net.preibisch.legacy.io.IOFunctions;
 import net.preibisch.mvrecon.fiji.spimdata.explorer.ViewSetupExplorerPanel;
 import net.preibisch.mvrecon.fiji.spimdata.explorer.interestpoint.InterestPointOverlay.InterestPointSource;
 import net.preibisch.mvrecon.fiji.spimdata.explorer.popup.BasicBDVPopup;
-import net.preibisch.mvrecon.fiji.spimdata.interestpoints.CorrespondingInterestPoints;
+import net.preibisch.mvrecon.fiji.spimdata.interestpoints.CorrespondenceStore;
 import net.preibisch.mvrecon.fiji.spimdata.interestpoints.InterestPoint;
 import net.preibisch.mvrecon.fiji.spimdata.interestpoints.InterestPoints;
 import net.preibisch.mvrecon.fiji.spimdata.interestpoints.ViewInterestPoints;
@@ -201,8 +201,12 @@ public class InterestPointTableModel extends AbstractTableModel implements Inter
 			final HashSet< Integer > cips = new HashSet< Integer >();
 
 			if ( vip.getViewInterestPointLists( v ).getHashMap().containsKey( label ) )
-				for ( final CorrespondingInterestPoints c : vip.getViewInterestPointLists( v ).getInterestPointList( label ).getCorrespondingInterestPointsCopy() )
-					cips.add( c.getDetectionId() );
+			{
+				final CorrespondenceStore store = vip.getViewInterestPointLists( v ).getInterestPointList( label ).getCorrespondenceStore();
+
+				for ( int i = 0; i < store.size(); ++i )
+					cips.add( store.getDetectionId( i ) );
+			}
 	
 			sum += cips.size();
 		}
@@ -224,7 +228,7 @@ public class InterestPointTableModel extends AbstractTableModel implements Inter
 
 		for ( final ViewId v : views )
 			if ( vip.getViewInterestPointLists( v ).getHashMap().containsKey( label ) )
-				sum += vip.getViewInterestPointLists( v ).getInterestPointList( label ).getCorrespondingInterestPointsCopy().size();
+				sum += vip.getViewInterestPointLists( v ).getInterestPointList( label ).getCorrespondenceStore().size();
 
 		return sum;
 	}
@@ -235,7 +239,7 @@ public class InterestPointTableModel extends AbstractTableModel implements Inter
 
 		for ( final ViewId v : views )
 			if ( vip.getViewInterestPointLists( v ).getHashMap().containsKey( label ) )
-				sum += vip.getViewInterestPointLists( v ).getInterestPointList( label ).getInterestPointsCopy().size();
+				sum += vip.getViewInterestPointLists( v ).getInterestPointList( label ).getInterestPointStore().size();
 
 		return sum;
 	}
@@ -291,16 +295,20 @@ public class InterestPointTableModel extends AbstractTableModel implements Inter
 
 					final Collection< InterestPoint > tmp = new HashSet<>();
 	
-					for ( final CorrespondingInterestPoints ip : ipList.getCorrespondingInterestPointsCopy() )
+					final CorrespondenceStore store = ipList.getCorrespondenceStore();
+
+					for ( int i = 0; i < store.size(); ++i )
 					{
-						if ( !map.containsKey( ip.getDetectionId() ) )
+						final int detectionId = store.getDetectionId( i );
+
+						if ( !map.containsKey( detectionId ) )
 						{
 							IOFunctions.println( "Inconsistency in the interest points of view: " + Group.pvid( v ) );
-							IOFunctions.println( "Cannot find interestpoint for id = " + ip.getDetectionId() );
+							IOFunctions.println( "Cannot find interestpoint for id = " + detectionId );
 						}
 						else
 						{
-							tmp.add( map.get( ip.getDetectionId() ) );
+							tmp.add( map.get( detectionId ) );
 						}
 					}
 
@@ -319,8 +319,8 @@ public class ResavePopup extends JMenu implements ExplorerWindowSetable
 								{
 									try
 									{
-										ipl.getInterestPointsCopy();
-										ipl.getCorrespondingInterestPointsCopy();
+										ipl.getInterestPointStore();
+										ipl.getCorrespondenceStore();
 										ipl.setBaseDir( basePathURI ); // also sets 'isModified' flags
 									}
 									catch ( Exception e )
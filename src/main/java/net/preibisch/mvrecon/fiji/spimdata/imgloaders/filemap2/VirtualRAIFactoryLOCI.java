@@ -52,6 +52,7 @@ import net.imglib2.type.numeric.integer.UnsignedIntType;
 import net.imglib2.type.numeric.integer.UnsignedShortType;
 import net.imglib2.type.numeric.real.FloatType;
 import net.imglib2.util.Cast;
+import net.preibisch.mvrecon.fiji.spimdata.imgloaders.util.PlanePrefetcher;
 
 class VirtualRAIFactoryLOCI
 {
@@ -111,6 +112,11 @@ class VirtualRAIFactoryLOCI
 
 		final ByteOrder byteOrder = reader.isLittleEndian() ? LITTLE_ENDIAN : BIG_ENDIAN;
 
+		// sequential access in z reads the next planes ahead on the I/O pool
+		final PlanePrefetcher< ByteBuffer > planes = new PlanePrefetcher<>(
+				z -> readIntoBuffer( threadLocalReader.get(), file, series, channel, timepoint, z ),
+				( int ) dims[ 2 ] );
+
 		final int pixelType = reader.getPixelType();
 		switch ( pixelType )
 		{
@@ -118,7 +124,7 @@ class VirtualRAIFactoryLOCI
 			return Cast.unchecked( factory.create( dims, new UnsignedByteType(),
 					cell -> {
 						final int z = ( int ) cell.min( 2 );
-						final ByteBuffer bytes = readIntoBuffer( threadLocalReader.get(), file, series, channel, timepoint, z );
+						final ByteBuffer bytes = planes.get( z );
 						bytes.position( 0 );
 						bytes.get( ( byte[] ) cell.getStorageArray() );
 					} ) );
@@ -126,7 +132,7 @@ class VirtualRAIFactoryLOCI
 			return Cast.unchecked( factory.create( dims, new UnsignedShortType(),
 					cell -> {
 						final int z = ( int ) cell.min( 2 );
-						final ByteBuffer bytes = readIntoBuffer( threadLocalReader.get(), file, series, channel, timepoint, z );
+						final ByteBuffer bytes = planes.get( z );
 						final ShortBuffer shorts = bytes.order( byteOrder ).asShortBuffer();
 						shorts.position( 0 );
 						shorts.get( ( short[] ) cell.getStorageArray() );
@@ -135,7 +141,7 @@ class VirtualRAIFactoryLOCI
 			return Cast.unchecked( factory.create( dims, new ShortType(),
 					cell -> {
 						final int z = ( int ) cell.min( 2 );
-						final ByteBuffer bytes = readIntoBuffer( threadLocalReader.get(), file, series, channel, timepoint, z );
+						final ByteBuffer bytes = planes.get( z );
 						final ShortBuffer shorts = bytes.order( byteOrder ).asShortBuffer();
 						shorts.position( 0 );
 						shorts.get( ( short[] ) cell.getStorageArray() );
@@ -144,7 +150,7 @@ class VirtualRAIFactoryLOCI
 			return Cast.unchecked( factory.create( dims, new UnsignedIntType(),
 					cell -> {
 						final int z = ( int ) cell.min( 2 );
-						final ByteBuffer bytes = readIntoBuffer( threadLocalReader.get(), file, series, channel, timepoint, z );
+						final ByteBuffer bytes = planes.get( z );
 						final IntBuffer ints = bytes.order( byteOrder ).asIntBuffer();
 						ints.position( 0 );
 						ints.get( ( int[] ) cell.getStorageArray() );
@@ -153,7 +159,7 @@ class VirtualRAIFactoryLOCI
 			return Cast.unchecked( factory.create( dims, new FloatType(),
 					cell -> {
 						final int z = ( int ) cell.min( 2 );
-						final ByteBuffer bytes = readIntoBuffer( threadLocalReader.get(), file, series, channel, timepoint, z );
+						final ByteBuffer bytes = planes.get( z );
 						final FloatBuffer floats = bytes.order( byteOrder ).asFloatBuffer();
 						floats.position( 0 );
 						floats.get( ( float[] ) cell.getStorageArray() );
@@ -35,7 +35,6 @@ import mpicbg.spim.data.sequence.VoxelDimensions;
 import net.imglib2.Dimensions;
 import net.imglib2.RandomAccessible;
 import net.imglib2.RandomAccessibleInterval;
-import net.imglib2.converter.RealTypeConverters;
 import net.imglib2.img.Img;
 import net.imglib2.img.ImgFactory;
 import net.imglib2.img.array.ArrayImgFactory;
@@ -113,11 +112,11 @@ public class DefaultFlatfieldCorrectionWrappedImgLoader extends LazyLoadingFlatF
 						hints );
 
 			@SuppressWarnings("unchecked")
-			RandomAccessibleInterval< T > rai = FlatFieldCorrectedRandomAccessibleIntervals.create(
-					(RandomAccessibleInterval< T >) wrappedImgLoader.getSetupImgLoader( setupId ).getImage( timepointId,
-							hints ),
-					getBrightImg( new ViewId( timepointId, setupId ) ),
-					getDarkImg( new ViewId( timepointId, setupId ) ) );
+			final RandomAccessibleInterval< T > sourceImg = (RandomAccessibleInterval< T >) wrappedImgLoader.getSetupImgLoader( setupId ).getImage( timepointId, hints );
+			final RandomAccessibleInterval< FloatType > brightImg = getBrightImg( new ViewId( timepointId, setupId ) );
+			final RandomAccessibleInterval< FloatType > darkImg = getDarkImg( new ViewId( timepointId, setupId ) );
+
+			RandomAccessibleInterval< T > rai = FlatFieldCorrectedRandomAccessibleIntervals.create( sourceImg, brightImg, darkImg );
 
 			boolean loadCompletelyRequested = false;
 			for (ImgLoaderHint hint : hints)
@@ -137,19 +136,16 @@ public class DefaultFlatfieldCorrectionWrappedImgLoader extends LazyLoadingFlatF
 					imgFactory = new CellImgFactory<T>();
 
 				Img< T > loadedImg = imgFactory.create( rai, getImageType() );
-				RealTypeConverters.copyFromTo( Views.extendZero( rai ), loadedImg );
+				new FlatFieldCorrectedBlocks<>( sourceImg, getPlanes( sourceImg, brightImg, darkImg ), getImageType() ).accept( loadedImg );
 
 				rai = loadedImg;
 			}
 
 			else if ( cacheResult )
 			{
-				final int[] cellSize = new int[rai.numDimensions()];
-				Arrays.fill( cellSize, 1 );
-				for ( int d = 0; d < rai.numDimensions() - 1; d++ )
-					cellSize[d] = (int) rai.dimension( d );
-				rai = FusionTools.cacheRandomAccessibleInterval( rai, Long.MAX_VALUE,
-						Views.iterable( rai ).firstElement().createVariable(), cellSize );
+				// corrects entire planes at once
+				rai = FlatFieldCorrectedBlocks.create( sourceImg, getPlanes( sourceImg, brightImg, darkImg ), getImageType(),
+						FlatFieldCorrectedBlocks.planeCellSize( sourceImg ) );
 			}
 
 			return rai;
@@ -165,11 +161,18 @@ public class DefaultFlatfieldCorrectionWrappedImgLoader extends LazyLoadingFlatF
 						false, hints );
 
 			@SuppressWarnings("unchecked")
-			RandomAccessibleInterval< FloatType > rai = FlatFieldCorrectedRandomAccessibleIntervals.create(
-					(RandomAccessibleInterval< T >) wrappedImgLoader.getSetupImgLoader( setupId ).getImage( timepointId,
-							hints ),
-					getBrightImg( new ViewId( timepointId, setupId ) ),
-					getDarkImg( new ViewId( timepointId, setupId ) ), new FloatType() );
+			final RandomAccessibleInterval< T > sourceImg = (RandomAccessibleInterval< T >) wrappedImgLoader.getSetupImgLoader( setupId ).getImage( timepointId, hints );
+			final RandomAccessibleInterval< FloatType > brightImg = getBrightImg( new ViewId( timepointId, setupId ) );
+			final RandomAccessibleInterval< FloatType > darkImg = getDarkImg( new ViewId( timepointId, setupId ) );
+
+			RandomAccessibleInterval< FloatType > rai;
+
+			// corrects entire planes at once
+			if ( cacheResult )
+				rai = FlatFieldCorrectedBlocks.create( sourceImg, getPlanes( sourceImg, brightImg, darkImg ), new FloatType(),
+						FlatFieldCorrectedBlocks.planeCellSize( sourceImg ) );
+			else
+				rai = FlatFieldCorrectedRandomAccessibleIntervals.create( sourceImg, brightImg, darkImg, new FloatType() );
 
 			if ( normalize )
 			{
@@ -228,19 +231,10 @@ public class DefaultFlatfieldCorrectionWrappedImgLoader extends LazyLoadingFlatF
 						imgFactory = new CellImgFactory<FloatType>();
 
 					Img< FloatType > loadedImg = imgFactory.create( rai, new FloatType() );
-					FileMapImgLoaderLOCI2.copy(Views.extendZero( rai ), loadedImg);
+					new FlatFieldCorrectedBlocks<>( sourceImg, getPlanes( sourceImg, brightImg, darkImg ), new FloatType() ).accept( loadedImg );
 
 					rai = loadedImg;
 				}
-				else if ( cacheResult )
-				{
-					final int[] cellSize = new int[rai.numDimensions()];
-					Arrays.fill( cellSize, 1 );
-					for ( int d = 0; d < rai.numDimensions() - 1; d++ )
-						cellSize[d] = (int) rai.dimension( d );
-					rai = FusionTools.cacheRandomAccessibleInterval( rai, Long.MAX_VALUE,
-							Views.iterable( rai ).firstElement().createVariable(), cellSize );
-				}
 
 			}
 			return rai;
@@ -0,0 +1,215 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.fiji.spimdata.imgloaders.flatfield;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import net.imglib2.Cursor;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.basictypeaccess.AccessFlags;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+import util.Lazy;
+
+/**
+ * Block-wise flat-field correction, (img - dark) * mean( bright - dark ) / ( bright - dark ), computes
+ * the same as {@link FlatFieldCorrectedRandomAccessibleInterval} for entire cells at once instead of
+ * per voxel. The dark image and the gain (mean( bright - dark ) / ( bright - dark ), 0 where bright == dark)
+ * are precomputed as float[] planes over the XY extent of the source image, the correction of a
+ * cell is then a single pass over the source with flat cursors.
+ *
+ * @param <T> - the source type
+ * @param <O> - the output type
+ */
+public class FlatFieldCorrectedBlocks< T extends RealType< T >, O extends RealType< O > > implements Consumer< RandomAccessibleInterval< O > >
+{
+	final RandomAccessibleInterval< T > sourceImg;
+	final Planes planes;
+	final float minValue, maxValue;
+
+	/**
+	 * @param sourceImg - the image to correct (at least 2D)
+	 * @param planes - dark and gain planes for the XY extent of the source image
+	 * @param outputType - the output type (for clipping to its range)
+	 */
+	public FlatFieldCorrectedBlocks( final RandomAccessibleInterval< T > sourceImg, final Planes planes, final O outputType )
+	{
+		this.sourceImg = sourceImg;
+		this.planes = planes;
+		this.minValue = (float)Math.max( outputType.getMinValue(), -Float.MAX_VALUE );
+		this.maxValue = (float)Math.min( outputType.getMaxValue(), Float.MAX_VALUE );
+	}
+
+	/**
+	 * Corrects the interval of the source covered by output into output.
+	 */
+	@Override
+	public void accept( final RandomAccessibleInterval< O > output )
+	{
+		final float[] dark = planes.dark;
+		final float[] gain = planes.gain;
+
+		final Cursor< T > in = Views.flatIterable( Views.interval( sourceImg, output ) ).cursor();
+		final Cursor< O > out = Views.flatIterable( output ).cursor();
+
+		final int sx = (int)output.dimension( 0 );
+		final int sy = output.numDimensions() > 1 ? (int)output.dimension( 1 ) : 1;
+		final long numPlanes = Intervals.numElements( output ) / ( (long)sx * sy );
+
+		final int offsetX = (int)( output.min( 0 ) - sourceImg.min( 0 ) );
+		final int offsetY = output.numDimensions() > 1 ? (int)( output.min( 1 ) - sourceImg.min( 1 ) ) : 0;
+
+		for ( long p = 0; p < numPlanes; ++p )
+			for ( int y = 0; y < sy; ++y )
+			{
+				final int row = ( offsetY + y ) * planes.width + offsetX;
+
+				for ( int x = 0; x < sx; ++x )
+				{
+					final int i = row + x;
+					final float v = ( in.next().getRealFloat() - dark[ i ] ) * gain[ i ];
+
+					out.next().setReal( Math.min( Math.max( v, minValue ), maxValue ) );
+				}
+			}
+	}
+
+	/**
+	 * @param sourceImg - the image to correct (at least 2D)
+	 * @param planes - dark and gain planes for the XY extent of the source image
+	 * @param outputType - the output type
+	 * @param cellSize - the cell size of the result
+	 * @param <T> - the source type
+	 * @param <O> - the output type
+	 * @return a cached image that computes the correction per cell
+	 */
+	public static < T extends RealType< T >, O extends RealType< O > & NativeType< O > > RandomAccessibleInterval< O > create(
+			final RandomAccessibleInterval< T > sourceImg,
+			final Planes planes,
+			final O outputType,
+			final int[] cellSize )
+	{
+		return Lazy.process(
+				sourceImg,
+				cellSize,
+				outputType.createVariable(),
+				AccessFlags.setOf(),
+				new FlatFieldCorrectedBlocks<>( sourceImg, planes, outputType ) );
+	}
+
+	/**
+	 * @param img - any image
+	 * @return one XY plane per cell
+	 */
+	public static int[] planeCellSize( final Interval img )
+	{
+		final int[] cellSize = new int[ img.numDimensions() ];
+
+		for ( int d = 0; d < img.numDimensions(); ++d )
+			cellSize[ d ] = d < 2 ? (int)img.dimension( d ) : 1;
+
+		return cellSize;
+	}
+
+	/**
+	 * The dark image and the gain as float[] for the XY extent of a source image.
+	 */
+	public static class Planes
+	{
+		final int width, height;
+		final float[] dark, gain;
+
+		/**
+		 * Like {@link FlatFieldCorrectedRandomAccessibleIntervals}, bright and dark images are extended by border
+		 * to the source image, only their first (XY) plane is used.
+		 *
+		 * @param sourceImg - the image that is corrected
+		 * @param brightImg - bright image or null (constant 1)
+		 * @param darkImg - dark image or null (constant 0)
+		 * @param <S> - bright type
+		 * @param <R> - dark type
+		 */
+		public < S extends RealType< S >, R extends RealType< R > > Planes(
+				final Interval sourceImg,
+				final RandomAccessibleInterval< S > brightImg,
+				final RandomAccessibleInterval< R > darkImg )
+		{
+			this.width = (int)sourceImg.dimension( 0 );
+			this.height = sourceImg.numDimensions() > 1 ? (int)sourceImg.dimension( 1 ) : 1;
+
+			final float[] bright = plane( sourceImg, brightImg, 1.0f );
+			this.dark = plane( sourceImg, darkImg, 0.0f );
+			this.gain = new float[ width * height ];
+
+			// over the same interval as FlatFieldCorrectedRandomAccessibleInterval, which can differ from the
+			// first XY plane if bright or dark image have more planes or a different dimensionality
+			final double meanBrightCorrected = FlatFieldCorrectedRandomAccessibleIntervals.getMeanCorrected( sourceImg, brightImg, darkImg );
+
+			for ( int i = 0; i < gain.length; ++i )
+			{
+				final float brightCorrected = bright[ i ] - dark[ i ];
+				gain[ i ] = brightCorrected == 0 ? 0 : (float)( meanBrightCorrected / brightCorrected );
+			}
+		}
+
+		public int width() { return width; }
+		public int height() { return height; }
+
+		protected < S extends RealType< S > > float[] plane( final Interval sourceImg, final RandomAccessibleInterval< S > img, final float constant )
+		{
+			final float[] plane = new float[ width * height ];
+
+			if ( img == null )
+			{
+				Arrays.fill( plane, constant );
+				return plane;
+			}
+
+			final RandomAccess< S > ra = Views.extendBorder( img ).randomAccess();
+			final long[] position = new long[ img.numDimensions() ];
+
+			for ( int d = 2; d < position.length; ++d )
+				position[ d ] = img.min( d );
+
+			for ( int y = 0, i = 0; y < height; ++y )
+			{
+				if ( position.length > 1 )
+					position[ 1 ] = sourceImg.min( 1 ) + y;
+
+				for ( int x = 0; x < width; ++x, ++i )
+				{
+					position[ 0 ] = sourceImg.min( 0 ) + x;
+					ra.setPosition( position );
+					plane[ i ] = ra.get().getRealFloat();
+				}
+			}
+
+			return plane;
+		}
+	}
+}
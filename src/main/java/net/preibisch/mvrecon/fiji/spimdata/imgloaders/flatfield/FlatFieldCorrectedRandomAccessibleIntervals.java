@@ -27,6 +27,7 @@ import java.util.Arrays;
 import bdv.util.ConstantRandomAccessible;
 import bdv.viewer.overlay.SourceInfoOverlayRenderer;
 import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.real.FloatType;
@@ -104,4 +105,51 @@ public class FlatFieldCorrectedRandomAccessibleIntervals
 			
 		return new FlatFieldCorrectedRandomAccessibleInterval<>(outputType, sourceImg, Views.interval( Views.extendBorder( brightImg ), intervalBright ), Views.interval( Views.extendBorder( darkImg ), intervalDark ) );
 	}
+
+	/**
+	 * The mean of ( bright - dark ) exactly as {@link #create(RandomAccessibleInterval, RandomAccessibleInterval, RandomAccessibleInterval, RealType)}
+	 * computes it, i.e. over the interval of the source image (only for the dimensionality of the bright image),
+	 * with bright and dark images extended by border and constant 1 and 0 if they are null.
+	 *
+	 * @param sourceImg - the interval of the image to correct
+	 * @param brightImg - bright image or null
+	 * @param darkImg - dark image or null
+	 * @return the mean of the dark-corrected bright image
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static double getMeanCorrected(
+			final Interval sourceImg,
+			final RandomAccessibleInterval< ? extends RealType< ? > > brightImg,
+			final RandomAccessibleInterval< ? extends RealType< ? > > darkImg )
+	{
+		final RandomAccessibleInterval bright, dark;
+
+		if ( brightImg == null )
+			bright = Views.interval( new ConstantRandomAccessible<FloatType>( new FloatType(1.0f), sourceImg.numDimensions() ), sourceImg );
+		else
+			bright = Views.interval( Views.extendBorder( (RandomAccessibleInterval)brightImg ), interval( sourceImg, brightImg.numDimensions() ) );
+
+		if ( darkImg == null )
+			dark = Views.interval( new ConstantRandomAccessible<FloatType>( new FloatType(0.0f), sourceImg.numDimensions() ), sourceImg );
+		else
+			dark = Views.interval( Views.extendBorder( (RandomAccessibleInterval)darkImg ), interval( sourceImg, darkImg.numDimensions() ) );
+
+		return FlatFieldCorrectedRandomAccessibleInterval.getMeanCorrected( bright, dark );
+	}
+
+	// interval of source img, but only for dimensionality n of bright/dark
+	protected static FinalInterval interval( final Interval sourceImg, final int n )
+	{
+		final long[] mins = new long[ n ];
+		final long[] maxs = new long[ n ];
+		Arrays.fill( maxs, 1 );
+
+		for ( int d = 0; d < n; ++d )
+		{
+			mins[ d ] = sourceImg.min( d );
+			maxs[ d ] = sourceImg.max( d );
+		}
+
+		return new FinalInterval( mins, maxs );
+	}
 }
@@ -23,29 +23,37 @@
 package net.preibisch.mvrecon.fiji.spimdata.imgloaders.flatfield;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import ij.IJ;
 import ij.ImagePlus;
 import mpicbg.spim.data.sequence.ImgLoader;
 import mpicbg.spim.data.sequence.ViewId;
+import net.imglib2.Interval;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.img.display.imagej.ImageJFunctions;
 import net.imglib2.type.numeric.real.FloatType;
 import net.imglib2.util.Pair;
 import net.imglib2.util.ValuePair;
+import net.preibisch.mvrecon.fiji.spimdata.imgloaders.flatfield.FlatFieldCorrectedBlocks.Planes;
 
 public abstract class LazyLoadingFlatFieldCorrectionMap<IL extends ImgLoader> implements FlatfieldCorrectionWrappedImgLoader< IL >
 {
 	
 	protected final Map< File, RandomAccessibleInterval< FloatType > > raiMap;
 	protected final Map<ViewId, Pair<File, File>> fileMap;
-	
+
+	/* dark and gain planes for block-wise correction, by bright/dark image and source XY extent */
+	protected final Map< List< Object >, Planes > planesMap;
+
 	public LazyLoadingFlatFieldCorrectionMap()
 	{
 		raiMap = new HashMap<>();
 		fileMap = new HashMap<>();
+		planesMap = new HashMap<>();
 	}
 	
 	@Override
@@ -96,6 +104,25 @@ public abstract class LazyLoadingFlatFieldCorrectionMap<IL extends ImgLoader> im
 		return raiMap.get( fileToLoad );
 	}
 	
+	/**
+	 * @param sourceImg - the image to correct
+	 * @param brightImg - bright image or null
+	 * @param darkImg - dark image or null
+	 * @return the (cached) dark and gain planes for the XY extent of sourceImg
+	 */
+	protected synchronized Planes getPlanes(
+			final Interval sourceImg,
+			final RandomAccessibleInterval< FloatType > brightImg,
+			final RandomAccessibleInterval< FloatType > darkImg )
+	{
+		// the planes only depend on the XY extent, but the mean on the entire interval
+		final List< Object > key = Arrays.asList(
+				brightImg, darkImg,
+				Arrays.toString( sourceImg.minAsLongArray() ), Arrays.toString( sourceImg.maxAsLongArray() ) );
+
+		return planesMap.computeIfAbsent( key, k -> new Planes( sourceImg, brightImg, darkImg ) );
+	}
+
 	protected void loadFileIfNecessary(File file)
 	{
 		if (raiMap.containsKey( file ))
@@ -43,7 +43,6 @@ import net.imglib2.FinalDimensions;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessible;
 import net.imglib2.RandomAccessibleInterval;
-import net.imglib2.converter.RealTypeConverters;
 import net.imglib2.img.Img;
 import net.imglib2.img.ImgFactory;
 import net.imglib2.img.array.ArrayImgFactory;
@@ -199,10 +198,11 @@ public class MultiResolutionFlatfieldCorrectionWrappedImgLoader
 			dsFactors[n - 1] = 1;
 
 			@SuppressWarnings("unchecked")
-			RandomAccessibleInterval< T > rai = FlatFieldCorrectedRandomAccessibleIntervals.create(
-					(RandomAccessibleInterval< T >) wrpSetupIL.getImage( timepointId, level, hints ),
-					getOrCreateBrightImgDownsampled( new ViewId( timepointId, setupId ), dsFactors ),
-					getOrCreateDarkImgDownsampled( new ViewId( timepointId, setupId ), dsFactors ) );
+			final RandomAccessibleInterval< T > sourceImg = (RandomAccessibleInterval< T >) wrpSetupIL.getImage( timepointId, level, hints );
+			final RandomAccessibleInterval< FloatType > brightImg = getOrCreateBrightImgDownsampled( new ViewId( timepointId, setupId ), dsFactors );
+			final RandomAccessibleInterval< FloatType > darkImg = getOrCreateDarkImgDownsampled( new ViewId( timepointId, setupId ), dsFactors );
+
+			RandomAccessibleInterval< T > rai = FlatFieldCorrectedRandomAccessibleIntervals.create( sourceImg, brightImg, darkImg );
 
 			boolean loadCompletelyRequested = false;
 			for (ImgLoaderHint hint : hints)
@@ -222,18 +222,15 @@ public class MultiResolutionFlatfieldCorrectionWrappedImgLoader
 					imgFactory = new CellImgFactory<T>();
 
 				Img< T > loadedImg = imgFactory.create( rai, getImageType() );
-				RealTypeConverters.copyFromTo( Views.extendZero( rai ), loadedImg );
+				new FlatFieldCorrectedBlocks<>( sourceImg, getPlanes( sourceImg, brightImg, darkImg ), getImageType() ).accept( loadedImg );
 
 				rai = loadedImg;
 			}
 			else if ( cacheResult )
 			{
-				final int[] cellSize = new int[rai.numDimensions()];
-				Arrays.fill( cellSize, 1 );
-				for ( int d = 0; d < rai.numDimensions() - 1; d++ )
-					cellSize[d] = (int) rai.dimension( d );
-				rai =  FusionTools.cacheRandomAccessibleInterval( rai, Long.MAX_VALUE,
-						Views.iterable( rai ).firstElement().createVariable(), cellSize );
+				// corrects entire planes at once
+				rai = FlatFieldCorrectedBlocks.create( sourceImg, getPlanes( sourceImg, brightImg, darkImg ), getImageType(),
+						FlatFieldCorrectedBlocks.planeCellSize( sourceImg ) );
 			}
 			return rai;
 		}
@@ -258,10 +255,18 @@ public class MultiResolutionFlatfieldCorrectionWrappedImgLoader
 			dsFactors[n - 1] = 1;
 
 			@SuppressWarnings("unchecked")
-			RandomAccessibleInterval< FloatType > rai = FlatFieldCorrectedRandomAccessibleIntervals.create(
-					(RandomAccessibleInterval< T >) wrpSetupIL.getImage( timepointId, level, hints ),
-					getOrCreateBrightImgDownsampled( new ViewId( timepointId, setupId ), dsFactors ),
-					getOrCreateDarkImgDownsampled( new ViewId( timepointId, setupId ), dsFactors ), new FloatType() );
+			final RandomAccessibleInterval< T > sourceImg = (RandomAccessibleInterval< T >) wrpSetupIL.getImage( timepointId, level, hints );
+			final RandomAccessibleInterval< FloatType > brightImg = getOrCreateBrightImgDownsampled( new ViewId( timepointId, setupId ), dsFactors );
+			final RandomAccessibleInterval< FloatType > darkImg = getOrCreateDarkImgDownsampled( new ViewId( timepointId, setupId ), dsFactors );
+
+			RandomAccessibleInterval< FloatType > rai;
+
+			// corrects entire planes at once
+			if ( cacheResult )
+				rai = FlatFieldCorrectedBlocks.create( sourceImg, getPlanes( sourceImg, brightImg, darkImg ), new FloatType(),
+						FlatFieldCorrectedBlocks.planeCellSize( sourceImg ) );
+			else
+				rai = FlatFieldCorrectedRandomAccessibleIntervals.create( sourceImg, brightImg, darkImg, new FloatType() );
 
 			if ( normalize )
 			{
@@ -320,19 +325,10 @@ public class MultiResolutionFlatfieldCorrectionWrappedImgLoader
 						imgFactory = new CellImgFactory<FloatType>();
 
 					Img< FloatType > loadedImg = imgFactory.create( rai, new FloatType() );
-					FileMapImgLoaderLOCI2.copy(Views.extendZero( rai ), loadedImg);
+					new FlatFieldCorrectedBlocks<>( sourceImg, getPlanes( sourceImg, brightImg, darkImg ), new FloatType() ).accept( loadedImg );
 
 					rai = loadedImg;
 				}
-				else if ( cacheResult )
-				{
-					final int[] cellSize = new int[rai.numDimensions()];
-					Arrays.fill( cellSize, 1 );
-					for ( int d = 0; d < rai.numDimensions() - 1; d++ )
-						cellSize[d] = (int) rai.dimension( d );
-					rai = FusionTools.cacheRandomAccessibleInterval( rai, Long.MAX_VALUE,
-							Views.iterable( rai ).firstElement().createVariable(), cellSize );
-				}
 
 			}
 			return rai;
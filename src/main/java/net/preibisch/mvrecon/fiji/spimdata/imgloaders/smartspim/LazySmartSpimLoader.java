@@ -22,6 +22,10 @@
  */
 package net.preibisch.mvrecon.fiji.spimdata.imgloaders.smartspim;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.function.Consumer;
 
 import ij.ImageJ;
@@ -30,6 +34,7 @@ import net.imglib2.Cursor;
 import net.imglib2.FinalDimensions;
 import net.imglib2.FinalInterval;
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.cache.img.SingleCellArrayImg;
 import net.imglib2.img.Img;
 import net.imglib2.img.array.ArrayImgs;
 import net.imglib2.img.basictypeaccess.AccessFlags;
@@ -38,14 +43,21 @@ import net.imglib2.type.numeric.integer.UnsignedShortType;
 import net.imglib2.view.Views;
 import net.preibisch.mvrecon.fiji.datasetmanager.SmartSPIM;
 import net.preibisch.mvrecon.fiji.datasetmanager.SmartSPIM.SmartSPIMMetaData;
+import net.preibisch.mvrecon.fiji.spimdata.imgloaders.util.PlanePrefetcher;
 import util.Lazy;
 import util.URITools;
 
 public class LazySmartSpimLoader implements Consumer<RandomAccessibleInterval<UnsignedShortType>>
 {
+	// read uncompressed/LZW TIFF planes without ImageJ (falls back to ImageJ for anything else)
+	public static boolean useDirectTiffReader = true;
+
 	final SmartSPIMMetaData metadata;
 	final int channel, xTile, yTile;
 
+	// sequential access in z reads the next planes ahead on the I/O pool
+	final PlanePrefetcher< short[] > planes;
+
 	public LazySmartSpimLoader(
 			final SmartSPIMMetaData metadata,
 			final int channel,
@@ -56,6 +68,34 @@ public class LazySmartSpimLoader implements Consumer<RandomAccessibleInterval<Un
 		this.channel = channel;
 		this.xTile = xTile;
 		this.yTile = yTile;
+		this.planes = new PlanePrefetcher<>( this::loadPlane, (int)metadata.dimensions[ 2 ] );
+	}
+
+	protected short[] loadPlane( final int z ) throws IOException
+	{
+		final short[] pixels = new short[ (int)metadata.dimensions[ 0 ] * (int)metadata.dimensions[ 1 ] ];
+		readPlane( z, pixels );
+		return pixels;
+	}
+
+	protected void readPlane( final int z, final short[] pixels ) throws IOException
+	{
+		final URI imageDir = metadata.folderFor(
+				metadata.channels.get( channel ),
+				metadata.xTileLocations.get( xTile ),
+				metadata.yTileLocations.get( yTile ) );
+
+		final String fileName = metadata.sortedFileNames.get( z );
+
+		// decode directly into the array if possible, otherwise load it with ImageJ
+		if ( useDirectTiffReader &&
+				TiffPlaneReader.readPlane( new File( imageDir.resolve( fileName ) ), pixels, (int)metadata.dimensions[ 0 ], (int)metadata.dimensions[ 1 ] ) )
+			return;
+
+		final ImagePlus imp = SmartSPIMMetaData.loadImage( imageDir, fileName );
+		final short[] impPixels = (short[])imp.getProcessor().getPixels();
+		System.arraycopy( impPixels, 0, pixels, 0, pixels.length );
+		imp.close();
 	}
 
 	@Override
@@ -63,20 +103,52 @@ public class LazySmartSpimLoader implements Consumer<RandomAccessibleInterval<Un
 	{
 		//System.out.println( "loading z=" + output.min( 2 ));
 
-		final ImagePlus imp = metadata.loadImage(
-				metadata.channels.get( channel ),
-				metadata.xTileLocations.get( xTile ),
-				metadata.yTileLocations.get( yTile ),
-				metadata.sortedFileNames.get( (int)output.min( 2 )) );
+		final int z = (int)output.min( 2 );
+
+		try
+		{
+			final short[] prefetched = planes.getPrefetched( z );
+			final short[] storage = storageArray( output );
+
+			if ( storage != null )
+			{
+				if ( prefetched != null )
+					System.arraycopy( prefetched, 0, storage, 0, storage.length );
+				else
+					readPlane( z, storage );
+			}
+			else
+			{
+				final short[] pixels = prefetched != null ? prefetched : loadPlane( z );
+				final Img<UnsignedShortType> img = ArrayImgs.unsignedShorts( pixels, metadata.dimensions[ 0 ], metadata.dimensions[ 1 ] );
 
-		final short[] pixels = (short[])imp.getProcessor().getPixels();
-		final Img<UnsignedShortType> img = ArrayImgs.unsignedShorts( pixels, metadata.dimensions[ 0 ], metadata.dimensions[ 1 ] );
+				final Cursor<UnsignedShortType> out = Views.flatIterable( output ).cursor();
+				final Cursor<UnsignedShortType> in = Views.flatIterable( img ).cursor();
 
-		final Cursor<UnsignedShortType> out = Views.flatIterable( output ).cursor();
-		final Cursor<UnsignedShortType> in = Views.flatIterable( img ).cursor();
+				while ( in.hasNext() )
+					out.next().set( in.next() );
+			}
+		}
+		catch ( IOException e )
+		{
+			throw new UncheckedIOException( e );
+		}
+	}
+
+	/**
+	 * @return the short[] of the cell if it is a single array of a full plane, otherwise null
+	 */
+	protected short[] storageArray( final RandomAccessibleInterval< UnsignedShortType > output )
+	{
+		if ( output instanceof SingleCellArrayImg )
+		{
+			final Object array = ( (SingleCellArrayImg< ?, ? >)output ).getStorageArray();
+
+			if ( array instanceof short[] && ( (short[])array ).length == metadata.dimensions[ 0 ] * metadata.dimensions[ 1 ] )
+				return (short[])array;
+		}
 
-		while ( in.hasNext() )
-			out.next().set( in.next() );
+		return null;
 	}
 
 	public static final RandomAccessibleInterval< UnsignedShortType > init(
@@ -0,0 +1,329 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.fiji.spimdata.imgloaders.smartspim;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Minimal reader for single-plane, unsigned 16-bit grayscale TIFF files as written by SmartSPIM. It decodes
+ * uncompressed or LZW-compressed (optionally with horizontal differencing) strips directly into a
+ * short[] using a FileChannel, without creating an ImagePlus. Anything else (BigTIFF, tiles,
+ * other bit depths or sample formats, multiple samples, other compressions) is not supported and reported by
+ * returning false, the caller should then fall back to a general reader.
+ */
+public class TiffPlaneReader
+{
+	final static int TAG_WIDTH = 256, TAG_HEIGHT = 257, TAG_BITSPERSAMPLE = 258, TAG_COMPRESSION = 259,
+			TAG_STRIPOFFSETS = 273, TAG_SAMPLESPERPIXEL = 277, TAG_ROWSPERSTRIP = 278, TAG_STRIPBYTECOUNTS = 279,
+			TAG_PLANARCONFIG = 284, TAG_PREDICTOR = 317, TAG_TILEWIDTH = 322, TAG_SAMPLEFORMAT = 339;
+
+	final static int COMPRESSION_NONE = 1, COMPRESSION_LZW = 5;
+
+	final static int LZW_CLEAR = 256, LZW_EOI = 257;
+
+	/**
+	 * @param file - the TIFF file
+	 * @param pixels - the output, at least width*height
+	 * @param width - the expected width
+	 * @param height - the expected height
+	 * @return true if the plane was read, false if the file is not supported or has different dimensions
+	 * @throws IOException - if reading fails
+	 */
+	public static boolean readPlane( final File file, final short[] pixels, final int width, final int height ) throws IOException
+	{
+		try ( final FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) )
+		{
+			final ByteBuffer header = read( channel, 0, 8, ByteOrder.LITTLE_ENDIAN );
+
+			final ByteOrder order;
+			if ( header.get( 0 ) == 'I' && header.get( 1 ) == 'I' )
+				order = ByteOrder.LITTLE_ENDIAN;
+			else if ( header.get( 0 ) == 'M' && header.get( 1 ) == 'M' )
+				order = ByteOrder.BIG_ENDIAN;
+			else
+				return false;
+
+			header.order( order );
+
+			// 43 would be BigTIFF
+			if ( header.getShort( 2 ) != 42 )
+				return false;
+
+			final long ifdOffset = header.getInt( 4 ) & 0xffffffffL;
+			final int numEntries = read( channel, ifdOffset, 2, order ).getShort( 0 ) & 0xffff;
+			final ByteBuffer ifd = read( channel, ifdOffset + 2, numEntries * 12, order );
+
+			int w = -1, h = -1, bits = 1, compression = COMPRESSION_NONE, samples = 1, planarConfig = 1, predictor = 1, sampleFormat = 1;
+			int rowsPerStrip = Integer.MAX_VALUE;
+			long[] stripOffsets = null, stripByteCounts = null;
+
+			for ( int i = 0; i < numEntries; ++i )
+			{
+				final int e = i * 12;
+				final int tag = ifd.getShort( e ) & 0xffff;
+				final int type = ifd.getShort( e + 2 ) & 0xffff;
+				final int count = ifd.getInt( e + 4 );
+
+				switch ( tag )
+				{
+				case TAG_WIDTH: w = (int)value( ifd, e, type ); break;
+				case TAG_HEIGHT: h = (int)value( ifd, e, type ); break;
+				case TAG_BITSPERSAMPLE: bits = (int)values( channel, ifd, e, type, count, order )[ 0 ]; break;
+				case TAG_COMPRESSION: compression = (int)value( ifd, e, type ); break;
+				case TAG_STRIPOFFSETS: stripOffsets = values( channel, ifd, e, type, count, order ); break;
+				case TAG_SAMPLESPERPIXEL: samples = (int)value( ifd, e, type ); break;
+				case TAG_ROWSPERSTRIP: rowsPerStrip = (int)Math.min( Integer.MAX_VALUE, value( ifd, e, type ) ); break;
+				case TAG_STRIPBYTECOUNTS: stripByteCounts = values( channel, ifd, e, type, count, order ); break;
+				case TAG_PLANARCONFIG: planarConfig = (int)value( ifd, e, type ); break;
+				case TAG_PREDICTOR: predictor = (int)value( ifd, e, type ); break;
+				case TAG_TILEWIDTH: return false;
+				case TAG_SAMPLEFORMAT: sampleFormat = (int)value( ifd, e, type ); break;
+				default: break;
+				}
+			}
+
+			if ( w != width || h != height || bits != 16 || samples != 1 || planarConfig != 1 || sampleFormat > 1 ||
+					stripOffsets == null || stripByteCounts == null || stripOffsets.length != stripByteCounts.length ||
+					( compression != COMPRESSION_NONE && compression != COMPRESSION_LZW ) || ( predictor != 1 && predictor != 2 ) ||
+					pixels.length < width * height )
+				return false;
+
+			rowsPerStrip = Math.min( rowsPerStrip, height );
+
+			if ( compression == COMPRESSION_NONE && isContiguous( stripOffsets, stripByteCounts, (long)width * height * 2 ) )
+			{
+				// the entire plane in one read
+				read( channel, stripOffsets[ 0 ], width * height * 2, order ).asShortBuffer().get( pixels, 0, width * height );
+			}
+			else
+			{
+				byte[] decoded = null;
+
+				for ( int s = 0; s < stripOffsets.length; ++s )
+				{
+					final int firstRow = s * rowsPerStrip;
+
+					if ( firstRow >= height )
+						break;
+
+					final int numRows = Math.min( rowsPerStrip, height - firstRow );
+					final int numBytes = numRows * width * 2;
+
+					final ByteBuffer strip = read( channel, stripOffsets[ s ], (int)stripByteCounts[ s ], order );
+
+					if ( compression == COMPRESSION_NONE )
+					{
+						if ( stripByteCounts[ s ] < numBytes )
+							return false;
+
+						strip.asShortBuffer().get( pixels, firstRow * width, numRows * width );
+					}
+					else
+					{
+						if ( decoded == null || decoded.length < numBytes )
+							decoded = new byte[ numBytes ];
+
+						decodeLZW( strip.array(), decoded, numBytes );
+						ByteBuffer.wrap( decoded, 0, numBytes ).order( order ).asShortBuffer().get( pixels, firstRow * width, numRows * width );
+					}
+				}
+			}
+
+			// horizontal differencing
+			if ( predictor == 2 )
+				for ( int y = 0; y < height; ++y )
+					for ( int x = 1, i = y * width + 1; x < width; ++x, ++i )
+						pixels[ i ] += pixels[ i - 1 ];
+
+			return true;
+		}
+	}
+
+	protected static boolean isContiguous( final long[] offsets, final long[] counts, final long numBytes )
+	{
+		long sum = 0;
+
+		for ( int s = 0; s < offsets.length; ++s )
+		{
+			if ( offsets[ s ] != offsets[ 0 ] + sum )
+				return false;
+
+			sum += counts[ s ];
+		}
+
+		return sum >= numBytes;
+	}
+
+	/**
+	 * TIFF flavor of LZW: MSB-first codes of 9 to 12 bits, the code length increases one code early.
+	 *
+	 * @param in - the compressed strip
+	 * @param out - the output
+	 * @param numBytes - the number of bytes to decode
+	 */
+	protected static void decodeLZW( final byte[] in, final byte[] out, final int numBytes )
+	{
+		final int[] prefix = new int[ 4096 ];
+		final byte[] suffix = new byte[ 4096 ];
+		final byte[] first = new byte[ 4096 ];
+		final int[] length = new int[ 4096 ];
+
+		for ( int i = 0; i < 256; ++i )
+		{
+			suffix[ i ] = first[ i ] = (byte)i;
+			length[ i ] = 1;
+		}
+
+		final long numBits = (long)in.length * 8;
+
+		long bitPos = 0;
+		int codeLength = 9, next = 258, old = -1, pos = 0;
+
+		while ( pos < numBytes && bitPos + codeLength <= numBits )
+		{
+			// read the next code, at most 12 + 7 bits spanning 3 bytes
+			final int p = (int)( bitPos >>> 3 );
+			final int bits = ( ( in[ p ] & 0xff ) << 16 ) |
+					( p + 1 < in.length ? ( in[ p + 1 ] & 0xff ) << 8 : 0 ) |
+					( p + 2 < in.length ? ( in[ p + 2 ] & 0xff ) : 0 );
+			final int code = ( bits >>> ( 24 - (int)( bitPos & 7 ) - codeLength ) ) & ( ( 1 << codeLength ) - 1 );
+			bitPos += codeLength;
+
+			if ( code == LZW_EOI )
+				break;
+
+			if ( code == LZW_CLEAR )
+			{
+				codeLength = 9;
+				next = 258;
+				old = -1;
+				continue;
+			}
+
+			if ( old == -1 )
+			{
+				if ( code > 255 )
+					throw new IllegalStateException( "Invalid LZW stream." );
+
+				out[ pos++ ] = (byte)code;
+				old = code;
+				continue;
+			}
+
+			final int entry;
+
+			if ( code < next )
+			{
+				entry = code;
+
+				if ( next < 4096 )
+					add( prefix, suffix, first, length, next++, old, first[ code ] );
+			}
+			else if ( code == next && next < 4096 )
+			{
+				add( prefix, suffix, first, length, next++, old, first[ old ] );
+				entry = code;
+			}
+			else
+			{
+				throw new IllegalStateException( "Invalid LZW code " + code + "." );
+			}
+
+			// write the string of entry backwards
+			final int len = length[ entry ];
+			final int end = Math.min( pos + len, numBytes );
+
+			for ( int c = entry, i = pos + len - 1; i >= pos; c = prefix[ c ], --i )
+				if ( i < end )
+					out[ i ] = suffix[ c ];
+
+			pos = end;
+			old = code;
+
+			if ( next == 511 )
+				codeLength = 10;
+			else if ( next == 1023 )
+				codeLength = 11;
+			else if ( next == 2047 )
+				codeLength = 12;
+		}
+	}
+
+	private static void add( final int[] prefix, final byte[] suffix, final byte[] first, final int[] length, final int code, final int prefixCode, final byte b )
+	{
+		prefix[ code ] = prefixCode;
+		suffix[ code ] = b;
+		first[ code ] = first[ prefixCode ];
+		length[ code ] = length[ prefixCode ] + 1;
+	}
+
+	protected static long value( final ByteBuffer ifd, final int entry, final int type )
+	{
+		// SHORT or LONG, the value is stored left-aligned in the 4 bytes
+		return type == 3 ? ifd.getShort( entry + 8 ) & 0xffff : ifd.getInt( entry + 8 ) & 0xffffffffL;
+	}
+
+	protected static long[] values( final FileChannel channel, final ByteBuffer ifd, final int entry, final int type, final int count, final ByteOrder order ) throws IOException
+	{
+		final int size = type == 3 ? 2 : 4;
+		final long[] values = new long[ count ];
+
+		final ByteBuffer data;
+		final int offset;
+
+		if ( count * size <= 4 )
+		{
+			data = ifd;
+			offset = entry + 8;
+		}
+		else
+		{
+			data = read( channel, ifd.getInt( entry + 8 ) & 0xffffffffL, count * size, order );
+			offset = 0;
+		}
+
+		for ( int i = 0; i < count; ++i )
+			values[ i ] = size == 2 ? data.getShort( offset + i * 2 ) & 0xffff : data.getInt( offset + i * 4 ) & 0xffffffffL;
+
+		return values;
+	}
+
+	protected static ByteBuffer read( final FileChannel channel, final long position, final int numBytes, final ByteOrder order ) throws IOException
+	{
+		final ByteBuffer buffer = ByteBuffer.allocate( numBytes ).order( order );
+
+		while ( buffer.hasRemaining() )
+			if ( channel.read( buffer, position + buffer.position() ) < 0 )
+				throw new EOFException( "Unexpected end of file." );
+
+		buffer.flip();
+
+		return buffer;
+	}
+}
@@ -0,0 +1,237 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.fiji.spimdata.imgloaders.util;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.preibisch.legacy.io.IOFunctions;
+
+/**
+ * Read-ahead for virtual images that load one z-plane per cell (e.g. LOCI or SmartSPIM). Fusion and detection
+ * sweep through z almost sequentially, so when plane z is requested and plane z-1 was requested before,
+ * the next {@link #defaultDepth} planes are loaded asynchronously on a small shared I/O pool. The cell
+ * loader gets the planes from here, planes that were not prefetched are loaded on the requesting thread.
+ * <p>
+ * Only a few planes per image are kept ({@link #defaultMaxStagedFactor} * depth), planes that were loaded
+ * but never requested count as wasted reads.
+ *
+ * @param <A> - the plane data (e.g. short[] or a ByteBuffer)
+ */
+public class PlanePrefetcher< A >
+{
+	@FunctionalInterface
+	public interface PlaneLoader< A >
+	{
+		A load( int z ) throws Exception;
+	}
+
+	// number of planes to read ahead, 0 disables prefetching
+	public static int defaultDepth = 4;
+
+	// how many planes can be prefetched but not yet requested per image, as a multiple of the depth
+	public static int defaultMaxStagedFactor = 4;
+
+	// size of the shared I/O pool
+	public static int defaultNumIOThreads = 4;
+
+	// statistics over all images
+	public static final AtomicLong totalHits = new AtomicLong(), totalMisses = new AtomicLong(), totalWasted = new AtomicLong();
+
+	private static ExecutorService ioService = null;
+
+	final PlaneLoader< A > loader;
+	final int numPlanes, depth, maxStaged;
+
+	// planes that were requested at least once
+	final BitSet requested;
+
+	// prefetched planes in insertion order, the oldest is dropped first
+	final LinkedHashMap< Integer, Prefetch > staged = new LinkedHashMap<>();
+
+	final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), wasted = new AtomicLong();
+
+	public PlanePrefetcher( final PlaneLoader< A > loader, final int numPlanes, final int depth )
+	{
+		this.loader = loader;
+		this.numPlanes = numPlanes;
+		this.depth = Math.max( 0, depth );
+		this.maxStaged = Math.max( 1, this.depth * defaultMaxStagedFactor );
+		this.requested = new BitSet( numPlanes );
+	}
+
+	public PlanePrefetcher( final PlaneLoader< A > loader, final int numPlanes )
+	{
+		this( loader, numPlanes, defaultDepth );
+	}
+
+	/**
+	 * @param z - the plane
+	 * @return the data of plane z, prefetched if possible, otherwise loaded on the calling thread
+	 * @throws Exception - if loading the plane fails
+	 */
+	public A get( final int z ) throws Exception
+	{
+		final A data = getPrefetched( z );
+
+		return data != null ? data : loader.load( z );
+	}
+
+	/**
+	 * Triggers the read-ahead like {@link #get(int)}, but only returns plane z if it was prefetched, so
+	 * the caller can load it directly into its own storage otherwise.
+	 *
+	 * @param z - the plane
+	 * @return the data of plane z or null if it was not prefetched (counts as a miss)
+	 */
+	public A getPrefetched( final int z )
+	{
+		final Prefetch prefetch;
+
+		synchronized ( this )
+		{
+			prefetch = staged.remove( z );
+
+			// requested again means the cell cache dropped it, probably also the following planes
+			final boolean reload = requested.get( z );
+			final boolean sequential = z > 0 && requested.get( z - 1 );
+
+			requested.set( z );
+
+			if ( depth > 0 && sequential )
+				for ( int k = z + 1; k <= z + depth && k < numPlanes; ++k )
+					if ( !staged.containsKey( k ) && ( reload || !requested.get( k ) ) )
+						schedule( k );
+		}
+
+		// still waiting in the queue it is faster to load it directly
+		if ( prefetch != null && ( prefetch.started.get() || !prefetch.cancel( false ) ) )
+		{
+			try
+			{
+				final A data = prefetch.get();
+
+				hits.incrementAndGet();
+				totalHits.incrementAndGet();
+
+				return data;
+			}
+			catch ( InterruptedException e )
+			{
+				// the caller loads it itself, but must still see that it was interrupted
+				Thread.currentThread().interrupt();
+			}
+			catch ( ExecutionException e )
+			{
+				// the caller loads it again and gets the actual error
+			}
+		}
+
+		misses.incrementAndGet();
+		totalMisses.incrementAndGet();
+
+		return null;
+	}
+
+	// must be called synchronized
+	protected void schedule( final int z )
+	{
+		while ( staged.size() >= maxStaged )
+		{
+			final Iterator< Prefetch > it = staged.values().iterator();
+			final Prefetch oldest = it.next();
+			it.remove();
+
+			if ( !oldest.cancel( false ) || oldest.started.get() )
+			{
+				wasted.incrementAndGet();
+				totalWasted.incrementAndGet();
+			}
+		}
+
+		final Prefetch prefetch = new Prefetch( z );
+		staged.put( z, prefetch );
+		ioService().execute( prefetch );
+	}
+
+	public long getHits() { return hits.get(); }
+	public long getMisses() { return misses.get(); }
+	public long getWasted() { return wasted.get(); }
+
+	/**
+	 * Prints the statistics over all images since the last call (if any plane was read through a prefetcher) and resets them.
+	 */
+	public static void printStatistics()
+	{
+		final long hits = totalHits.getAndSet( 0 ), misses = totalMisses.getAndSet( 0 ), wasted = totalWasted.getAndSet( 0 );
+
+		if ( hits + misses + wasted > 0 )
+			IOFunctions.println( "Plane prefetching: hits=" + hits + ", misses=" + misses + ", wasted reads=" + wasted );
+	}
+
+	protected static synchronized ExecutorService ioService()
+	{
+		if ( ioService == null )
+		{
+			final AtomicInteger count = new AtomicInteger();
+
+			ioService = Executors.newFixedThreadPool( Math.max( 1, defaultNumIOThreads ), r ->
+			{
+				final Thread t = new Thread( r, "plane-prefetch-" + count.incrementAndGet() );
+				t.setDaemon( true );
+				return t;
+			});
+		}
+
+		return ioService;
+	}
+
+	protected class Prefetch extends FutureTask< A >
+	{
+		final AtomicBoolean started;
+
+		public Prefetch( final int z )
+		{
+			this( z, new AtomicBoolean() );
+		}
+
+		private Prefetch( final int z, final AtomicBoolean started )
+		{
+			super( () ->
+			{
+				started.set( true );
+				return loader.load( z );
+			});
+
+			this.started = started;
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.fiji.spimdata.intensityrange;
+
+import java.util.HashMap;
+
+import mpicbg.spim.data.sequence.ViewId;
+
+/**
+ * Approximate min and max intensity per view (e.g. for the normalization of the DoG), stored in the XML
+ * so the images do not have to be read again just to determine them. Every range has a key that describes
+ * the image it was estimated from (see IntensityRangeEstimation#key), a range is only returned for the same key.
+ */
+public class IntensityRanges
+{
+	private HashMap< ViewId, double[] > intensityRanges;
+	private HashMap< ViewId, String > keys;
+
+	public IntensityRanges()
+	{
+		this.intensityRanges = new HashMap<>();
+		this.keys = new HashMap<>();
+	}
+
+	public IntensityRanges( final HashMap< ViewId, double[] > ranges, final HashMap< ViewId, String > keys )
+	{
+		this();
+		this.intensityRanges.putAll( ranges );
+		this.keys.putAll( keys );
+	}
+
+	public HashMap< ViewId, double[] > getIntensityRanges() { return intensityRanges; }
+	public HashMap< ViewId, String > getKeys() { return keys; }
+
+	/**
+	 * @param viewId - the view
+	 * @param key - describes the image the range is requested for
+	 * @return { min, max } or null if not known or if it was estimated from a different image (e.g. another resolution level or the data changed)
+	 */
+	public synchronized double[] getIntensityRange( final ViewId viewId, final String key )
+	{
+		if ( key == null || !key.equals( keys.get( viewId ) ) )
+			return null;
+
+		return intensityRanges.get( viewId );
+	}
+
+	public synchronized void addIntensityRange( final ViewId viewId, final String key, final double min, final double max )
+	{
+		this.intensityRanges.put( viewId, new double[] { min, max } );
+		this.keys.put( viewId, key );
+	}
+
+	public synchronized void removeIntensityRange( final ViewId viewId )
+	{
+		this.intensityRanges.remove( viewId );
+		this.keys.remove( viewId );
+	}
+}
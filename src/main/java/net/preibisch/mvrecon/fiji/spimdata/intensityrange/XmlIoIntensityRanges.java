@@ -0,0 +1,95 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.fiji.spimdata.intensityrange;
+
+import static net.preibisch.mvrecon.fiji.spimdata.intensityrange.XmlKeysIntensityRanges.INTENSITYRANGES_TAG;
+import static net.preibisch.mvrecon.fiji.spimdata.intensityrange.XmlKeysIntensityRanges.INTENSITYRANGE_KEY_ATTRIBUTE_NAME;
+import static net.preibisch.mvrecon.fiji.spimdata.intensityrange.XmlKeysIntensityRanges.INTENSITYRANGE_SETUP_ATTRIBUTE_NAME;
+import static net.preibisch.mvrecon.fiji.spimdata.intensityrange.XmlKeysIntensityRanges.INTENSITYRANGE_TAG;
+import static net.preibisch.mvrecon.fiji.spimdata.intensityrange.XmlKeysIntensityRanges.INTENSITYRANGE_TIMEPOINT_ATTRIBUTE_NAME;
+import static net.preibisch.mvrecon.fiji.spimdata.intensityrange.XmlKeysIntensityRanges.INTENSITYRANGE_VALUE_TAG;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.jdom2.Element;
+
+import mpicbg.spim.data.SpimDataException;
+import mpicbg.spim.data.XmlHelpers;
+import mpicbg.spim.data.generic.base.XmlIoSingleton;
+import mpicbg.spim.data.sequence.ViewId;
+
+public class XmlIoIntensityRanges extends XmlIoSingleton< IntensityRanges >
+{
+	public XmlIoIntensityRanges()
+	{
+		super( INTENSITYRANGES_TAG, IntensityRanges.class );
+		handledTags.add( INTENSITYRANGE_TAG );
+	}
+
+	public Element toXml( final IntensityRanges intensityRanges )
+	{
+		final Element elem = super.toXml();
+
+		final ArrayList< ViewId > viewIds = new ArrayList<>( intensityRanges.getIntensityRanges().keySet() );
+		Collections.sort( viewIds );
+
+		for ( final ViewId viewId : viewIds )
+			elem.addContent( intensityRangeToXml( viewId, intensityRanges.getKeys().get( viewId ), intensityRanges.getIntensityRanges().get( viewId ) ) );
+
+		return elem;
+	}
+
+	public IntensityRanges fromXml( final Element allIntensityRanges ) throws SpimDataException
+	{
+		final IntensityRanges intensityRanges = super.fromXml( allIntensityRanges );
+
+		for ( final Element intensityRangeElement : allIntensityRanges.getChildren( INTENSITYRANGE_TAG ) )
+		{
+			final int timepointId = Integer.parseInt( intensityRangeElement.getAttributeValue( INTENSITYRANGE_TIMEPOINT_ATTRIBUTE_NAME ) );
+			final int setupId = Integer.parseInt( intensityRangeElement.getAttributeValue( INTENSITYRANGE_SETUP_ATTRIBUTE_NAME ) );
+			final String key = intensityRangeElement.getAttributeValue( INTENSITYRANGE_KEY_ATTRIBUTE_NAME );
+
+			final double[] minmax = XmlHelpers.getDoubleArray( intensityRangeElement, INTENSITYRANGE_VALUE_TAG );
+
+			intensityRanges.addIntensityRange( new ViewId( timepointId, setupId ), key, minmax[ 0 ], minmax[ 1 ] );
+		}
+
+		return intensityRanges;
+	}
+
+	protected Element intensityRangeToXml( final ViewId viewId, final String key, final double[] minmax )
+	{
+		final Element elem = new Element( INTENSITYRANGE_TAG );
+
+		elem.setAttribute( INTENSITYRANGE_TIMEPOINT_ATTRIBUTE_NAME, Integer.toString( viewId.getTimePointId() ) );
+		elem.setAttribute( INTENSITYRANGE_SETUP_ATTRIBUTE_NAME, Integer.toString( viewId.getViewSetupId() ) );
+
+		if ( key != null )
+			elem.setAttribute( INTENSITYRANGE_KEY_ATTRIBUTE_NAME, key );
+
+		elem.addContent( XmlHelpers.doubleArrayElement( INTENSITYRANGE_VALUE_TAG, minmax ) );
+
+		return elem;
+	}
+}
@@ -0,0 +1,35 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.fiji.spimdata.intensityrange;
+
+public class XmlKeysIntensityRanges
+{
+	public static final String INTENSITYRANGES_TAG = "IntensityRanges";
+	public static final String INTENSITYRANGE_TAG = "IntensityRange";
+
+	public static final String INTENSITYRANGE_TIMEPOINT_ATTRIBUTE_NAME = "timepoint";
+	public static final String INTENSITYRANGE_SETUP_ATTRIBUTE_NAME = "setup";
+	public static final String INTENSITYRANGE_KEY_ATTRIBUTE_NAME = "key";
+
+	public static final String INTENSITYRANGE_VALUE_TAG = "minmax";
+}
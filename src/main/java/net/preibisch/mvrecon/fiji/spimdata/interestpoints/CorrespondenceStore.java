@@ -0,0 +1,288 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.fiji.spimdata.interestpoints;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.RandomAccess;
+
+import mpicbg.spim.data.sequence.ViewId;
+
+/**
+ * Columnar (struct-of-arrays) list of corresponding interest points. The detection id, the corresponding
+ * detection id and a code for the corresponding (timepoint, setup, label) are stored in three int[], the
+ * codes are resolved through a small table. This needs 12 bytes per correspondence instead of a
+ * {@link CorrespondingInterestPoints} object, and is the layout of the N5 correspondence dataset.
+ * <p>
+ * {@link #get(int)} returns a new {@link CorrespondingInterestPoints}. Code that only needs the ids
+ * should use {@link #getDetectionId(int)}, {@link #getCorrespondingDetectionId(int)} and {@link #getCode(int)}.
+ */
+public class CorrespondenceStore extends AbstractList< CorrespondingInterestPoints > implements RandomAccess
+{
+	int size;
+	int[] detectionIds, correspondingDetectionIds, codes;
+
+	// the code table, entries can be null (codes that are not used)
+	int numCodes;
+	int[] codeTimepoints, codeSetups;
+	String[] codeLabels;
+
+	// (timepoint,setup,label) to code, created when needed
+	HashMap< String, Integer > codeLookup;
+	int lastCode = -1;
+
+	/**
+	 * @param capacity - initial capacity (number of correspondences)
+	 */
+	public CorrespondenceStore( final int capacity )
+	{
+		this.size = 0;
+		this.detectionIds = new int[ capacity ];
+		this.correspondingDetectionIds = new int[ capacity ];
+		this.codes = new int[ capacity ];
+
+		this.numCodes = 0;
+		this.codeTimepoints = new int[ 0 ];
+		this.codeSetups = new int[ 0 ];
+		this.codeLabels = new String[ 0 ];
+	}
+
+	/**
+	 * Wraps existing arrays (no copy)
+	 *
+	 * @param detectionIds - the detection ids, its length is the number of correspondences
+	 * @param correspondingDetectionIds - the corresponding detection ids
+	 * @param codes - the codes of the corresponding (timepoint, setup, label)
+	 * @param codeTimepoints - timepoint id for each code
+	 * @param codeSetups - setup id for each code
+	 * @param codeLabels - label for each code (null if the code is not used)
+	 */
+	public CorrespondenceStore(
+			final int[] detectionIds,
+			final int[] correspondingDetectionIds,
+			final int[] codes,
+			final int[] codeTimepoints,
+			final int[] codeSetups,
+			final String[] codeLabels )
+	{
+		if ( correspondingDetectionIds.length != detectionIds.length || codes.length != detectionIds.length )
+			throw new IllegalArgumentException( "CorrespondenceStore: columns have different lengths." );
+
+		if ( codeSetups.length != codeTimepoints.length || codeLabels.length != codeTimepoints.length )
+			throw new IllegalArgumentException( "CorrespondenceStore: code table has different lengths." );
+
+		this.size = detectionIds.length;
+		this.detectionIds = detectionIds;
+		this.correspondingDetectionIds = correspondingDetectionIds;
+		this.codes = codes;
+
+		this.numCodes = codeTimepoints.length;
+		this.codeTimepoints = codeTimepoints;
+		this.codeSetups = codeSetups;
+		this.codeLabels = codeLabels;
+	}
+
+	/**
+	 * Copies a list of corresponding interest points
+	 *
+	 * @param list - the corresponding interest points
+	 */
+	public CorrespondenceStore( final List< ? extends CorrespondingInterestPoints > list )
+	{
+		if ( list instanceof CorrespondenceStore )
+		{
+			final CorrespondenceStore other = (CorrespondenceStore)list;
+
+			this.size = other.size;
+			this.detectionIds = Arrays.copyOf( other.detectionIds, other.size );
+			this.correspondingDetectionIds = Arrays.copyOf( other.correspondingDetectionIds, other.size );
+			this.codes = Arrays.copyOf( other.codes, other.size );
+
+			this.numCodes = other.numCodes;
+			this.codeTimepoints = Arrays.copyOf( other.codeTimepoints, other.numCodes );
+			this.codeSetups = Arrays.copyOf( other.codeSetups, other.numCodes );
+			this.codeLabels = Arrays.copyOf( other.codeLabels, other.numCodes );
+		}
+		else
+		{
+			this.size = 0;
+			this.detectionIds = new int[ list.size() ];
+			this.correspondingDetectionIds = new int[ list.size() ];
+			this.codes = new int[ list.size() ];
+
+			this.numCodes = 0;
+			this.codeTimepoints = new int[ 0 ];
+			this.codeSetups = new int[ 0 ];
+			this.codeLabels = new String[ 0 ];
+
+			for ( final CorrespondingInterestPoints c : list )
+				add( c );
+		}
+	}
+
+	/**
+	 * @param timepointId - timepoint id of the corresponding view
+	 * @param setupId - setup id of the corresponding view
+	 * @param label - label of the corresponding interest points
+	 * @return the code for (timepoint, setup, label), a new one is added to the table if it does not exist yet
+	 */
+	public int code( final int timepointId, final int setupId, final String label )
+	{
+		// consecutive correspondences are usually to the same view
+		if ( lastCode >= 0 && codeTimepoints[ lastCode ] == timepointId && codeSetups[ lastCode ] == setupId && label.equals( codeLabels[ lastCode ] ) )
+			return lastCode;
+
+		if ( codeLookup == null )
+		{
+			codeLookup = new HashMap<>();
+
+			for ( int c = 0; c < numCodes; ++c )
+				if ( codeLabels[ c ] != null )
+					codeLookup.put( key( codeTimepoints[ c ], codeSetups[ c ], codeLabels[ c ] ), c );
+		}
+
+		final String key = key( timepointId, setupId, label );
+		Integer code = codeLookup.get( key );
+
+		if ( code == null )
+		{
+			if ( numCodes == codeTimepoints.length )
+			{
+				final int capacity = Math.max( 4, numCodes * 2 );
+				codeTimepoints = Arrays.copyOf( codeTimepoints, capacity );
+				codeSetups = Arrays.copyOf( codeSetups, capacity );
+				codeLabels = Arrays.copyOf( codeLabels, capacity );
+			}
+
+			code = numCodes++;
+			codeTimepoints[ code ] = timepointId;
+			codeSetups[ code ] = setupId;
+			codeLabels[ code ] = label;
+			codeLookup.put( key, code );
+		}
+
+		return lastCode = code;
+	}
+
+	public int code( final ViewId viewId, final String label ) { return code( viewId.getTimePointId(), viewId.getViewSetupId(), label ); }
+
+	/**
+	 * @return the key of a code as stored in the idMap of the N5 correspondences ("timepoint,setup,label")
+	 */
+	public static String key( final int timepointId, final int setupId, final String label )
+	{
+		return timepointId + "," + setupId + "," + label;
+	}
+
+	public int getDetectionId( final int i ) { return detectionIds[ i ]; }
+	public int getCorrespondingDetectionId( final int i ) { return correspondingDetectionIds[ i ]; }
+	public int getCode( final int i ) { return codes[ i ]; }
+
+	/**
+	 * @return the size of the code table, codes are 0 ... numCodes()-1
+	 */
+	public int numCodes() { return numCodes; }
+	public int getCorrespondingTimePointId( final int code ) { return codeTimepoints[ code ]; }
+	public int getCorrespondingViewSetupId( final int code ) { return codeSetups[ code ]; }
+	public ViewId getCorrespondingViewId( final int code ) { return new ViewId( codeTimepoints[ code ], codeSetups[ code ] ); }
+
+	/**
+	 * @return the label for a code, null if the code is not used
+	 */
+	public String getCorrespondingLabel( final int code ) { return codeLabels[ code ]; }
+
+	/**
+	 * @return the backing detection id array, only the first {@link #size()} entries are valid
+	 */
+	public int[] getDetectionIdArray() { return detectionIds; }
+
+	/**
+	 * @return the backing corresponding detection id array, only the first {@link #size()} entries are valid
+	 */
+	public int[] getCorrespondingDetectionIdArray() { return correspondingDetectionIds; }
+
+	/**
+	 * @return the backing code array, only the first {@link #size()} entries are valid
+	 */
+	public int[] getCodeArray() { return codes; }
+
+	@Override
+	public int size() { return size; }
+
+	@Override
+	public CorrespondingInterestPoints get( final int i )
+	{
+		if ( i < 0 || i >= size )
+			throw new IndexOutOfBoundsException( "Index: " + i + ", Size: " + size );
+
+		final int code = codes[ i ];
+
+		return new CorrespondingInterestPoints( detectionIds[ i ], codeTimepoints[ code ], codeSetups[ code ], codeLabels[ code ], correspondingDetectionIds[ i ] );
+	}
+
+	@Override
+	public boolean add( final CorrespondingInterestPoints c )
+	{
+		add( c.detectionId, code( c.correspondingViewIdTP, c.correspondingViewIdSetup, c.correspondingLabel ), c.correspondingDetectionId );
+		return true;
+	}
+
+	/**
+	 * @param detectionId - the detection id of the interest point
+	 * @param code - the code of the corresponding (timepoint, setup, label), see {@link #code(int, int, String)}
+	 * @param correspondingDetectionId - the detection id of the corresponding interest point
+	 */
+	public void add( final int detectionId, final int code, final int correspondingDetectionId )
+	{
+		if ( code < 0 || code >= numCodes || codeLabels[ code ] == null )
+			throw new IllegalArgumentException( "CorrespondenceStore: unknown code " + code );
+
+		if ( size == detectionIds.length )
+		{
+			final int capacity = Math.max( 16, size + ( size >> 1 ) );
+			detectionIds = Arrays.copyOf( detectionIds, capacity );
+			correspondingDetectionIds = Arrays.copyOf( correspondingDetectionIds, capacity );
+			codes = Arrays.copyOf( codes, capacity );
+		}
+
+		detectionIds[ size ] = detectionId;
+		correspondingDetectionIds[ size ] = correspondingDetectionId;
+		codes[ size ] = code;
+		++size;
+		++modCount;
+	}
+
+	@Override
+	public void clear()
+	{
+		size = 0;
+		++modCount;
+	}
+
+	/**
+	 * @return memory used by the backing arrays in bytes (without the labels)
+	 */
+	public long sizeInBytes() { return ( detectionIds.length + correspondingDetectionIds.length + codes.length + codeTimepoints.length + codeSetups.length ) * 4L; }
+}
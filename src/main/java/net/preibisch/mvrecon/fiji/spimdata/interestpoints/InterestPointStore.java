@@ -0,0 +1,185 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.fiji.spimdata.interestpoints;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Columnar (struct-of-arrays) list of interest points. Ids are stored in an int[] and the local
+ * coordinates packed into a single double[] (n values per point), which needs about 28 bytes per 3d
+ * point instead of &gt;120 bytes for an {@link InterestPoint} with its l and w arrays.
+ * <p>
+ * {@link #get(int)} (and therefore iterating) creates a new {@link InterestPoint} from copies of the
+ * columns, changing it does not change the store. {@link #getIdArray()} and {@link #getLocationArray()}
+ * return the backing arrays themselves (no copy). Code that only needs ids and coordinates should use
+ * {@link #getId(int)} and {@link #getLocation(int, int)}, which read the arrays without creating objects.
+ * <p>
+ * {@link InterestPoints#getInterestPointStore()} and {@link InterestPoints#getCorrespondenceStore()} may return
+ * the stores held by the {@link InterestPoints} (must not be modified), whereas
+ * {@link InterestPoints#getInterestPointsCopy()} and {@link InterestPoints#getCorrespondingInterestPointsCopy()}
+ * return mutable lists of new objects.
+ */
+public class InterestPointStore extends AbstractList< InterestPoint > implements RandomAccess
+{
+	int n, size;
+	int[] ids;
+	double[] locations;
+
+	/**
+	 * @param n - dimensionality
+	 * @param capacity - initial capacity (number of points)
+	 */
+	public InterestPointStore( final int n, final int capacity )
+	{
+		this.n = n;
+		this.size = 0;
+		this.ids = new int[ capacity ];
+		this.locations = new double[ capacity * n ];
+	}
+
+	/**
+	 * Wraps existing arrays (no copy)
+	 *
+	 * @param n - dimensionality
+	 * @param ids - the ids, its length is the number of points
+	 * @param locations - packed local coordinates (n values per point)
+	 */
+	public InterestPointStore( final int n, final int[] ids, final double[] locations )
+	{
+		if ( locations.length != ids.length * n )
+			throw new IllegalArgumentException( "InterestPointStore: " + ids.length + " ids, but " + locations.length + " coordinates for n=" + n );
+
+		this.n = n;
+		this.size = ids.length;
+		this.ids = ids;
+		this.locations = locations;
+	}
+
+	/**
+	 * Copies a list of interest points (ids and local coordinates)
+	 *
+	 * @param list - the interest points
+	 */
+	public InterestPointStore( final List< ? extends InterestPoint > list )
+	{
+		if ( list instanceof InterestPointStore )
+		{
+			final InterestPointStore other = (InterestPointStore)list;
+
+			this.n = other.n;
+			this.size = other.size;
+			this.ids = Arrays.copyOf( other.ids, other.size );
+			this.locations = Arrays.copyOf( other.locations, other.size * other.n );
+		}
+		else
+		{
+			this.n = list.size() == 0 ? 0 : list.get( 0 ).getL().length;
+			this.size = 0;
+			this.ids = new int[ list.size() ];
+			this.locations = new double[ list.size() * n ];
+
+			for ( final InterestPoint p : list )
+				add( p );
+		}
+	}
+
+	public int numDimensions() { return n; }
+
+	public int getId( final int i ) { return ids[ i ]; }
+
+	public double getLocation( final int i, final int d ) { return locations[ i * n + d ]; }
+
+	public void localize( final int i, final double[] position )
+	{
+		System.arraycopy( locations, i * n, position, 0, n );
+	}
+
+	/**
+	 * @return the backing id array, only the first {@link #size()} entries are valid
+	 */
+	public int[] getIdArray() { return ids; }
+
+	/**
+	 * @return the backing coordinate array (n values per point), only the first {@link #size()} * n entries are valid
+	 */
+	public double[] getLocationArray() { return locations; }
+
+	@Override
+	public int size() { return size; }
+
+	@Override
+	public InterestPoint get( final int i )
+	{
+		if ( i < 0 || i >= size )
+			throw new IndexOutOfBoundsException( "Index: " + i + ", Size: " + size );
+
+		return new InterestPoint( ids[ i ], Arrays.copyOfRange( locations, i * n, i * n + n ) );
+	}
+
+	@Override
+	public boolean add( final InterestPoint p )
+	{
+		add( p.getId(), p.getL() );
+		return true;
+	}
+
+	public void add( final int id, final double[] l )
+	{
+		// the dimensionality of an empty store is unknown
+		if ( size == 0 && n == 0 )
+		{
+			n = l.length;
+			locations = new double[ ids.length * n ];
+		}
+
+		if ( l.length != n )
+			throw new IllegalArgumentException( "InterestPointStore: point has " + l.length + " dimensions, store has " + n );
+
+		if ( size == ids.length )
+		{
+			final int capacity = Math.max( 16, size + ( size >> 1 ) );
+			ids = Arrays.copyOf( ids, capacity );
+			locations = Arrays.copyOf( locations, capacity * n );
+		}
+
+		ids[ size ] = id;
+		System.arraycopy( l, 0, locations, size * n, n );
+		++size;
+		++modCount;
+	}
+
+	@Override
+	public void clear()
+	{
+		size = 0;
+		++modCount;
+	}
+
+	/**
+	 * @return memory used by the backing arrays in bytes
+	 */
+	public long sizeInBytes() { return ids.length * 4L + locations.length * 8L; }
+}
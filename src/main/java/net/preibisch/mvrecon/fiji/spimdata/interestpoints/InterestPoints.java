@@ -125,6 +125,22 @@ public abstract class InterestPoints
 	 */
 	public abstract List< CorrespondingInterestPoints > getCorrespondingInterestPointsCopy();
 
+	/**
+	 * @return - the interest points as primitive columns (might not be a copy, must not be modified), tries to load from disc if null
+	 */
+	public InterestPointStore getInterestPointStore()
+	{
+		return new InterestPointStore( getInterestPointsCopy() );
+	}
+
+	/**
+	 * @return - the corresponding interest points as primitive columns (might not be a copy, must not be modified), tries to load from disc if null
+	 */
+	public CorrespondenceStore getCorrespondenceStore()
+	{
+		return new CorrespondenceStore( getCorrespondingInterestPointsCopy() );
+	}
+
 	public void setInterestPoints( final List< InterestPoint > list )
 	{
 		this.modifiedInterestPoints = true;
@@ -25,27 +25,29 @@ package net.preibisch.mvrecon.fiji.spimdata.interestpoints;
 import java.io.File;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
 
+import org.janelia.saalfeldlab.n5.DataBlock;
 import org.janelia.saalfeldlab.n5.DataType;
+import org.janelia.saalfeldlab.n5.DatasetAttributes;
+import org.janelia.saalfeldlab.n5.DoubleArrayDataBlock;
 import org.janelia.saalfeldlab.n5.GzipCompression;
+import org.janelia.saalfeldlab.n5.LongArrayDataBlock;
 import org.janelia.saalfeldlab.n5.N5Reader;
 import org.janelia.saalfeldlab.n5.N5Writer;
 import org.janelia.saalfeldlab.n5.imglib2.N5Utils;
 import org.janelia.saalfeldlab.n5.universe.N5Factory.StorageFormat;
 
 import mpicbg.spim.data.sequence.ViewId;
-import net.imglib2.RandomAccess;
+import net.imglib2.Cursor;
 import net.imglib2.RandomAccessibleInterval;
-import net.imglib2.position.FunctionRandomAccessible;
-import net.imglib2.type.numeric.integer.UnsignedLongType;
-import net.imglib2.type.numeric.real.DoubleType;
-import net.imglib2.util.Pair;
-import net.imglib2.util.ValuePair;
+import net.imglib2.type.numeric.RealType;
 import net.imglib2.view.Views;
 import net.preibisch.legacy.io.IOFunctions;
 import util.URITools;
@@ -56,8 +58,8 @@ public class InterestPointsN5 extends InterestPoints
 	public static final String baseN5 = "interestpoints.n5";
 
 	final String n5path;
-	ArrayList< InterestPoint > interestPoints;
-	ArrayList< CorrespondingInterestPoints > correspondingInterestPoints;
+	InterestPointStore interestPoints;
+	CorrespondenceStore correspondingInterestPoints;
 
 	protected InterestPointsN5( final URI baseDir, final String n5path )
 	{
@@ -88,12 +90,20 @@ public class InterestPointsN5 extends InterestPoints
 		if ( this.interestPoints == null )
 			loadInterestPoints();
 
-		final ArrayList< InterestPoint > list = new ArrayList< InterestPoint >();
+		// the store creates a new InterestPoint for every get()
+		return new ArrayList< InterestPoint >( this.interestPoints );
+	}
 
-		for ( final InterestPoint p : this.interestPoints )
-			list.add( new InterestPoint( p.id, p.getL().clone() ) );
+	/**
+	 * @return - the columnar interest point store (not copied, must not be modified), tries to load from disc if null
+	 */
+	@Override
+	public synchronized InterestPointStore getInterestPointStore()
+	{
+		if ( this.interestPoints == null )
+			loadInterestPoints();
 
-		return list;
+		return this.interestPoints;
 	}
 
 	/**
@@ -104,30 +114,36 @@ public class InterestPointsN5 extends InterestPoints
 		if ( this.correspondingInterestPoints == null )
 			loadCorrespondences();
 
-		final ArrayList< CorrespondingInterestPoints > list = new ArrayList< CorrespondingInterestPoints >();
+		// the store creates a new CorrespondingInterestPoints for every get()
+		return new ArrayList< CorrespondingInterestPoints >( this.correspondingInterestPoints );
+	}
 
-		for ( final CorrespondingInterestPoints p : this.correspondingInterestPoints )
-			list.add( new CorrespondingInterestPoints( p ) );
+	/**
+	 * @return - the columnar correspondence store (not copied, must not be modified), tries to load from disc if null
+	 */
+	@Override
+	public synchronized CorrespondenceStore getCorrespondenceStore()
+	{
+		if ( this.correspondingInterestPoints == null )
+			loadCorrespondences();
 
-		return list;
+		return this.correspondingInterestPoints;
 	}
 
 	@Override
 	protected void setInterestPointsLocal( final List< InterestPoint > list )
 	{
-		if ( list.getClass().isInstance( ArrayList.class ))
-			this.interestPoints = (ArrayList<InterestPoint>)list;
-		else
-			this.interestPoints = new ArrayList<>( list );
+		this.interestPoints = new InterestPointStore( list );
 	}
 
 	@Override
 	protected void setCorrespondingInterestPointsLocal( final List< CorrespondingInterestPoints > list )
 	{
-		if ( list.getClass().isInstance( ArrayList.class ))
-			this.correspondingInterestPoints = (ArrayList<CorrespondingInterestPoints>)list;
+		// a store is taken over without copying
+		if ( list instanceof CorrespondenceStore )
+			this.correspondingInterestPoints = (CorrespondenceStore)list;
 		else
-			this.correspondingInterestPoints = new ArrayList<>( list );
+			this.correspondingInterestPoints = new CorrespondenceStore( list );
 	}
 
 	public String ipDataset() { return new File( getN5path(), "interestpoints" ).getPath(); }
@@ -139,7 +155,7 @@ public class InterestPointsN5 extends InterestPoints
 		if ( !modifiedInterestPoints && !forceWrite )
 			return true;
 
-		final ArrayList< InterestPoint > list = this.interestPoints;
+		final InterestPointStore list = this.interestPoints;
 
 		if ( list == null )
 			return false;
@@ -188,34 +204,35 @@ public class InterestPointsN5 extends InterestPoints
 				return true;
 			}
 
-			final int n = list.get( 0 ).getL().length;
+			final int n = list.numDimensions();
 
-			// 1 x N array (which is a 2D array)
-			final FunctionRandomAccessible< UnsignedLongType > id =
-					new FunctionRandomAccessible<>(
-							2,
-							(location, value) -> value.set( list.get( location.getIntPosition( 1 ) ).id ),
-							UnsignedLongType::new );
+			// 1 x N array (which is a 2D array) and DIM x N array (which is a 2D array), written block by block from the columnar store
+			final int size = list.size();
+			final int[] ids = list.getIdArray();
+			final double[] locations = list.getLocationArray();
 
-			// DIM x N array (which is a 2D array)
-			final FunctionRandomAccessible< DoubleType > loc =
-					new FunctionRandomAccessible<>(
-							2,
-							(location, value) ->
-							{
-								final InterestPoint ip = list.get( location.getIntPosition( 1 ) );
-								value.set( ip.getL()[ location.getIntPosition( 0 ) ] );
-							},
-							DoubleType::new );
+			n5Writer.createDataset( idDataset, new long[] { 1, size }, new int[] { 1, defaultBlockSize }, DataType.UINT64, new GzipCompression() );
+			n5Writer.createDataset( locDataset, new long[] { n, size }, new int[] { n, defaultBlockSize }, DataType.FLOAT64, new GzipCompression() );
+
+			final DatasetAttributes idAttributes = n5Writer.getDatasetAttributes( idDataset );
+			final DatasetAttributes locAttributes = n5Writer.getDatasetAttributes( locDataset );
+
+			final int numBlocks = ( size + defaultBlockSize - 1 ) / defaultBlockSize;
+
+			IntStream.range( 0, numBlocks ).parallel().forEach( b ->
+			{
+				final int start = b * defaultBlockSize;
+				final int length = Math.min( defaultBlockSize, size - start );
 
-			final RandomAccessibleInterval< UnsignedLongType > idData =
-					Views.interval( id, new long[] { 0, 0 }, new long[] { 0, list.size() - 1 } );
+				final long[] idBlock = new long[ length ];
+				for ( int i = 0; i < length; ++i )
+					idBlock[ i ] = ids[ start + i ];
 
-			final RandomAccessibleInterval< DoubleType > locData =
-					Views.interval( loc, new long[] { 0, 0 }, new long[] { n - 1, list.size() - 1 } );
+				final double[] locBlock = Arrays.copyOfRange( locations, start * n, ( start + length ) * n );
 
-			N5Utils.save( idData, n5Writer, idDataset, new int[] { 1, defaultBlockSize }, new GzipCompression() );
-			N5Utils.save( locData, n5Writer, locDataset, new int[] { (int)locData.dimension( 0 ), defaultBlockSize }, new GzipCompression() );
+				n5Writer.writeBlock( idDataset, idAttributes, new LongArrayDataBlock( new int[] { 1, length }, new long[] { 0, b }, idBlock ) );
+				n5Writer.writeBlock( locDataset, locAttributes, new DoubleArrayDataBlock( new int[] { n, length }, new long[] { 0, b }, locBlock ) );
+			});
 
 			n5Writer.close();
 
@@ -239,7 +256,7 @@ public class InterestPointsN5 extends InterestPoints
 		if ( !modifiedCorrespondingInterestPoints && !forceWrite )
 			return true;
 
-		final ArrayList< CorrespondingInterestPoints > list = this.correspondingInterestPoints;
+		final CorrespondenceStore list = this.correspondingInterestPoints;
 
 		if ( list == null )
 			return false;
@@ -273,58 +290,48 @@ public class InterestPointsN5 extends InterestPoints
 			}
 
 			//
-			// assemble all ViewIds+Labels that there are correspondences with
-			// each combination of (ViewId, label) is assigned an ID, this mapping is stored in the attributes
+			// each combination of (ViewId, label) is assigned an ID (the code of the store), this mapping is stored in the attributes
 			// the dataset itself only stores the ID as UINT64
 			//
-			final HashMap<ViewId, HashSet<String>> viewidToLabels = new HashMap<>();
+			final int size = list.size();
+			final int[] detectionIds = list.getDetectionIdArray();
+			final int[] correspondingDetectionIds = list.getCorrespondingDetectionIdArray();
+			final int[] codes = list.getCodeArray();
 
-			for ( final CorrespondingInterestPoints cip : list )
-			{
-				final ViewId viewId = cip.getCorrespondingViewId();
-				final String label = cip.getCorrespodingLabel();
-				viewidToLabels.computeIfAbsent( viewId, id -> new HashSet<>() ).add( label );
-			}
+			final boolean[] used = new boolean[ list.numCodes() ];
+			for ( int i = 0; i < size; ++i )
+				used[ codes[ i ] ] = true;
 
 			final HashMap< String, Long > idMap = new HashMap<>(); // to store ID
-			final HashMap< ViewId, HashMap<String, Long>> quickLookup = new HashMap<>(); // to quickly lookup ID while saving
-			long id = 0;
 
-			for ( final ViewId viewId : viewidToLabels.keySet() )
+			for ( int code = 0; code < used.length; ++code )
+				if ( used[ code ] )
+					idMap.put( CorrespondenceStore.key( list.getCorrespondingTimePointId( code ), list.getCorrespondingViewSetupId( code ), list.getCorrespondingLabel( code ) ), (long)code );
+
+			n5Writer.setAttribute( dataset, "idMap", idMap );
+
+			// 3 x N array (which is a 2D array, ID_a, ID_b, ID), with a blocksize of 1 x defaultBlockSize every block is one column of the store
+			n5Writer.createDataset( corrDataset, new long[] { 3, size }, new int[] { 1, defaultBlockSize }, DataType.UINT64, new GzipCompression() );
+
+			final DatasetAttributes corrAttributes = n5Writer.getDatasetAttributes( corrDataset );
+			final int[][] columns = new int[][] { detectionIds, correspondingDetectionIds, codes };
+			final int numBlocks = ( size + defaultBlockSize - 1 ) / defaultBlockSize;
+
+			IntStream.range( 0, numBlocks * 3 ).parallel().forEach( i ->
 			{
-				final HashMap<String, Long > map = new HashMap<>();
-				quickLookup.put( viewId, map );
+				final int x = i % 3;
+				final int b = i / 3;
+				final int start = b * defaultBlockSize;
+				final int length = Math.min( defaultBlockSize, size - start );
 
-				for ( final String label : viewidToLabels.get( viewId ) )
-				{
-					idMap.put( viewId.getTimePointId() + "," + viewId.getViewSetupId() + "," + label, id );
-					map.put( label, id );
-					id++;
-				}
-			}
+				final long[] block = new long[ length ];
+				final int[] column = columns[ x ];
 
-			n5Writer.setAttribute( dataset, "idMap", idMap );
+				for ( int j = 0; j < length; ++j )
+					block[ j ] = column[ start + j ];
 
-			// 3 x N array (which is a 2D array, ID_a, ID_b, ID)
-			final FunctionRandomAccessible< UnsignedLongType > corrId =
-					new FunctionRandomAccessible<>(
-							2,
-							(location, value) -> {
-								final CorrespondingInterestPoints cip = list.get( location.getIntPosition( 1 ) );
-								final int x = location.getIntPosition( 0 );
-								if ( x == 0 )
-									value.set( cip.getDetectionId() );
-								else if ( x == 1 )
-									value.set( cip.getCorrespondingDetectionId() );
-								else
-									value.set( quickLookup.get( cip.getCorrespondingViewId() ).get( cip.getCorrespodingLabel() ) );
-							},
-							UnsignedLongType::new );
-
-			final RandomAccessibleInterval< UnsignedLongType > corrIdData =
-					Views.interval( corrId, new long[] { 0, 0 }, new long[] { 2, list.size() - 1 } );
-
-			N5Utils.save( corrIdData, n5Writer, corrDataset, new int[] { 1, defaultBlockSize }, new GzipCompression() );
+				n5Writer.writeBlock( corrDataset, corrAttributes, new LongArrayDataBlock( new int[] { 1, length }, new long[] { x, b }, block ) );
+			});
 
 			/*
 			n5Writer.createDataset(
@@ -396,57 +403,32 @@ public class InterestPointsN5 extends InterestPoints
 			final String idDataset = dataset + "/id";
 			final String locDataset = dataset + "/loc";
 
-			// 1 x N array (which is a 2D array)
-			final RandomAccessibleInterval< UnsignedLongType > idData = N5Utils.open( n5, idDataset );
-
-			// DIM x N array (which is a 2D array)
-			final RandomAccessibleInterval< DoubleType > locData = N5Utils.open( n5, locDataset );
-			final int n = (int)locData.dimension( 0 );
+			final DatasetAttributes idAttributes = n5.getDatasetAttributes( idDataset );
+			final DatasetAttributes locAttributes = n5.getDatasetAttributes( locDataset );
 
 			// empty list
-			if ( n == 0 )
+			if ( locAttributes.getNumDimensions() != 2 || locAttributes.getDimensions()[ 0 ] == 0 )
 			{
-				this.interestPoints = new ArrayList<>();
+				this.interestPoints = new InterestPointStore( 0, 0 );
 				modifiedInterestPoints = false;
 
 				n5.close();
 				return true;
 			}
 
-			final RandomAccess< UnsignedLongType > idRA = idData.randomAccess();
-			final RandomAccess< DoubleType > locRA = locData.randomAccess();
-
-			final ArrayList< InterestPoint > list = new ArrayList<>();
-
-			idRA.setPosition( 0, 0 );
-			idRA.setPosition( 0, 1 );
-			locRA.setPosition( 0, 0 );
-			locRA.setPosition( 0, 1 );
-
-			for ( int i = 0; i < idData.dimension( 1 ); ++ i )
-			{
-				final long id = idRA.get().get();
-				final double[] loc = new double[ n ];
-
-				for ( int d = 0; d < n; ++d )
-				{
-					loc[ d ] = locRA.get().get();
-
-					if ( d != n - 1 )
-						locRA.fwd( 0 );
-				}
+			// DIM x N array (which is a 2D array)
+			final int n = (int)locAttributes.getDimensions()[ 0 ];
+			final int size = (int)locAttributes.getDimensions()[ 1 ];
 
-				for ( int d = 0; d < n - 1; ++d )
-					locRA.bck( 0 );
+			// 1 x N array (which is a 2D array)
+			final long[] idData = readLongs( n5, idDataset, idAttributes );
+			final double[] locations = readDoubles( n5, locDataset, locAttributes );
 
-				if ( i != idData.dimension( 1 ) - 1 )
-				{
-					idRA.fwd( 1 );
-					locRA.fwd( 1 );
-				}
+			final int[] ids = new int[ size ];
+			for ( int i = 0; i < size; ++i )
+				ids[ i ] = (int)idData[ i ];
 
-				list.add( new InterestPoint( (int)id, loc) );
-			}
+			final InterestPointStore list = new InterestPointStore( n, ids, locations );
 
 			/*
 			final DatasetAttributes datasetAttributes = n5.getDatasetAttributes(dataset);
@@ -462,13 +444,140 @@ public class InterestPointsN5 extends InterestPoints
 		} 
 		catch ( final Exception e )
 		{
-			this.interestPoints = new ArrayList<>();
+			this.interestPoints = new InterestPointStore( 0, 0 );
 			IOFunctions.println( "InterestPointsN5.loadInterestPoints(): " + e );
 			e.printStackTrace();
 			return false;
 		}
 	}
 
+	/**
+	 * Reads a 2D UINT64 dataset into a flat array (first dimension varies fastest) block by block.
+	 */
+	protected static long[] readLongs( final N5Reader n5, final String dataset, final DatasetAttributes attributes )
+	{
+		final long[] dim = attributes.getDimensions();
+		final long[] data = new long[ (int)( dim[ 0 ] * dim[ 1 ] ) ];
+
+		if ( attributes.getDataType() != DataType.UINT64 && attributes.getDataType() != DataType.INT64 )
+		{
+			final Cursor< ? extends RealType< ? > > c = openAsRealType( n5, dataset );
+			for ( int i = 0; i < data.length; ++i )
+				data[ i ] = Math.round( c.next().getRealDouble() );
+			return data;
+		}
+
+		forEachBlock( attributes, ( gridPosition, offset ) ->
+		{
+			final DataBlock< ? > block = n5.readBlock( dataset, attributes, gridPosition );
+			if ( block != null )
+				copyBlock( (long[])block.getData(), block.getSize(), data, offset, (int)dim[ 0 ] );
+		});
+
+		return data;
+	}
+
+	/**
+	 * Reads a 2D FLOAT64 dataset into a flat array (first dimension varies fastest) block by block.
+	 */
+	protected static double[] readDoubles( final N5Reader n5, final String dataset, final DatasetAttributes attributes )
+	{
+		final long[] dim = attributes.getDimensions();
+		final double[] data = new double[ (int)( dim[ 0 ] * dim[ 1 ] ) ];
+
+		if ( attributes.getDataType() != DataType.FLOAT64 )
+		{
+			final Cursor< ? extends RealType< ? > > c = openAsRealType( n5, dataset );
+			for ( int i = 0; i < data.length; ++i )
+				data[ i ] = c.next().getRealDouble();
+			return data;
+		}
+
+		forEachBlock( attributes, ( gridPosition, offset ) ->
+		{
+			final DataBlock< ? > block = n5.readBlock( dataset, attributes, gridPosition );
+			if ( block != null )
+				copyBlock( (double[])block.getData(), block.getSize(), data, offset, (int)dim[ 0 ] );
+		});
+
+		return data;
+	}
+
+	/**
+	 * Reads a 2D integer dataset into one int[] per row of the first dimension (e.g. 3 columns for a 3 x N dataset) block by block.
+	 */
+	protected static int[][] readIntColumns( final N5Reader n5, final String dataset, final DatasetAttributes attributes )
+	{
+		final long[] dim = attributes.getDimensions();
+		final int[][] columns = new int[ (int)dim[ 0 ] ][ (int)dim[ 1 ] ];
+
+		if ( attributes.getDataType() != DataType.UINT64 && attributes.getDataType() != DataType.INT64 )
+		{
+			final long[] data = readLongs( n5, dataset, attributes );
+			for ( int x = 0; x < columns.length; ++x )
+				for ( int y = 0; y < columns[ x ].length; ++y )
+					columns[ x ][ y ] = (int)data[ y * columns.length + x ];
+			return columns;
+		}
+
+		forEachBlock( attributes, ( gridPosition, offset ) ->
+		{
+			final DataBlock< ? > block = n5.readBlock( dataset, attributes, gridPosition );
+
+			if ( block == null )
+				return;
+
+			final long[] data = (long[])block.getData();
+			final int[] size = block.getSize();
+
+			for ( int x = 0; x < size[ 0 ]; ++x )
+			{
+				final int[] column = columns[ (int)offset[ 0 ] + x ];
+				final int o = (int)offset[ 1 ];
+
+				for ( int y = 0; y < size[ 1 ]; ++y )
+					column[ o + y ] = (int)data[ y * size[ 0 ] + x ];
+			}
+		});
+
+		return columns;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	protected static Cursor< ? extends RealType< ? > > openAsRealType( final N5Reader n5, final String dataset )
+	{
+		final RandomAccessibleInterval img = N5Utils.open( n5, dataset );
+		return Views.flatIterable( (RandomAccessibleInterval< ? extends RealType< ? > >)img ).cursor();
+	}
+
+	/**
+	 * Calls the consumer for all blocks of a 2D dataset in parallel with the grid position and the offset (in pixels).
+	 */
+	protected static void forEachBlock( final DatasetAttributes attributes, final BiConsumer< long[], long[] > blockConsumer )
+	{
+		final long[] dim = attributes.getDimensions();
+		final int[] blockSize = attributes.getBlockSize();
+		final int numBlocksX = (int)( ( dim[ 0 ] + blockSize[ 0 ] - 1 ) / blockSize[ 0 ] );
+		final int numBlocksY = (int)( ( dim[ 1 ] + blockSize[ 1 ] - 1 ) / blockSize[ 1 ] );
+
+		IntStream.range( 0, numBlocksX * numBlocksY ).parallel().forEach( i ->
+		{
+			final long gx = i % numBlocksX;
+			final long gy = i / numBlocksX;
+
+			blockConsumer.accept( new long[] { gx, gy }, new long[] { gx * blockSize[ 0 ], gy * blockSize[ 1 ] } );
+		});
+	}
+
+	/**
+	 * Copies a 2D block into a flat 2D array of width w (blocks at the border can be smaller than the blocksize)
+	 */
+	protected static void copyBlock( final Object src, final int[] size, final Object dst, final long[] offset, final int w )
+	{
+		for ( int y = 0; y < size[ 1 ]; ++y )
+			System.arraycopy( src, y * size[ 0 ], dst, (int)( ( offset[ 1 ] + y ) * w + offset[ 0 ] ), size[ 0 ] );
+	}
+
 	@Override
 	protected boolean loadCorrespondences()
 	{
@@ -500,13 +609,23 @@ public class InterestPointsN5 extends InterestPoints
 
 			if ( idMap.size() == 0 )
 			{
-				this.correspondingInterestPoints = new ArrayList<>();
+				this.correspondingInterestPoints = new CorrespondenceStore( 0 );
 				modifiedCorrespondingInterestPoints = false;
 
 				return true;
 			}
 
-			final Map< Long, Pair<ViewId, String> > quickLookup = new HashMap<>();
+			// the code table, ids are usually 0 ... idMap.size()-1 and are then used directly as codes
+			final int numIds = idMap.size();
+			final long[] fileIds = new long[ numIds ];
+			final int[] tps = new int[ numIds ];
+			final int[] setups = new int[ numIds ];
+			final String[] labels = new String[ numIds ];
+
+			int j = 0;
+			long maxId = -1;
+			boolean valid = true;
+
 			for ( final Entry<String, Long> entry : idMap.entrySet() )
 			{
 				final int firstComma = entry.getKey().indexOf( "," );
@@ -516,52 +635,88 @@ public class InterestPointsN5 extends InterestPoints
 				final String setup = remaining.substring( 0, secondComma );
 				final String label = remaining.substring( secondComma + 1, remaining.length() );
 
-				final int tpInt = Integer.parseInt(tp);
-				final int setupInt = Integer.parseInt(setup);
+				// a long maybe loaded as a double
+				final Number value = (Number)(Object)entry.getValue();
+				final long id = Double.class.isInstance( value ) ? Math.round( value.doubleValue() ) : value.longValue();
+
+				fileIds[ j ] = id;
+				tps[ j ] = Integer.parseInt( tp );
+				setups[ j ] = Integer.parseInt( setup );
+				labels[ j ] = label;
+				maxId = Math.max( maxId, id );
+				valid &= id >= 0;
+				++j;
+			}
+
+			final boolean dense = valid && maxId < numIds;
 
-				final long id;
+			final int[] codeTimepoints, codeSetups;
+			final String[] codeLabels;
+			final long[] sortedIds;
 
-				if ( Double.class.isInstance((Object)entry.getValue()))
-					id = Math.round( (Double)(Object)entry.getValue() ); // TODO: bug, a long maybe loaded as a double
-				else
-					id = entry.getValue();
+			if ( dense )
+			{
+				codeTimepoints = new int[ numIds ];
+				codeSetups = new int[ numIds ];
+				codeLabels = new String[ numIds ];
 
-				final Pair<ViewId, String> value = new ValuePair<>( new ViewId( tpInt, setupInt ), label );
-				quickLookup.put( id , value );
+				for ( int i = 0; i < numIds; ++i )
+				{
+					final int code = (int)fileIds[ i ];
+					codeTimepoints[ code ] = tps[ i ];
+					codeSetups[ code ] = setups[ i ];
+					codeLabels[ code ] = labels[ i ];
+				}
+
+				sortedIds = null;
 			}
-			
-			final String corrDataset = dataset + "/data";
+			else
+			{
+				// the code is the index in the sorted ids
+				final Integer[] order = new Integer[ numIds ];
+				for ( int i = 0; i < numIds; ++i )
+					order[ i ] = i;
 
-			// 3 x N array (which is a 2D array, ID_a, ID_b, ID)
-			final RandomAccessibleInterval< UnsignedLongType > corrData = N5Utils.open( n5, corrDataset );
+				Arrays.sort( order, (a, b) -> Long.compare( fileIds[ a ], fileIds[ b ] ) );
 
-			final RandomAccess< UnsignedLongType > corrRA = corrData.randomAccess();
+				codeTimepoints = new int[ numIds ];
+				codeSetups = new int[ numIds ];
+				codeLabels = new String[ numIds ];
+				sortedIds = new long[ numIds ];
 
-			final ArrayList< CorrespondingInterestPoints > correspondingInterestPoints = new ArrayList<>();
+				for ( int code = 0; code < numIds; ++code )
+				{
+					sortedIds[ code ] = fileIds[ order[ code ] ];
+					codeTimepoints[ code ] = tps[ order[ code ] ];
+					codeSetups[ code ] = setups[ order[ code ] ];
+					codeLabels[ code ] = labels[ order[ code ] ];
+				}
+			}
 
-			corrRA.setPosition( 0, 0 );
-			corrRA.setPosition( 0, 1 );
+			final String corrDataset = dataset + "/data";
 
-			for ( int i = 0; i < corrData.dimension( 1 ); ++ i )
-			{
-				final long idA = corrRA.get().get();
-				corrRA.fwd(0);
-				final long idB = corrRA.get().get();
-				corrRA.fwd(0);
-				final long id = corrRA.get().get();
+			// 3 x N array (which is a 2D array, ID_a, ID_b, ID), read block by block into the columns
+			final int[][] columns = readIntColumns( n5, corrDataset, n5.getDatasetAttributes( corrDataset ) );
 
-				corrRA.bck(0);
-				corrRA.bck(0);
+			final int[] codes = columns[ 2 ];
+			final long[] unknownId = new long[] { Long.MIN_VALUE };
 
-				if ( i != corrData.dimension( 1 ) - 1 )
-					corrRA.fwd( 1 );
+			IntStream.range( 0, codes.length ).parallel().forEach( i ->
+			{
+				final long id = codes[ i ];
+				final int code = dense ? (int)id : Arrays.binarySearch( sortedIds, id );
 
-				// final int detectionId, final ViewId correspondingViewId, final String correspondingLabel, final int correspondingDetectionId
-				final Pair<ViewId, String> value = quickLookup.get( id );
-				final CorrespondingInterestPoints cip = new CorrespondingInterestPoints( (int)idA, value.getA(), value.getB(), (int)idB );
+				if ( code < 0 || code >= numIds || codeLabels[ code ] == null )
+					unknownId[ 0 ] = id;
+				else
+					codes[ i ] = code;
+			});
 
-				correspondingInterestPoints.add( cip );
-			}
+			if ( unknownId[ 0 ] != Long.MIN_VALUE )
+				throw new IllegalStateException( "id " + unknownId[ 0 ] + " in '" + corrDataset + "' is not part of the idMap." );
+
+			final CorrespondenceStore correspondingInterestPoints =
+					new CorrespondenceStore( columns[ 0 ], columns[ 1 ], codes, codeTimepoints, codeSetups, codeLabels );
 
 			this.correspondingInterestPoints = correspondingInterestPoints;
 			modifiedCorrespondingInterestPoints = false;
@@ -589,7 +744,7 @@ public class InterestPointsN5 extends InterestPoints
 		} 
 		catch ( final Exception e )
 		{
-			this.interestPoints = new ArrayList<>();
+			this.correspondingInterestPoints = new CorrespondenceStore( 0 );
 			IOFunctions.println( "InterestPointsN5.loadCorrespondingInterestPoints(): " + e );
 			e.printStackTrace();
 			return false;
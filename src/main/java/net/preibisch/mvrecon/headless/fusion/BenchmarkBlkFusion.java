@@ -0,0 +1,126 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.headless.fusion;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import mpicbg.spim.data.sequence.ViewId;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Util;
+import net.preibisch.legacy.io.IOFunctions;
+import net.preibisch.mvrecon.fiji.plugin.fusion.FusionGUI.FusionType;
+import net.preibisch.mvrecon.fiji.spimdata.SpimData2;
+import net.preibisch.mvrecon.headless.boundingbox.TestBoundingBox;
+import net.preibisch.mvrecon.process.deconvolution.DeconViews;
+import net.preibisch.mvrecon.process.fusion.FusionTools;
+import net.preibisch.mvrecon.process.fusion.blk.BlkAffineFusion;
+import net.preibisch.mvrecon.process.fusion.lazy.LazyAffineFusion;
+import net.preibisch.mvrecon.process.fusion.transformed.TransformVirtual;
+import net.preibisch.simulation.imgloader.SimulatedBeadsImgLoader;
+
+/**
+ * Compares the throughput of the block-based fusion ({@link BlkAffineFusion})
+ * with the per-pixel lazy fusion ({@link LazyAffineFusion}).
+ */
+public class BenchmarkBlkFusion
+{
+	public static int numRepetitions = 3;
+
+	public static void main( String[] args )
+	{
+		// generate 3 views with 1000 corresponding beads, single timepoint
+		final SpimData2 spimData = SpimData2.convert( SimulatedBeadsImgLoader.spimdataExample( new int[]{ 0, 90, 135 } ) );
+
+		benchmark( spimData, FusionType.AVG_CONTENT );
+		benchmark( spimData, FusionType.AVG_BLEND_CONTENT );
+	}
+
+	public static void benchmark( final SpimData2 spimData, final FusionType fusionType )
+	{
+		final Interval bb = TestBoundingBox.testBoundingBox( spimData, false );
+
+		final List< ViewId > viewIds = new ArrayList< ViewId >();
+		viewIds.addAll( spimData.getSequenceDescription().getViewDescriptions().values() );
+		SpimData2.filterMissingViews( spimData, viewIds );
+
+		final HashMap< ViewId, AffineTransform3D > registrations =
+				TransformVirtual.adjustAllTransforms(
+						viewIds,
+						spimData.getViewRegistrations().getViewRegistrations(),
+						Double.NaN,
+						Double.NaN );
+
+		final int[] blockSize = new int[] { 128, 128, 64 };
+		final ExecutorService service = DeconViews.createExecutorService();
+
+		IOFunctions.println( "Benchmarking " + fusionType + ", size = " + Util.printCoordinates( bb.dimensionsAsLongArray() ) );
+
+		for ( int r = 0; r < numRepetitions; ++r )
+		{
+			final RandomAccessibleInterval< FloatType > lazy = LazyAffineFusion.init(
+					null,
+					spimData.getSequenceDescription().getImgLoader(),
+					viewIds,
+					registrations,
+					spimData.getSequenceDescription().getViewDescriptions(),
+					fusionType,
+					1,
+					null,
+					bb,
+					new FloatType(),
+					blockSize );
+
+			final RandomAccessibleInterval< FloatType > blk = BlkAffineFusion.init(
+					null,
+					spimData.getSequenceDescription().getImgLoader(),
+					viewIds,
+					registrations,
+					spimData.getSequenceDescription().getViewDescriptions(),
+					fusionType,
+					1,
+					null,
+					bb,
+					new FloatType(),
+					blockSize );
+
+			long t = System.currentTimeMillis();
+			FusionTools.copyImg( lazy, new ArrayImgFactory<>( new FloatType() ), new FloatType(), service );
+			final long timeLazy = System.currentTimeMillis() - t;
+
+			t = System.currentTimeMillis();
+			FusionTools.copyImg( blk, new ArrayImgFactory<>( new FloatType() ), new FloatType(), service );
+			final long timeBlk = System.currentTimeMillis() - t;
+
+			IOFunctions.println( "LazyAffineFusion: " + timeLazy + " ms, BlkAffineFusion: " + timeBlk + " ms, speedup: " + ( ( double ) timeLazy / timeBlk ) );
+		}
+
+		service.shutdown();
+	}
+}
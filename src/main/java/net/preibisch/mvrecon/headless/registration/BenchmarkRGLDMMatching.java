@@ -0,0 +1,108 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.headless.registration;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import net.imglib2.realtransform.AffineTransform3D;
+import net.preibisch.legacy.io.IOFunctions;
+import net.preibisch.legacy.mpicbg.PointMatchGeneric;
+import net.preibisch.mvrecon.fiji.spimdata.interestpoints.InterestPoint;
+import net.preibisch.mvrecon.process.interestpointregistration.pairwise.methods.rgldm.RGLDMMatcher;
+
+/**
+ * Compares the KDTree-based descriptor matching of {@link RGLDMMatcher} with the
+ * all-pairs comparison and verifies that the correspondence candidates are identical.
+ */
+public class BenchmarkRGLDMMatching
+{
+	public static void main( String[] args )
+	{
+		benchmark( 5000, false, 0 );
+		benchmark( 20000, false, 0 );
+		benchmark( 20000, true, 50 );
+	}
+
+	public static void benchmark( final int numPoints, final boolean limitSearchRadius, final double searchRadius )
+	{
+		final Random rnd = new Random( 1353 );
+
+		// slightly rotated, shifted and noisy copy of A with 10% missing and 10% additional points
+		final AffineTransform3D t = new AffineTransform3D();
+		t.rotate( 2, Math.toRadians( 5 ) );
+		t.translate( 10, -5, 3 );
+
+		final ArrayList< InterestPoint > listA = new ArrayList<>();
+		final ArrayList< InterestPoint > listB = new ArrayList<>();
+
+		for ( int i = 0; i < numPoints; ++i )
+		{
+			final double[] l = new double[] { rnd.nextDouble() * 1000, rnd.nextDouble() * 1000, rnd.nextDouble() * 500 };
+			listA.add( new InterestPoint( i, l ) );
+
+			if ( rnd.nextDouble() > 0.1 )
+			{
+				final double[] w = new double[ 3 ];
+				t.apply( l, w );
+				for ( int d = 0; d < 3; ++d )
+					w[ d ] += rnd.nextGaussian() * 0.5;
+
+				listB.add( new InterestPoint( listB.size(), w ) );
+			}
+
+			if ( rnd.nextDouble() < 0.1 )
+				listB.add( new InterestPoint( listB.size(), new double[] { rnd.nextDouble() * 1000, rnd.nextDouble() * 1000, rnd.nextDouble() * 500 } ) );
+		}
+
+		IOFunctions.println( "Matching " + listA.size() + " <> " + listB.size() + " points, limitSearchRadius=" + limitSearchRadius + " (" + searchRadius + ")" );
+
+		RGLDMMatcher.defaultUseDescriptorKDTree = false;
+		long time = System.currentTimeMillis();
+		final ArrayList< PointMatchGeneric< InterestPoint > > allPairs =
+				new RGLDMMatcher< InterestPoint >().extractCorrespondenceCandidates( listA, listB, 3, 1, 3.0, Double.MAX_VALUE, limitSearchRadius, searchRadius );
+		final long timeAllPairs = System.currentTimeMillis() - time;
+
+		RGLDMMatcher.defaultUseDescriptorKDTree = true;
+		time = System.currentTimeMillis();
+		final ArrayList< PointMatchGeneric< InterestPoint > > kdTree =
+				new RGLDMMatcher< InterestPoint >().extractCorrespondenceCandidates( listA, listB, 3, 1, 3.0, Double.MAX_VALUE, limitSearchRadius, searchRadius );
+		final long timeKDTree = System.currentTimeMillis() - time;
+
+		final boolean identical = matchIds( allPairs ).equals( matchIds( kdTree ) ) && allPairs.size() == kdTree.size();
+
+		IOFunctions.println( "all pairs: " + allPairs.size() + " candidates in " + timeAllPairs + " ms, KDTree: " + kdTree.size() + " candidates in " + timeKDTree + " ms, identical: " + identical );
+	}
+
+	protected static Set< String > matchIds( final ArrayList< PointMatchGeneric< InterestPoint > > matches )
+	{
+		final Set< String > ids = new HashSet<>();
+
+		for ( final PointMatchGeneric< InterestPoint > pm : matches )
+			ids.add( pm.getPoint1().getId() + "-" + pm.getPoint2().getId() );
+
+		return ids;
+	}
+}
@@ -213,6 +213,8 @@ public class Block extends AbstractInterval
 				{
 					if ( target.numDimensions() == 3 && ArrayImg.class.isInstance( target ) && ArrayImg.class.isInstance( block ) )
 						paste3d( threadIdx, portionsPaste.size(), (ArrayImg< FloatType, ?>)target, (ArrayImg< FloatType, ?>)block, effectiveOffset, effectiveSize, effectiveLocalOffset );
+					else if ( target.numDimensions() == 3 && ArrayImg.class.isInstance( block ) )
+						paste3dRandomAccess( threadIdx, portionsPaste.size(), target, (ArrayImg< FloatType, ?>)block, effectiveOffset, effectiveSize, effectiveLocalOffset );
 					else
 					{
 						final ImagePortion portion = portionsPaste.get( threadIdx );
@@ -402,6 +404,54 @@ public class Block extends AbstractInterval
 		}
 	}
 	
+	/*
+	 * writes line by line into a target that is not an ArrayImg (e.g. a CellImg or a disk-cached psi), so that
+	 * the RandomAccess only moves within the current cell most of the time
+	 */
+	private static final void paste3dRandomAccess( final int threadIdx, final int numThreads, final RandomAccessibleInterval< FloatType > target, final ArrayImg< FloatType, ? > block,
+			final long[] effectiveOffset, final long[] effectiveSize, final long[] effectiveLocalOffset )
+	{
+		// size of the output area
+		final int sX = (int)effectiveSize[ 0 ];
+		final int sY = (int)effectiveSize[ 1 ];
+		final int sZ = (int)effectiveSize[ 2 ];
+
+		// min position in the block
+		final int minXb = (int)effectiveLocalOffset[ 0 ];
+		final int minYb = (int)effectiveLocalOffset[ 1 ];
+		final int minZb = (int)effectiveLocalOffset[ 2 ];
+
+		// size of the block image
+		final int wb = (int)block.dimension( 0 );
+		final int hb = (int)block.dimension( 1 );
+
+		final float[] blockArray = ((FloatArray)block.update( null ) ).getCurrentStorageArray();
+
+		final RandomAccess< FloatType > randomAccess = target.randomAccess( new FinalInterval( effectiveOffset, max( effectiveOffset, effectiveSize ) ) );
+		final long[] tmp = new long[]{ effectiveOffset[ 0 ], effectiveOffset[ 1 ], 0 };
+
+		for ( int z = threadIdx; z < sZ; z += numThreads )
+		{
+			tmp[ 2 ] = z + effectiveOffset[ 2 ];
+			randomAccess.setPosition( tmp );
+
+			int iBlock = ( z + minZb ) * hb * wb + minYb * wb + minXb;
+
+			for ( int y = 0; y < sY; ++y )
+			{
+				for ( int x = 0; x < sX; ++x )
+				{
+					randomAccess.get().set( blockArray[ iBlock + x ] );
+					randomAccess.fwd( 0 );
+				}
+
+				randomAccess.move( -sX, 0 );
+				randomAccess.fwd( 1 );
+				iBlock += wb;
+			}
+		}
+	}
+
 	private static final void copyX( final float[] blockArray, final float[] targetArray, final int count, int iTarget, int iBlock )
 	{
 		for ( int x = 0; x < count; ++x )
@@ -0,0 +1,320 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.process.deconvolution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.real.FloatType;
+import net.preibisch.legacy.io.IOFunctions;
+import net.preibisch.mvrecon.process.cuda.Block;
+import net.preibisch.mvrecon.process.fusion.FusionTools;
+
+/**
+ * Dependencies between the batches of non-interfering blocks of one pass, so that copying, computing and
+ * pasting of blocks from different batches can overlap while psi is read and written in the same order as
+ * when processing one batch after the other:
+ * <ul>
+ * <li>batch i reads psi once all blocks of batch i-2 were written back</li>
+ * <li>blocks of batch i are written back once all blocks of batch i+1 read psi (the last batch once all of its own blocks did)</li>
+ * </ul>
+ * Blocks that are computed before they can be written back are queued (see {@link #enqueue(WriteBack)}).
+ * {@link #run(int, Steps)} processes all blocks accordingly, the {@link Steps} do the actual work on psi.
+ */
+class BlockPipeline
+{
+	/**
+	 * A computed block that is waiting to be pasted into psi
+	 */
+	static class WriteBack
+	{
+		final int batch, blockId;
+		final Block block;
+		final Img< FloatType > img;
+
+		WriteBack( final int batch, final int blockId, final Block block, final Img< FloatType > img )
+		{
+			this.batch = batch;
+			this.blockId = blockId;
+			this.block = block;
+			this.img = img;
+		}
+	}
+
+	/**
+	 * What is done with a block, the thread id identifies the buffer (psi block) the block is copied into and computed in.
+	 */
+	interface Steps
+	{
+		/**
+		 * Called before the first block of a batch is processed.
+		 */
+		void startBatch( int batch );
+
+		/**
+		 * Copies the block from psi into the buffer of the thread.
+		 */
+		void copy( int threadId, int blockId, Block block );
+
+		/**
+		 * Computes the block in the buffer of the thread.
+		 */
+		void compute( int threadId, int blockId, Block block );
+
+		/**
+		 * Pastes the buffer of the thread into psi.
+		 */
+		void paste( int threadId, int blockId, Block block );
+
+		/**
+		 * @return a copy of the buffer of the thread, it is pasted later with {@link #pasteSaved(WriteBack)}
+		 */
+		Img< FloatType > save( int threadId, int blockId, Block block );
+
+		/**
+		 * Pastes a block that was saved before into psi.
+		 */
+		void pasteSaved( WriteBack writeBack );
+	}
+
+	final int numBatches;
+	final int[] numBlocks, numCopiedIn, numWrittenBack;
+	final boolean[] writable;
+	final ArrayList< ArrayList< WriteBack > > queued;
+
+	// the blocks in processing order, and the batch each one belongs to
+	final ArrayList< Block > blocks;
+	final int[] batchOf;
+
+	boolean aborted = false;
+
+	BlockPipeline( final List< List< Block > > batches )
+	{
+		this.numBatches = batches.size();
+		this.numBlocks = new int[ numBatches ];
+		this.numCopiedIn = new int[ numBatches ];
+		this.numWrittenBack = new int[ numBatches ];
+		this.writable = new boolean[ numBatches ];
+		this.queued = new ArrayList<>();
+		this.blocks = new ArrayList<>();
+
+		for ( int b = 0; b < numBatches; ++b )
+		{
+			numBlocks[ b ] = batches.get( b ).size();
+			queued.add( new ArrayList<>() );
+			blocks.addAll( batches.get( b ) );
+		}
+
+		this.batchOf = new int[ blocks.size() ];
+
+		for ( int b = 0, i = 0; b < numBatches; ++b )
+			for ( int j = 0; j < numBlocks[ b ]; ++j )
+				batchOf[ i++ ] = b;
+	}
+
+	int numBlocks() { return blocks.size(); }
+	Block block( final int blockId ) { return blocks.get( blockId ); }
+	int batch( final int blockId ) { return batchOf[ blockId ]; }
+	boolean isFirstOfBatch( final int blockId ) { return blockId == 0 || batchOf[ blockId - 1 ] != batchOf[ blockId ]; }
+
+	/**
+	 * Blocks until the blocks of this batch may read psi.
+	 *
+	 * @param batch - the batch
+	 * @return false if the pipeline was aborted
+	 * @throws InterruptedException
+	 */
+	synchronized boolean awaitReadable( final int batch ) throws InterruptedException
+	{
+		while ( !aborted && batch >= 2 && numWrittenBack[ batch - 2 ] < numBlocks[ batch - 2 ] )
+			wait();
+
+		return !aborted;
+	}
+
+	/**
+	 * Called once a block of this batch read psi.
+	 *
+	 * @param batch - the batch
+	 * @return the queued blocks that can be written back now (the caller has to do it)
+	 */
+	synchronized List< WriteBack > copiedIn( final int batch )
+	{
+		final ArrayList< WriteBack > writeBack = new ArrayList<>();
+
+		++numCopiedIn[ batch ];
+
+		// a batch can be written back once it and its neighbors read psi; from batch 2 on this is implied
+		// by awaitReadable, but blocks of batch 0 can still be reading while batch 1 is done
+		for ( int b = Math.max( 0, batch - 1 ); b <= Math.min( numBatches - 1, batch + 1 ); ++b )
+			if ( !writable[ b ] && isCopiedIn( b - 1 ) && isCopiedIn( b ) && isCopiedIn( b + 1 ) )
+				open( b, writeBack );
+
+		return writeBack;
+	}
+
+	/**
+	 * @param batch - the batch
+	 * @return true if computed blocks of this batch can be pasted into psi right away
+	 */
+	synchronized boolean isWritable( final int batch ) { return writable[ batch ]; }
+
+	/**
+	 * @param writeBack - a computed block
+	 * @return true if it was queued, false if its batch became writable in the meantime (the caller has to write it back)
+	 */
+	synchronized boolean enqueue( final WriteBack writeBack )
+	{
+		if ( writable[ writeBack.batch ] )
+			return false;
+
+		queued.get( writeBack.batch ).add( writeBack );
+
+		return true;
+	}
+
+	/**
+	 * Called once a block of this batch was pasted into psi.
+	 *
+	 * @param batch - the batch
+	 */
+	synchronized void writtenBack( final int batch )
+	{
+		++numWrittenBack[ batch ];
+		notifyAll();
+	}
+
+	/**
+	 * Runs all blocks, every thread takes the next block, waits until its batch may read psi, copies it, writes back the
+	 * blocks that became writable, computes it and pastes it (or saves it if its batch cannot be written back yet). The
+	 * first failure aborts the pipeline and is rethrown once all threads returned (psi is incomplete then).
+	 *
+	 * @param numThreads - the number of threads
+	 * @param steps - what is done with a block
+	 */
+	void run( final int numThreads, final Steps steps )
+	{
+		final AtomicInteger ai = new AtomicInteger();
+		final Thread[] threads = new Thread[ numThreads ];
+
+		// the first failure of any thread
+		final AtomicReference< Throwable > failure = new AtomicReference<>();
+
+		for ( int t = 0; t < numThreads; ++t )
+		{
+			final int threadId = t;
+
+			threads[ threadId ] = new Thread( () ->
+			{
+				int blockId;
+
+				while ( ( blockId = ai.getAndIncrement() ) < numBlocks() )
+				{
+					final int batch = batch( blockId );
+					final Block block = block( blockId );
+
+					try
+					{
+						if ( isFirstOfBatch( blockId ) )
+							steps.startBatch( batch );
+
+						if ( !awaitReadable( batch ) )
+							return;
+
+						steps.copy( threadId, blockId, block );
+
+						// once all blocks of this batch read psi, the previous batch can be written back
+						writeBack( steps, copiedIn( batch ) );
+
+						steps.compute( threadId, blockId, block );
+
+						if ( isWritable( batch ) )
+						{
+							steps.paste( threadId, blockId, block );
+							writtenBack( batch );
+						}
+						else
+						{
+							// the next batch still has to read psi, save it for later pasting
+							final WriteBack queued = new WriteBack( batch, blockId, block, steps.save( threadId, blockId, block ) );
+
+							if ( !enqueue( queued ) )
+								writeBack( steps, Arrays.asList( queued ) );
+						}
+					}
+					catch ( Throwable e )
+					{
+						// let the other threads return instead of waiting for this block
+						abort();
+
+						IOFunctions.println( "Failed to process block " + blockId + ": " + e );
+						failure.compareAndSet( null, e );
+						return;
+					}
+				}
+			} );
+		}
+
+		FusionTools.runThreads( threads );
+
+		final Throwable e = failure.get();
+
+		if ( e instanceof Error )
+			throw (Error)e;
+		else if ( e instanceof RuntimeException )
+			throw (RuntimeException)e;
+		else if ( e != null )
+			throw new RuntimeException( "Failed to process blocks: " + e, e );
+	}
+
+	protected void writeBack( final Steps steps, final List< WriteBack > writeBack )
+	{
+		for ( final WriteBack block : writeBack )
+		{
+			steps.pasteSaved( block );
+			writtenBack( block.batch );
+		}
+	}
+
+	synchronized void abort()
+	{
+		aborted = true;
+		notifyAll();
+	}
+
+	protected boolean isCopiedIn( final int batch )
+	{
+		return batch < 0 || batch >= numBatches || numCopiedIn[ batch ] == numBlocks[ batch ];
+	}
+
+	protected void open( final int batch, final List< WriteBack > writeBack )
+	{
+		writable[ batch ] = true;
+		writeBack.addAll( queued.get( batch ) );
+		queued.get( batch ).clear();
+	}
+}
@@ -24,7 +24,12 @@ package net.preibisch.mvrecon.process.deconvolution;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import ij.CompositeImage;
 import ij.IJ;
@@ -32,15 +37,25 @@ import ij.ImagePlus;
 import ij.ImageStack;
 import net.imglib2.img.Img;
 import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
 import net.imglib2.type.numeric.real.FloatType;
-import net.imglib2.util.Pair;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
 import net.preibisch.legacy.io.IOFunctions;
 import net.preibisch.mvrecon.process.cuda.Block;
+import net.preibisch.mvrecon.process.deconvolution.BlockPipeline.WriteBack;
 import net.preibisch.mvrecon.process.deconvolution.init.PsiInit;
 import net.preibisch.mvrecon.process.deconvolution.init.PsiInitFactory;
 import net.preibisch.mvrecon.process.deconvolution.iteration.ComputeBlockThread;
+import net.preibisch.mvrecon.process.deconvolution.iteration.ComputeBlockThread.IterationStatistics;
 import net.preibisch.mvrecon.process.deconvolution.iteration.ComputeBlockThreadFactory;
+import net.preibisch.mvrecon.process.deconvolution.util.BiggsAndrewsAcceleration;
+import net.preibisch.mvrecon.process.deconvolution.util.DeconvolutionCheckpoint;
+import net.preibisch.mvrecon.process.deconvolution.util.OutOfCoreStorage;
 import net.preibisch.mvrecon.process.export.DisplayImage;
+import net.preibisch.mvrecon.process.fusion.FusionTools;
 
 public abstract class MultiViewDeconvolution< C extends ComputeBlockThread >
 {
@@ -73,6 +88,9 @@ public abstract class MultiViewDeconvolution< C extends ComputeBlockThread >
 	final int numIterations;
 	final double avgMax;
 
+	// the average in the overlapping area, needed to write a checkpoint
+	final double avg;
+
 	boolean debug = false;
 	int debugInterval = 1;
 
@@ -82,6 +100,26 @@ public abstract class MultiViewDeconvolution< C extends ComputeBlockThread >
 	// the actual block compute threads
 	final ArrayList< C > computeBlockThreads;
 
+	// out-of-core: chunk size of psi, images and weights (0 means no prefetching), the chunks of the next batch are loaded while the current one is computed
+	int prefetchCellDim = 0;
+	ExecutorService prefetchService = null;
+	Future< ? > prefetchFuture = null;
+
+	// buffers for computed blocks that wait for being pasted into psi, reused across batches and iterations
+	final ConcurrentLinkedQueue< Img< FloatType > > blockBufferPool = new ConcurrentLinkedQueue<>();
+
+	// if not null, psi is written every n'th iteration so the deconvolution can be resumed
+	DeconvolutionCheckpoint checkpoint = null;
+
+	// Biggs-Andrews vector extrapolation between iterations
+	boolean accelerate = false;
+
+	// stop once the change of an iteration is below this fraction of the change of the first iteration (0 means never)
+	double stoppingTolerance = 0;
+
+	// the statistics of the last iteration (all views), set by runNextIteration()
+	IterationStatistics iterationStatistics = null;
+
 	// for debug
 	ImageStack stack;
 	CompositeImage ci;
@@ -119,10 +157,13 @@ public abstract class MultiViewDeconvolution< C extends ComputeBlockThread >
 		{
 			this.max = null;
 			this.avgMax = 0;
+			this.avg = 0;
 		}
 		else
 		{
 			this.max = psiInit.getMax();
+			this.avg = psiInit.getAvg();
+			this.it = psiInit.getNumCompletedIterations();
 	
 			double avgMaxIntensity = 0;
 			for ( int i = 0; i < max.length; ++i )
@@ -140,11 +181,59 @@ public abstract class MultiViewDeconvolution< C extends ComputeBlockThread >
 	public CompositeImage getDebugImage() { return ci; }
 	public void setDebugInterval( final int debugInterval ) { this.debugInterval = debugInterval; }
 
+	/**
+	 * @param cellDim - the chunk size of psi and the input images &amp; weights, if &gt; 0 the chunks touched by the next batch of
+	 * non-interfering blocks are loaded in the background while the current batch is computed
+	 */
+	public void setPrefetching( final int cellDim ) { this.prefetchCellDim = cellDim; }
+
+	/**
+	 * @param checkpoint - if not null, psi and the iteration are written every n'th iteration (see {@link DeconvolutionCheckpoint#isDue(int)})
+	 */
+	public void setCheckpoint( final DeconvolutionCheckpoint checkpoint ) { this.checkpoint = checkpoint; }
+	public int getNumCompletedIterations() { return it; }
+
+	/**
+	 * @param accelerate - extrapolate psi after each iteration (Biggs-Andrews), needs three more images of the size of psi (created
+	 * with the factory of psi, i.e. cached on disk if psi is out-of-core)
+	 */
+	public void setAcceleration( final boolean accelerate ) { this.accelerate = accelerate; }
+
+	/**
+	 * @param stoppingTolerance - stop before reaching the number of iterations once the sum of changes of an iteration is below
+	 * this fraction of the sum of changes of the first iteration, e.g. 0.01 (0 means the number of iterations is always run)
+	 */
+	public void setStoppingTolerance( final double stoppingTolerance ) { this.stoppingTolerance = stoppingTolerance; }
+
 	public void runIterations()
 	{
 		if ( this.max == null )
 			return;
 
+		final BiggsAndrewsAcceleration acceleration;
+
+		if ( accelerate )
+		{
+			IOFunctions.println( "(" + new Date(System.currentTimeMillis()) + "): Setting up Biggs-Andrews acceleration." );
+			acceleration = new BiggsAndrewsAcceleration( psi, minValue, views.getExecutorService() );
+		}
+		else
+		{
+			acceleration = null;
+		}
+
+		// the change of the first iteration is the reference for stopping
+		double firstSumChange = Double.NaN;
+
+		// resumed from a checkpoint, psi is x(k) before the extrapolation
+		if ( checkpoint != null && it > 0 )
+		{
+			firstSumChange = checkpoint.getFirstSumChange();
+
+			if ( acceleration != null && checkpoint.loadAcceleration( acceleration, views.getExecutorService() ) && it < numIterations )
+				IOFunctions.println( "iteration: " + it + " --- acceleration: " + acceleration.accelerate() );
+		}
+
 		// run the deconvolution
 		while ( it < numIterations )
 		{
@@ -190,6 +279,37 @@ public abstract class MultiViewDeconvolution< C extends ComputeBlockThread >
 			}
 
 			runNextIteration();
+
+			if ( iterationStatistics != null && stoppingTolerance > 0 )
+			{
+				if ( Double.isNaN( firstSumChange ) )
+					firstSumChange = iterationStatistics.sumChange;
+
+				final double relativeChange = firstSumChange > 0 ? iterationStatistics.sumChange / firstSumChange : 0;
+
+				IOFunctions.println( "iteration: " + it + " --- change relative to first iteration: " + relativeChange );
+
+				if ( relativeChange < stoppingTolerance )
+				{
+					IOFunctions.println( "Relative change " + relativeChange + " < " + stoppingTolerance + ", stopping after iteration " + it + " of " + numIterations + "." );
+					break;
+				}
+			}
+
+			// the last iteration is not needed, the result is exported right away; before the extrapolation so
+			// the checkpoint contains the estimate x(k) and not the prediction y(k)
+			if ( checkpoint != null && checkpoint.isDue( it ) && it < numIterations )
+				checkpoint.save( psi, it, avg, max, firstSumChange, acceleration, views.getExecutorService() );
+
+			// not after the last iteration, the prediction would be the result
+			if ( acceleration != null && it < numIterations )
+				IOFunctions.println( "iteration: " + it + " --- acceleration: " + acceleration.accelerate() );
+		}
+
+		if ( prefetchService != null )
+		{
+			prefetchService.shutdown();
+			prefetchService = null;
 		}
 
 		// TODO: IOFunctions.println( "Masking never updated pixels." );
@@ -200,13 +320,157 @@ public abstract class MultiViewDeconvolution< C extends ComputeBlockThread >
 
 	public abstract void runNextIteration();
 
-	protected static final void writeBack( final Img< FloatType > psi, final Vector< Pair< Pair< Integer, Block >, Img< FloatType > > > blockWritebackQueue )
+	/**
+	 * Loads the chunks of psi and the input images &amp; weights that the blocks of the next batch touch in the background (if enabled)
+	 *
+	 * @param batches - the block schedule
+	 * @param nextBatch - index of the batch to prefetch
+	 * @param batchViews - the views whose image and weight are needed
+	 */
+	protected synchronized void prefetch( final List< List< Block > > batches, final int nextBatch, final List< DeconView > batchViews )
 	{
-		for ( final Pair< Pair< Integer, Block >, Img< FloatType > > writeBackBlock : blockWritebackQueue )
+		if ( prefetchCellDim <= 0 || nextBatch >= batches.size() )
+			return;
+
+		if ( prefetchService == null )
+			prefetchService = Executors.newSingleThreadExecutor( r ->
+			{
+				final Thread t = new Thread( r, "deconvolution-prefetch" );
+				t.setDaemon( true );
+				return t;
+			});
+
+		// do not queue up prefetches if loading is slower than computing
+		if ( prefetchFuture != null )
+			prefetchFuture.cancel( false );
+
+		final List< Block > blocks = batches.get( nextBatch );
+
+		prefetchFuture = prefetchService.submit( () ->
+		{
+			OutOfCoreStorage.prefetch( blocks, prefetchCellDim, psi );
+
+			for ( final DeconView view : batchViews )
+				OutOfCoreStorage.prefetch( blocks, prefetchCellDim, view.getImage(), view.getWeight() );
+		});
+	}
+
+	/**
+	 * Computes one block (the psi block of the thread was already copied from psi), the result is expected in the psi block of the thread.
+	 */
+	public interface BlockComputation< C >
+	{
+		public IterationStatistics compute( final C blockThread, final Block block );
+	}
+
+	/**
+	 * Runs all blocks of one pass over psi (i.e. all batches of non-interfering blocks of one view for sequential,
+	 * all views for multiplicative updates). Threads do not wait for a batch to finish, instead copying, computing
+	 * and pasting of blocks of consecutive batches overlap as far as the reads &amp; writes of psi allow it (see {@link BlockPipeline}).
+	 * The result is identical to processing one batch after the other.
+	 *
+	 * @param batches - the batches of non-interfering blocks
+	 * @param batchViews - the views whose image and weight are read (for prefetching)
+	 * @param computation - computes one block
+	 * @param stats - collects the statistics of all blocks
+	 */
+	protected void runBlocks(
+			final List< List< Block > > batches,
+			final List< DeconView > batchViews,
+			final BlockComputation< C > computation,
+			final Vector< IterationStatistics > stats )
+	{
+		final int numThreads = computeBlockThreads.size();
+
+		// one ComputeBlockThread per thread creates a temporary image for I/O, valid throughout the whole cycle
+		new BlockPipeline( batches ).run( numThreads, new BlockPipeline.Steps()
+		{
+			@Override
+			public void startBatch( final int batch )
+			{
+				System.out.println( "Processing " + batches.get( batch ).size() + " blocks from batch " + ( batch + 1 ) + "/" + batches.size() );
+
+				// out-of-core: load what the next batch needs while this one is computed
+				prefetch( batches, batch + 1, batchViews );
+			}
+
+			@Override
+			public void copy( final int threadId, final int blockId, final Block block )
+			{
+				System.out.println( " block " + blockId + ", " + Util.printInterval( block ) );
+
+				final long time = System.currentTimeMillis();
+				block.copyBlock( Views.extendMirrorSingle( psi ), computeBlockThreads.get( threadId ).getPsiBlockTmp() );
+				System.out.println( " block " + blockId + ", thread (" + (threadId+1) + "/" + numThreads + "), (CPU): copy " + (System.currentTimeMillis() - time) );
+			}
+
+			@Override
+			public void compute( final int threadId, final int blockId, final Block block )
+			{
+				final long time = System.currentTimeMillis();
+				stats.add( computation.compute( computeBlockThreads.get( threadId ), block ) );
+				System.out.println( " block " + blockId + ", thread (" + (threadId+1) + "/" + numThreads + "), (CPU): compute " + (System.currentTimeMillis() - time) );
+			}
+
+			@Override
+			public void paste( final int threadId, final int blockId, final Block block )
+			{
+				final long time = System.currentTimeMillis();
+				block.pasteBlock( psi, computeBlockThreads.get( threadId ).getPsiBlockTmp() );
+				System.out.println( " block " + blockId + ", thread (" + (threadId+1) + "/" + numThreads + "), (CPU): paste " + (System.currentTimeMillis() - time) );
+			}
+
+			@Override
+			public Img< FloatType > save( final int threadId, final int blockId, final Block block )
+			{
+				final long time = System.currentTimeMillis();
+				final Img< FloatType > psiBlock = computeBlockThreads.get( threadId ).getPsiBlockTmp();
+				final Img< FloatType > tmp = acquireBlockBuffer( psiBlock );
+				copyBlockBuffer( psiBlock, tmp );
+				System.out.println( " block " + blockId + ", thread (" + (threadId+1) + "/" + numThreads + "), (CPU): saving for later pasting " + (System.currentTimeMillis() - time) );
+
+				return tmp;
+			}
+
+			@Override
+			public void pasteSaved( final WriteBack writeBack )
+			{
+				final long time = System.currentTimeMillis();
+				writeBack.block.pasteBlock( psi, writeBack.img );
+				blockBufferPool.add( writeBack.img );
+				System.out.println( " block " + writeBack.blockId + ", (CPU): paste " + (System.currentTimeMillis() - time) );
+			}
+		} );
+	}
+
+	/**
+	 * @param template - the psi block of a compute thread
+	 * @return a buffer of the same size from the pool, or a new one if the pool is empty
+	 */
+	protected Img< FloatType > acquireBlockBuffer( final Img< FloatType > template )
+	{
+		Img< FloatType > buffer;
+
+		while ( ( buffer = blockBufferPool.poll() ) != null )
+			if ( Intervals.equalDimensions( buffer, template ) )
+				return buffer;
+
+		return template.factory().create( template, new FloatType() );
+	}
+
+	protected void copyBlockBuffer( final Img< FloatType > source, final Img< FloatType > target )
+	{
+		if ( ArrayImg.class.isInstance( source ) && ArrayImg.class.isInstance( target ) &&
+				FloatArray.class.isInstance( ((ArrayImg< ?, ? >)source).update( null ) ) && FloatArray.class.isInstance( ((ArrayImg< ?, ? >)target).update( null ) ) )
+		{
+			final float[] sourceArray = ((FloatArray)((ArrayImg< ?, ? >)source).update( null ) ).getCurrentStorageArray();
+			final float[] targetArray = ((FloatArray)((ArrayImg< ?, ? >)target).update( null ) ).getCurrentStorageArray();
+
+			System.arraycopy( sourceArray, 0, targetArray, 0, sourceArray.length );
+		}
+		else
 		{
-			long time = System.currentTimeMillis();
-			writeBackBlock.getA().getB().pasteBlock( psi, writeBackBlock.getB() );
-			System.out.println( " block " + writeBackBlock.getA().getA() + ", (CPU): paste " + (System.currentTimeMillis() - time) );
+			FusionTools.copyImg( source, target, views.getExecutorService(), false );
 		}
 	}
 }
@@ -26,16 +26,11 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Vector;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import net.imglib2.RandomAccessibleInterval;
-import net.imglib2.img.Img;
 import net.imglib2.img.ImgFactory;
 import net.imglib2.img.array.ArrayImg;
 import net.imglib2.type.numeric.real.FloatType;
-import net.imglib2.util.Pair;
-import net.imglib2.util.Util;
-import net.imglib2.util.ValuePair;
 import net.imglib2.view.Views;
 import net.preibisch.legacy.io.IOFunctions;
 import net.preibisch.mvrecon.process.cuda.Block;
@@ -43,7 +38,6 @@ import net.preibisch.mvrecon.process.deconvolution.init.PsiInitFactory;
 import net.preibisch.mvrecon.process.deconvolution.iteration.ComputeBlockThread.IterationStatistics;
 import net.preibisch.mvrecon.process.deconvolution.iteration.ComputeBlockThreadFactory;
 import net.preibisch.mvrecon.process.deconvolution.iteration.mul.ComputeBlockMulThread;
-import net.preibisch.mvrecon.process.fusion.FusionTools;
 
 public class MultiViewDeconvolutionMul extends MultiViewDeconvolution< ComputeBlockMulThread >
 {
@@ -122,114 +116,37 @@ public class MultiViewDeconvolutionMul extends MultiViewDeconvolution< ComputeBl
 
 		IOFunctions.println( "iteration: " + it + " (" + new Date(System.currentTimeMillis()) + ")" );
 
-		final int totalNumBlocks = views.getViews().get( 0 ).getNumBlocks();
 		final List< List< Block > > blocks = views.getViews().get( 0 ).getNonInterferingBlocks();
 
 		final Vector< IterationStatistics > stats = new Vector<>();
 
-		int currentTotalBlock = 0;
-
-		// keep thelast blocks to be written back to the global psi image once it is not overlapping anymore
-		final Vector< Pair< Pair< Integer, Block >, Img< FloatType > > > previousBlockWritebackQueue = new Vector<>();
-		final Vector< Pair< Pair< Integer, Block >, Img< FloatType > > > currentBlockWritebackQueue = new Vector<>();
-
-		int batch = 0;
-		for ( final List< Block > blocksBatch : blocks )
+		runBlocks( blocks, views.getViews(), ( blockThread, blockStruct ) ->
 		{
-			final int numBlocksBefore = currentTotalBlock;
-			final int numBlocksBatch = blocksBatch.size();
-			currentTotalBlock += numBlocksBatch;
-
-			System.out.println( "Processing " + numBlocksBatch + " blocks from batch " + (++batch) + "/" + blocks.size() );
-
-			final AtomicInteger ai = new AtomicInteger();
-			final Thread[] threads = new Thread[ computeBlockThreads.size() ];
-
-			for ( int t = 0; t < computeBlockThreads.size(); ++t )
+			final List< DeconView > view = new ArrayList<>();
+			final List< RandomAccessibleInterval< FloatType > > imgBlock = new ArrayList<>();
+			final List< RandomAccessibleInterval< FloatType > > weightBlock = new ArrayList<>();
+			final List< Float > maxIntensityView = new ArrayList<>();
+			final List< ArrayImg< FloatType, ? > > kernel1 = new ArrayList<>();
+			final List< ArrayImg< FloatType, ? > > kernel2 = new ArrayList<>();
+
+			for ( int i = 0; i < views.getViews().size(); ++i )
 			{
-				final int threadId = t;
-
-				threads[ threadId ] = new Thread( new Runnable()
-				{
-					public void run()
-					{
-						// one ComputeBlockThread creates a temporary image for I/O, valid throughout the whole cycle
-						final ComputeBlockMulThread blockThread = computeBlockThreads.get( threadId );
-
-						int blockId;
-
-						while ( ( blockId = ai.getAndIncrement() ) < numBlocksBatch )
-						{
-							final int blockIdOut = blockId + numBlocksBefore;
-
-							final Block blockStruct = blocksBatch.get( blockId );
-							System.out.println( " block " + blockIdOut + ", " + Util.printInterval( blockStruct ) );
-
-							long time = System.currentTimeMillis();
-							blockStruct.copyBlock( Views.extendMirrorSingle( psi ), blockThread.getPsiBlockTmp() );
-							System.out.println( " block " + blockIdOut + ", thread (" + (threadId+1) + "/" + threads.length + "), (CPU): copy " + (System.currentTimeMillis() - time) );
-
-							final List< DeconView > view = new ArrayList<>();
-							final List< RandomAccessibleInterval< FloatType > > imgBlock = new ArrayList<>();
-							final List< RandomAccessibleInterval< FloatType > > weightBlock = new ArrayList<>();
-							final List< Float > maxIntensityView = new ArrayList<>();
-							final List< ArrayImg< FloatType, ? > > kernel1 = new ArrayList<>();
-							final List< ArrayImg< FloatType, ? > > kernel2 = new ArrayList<>();
-
-							for ( int i = 0; i < views.getViews().size(); ++i )
-							{
-								view.add( views.getViews().get( i ) );
-								imgBlock.add( Views.zeroMin( Views.interval( Views.extendZero( views.getViews().get( i ).getImage() ), blockStruct ) ) );
-								weightBlock.add( Views.zeroMin( Views.interval( Views.extendZero( views.getViews().get( i ).getWeight() ), blockStruct ) ) );
-								maxIntensityView.add( max[ i ] );
-								kernel1.add( views.getViews().get( i ).getPSF().getKernel1() );
-								kernel2.add( views.getViews().get( i ).getPSF().getKernel2() );
-							}
-
-							time = System.currentTimeMillis();
-							stats.add( blockThread.runIteration(
-									view,
-									imgBlock,//imgBlock,
-									weightBlock,//weightBlock,
-									maxIntensityView,
-									kernel1,
-									kernel2 ) );
-							System.out.println( " block " + blockIdOut + ", thread (" + (threadId+1) + "/" + threads.length + "), (CPU): compute " + (System.currentTimeMillis() - time) );
-
-							time = System.currentTimeMillis();
-							if ( totalNumBlocks == 1 )
-							{
-								blockStruct.pasteBlock( psi, blockThread.getPsiBlockTmp() );
-								System.out.println( " block " + blockIdOut + ", thread (" + (threadId+1) + "/" + threads.length + "), (CPU): paste " + (System.currentTimeMillis() - time) );
-							}
-							else
-							{
-								// copy to the writequeue
-								final Img< FloatType > tmp = blockThread.getPsiBlockTmp().factory().create( blockThread.getPsiBlockTmp(), new FloatType() );
-								FusionTools.copyImg( blockThread.getPsiBlockTmp(), tmp, views.getExecutorService(), false );
-								currentBlockWritebackQueue.add( new ValuePair<>( new ValuePair<>( blockIdOut, blockStruct ), tmp ) );
-
-								System.out.println( " block " + blockIdOut + ", thread (" + (threadId+1) + "/" + threads.length + "), (CPU): saving for later pasting " + (System.currentTimeMillis() - time) );
-							}
-						}
-					}
-				});
+				view.add( views.getViews().get( i ) );
+				imgBlock.add( Views.zeroMin( Views.interval( Views.extendZero( views.getViews().get( i ).getImage() ), blockStruct ) ) );
+				weightBlock.add( Views.zeroMin( Views.interval( Views.extendZero( views.getViews().get( i ).getWeight() ), blockStruct ) ) );
+				maxIntensityView.add( max[ i ] );
+				kernel1.add( views.getViews().get( i ).getPSF().getKernel1() );
+				kernel2.add( views.getViews().get( i ).getPSF().getKernel2() );
 			}
 
-			// run the threads that process all blocks of this batch in parallel (often, this will be just one thread)
-			FusionTools.runThreads( threads );
-
-			// write back previous list of blocks
-			writeBack( psi, previousBlockWritebackQueue );
-
-			previousBlockWritebackQueue.clear();
-			previousBlockWritebackQueue.addAll( currentBlockWritebackQueue );
-			currentBlockWritebackQueue.clear();
-
-		} // finish one block batch
-
-		// write back last list of blocks
-		writeBack( psi, previousBlockWritebackQueue );
+			return blockThread.runIteration(
+					view,
+					imgBlock,//imgBlock,
+					weightBlock,//weightBlock,
+					maxIntensityView,
+					kernel1,
+					kernel2 );
+		}, stats );
 
 		// accumulate the results from the individual blocks
 		final IterationStatistics is = new IterationStatistics();
@@ -242,5 +159,7 @@ public class MultiViewDeconvolutionMul extends MultiViewDeconvolution< ComputeBl
 
 		IOFunctions.println( "iteration: " + it + " --- sum change: " + is.sumChange + " --- max change per pixel: " + is.maxChange );
 
+		this.iterationStatistics = is;
+
 	}
 }
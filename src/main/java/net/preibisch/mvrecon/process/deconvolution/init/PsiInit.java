@@ -44,4 +44,9 @@ public interface PsiInit
 	 * @return the maximal intensities (maybe approximated) of the views, in the same order as the list of DeconView
 	 */
 	public float[] getMax();
+
+	/**
+	 * @return the number of iterations psi already went through (e.g. when resuming from a checkpoint)
+	 */
+	public default int getNumCompletedIterations() { return 0; }
 }
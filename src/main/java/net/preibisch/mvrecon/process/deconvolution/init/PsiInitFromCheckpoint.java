@@ -0,0 +1,119 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.process.deconvolution.init;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
+import net.preibisch.legacy.io.IOFunctions;
+import net.preibisch.mvrecon.process.deconvolution.DeconView;
+import net.preibisch.mvrecon.process.deconvolution.util.DeconvolutionCheckpoint;
+import net.preibisch.mvrecon.process.fusion.FusionTools;
+
+/**
+ * Resumes an interrupted deconvolution, psi, avg &amp; max[] and the number of completed iterations are
+ * loaded from a {@link DeconvolutionCheckpoint} (nothing is computed from the input images).
+ * Refuses checkpoints that were written with different parameters.
+ */
+public class PsiInitFromCheckpoint implements PsiInit
+{
+	final DeconvolutionCheckpoint checkpoint;
+
+	double avg = -1;
+	float[] max = null;
+	int iteration = 0;
+
+	public PsiInitFromCheckpoint( final DeconvolutionCheckpoint checkpoint )
+	{
+		this.checkpoint = checkpoint;
+	}
+
+	@Override
+	public boolean runInitialization(
+			final Img< FloatType > psi,
+			final List< DeconView > views,
+			final ExecutorService service )
+	{
+		if ( !checkpoint.exists() )
+		{
+			IOFunctions.println( "No checkpoint found for '" + checkpoint.getGroup() + "'." );
+			return false;
+		}
+
+		if ( !checkpoint.matchesParameters() )
+		{
+			IOFunctions.println( "Checkpoint '" + checkpoint.getGroup() + "' was written with different deconvolution parameters, refusing to resume. "
+					+ "Delete the checkpoint or select a different checkpoint directory to start over." );
+			return false;
+		}
+
+		try
+		{
+			final float[] max = checkpoint.getMax();
+
+			if ( max == null || max.length != views.size() )
+			{
+				IOFunctions.println( "Checkpoint '" + checkpoint.getGroup() + "' does not contain max intensities for " + views.size() + " views." );
+				return false;
+			}
+
+			final RandomAccessibleInterval< FloatType > input = checkpoint.loadPsi();
+
+			for ( int d = 0; d < psi.numDimensions(); ++d )
+				if ( input.dimension( d ) != psi.dimension( d ) )
+				{
+					IOFunctions.println( "Image dimensions do not match: " + Util.printInterval( input ) + " != " + Util.printInterval( psi ) );
+					return false;
+				}
+
+			FusionTools.copyImg( Views.zeroMin( input ), Views.zeroMin( psi ), service );
+
+			this.max = max;
+			this.avg = checkpoint.getAvg();
+			this.iteration = checkpoint.getIteration();
+
+			IOFunctions.println( "Checkpoint '" + checkpoint.getGroup() + "' copied onto PSI, resuming after iteration " + iteration + "." );
+
+			return true;
+		}
+		catch ( RuntimeException e )
+		{
+			IOFunctions.println( "Cannot load checkpoint '" + checkpoint.getGroup() + "': " + e );
+			return false;
+		}
+	}
+
+	@Override
+	public double getAvg() { return avg; }
+
+	@Override
+	public float[] getMax() { return max; }
+
+	@Override
+	public int getNumCompletedIterations() { return iteration; }
+}
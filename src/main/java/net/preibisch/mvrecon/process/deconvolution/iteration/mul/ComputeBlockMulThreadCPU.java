@@ -46,6 +46,9 @@ public class ComputeBlockMulThreadCPU extends ComputeBlockMulThreadAbstract
 	final ArrayList< Callable< Void > > tasks;
 	final ArrayList< ImagePortion > portions;
 	final ImgFactory< ComplexFloatType > fftFactory;
+
+	// padded intervals and complex buffers, reused for all blocks, views and iterations of this thread
+	final FFTConvolution.Plan fftPlan;
 	final ArrayList< Img< FloatType > > tmp1, tmp2;
 	final float lambda;
 
@@ -81,6 +84,8 @@ public class ComputeBlockMulThreadCPU extends ComputeBlockMulThreadAbstract
 			e.printStackTrace();
 			throw new RuntimeException( "Cannot transform ImgFactory to ComplexFloatType." );
 		}
+
+		this.fftPlan = new FFTConvolution.Plan( fftFactory, service );
 	}
 
 	@Override
@@ -193,18 +198,7 @@ public class ComputeBlockMulThreadCPU extends ComputeBlockMulThreadAbstract
 			final Img< ComplexFloatType > kernelFFT,
 			final Img< FloatType > result )
 	{
-		final FFTConvolution< FloatType > fftConvolution =
-				new FFTConvolution< FloatType >(
-						Views.extendMirrorSingle( image ),
-						image,
-						Views.extendZero( kernel ),
-						kernel,
-						result,
-						fftFactory );
-		fftConvolution.setExecutorService( service );
-		fftConvolution.setKeepImgFFT( false );
-		fftConvolution.setKernelFFT( kernelFFT );
-		fftConvolution.convolve();
+		fftPlan.convolve( Views.extendMirrorSingle( image ), image, kernel, kernelFFT, result );
 	}
 
 	public void convolve2(
@@ -213,18 +207,12 @@ public class ComputeBlockMulThreadCPU extends ComputeBlockMulThreadAbstract
 			final Img< ComplexFloatType > kernelFFT,
 			final Img< FloatType > result )
 	{
-		final FFTConvolution< FloatType > fftConvolution =
-				new FFTConvolution< FloatType >(
-						Views.extendValue( image, new FloatType( 1.0f ) ), // ratio outside of the deconvolved space (psi) is 1, shouldn't matter here though
-						image,
-						Views.extendZero( kernel ),
-						kernel,
-						result,
-						fftFactory );
-		fftConvolution.setExecutorService( service );
-		fftConvolution.setKeepImgFFT( false );
-		fftConvolution.setKernelFFT( kernelFFT );
-		fftConvolution.convolve();
+		fftPlan.convolve(
+				Views.extendValue( image, new FloatType( 1.0f ) ), // ratio outside of the deconvolved space (psi) is 1, shouldn't matter here though
+				image,
+				kernel,
+				kernelFFT,
+				result );
 	}
 
 }
@@ -47,6 +47,9 @@ public class ComputeBlockSeqThreadCPU extends ComputeBlockSeqThreadAbstract
 	final ArrayList< Callable< Void > > tasks;
 	final ArrayList< ImagePortion > portions;
 	final ImgFactory< ComplexFloatType > fftFactory;
+
+	// padded intervals and complex buffers, reused for all blocks, views and iterations of this thread
+	final FFTConvolution.Plan fftPlan;
 	final Img< FloatType > tmp1, tmp2;
 	final float lambda;
 
@@ -73,6 +76,8 @@ public class ComputeBlockSeqThreadCPU extends ComputeBlockSeqThreadAbstract
 			e.printStackTrace();
 			throw new RuntimeException( "Cannot transform ImgFactory to ComplexFloatType." );
 		}
+
+		this.fftPlan = new FFTConvolution.Plan( fftFactory, service );
 	}
 
 	@Override
@@ -174,18 +179,7 @@ public class ComputeBlockSeqThreadCPU extends ComputeBlockSeqThreadAbstract
 			final Img< ComplexFloatType > kernelFFT,
 			final Img< FloatType > result )
 	{
-		final FFTConvolution< FloatType > fftConvolution =
-				new FFTConvolution< FloatType >(
-						Views.extendMirrorSingle( image ),
-						image,
-						Views.extendZero( kernel ),
-						kernel,
-						result,
-						fftFactory );
-		fftConvolution.setExecutorService( service );
-		fftConvolution.setKeepImgFFT( false );
-		fftConvolution.setKernelFFT( kernelFFT );
-		fftConvolution.convolve();
+		fftPlan.convolve( Views.extendMirrorSingle( image ), image, kernel, kernelFFT, result );
 	}
 
 	public void convolve2(
@@ -194,18 +188,12 @@ public class ComputeBlockSeqThreadCPU extends ComputeBlockSeqThreadAbstract
 			final Img< ComplexFloatType > kernelFFT,
 			final Img< FloatType > result )
 	{
-		final FFTConvolution< FloatType > fftConvolution =
-				new FFTConvolution< FloatType >(
-						Views.extendValue( image, new FloatType( 1.0f ) ), // ratio outside of the deconvolved space (psi) is 1, shouldn't matter here though
-						image,
-						Views.extendZero( kernel ),
-						kernel,
-						result,
-						fftFactory );
-		fftConvolution.setExecutorService( service );
-		fftConvolution.setKeepImgFFT( false );
-		fftConvolution.setKernelFFT( kernelFFT );
-		fftConvolution.convolve();
+		fftPlan.convolve(
+				Views.extendValue( image, new FloatType( 1.0f ) ), // ratio outside of the deconvolved space (psi) is 1, shouldn't matter here though
+				image,
+				kernel,
+				kernelFFT,
+				result );
 	}
 
 }
@@ -0,0 +1,221 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.process.deconvolution.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.real.FloatType;
+import net.preibisch.mvrecon.process.fusion.FusionTools;
+import net.preibisch.mvrecon.process.fusion.ImagePortion;
+
+/**
+ * Vector extrapolation of the Richardson-Lucy iterations (Biggs &amp; Andrews, Applied Optics 36(8), 1997). After each
+ * iteration the next iteration does not start from the new estimate x(k), but from the prediction
+ * <p>
+ * y(k) = x(k) + alpha(k) * ( x(k) - x(k-1) ),
+ * <p>
+ * with alpha(k) = ( g(k-1) * g(k-2) ) / ( g(k-2) * g(k-2) ) clamped to [0, {@link #maxAlpha}], where g(k-1) = x(k) - y(k-1) is the
+ * change the last iteration applied to its starting point.
+ * <p>
+ * Needs three additional images of the size of the deconvolved image (x(k-1), y(k-1) and g(k-2)), created
+ * with the factory of psi (i.e. cached on disk if psi is out-of-core). They are the state that a
+ * {@link DeconvolutionCheckpoint} saves to continue the extrapolation.
+ */
+public class BiggsAndrewsAcceleration
+{
+	public static double maxAlpha = 1.0;
+
+	final Img< FloatType > psi;
+	final float minValue;
+	final ExecutorService service;
+	final Vector< ImagePortion > portions;
+
+	// x(k-1), y(k-1) and g(k-2); y and g swap roles every iteration
+	final Img< FloatType > xPrev;
+	Img< FloatType > yPrev, gPrev;
+
+	boolean hasGPrev = false;
+	double alpha = 0;
+
+	/**
+	 * @param psi - the deconvolved image, at the current state it is the starting point of the next iteration
+	 * @param minValue - the minimal value of the deconvolved image
+	 * @param service - for multithreading
+	 */
+	public BiggsAndrewsAcceleration( final Img< FloatType > psi, final float minValue, final ExecutorService service )
+	{
+		this.psi = psi;
+		this.minValue = minValue;
+		this.service = service;
+		this.portions = FusionTools.divideIntoPortions( psi.size() );
+
+		this.xPrev = psi.factory().create( psi );
+		this.yPrev = psi.factory().create( psi );
+		this.gPrev = psi.factory().create( psi );
+
+		if ( !psi.iterationOrder().equals( xPrev.iterationOrder() ) )
+			throw new RuntimeException( "Iteration order of " + psi.getClass().getSimpleName() + " is not reproducible, cannot accelerate." );
+
+		reset();
+	}
+
+	/**
+	 * Forgets the history, the next call to {@link #accelerate()} does not extrapolate (starting from the current psi).
+	 */
+	public void reset()
+	{
+		FusionTools.copyImg( psi, yPrev, service );
+		FusionTools.copyImg( psi, xPrev, service );
+
+		hasGPrev = false;
+		alpha = 0;
+	}
+
+	/**
+	 * @return the extrapolation factor of the last call to {@link #accelerate()}
+	 */
+	public double getAlpha() { return alpha; }
+
+	/**
+	 * Replaces the estimate psi = x(k) that the last iteration computed with the prediction y(k).
+	 *
+	 * @return alpha(k)
+	 */
+	public double accelerate()
+	{
+		// g(k-1) = x(k) - y(k-1) is written into y(k-1), which is not needed anymore
+		final double[] dots = new double[ 2 ];
+
+		for ( final double[] dot : run( portion -> gradient( portion ) ) )
+		{
+			dots[ 0 ] += dot[ 0 ];
+			dots[ 1 ] += dot[ 1 ];
+		}
+
+		if ( hasGPrev && dots[ 1 ] > 0 )
+			alpha = Math.max( 0, Math.min( maxAlpha, dots[ 0 ] / dots[ 1 ] ) );
+		else
+			alpha = 0;
+
+		final Img< FloatType > g = yPrev;
+
+		// y(k) is written into the image of g(k-2), which is not needed anymore
+		yPrev = gPrev;
+		gPrev = g;
+		hasGPrev = true;
+
+		run( portion -> extrapolate( portion ) );
+
+		return alpha;
+	}
+
+	protected double[] gradient( final ImagePortion portion )
+	{
+		final Cursor< FloatType > cx = psi.cursor();
+		final Cursor< FloatType > cy = yPrev.cursor();
+		final Cursor< FloatType > cg = gPrev.cursor();
+
+		cx.jumpFwd( portion.getStartPosition() );
+		cy.jumpFwd( portion.getStartPosition() );
+		cg.jumpFwd( portion.getStartPosition() );
+
+		double gg = 0, ggPrev = 0;
+
+		for ( long l = 0; l < portion.getLoopSize(); ++l )
+		{
+			final FloatType y = cy.next();
+			final float g = cx.next().get() - y.get();
+			final float gp = cg.next().get();
+
+			y.set( g );
+
+			gg += (double)g * gp;
+			ggPrev += (double)gp * gp;
+		}
+
+		return new double[] { gg, ggPrev };
+	}
+
+	protected double[] extrapolate( final ImagePortion portion )
+	{
+		final Cursor< FloatType > cx = psi.cursor();
+		final Cursor< FloatType > cxPrev = xPrev.cursor();
+		final Cursor< FloatType > cy = yPrev.cursor();
+
+		cx.jumpFwd( portion.getStartPosition() );
+		cxPrev.jumpFwd( portion.getStartPosition() );
+		cy.jumpFwd( portion.getStartPosition() );
+
+		final float a = (float)alpha;
+
+		for ( long l = 0; l < portion.getLoopSize(); ++l )
+		{
+			final FloatType x = cx.next();
+			final FloatType xp = cxPrev.next();
+
+			final float value = x.get();
+			final float y = Math.max( minValue, value + a * ( value - xp.get() ) );
+
+			xp.set( value );
+			cy.next().set( y );
+			x.set( y );
+		}
+
+		return null;
+	}
+
+	protected interface PortionTask
+	{
+		public double[] run( final ImagePortion portion );
+	}
+
+	protected List< double[] > run( final PortionTask task )
+	{
+		final ArrayList< Callable< double[] > > tasks = new ArrayList<>();
+
+		for ( final ImagePortion portion : portions )
+			tasks.add( () -> task.run( portion ) );
+
+		final ArrayList< double[] > results = new ArrayList<>();
+
+		try
+		{
+			for ( final Future< double[] > future : service.invokeAll( tasks ) )
+				results.add( future.get() );
+		}
+		catch ( InterruptedException | ExecutionException e )
+		{
+			throw new RuntimeException( "Failed to accelerate deconvolution: " + e, e );
+		}
+
+		return results;
+	}
+}
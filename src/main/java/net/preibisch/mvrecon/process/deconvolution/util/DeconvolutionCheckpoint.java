@@ -0,0 +1,353 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.process.deconvolution.util;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import org.janelia.saalfeldlab.n5.N5FSWriter;
+import org.janelia.saalfeldlab.n5.N5Writer;
+import org.janelia.saalfeldlab.n5.RawCompression;
+import org.janelia.saalfeldlab.n5.imglib2.N5Utils;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
+import net.preibisch.legacy.io.IOFunctions;
+import net.preibisch.mvrecon.process.fusion.FusionTools;
+
+/**
+ * Periodic checkpoint of a running multi-view deconvolution, so an interrupted run can be resumed (see
+ * {@link net.preibisch.mvrecon.process.deconvolution.init.PsiInitFromCheckpoint}). Every n'th iteration psi
+ * is written into an N5 container together with the iteration, avg &amp; max[] of the input, the change of the
+ * first iteration (the reference of the stopping tolerance) and a hash of the deconvolution parameters (including
+ * registrations and PSFs). A checkpoint is only resumed if the hash matches. If the iterations are accelerated,
+ * psi is the estimate x(k) before the extrapolation and the history of the {@link BiggsAndrewsAcceleration} is
+ * written as well.
+ * <p>
+ * psi is written alternately into two datasets and the attributes pointing to it are written last, so
+ * an interruption while writing leaves the previous checkpoint intact.
+ */
+public class DeconvolutionCheckpoint
+{
+	public static String defaultContainerName = "checkpoint.n5";
+	public static int defaultInterval = 5;
+	public static int defaultBlockSize = 128;
+
+	final N5Writer n5;
+	final String group, parameterHash;
+	final int interval;
+
+	/**
+	 * @param directory - the directory of the checkpoint container
+	 * @param group - the group in the container (e.g. one per fused image)
+	 * @param parameters - description of all parameters that influence the result, see {@link #parameters(Object...)}
+	 * @param interval - write a checkpoint every n'th iteration
+	 */
+	public DeconvolutionCheckpoint( final String directory, final String group, final String parameters, final int interval )
+	{
+		this.n5 = new N5FSWriter( new File( directory, defaultContainerName ).getAbsolutePath() );
+		this.group = group;
+		this.parameterHash = hash( parameters );
+		this.interval = interval;
+	}
+
+	public String getGroup() { return group; }
+	public String getParameterHash() { return parameterHash; }
+	public int getInterval() { return interval; }
+
+	/**
+	 * @return true if a checkpoint was written into this group (independent of the parameters)
+	 */
+	public boolean exists()
+	{
+		return getAttribute( "iteration", Integer.class ) != null;
+	}
+
+	/**
+	 * @return true if the existing checkpoint was written with the same parameters
+	 */
+	public boolean matchesParameters()
+	{
+		return parameterHash.equals( getAttribute( "parameterHash", String.class ) );
+	}
+
+	/**
+	 * @return the number of iterations that were completed when the checkpoint was written
+	 */
+	public int getIteration() { return getAttribute( "iteration", Integer.class ); }
+	public double getAvg() { return getAttribute( "avg", Double.class ); }
+	public float[] getMax() { return getAttribute( "max", float[].class ); }
+
+	/**
+	 * @return the sum of changes of the first iteration, NaN if it was not computed (no stopping tolerance)
+	 */
+	public double getFirstSumChange()
+	{
+		final Double firstSumChange = getAttribute( "firstSumChange", Double.class );
+
+		return firstSumChange == null ? Double.NaN : firstSumChange;
+	}
+
+	/**
+	 * @return psi of the last checkpoint (lazily loaded)
+	 */
+	public RandomAccessibleInterval< FloatType > loadPsi()
+	{
+		return N5Utils.open( n5, group + "/" + getAttribute( "dataset", String.class ) );
+	}
+
+	/**
+	 * Copies the history of the last checkpoint into the acceleration, which is reset if it cannot be loaded.
+	 *
+	 * @param acceleration - set up with psi of the last checkpoint
+	 * @param service - used for copying
+	 * @return true if the history was loaded, the extrapolation of the iteration of the checkpoint is still to be done
+	 */
+	public boolean loadAcceleration( final BiggsAndrewsAcceleration acceleration, final ExecutorService service )
+	{
+		final Boolean hasGPrev = getAttribute( "accelerationHistory", Boolean.class );
+
+		if ( hasGPrev == null )
+		{
+			IOFunctions.println( "Checkpoint '" + group + "' contains no acceleration history, starting a new one." );
+			return false;
+		}
+
+		final String dataset = group + "/" + getAttribute( "dataset", String.class );
+
+		try
+		{
+			FusionTools.copyImg( Views.zeroMin( N5Utils.< FloatType >open( n5, dataset + "_xPrev" ) ), acceleration.xPrev, service );
+			FusionTools.copyImg( Views.zeroMin( N5Utils.< FloatType >open( n5, dataset + "_yPrev" ) ), acceleration.yPrev, service );
+			FusionTools.copyImg( Views.zeroMin( N5Utils.< FloatType >open( n5, dataset + "_gPrev" ) ), acceleration.gPrev, service );
+
+			acceleration.hasGPrev = hasGPrev;
+
+			return true;
+		}
+		catch ( Exception e )
+		{
+			IOFunctions.println( "Couldn't load acceleration history of checkpoint '" + group + "', starting a new one: " + e );
+			acceleration.reset();
+			return false;
+		}
+	}
+
+	/**
+	 * @param it - the number of completed iterations
+	 * @return if a checkpoint should be written
+	 */
+	public boolean isDue( final int it )
+	{
+		return interval > 0 && it > 0 && it % interval == 0;
+	}
+
+	/**
+	 * Writes psi and the state needed to continue the deconvolution.
+	 *
+	 * @param psi - the current deconvolved image
+	 * @param it - the number of completed iterations
+	 * @param avg - the average of the input in the overlapping area
+	 * @param max - the max intensities of the views
+	 * @param firstSumChange - the sum of changes of the first iteration (NaN if not computed)
+	 * @param acceleration - if not null, its history is written too (psi has to be x(k), i.e. not yet extrapolated)
+	 * @param service - used for writing the blocks
+	 * @return true if the checkpoint was written
+	 */
+	public boolean save(
+			final RandomAccessibleInterval< FloatType > psi,
+			final int it,
+			final double avg,
+			final float[] max,
+			final double firstSumChange,
+			final BiggsAndrewsAcceleration acceleration,
+			final ExecutorService service )
+	{
+		final long time = System.currentTimeMillis();
+
+		// never overwrite the dataset the current checkpoint points to
+		final String dataset = "psi0".equals( getAttribute( "dataset", String.class ) ) ? "psi1" : "psi0";
+
+		try
+		{
+			save( psi, group + "/" + dataset, service );
+
+			if ( acceleration != null )
+			{
+				save( acceleration.xPrev, group + "/" + dataset + "_xPrev", service );
+				save( acceleration.yPrev, group + "/" + dataset + "_yPrev", service );
+				save( acceleration.gPrev, group + "/" + dataset + "_gPrev", service );
+			}
+
+			final Map< String, Object > attributes = new HashMap<>();
+			attributes.put( "dataset", dataset );
+			attributes.put( "iteration", it );
+			attributes.put( "avg", avg );
+			attributes.put( "max", max );
+			attributes.put( "parameterHash", parameterHash );
+
+			// JSON has no NaN
+			attributes.put( "firstSumChange", Double.isNaN( firstSumChange ) ? null : firstSumChange );
+			attributes.put( "accelerationHistory", acceleration == null ? null : acceleration.hasGPrev );
+
+			n5.setAttributes( group, attributes );
+
+			IOFunctions.println( "Checkpoint of iteration " + it + " written to '" + group + "' (" + ( System.currentTimeMillis() - time ) + " ms)." );
+
+			return true;
+		}
+		catch ( Exception e )
+		{
+			// not fatal, the deconvolution continues but cannot be resumed from this iteration
+			IOFunctions.println( "Couldn't write checkpoint of iteration " + it + " to '" + group + "': " + e );
+			return false;
+		}
+	}
+
+	protected void save( final RandomAccessibleInterval< FloatType > img, final String dataset, final ExecutorService service ) throws Exception
+	{
+		N5Utils.save(
+				Views.zeroMin( img ),
+				n5,
+				dataset,
+				Util.getArrayFromValue( defaultBlockSize, img.numDimensions() ),
+				new RawCompression(),
+				service );
+	}
+
+	/**
+	 * Removes this checkpoint, should be called once the result was exported.
+	 */
+	public void delete()
+	{
+		try
+		{
+			n5.remove( group );
+		}
+		catch ( Exception e )
+		{
+			IOFunctions.println( "Couldn't delete checkpoint '" + group + "': " + e );
+		}
+	}
+
+	/**
+	 * Closes the container, should be called once the checkpoint is not needed anymore.
+	 */
+	public void close()
+	{
+		n5.close();
+	}
+
+	protected < T > T getAttribute( final String key, final Class< T > clazz )
+	{
+		try
+		{
+			if ( !n5.exists( group ) )
+				return null;
+
+			return n5.getAttribute( group, key, clazz );
+		}
+		catch ( Exception e )
+		{
+			IOFunctions.println( "Couldn't read checkpoint attribute '" + key + "' of '" + group + "': " + e );
+			return null;
+		}
+	}
+
+	/**
+	 * @param parameters - all parameters that influence the result (arrays are supported)
+	 * @return a string representation of the parameters
+	 */
+	public static String parameters( final Object... parameters )
+	{
+		return Arrays.deepToString( parameters );
+	}
+
+	/**
+	 * @param parameters - the parameters
+	 * @return the SHA-256 of the parameters as hex string
+	 */
+	public static String hash( final String parameters )
+	{
+		final MessageDigest digest = sha256();
+		digest.update( parameters.getBytes( StandardCharsets.UTF_8 ) );
+
+		return hex( digest.digest() );
+	}
+
+	/**
+	 * @param img - an image that influences the result (e.g. a PSF)
+	 * @return the SHA-256 of the dimensions and pixel values as hex string
+	 */
+	public static String hash( final RandomAccessibleInterval< FloatType > img )
+	{
+		final MessageDigest digest = sha256();
+		final ByteBuffer buffer = ByteBuffer.allocate( 8 );
+
+		for ( final long d : img.dimensionsAsLongArray() )
+		{
+			buffer.clear();
+			digest.update( buffer.putLong( d ).array() );
+		}
+
+		for ( final FloatType t : Views.flatIterable( img ) )
+		{
+			buffer.clear();
+			digest.update( buffer.putInt( Float.floatToIntBits( t.get() ) ).array(), 0, 4 );
+		}
+
+		return hex( digest.digest() );
+	}
+
+	protected static MessageDigest sha256()
+	{
+		try
+		{
+			return MessageDigest.getInstance( "SHA-256" );
+		}
+		catch ( NoSuchAlgorithmException e )
+		{
+			// every JVM has to support SHA-256
+			throw new RuntimeException( e );
+		}
+	}
+
+	protected static String hex( final byte[] digest )
+	{
+		final StringBuilder hex = new StringBuilder();
+
+		for ( final byte b : digest )
+			hex.append( String.format( "%02x", b ) );
+
+		return hex.toString();
+	}
+}
@@ -0,0 +1,320 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.process.deconvolution.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+
+import org.janelia.saalfeldlab.n5.N5FSWriter;
+import org.janelia.saalfeldlab.n5.N5Writer;
+import org.janelia.saalfeldlab.n5.RawCompression;
+import org.janelia.saalfeldlab.n5.imglib2.N5Utils;
+
+import net.imglib2.Dimensions;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.cache.img.DiskCachedCellImgFactory;
+import net.imglib2.cache.img.DiskCachedCellImgOptions;
+import net.imglib2.cache.img.DiskCachedCellImgOptions.CacheType;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
+import net.preibisch.legacy.io.IOFunctions;
+import net.preibisch.mvrecon.process.cuda.Block;
+import net.preibisch.mvrecon.process.deconvolution.DeconView;
+
+/**
+ * Local scratch storage for out-of-core deconvolution. The input images and weights are written into a
+ * chunked N5 container and read back through bounded caches that share a memory budget
+ * ({@link #defaultMaxCacheMemoryFraction} of the max heap). The deconvolved image (psi) is a disk-cached
+ * cell image with the same chunking that writes evicted chunks back to the scratch directory, its cache
+ * is sized by the non-interfering block schedule of the {@link DeconView}s (see {@link #residentCells(List, Dimensions, int)}).
+ */
+public class OutOfCoreStorage
+{
+	public static String defaultScratchDirectory = System.getProperty( "java.io.tmpdir" );
+	public static int defaultCellDim = 128;
+	// fraction of the max heap used for caching the chunks of all input images and weights together
+	public static double defaultMaxCacheMemoryFraction = 0.25;
+
+	final File directory;
+	final N5Writer n5;
+	final int cellDim, maxCacheSize;
+
+	/**
+	 * @param scratchDirectory - local directory, a new subdirectory is created in it
+	 * @param cellDim - the chunk size of all images
+	 * @param maxCacheBytes - memory for the chunks of all input images and weights together
+	 * @param numImages - how many images (input images and weights) will be stored
+	 * @throws IOException if the directory cannot be created
+	 */
+	public OutOfCoreStorage( final String scratchDirectory, final int cellDim, final long maxCacheBytes, final int numImages ) throws IOException
+	{
+		this.directory = Files.createTempDirectory( new File( scratchDirectory ).toPath(), "deconvolution-" ).toFile();
+		this.n5 = new N5FSWriter( new File( directory, "scratch.n5" ).getAbsolutePath() );
+		this.cellDim = cellDim;
+		this.maxCacheSize = maxCachedCells( maxCacheBytes, numImages, cellDim );
+
+		IOFunctions.println( "Out-of-core deconvolution, scratch directory: " + directory.getAbsolutePath() + ", chunk size: " + cellDim );
+		IOFunctions.println( "Out-of-core deconvolution, number of resident chunks per input image and weight: " + maxCacheSize + " (" + ( (long)maxCacheSize * cellBytes( cellDim ) / ( 1024 * 1024 ) ) + " MB)" );
+	}
+
+	/**
+	 * @param scratchDirectory - local directory, a new subdirectory is created in it
+	 * @param cellDim - the chunk size of all images
+	 * @param numImages - how many images (input images and weights) will be stored
+	 * @throws IOException if the directory cannot be created
+	 */
+	public OutOfCoreStorage( final String scratchDirectory, final int cellDim, final int numImages ) throws IOException
+	{
+		this( scratchDirectory, cellDim, (long)( Runtime.getRuntime().maxMemory() * defaultMaxCacheMemoryFraction ), numImages );
+	}
+
+	/**
+	 * @param numImages - how many images (input images and weights) will be stored
+	 * @throws IOException if the directory cannot be created
+	 */
+	public OutOfCoreStorage( final int numImages ) throws IOException
+	{
+		this( defaultScratchDirectory, defaultCellDim, numImages );
+	}
+
+	public File getDirectory() { return directory; }
+	public N5Writer getN5() { return n5; }
+	public int getCellDim() { return cellDim; }
+
+	/**
+	 * Writes an image into the scratch container (in parallel, chunk by chunk) and opens it through a bounded cache.
+	 *
+	 * @param dataset - the dataset name
+	 * @param img - the (virtual) image, zero-min
+	 * @param service - used for writing the chunks
+	 * @return the N5-backed image
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	public RandomAccessibleInterval< FloatType > store(
+			final String dataset,
+			final RandomAccessibleInterval< FloatType > img,
+			final ExecutorService service ) throws InterruptedException, ExecutionException
+	{
+		final RandomAccessibleInterval< FloatType > source = Views.isZeroMin( img ) ? img : Views.zeroMin( img );
+
+		N5Utils.save( source, n5, dataset, Util.getArrayFromValue( cellDim, source.numDimensions() ), new RawCompression(), service );
+
+		return N5Utils.openWithBoundedSoftRefCache( n5, dataset, maxCacheSize );
+	}
+
+	/**
+	 * The factory is also used for images of the size of psi (e.g. by {@link BiggsAndrewsAcceleration}), every image it
+	 * creates writes its evicted chunks into its own subdirectory of the scratch directory.
+	 *
+	 * @param maxCacheSize - the number of chunks that are kept in memory (per image)
+	 * @return a factory for the deconvolved image that writes evicted chunks to the scratch directory
+	 */
+	public ImgFactory< FloatType > psiFactory( final long maxCacheSize )
+	{
+		final DiskCachedCellImgOptions options = DiskCachedCellImgOptions.options()
+				.cellDimensions( cellDim )
+				.cacheType( CacheType.BOUNDED )
+				.maxCacheSize( maxCacheSize )
+				.tempDirectory( directory.toPath() )
+				.tempDirectoryPrefix( "psi" )
+				.deleteCacheDirectoryOnExit( true );
+
+		IOFunctions.println( "Out-of-core deconvolution, number of resident psi chunks: " + maxCacheSize + " (" + ( maxCacheSize * cellBytes( cellDim ) / ( 1024 * 1024 ) ) + " MB)" );
+
+		return new DiskCachedCellImgFactory<>( new FloatType(), options );
+	}
+
+	/**
+	 * @param maxCacheBytes - memory for the chunks of all images together
+	 * @param numImages - number of images sharing it
+	 * @param cellDim - chunk size
+	 * @return the number of chunks each image can keep in memory (at least 1)
+	 */
+	public static int maxCachedCells( final long maxCacheBytes, final int numImages, final int cellDim )
+	{
+		return (int)Math.max( 1, Math.min( Integer.MAX_VALUE, maxCacheBytes / Math.max( 1, numImages ) / cellBytes( cellDim ) ) );
+	}
+
+	/**
+	 * @param cellDim - chunk size
+	 * @return bytes of a 3d float chunk
+	 */
+	public static long cellBytes( final int cellDim )
+	{
+		return (long)cellDim * cellDim * cellDim * 4;
+	}
+
+	/**
+	 * The number of psi chunks that need to be resident while iterating: the union of the chunks touched by
+	 * three consecutive batches of non-interfering blocks (the previous batch is written back while the current
+	 * one is computed and the next one is prefetched), maximized over all views.
+	 *
+	 * @param views - the views with their block schedule
+	 * @param psiDim - dimensions of psi
+	 * @param cellDim - chunk size
+	 * @return number of chunks
+	 */
+	public static long residentCells( final List< DeconView > views, final Dimensions psiDim, final int cellDim )
+	{
+		long maxCells = 1;
+
+		for ( final DeconView view : views )
+		{
+			final List< List< Block > > batches = view.getNonInterferingBlocks();
+
+			for ( int b = 0; b < batches.size(); ++b )
+			{
+				final HashSet< Long > cells = new HashSet<>();
+
+				for ( int i = Math.max( 0, b - 1 ); i <= Math.min( batches.size() - 1, b + 1 ); ++i )
+					for ( final Block block : batches.get( i ) )
+						addCells( block, psiDim, cellDim, cells );
+
+				maxCells = Math.max( maxCells, cells.size() );
+			}
+		}
+
+		return maxCells;
+	}
+
+	/**
+	 * Loads all chunks of the images that the blocks touch into their caches (one pixel per chunk is read).
+	 *
+	 * @param blocks - the blocks
+	 * @param cellDim - chunk size
+	 * @param imgs - the chunked images, zero-min
+	 */
+	@SafeVarargs
+	public static void prefetch( final Collection< Block > blocks, final int cellDim, final RandomAccessibleInterval< FloatType >... imgs )
+	{
+		for ( final RandomAccessibleInterval< FloatType > img : imgs )
+		{
+			final HashSet< Long > cells = new HashSet<>();
+
+			for ( final Block block : blocks )
+				addCells( block, img, cellDim, cells );
+
+			final int n = img.numDimensions();
+			final long[] numCells = numCells( img, cellDim );
+			final long[] position = new long[ n ];
+			final RandomAccess< FloatType > ra = img.randomAccess();
+
+			for ( final long cell : cells )
+			{
+				long index = cell;
+
+				for ( int d = 0; d < n; ++d )
+				{
+					position[ d ] = ( index % numCells[ d ] ) * cellDim;
+					index /= numCells[ d ];
+				}
+
+				ra.setPosition( position );
+				ra.get();
+			}
+		}
+	}
+
+	protected static void addCells( final Interval block, final Dimensions dim, final int cellDim, final Collection< Long > cells )
+	{
+		final int n = dim.numDimensions();
+		final long[] numCells = numCells( dim, cellDim );
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+
+		for ( int d = 0; d < n; ++d )
+		{
+			min[ d ] = Math.max( 0, block.min( d ) ) / cellDim;
+			max[ d ] = Math.min( dim.dimension( d ) - 1, block.max( d ) ) / cellDim;
+
+			if ( max[ d ] < min[ d ] )
+				return;
+		}
+
+		final long[] cell = min.clone();
+
+		while ( true )
+		{
+			long index = 0;
+			for ( int d = n - 1; d >= 0; --d )
+				index = index * numCells[ d ] + cell[ d ];
+
+			cells.add( index );
+
+			int d = 0;
+			while ( d < n && ++cell[ d ] > max[ d ] )
+			{
+				cell[ d ] = min[ d ];
+				++d;
+			}
+
+			if ( d == n )
+				return;
+		}
+	}
+
+	protected static long[] numCells( final Dimensions dim, final int cellDim )
+	{
+		final long[] numCells = new long[ dim.numDimensions() ];
+
+		for ( int d = 0; d < numCells.length; ++d )
+			numCells[ d ] = ( dim.dimension( d ) + cellDim - 1 ) / cellDim;
+
+		return numCells;
+	}
+
+	/**
+	 * Removes the scratch container and directory.
+	 */
+	public void delete()
+	{
+		try
+		{
+			n5.remove();
+			n5.close();
+
+			try ( final Stream< Path > paths = Files.walk( directory.toPath() ) )
+			{
+				paths.sorted( Comparator.reverseOrder() ).map( Path::toFile ).forEach( File::delete );
+			}
+		}
+		catch ( final Exception e )
+		{
+			IOFunctions.println( "Could not delete scratch directory '" + directory.getAbsolutePath() + "': " + e );
+		}
+	}
+}
@@ -185,6 +185,9 @@ public class ProcessInputImages< V extends ViewId >
 	public void copyNormalizedWeights( final ImgFactory< FloatType > imgFactory ) { copyRandomAccessibleInterval( groups, service, imgFactory, normalizedWeights ); }
 	public void copyNormalizedWeights() { copyNormalizedWeights( new CellImgFactory<>( MultiViewDeconvolution.cellDim ) ); }
 
+	public void storeImages( final OutOfCoreStorage storage ) { storeRandomAccessibleInterval( groups, service, storage, "images", images ); }
+	public void storeNormalizedWeights( final OutOfCoreStorage storage ) { storeRandomAccessibleInterval( groups, service, storage, "weights", normalizedWeights ); }
+
 	public void normalizeWeights() { normalizeWeights( 1.0 ); }
 	public void normalizeWeights( final double osemspeedup )
 	{
@@ -276,6 +279,34 @@ public class ProcessInputImages< V extends ViewId >
 		}
 	}
 
+	public static < V extends ViewId > void storeRandomAccessibleInterval(
+			final Collection< Group< V > > groups,
+			final ExecutorService service,
+			final OutOfCoreStorage storage,
+			final String name,
+			final HashMap< Group< V >, RandomAccessibleInterval< FloatType > > images )
+	{
+		int i = 0;
+
+		for ( final Group< V > group : groups )
+		{
+			if ( !images.containsKey( group ) )
+				continue;
+
+			final String dataset = name + "/" + (i++);
+
+			try
+			{
+				images.put( group, storage.store( dataset, images.get( group ), service ) );
+			}
+			catch ( final Exception e )
+			{
+				IOFunctions.println( "(" + new Date(System.currentTimeMillis()) + "): Failed to write '" + dataset + "' to scratch, keeping it virtual: " + e );
+				e.printStackTrace();
+			}
+		}
+	}
+
 	public static < V extends ViewId > Interval fuseGroups(
 			final AbstractSpimData< ? > spimData,
 			final HashMap< Group< V >, RandomAccessibleInterval< FloatType > > tImgs,
@@ -26,6 +26,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -63,6 +64,7 @@ import net.imglib2.Dimensions;
 import net.imglib2.FinalDimensions;
 import net.imglib2.FinalInterval;
 import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessible;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.realtransform.AffineTransform3D;
@@ -74,10 +76,16 @@ import net.imglib2.view.Views;
 import net.preibisch.legacy.io.IOFunctions;
 import net.preibisch.mvrecon.Threads;
 import net.preibisch.mvrecon.fiji.plugin.fusion.FusionExportInterface;
+import net.preibisch.mvrecon.fiji.plugin.fusion.FusionGUI;
 import net.preibisch.mvrecon.fiji.plugin.util.GUIHelper;
 import net.preibisch.mvrecon.fiji.plugin.util.PluginHelper;
+import net.preibisch.mvrecon.fiji.spimdata.SpimData2;
 import net.preibisch.mvrecon.fiji.spimdata.imgloaders.OMEZarrAttibutes;
+import net.preibisch.mvrecon.process.fusion.lazy.LazyFusionTools;
+import net.preibisch.mvrecon.process.fusion.transformed.TransformVirtual;
 import net.preibisch.mvrecon.process.interestpointregistration.pairwise.constellation.grouping.Group;
+import net.preibisch.mvrecon.process.n5api.N5ApiCompletionManifest;
+import net.preibisch.mvrecon.process.n5api.N5ApiPyramidWriter;
 import net.preibisch.mvrecon.process.n5api.N5ApiTools;
 import net.preibisch.mvrecon.process.n5api.N5ApiTools.MultiResolutionLevelInfo;
 import net.preibisch.mvrecon.process.n5api.SpimData2Tools;
@@ -98,6 +106,9 @@ public class ExportN5Api implements ImgExport
 	public static boolean defaultOmeZarrOneContainer = true;
 	public static boolean defaultBDV = false;
 	public static boolean defaultMultiRes = true;
+	public static boolean defaultSinglePassPyramid = true;
+	public static boolean defaultResume = false;
+	public static boolean defaultSkipEmptyBlocks = true;
 	public static String defaultXMLOutURI = null;
 	public static boolean defaultManuallyAssignViewId = false;
 	public static int defaultTpId = 0;
@@ -128,6 +139,13 @@ public class ExportN5Api implements ImgExport
 	boolean omeZarrOneContainer = defaultOmeZarrOneContainer;
 
 	boolean bdv = defaultBDV;
+	boolean singlePassPyramid = defaultSinglePassPyramid;
+	boolean resume = defaultResume;
+	boolean skipEmptyBlocks = defaultSkipEmptyBlocks;
+
+	// to find compute blocks that overlap no view (not set if exportImage() is called without queryParameters())
+	SpimData2 spimData = null;
+	boolean nonRigid = false;
 	URI xmlOut;
 	boolean manuallyAssignViewId = false;
 	int tpId = defaultTpId;
@@ -287,30 +305,51 @@ public class ExportN5Api implements ImgExport
 
 			IOFunctions.println( "Assigning ViewId " + Group.pvid( viewId ) );
 
-			try
+			final int[][] downsamplings = this.downsampling == null ? new int[][] {{1,1,1}} : this.downsampling;
+
+			// the XML entry and the datasets of this ViewId were created by the interrupted export, continue writing into them
+			if ( resume && N5ApiCompletionManifest.exists(
+					driverVolumeWriter,
+					N5ApiTools.createBDVPath( viewId, 0, storageType ),
+					N5ApiCompletionManifest.defaultAttributeKey ) )
 			{
-				// create or extend XML, setup s0 and multiresolution pyramid
-				mrInfo = SpimData2Tools.writeBDVMetaData(
-						driverVolumeWriter,
-						storageType,
+				IOFunctions.println( "ViewId " + Group.pvid( viewId ) + " was partially written before, resuming without changing the XML." );
+
+				mrInfo = N5ApiTools.multiResolutionPyramid(
+						viewId,
+						N5ApiTools.viewIdToDatasetBdv( storageType ),
 						dataType,
 						bb.dimensionsAsLongArray(),
-						compression,
 						blocksize(),
-						this.downsampling == null ? new int[][] {{1,1,1}} : this.downsampling,
-						viewId,
-						path,
-						xmlOut,
-						instantiate );
-
-				if ( mrInfo == null )
-					return false;
+						downsamplings );
 			}
-			catch (SpimDataException | IOException e)
+			else
 			{
-				e.printStackTrace();
-				IOFunctions.println( "Failed to write metadata for '"  + "': " + e );
-				return false;
+				try
+				{
+					// create or extend XML, setup s0 and multiresolution pyramid
+					mrInfo = SpimData2Tools.writeBDVMetaData(
+							driverVolumeWriter,
+							storageType,
+							dataType,
+							bb.dimensionsAsLongArray(),
+							compression,
+							blocksize(),
+							downsamplings,
+							viewId,
+							path,
+							xmlOut,
+							instantiate );
+
+					if ( mrInfo == null )
+						return false;
+				}
+				catch (SpimDataException | IOException e)
+				{
+					e.printStackTrace();
+					IOFunctions.println( "Failed to write metadata for '"  + "': " + e );
+					return false;
+				}
 			}
 
 			currentChannelIndex = -1;
@@ -395,16 +434,52 @@ public class ExportN5Api implements ImgExport
 			currentTPIndex = -1;
 		}
 
+		final int[] computeBlockSize = new int[] {
+				blocksize()[0] * computeBlocksizeFactor()[ 0 ],
+				blocksize()[1] * computeBlocksizeFactor()[ 1 ],
+				blocksize()[2] * computeBlocksizeFactor()[ 2 ] };
+
 		// we need to run explicitly in 3D because for OME-ZARR, dimensions are 5D
 		final List<long[][]> grid = N5ApiTools.assembleJobs(
 				null, // no need to go across ViewIds (for now)
 				new long[] { mrInfo[ 0 ].dimensions[ 0 ], mrInfo[ 0 ].dimensions[ 1 ], mrInfo[ 0 ].dimensions[ 2 ] },
 				blocksize(),
-				new int[] {
-						blocksize()[0] * computeBlocksizeFactor()[ 0 ],
-						blocksize()[1] * computeBlocksizeFactor()[ 1 ],
-						blocksize()[2] * computeBlocksizeFactor()[ 2 ] }
-				);
+				computeBlockSize );
+
+		// record finished compute blocks so an interrupted export can be resumed
+		final String manifestKey = N5ApiCompletionManifest.attributeKey(
+				storageType == StorageFormat.ZARR && omeZarrOneContainer ? currentChannelIndex : -1,
+				storageType == StorageFormat.ZARR && omeZarrOneContainer ? currentTPIndex : -1 );
+
+		final N5ApiCompletionManifest manifest =
+				new N5ApiCompletionManifest( driverVolumeWriter, mrInfo[ 0 ].dataset, manifestKey, grid, resume );
+
+		// downsample each fused compute block in memory and write s0 ... sN at once (no read-back of s0 ... sN-1)
+		// (not when resuming a partially written s0, since the pyramid blocks of skipped compute blocks would be missing)
+		final N5ApiPyramidWriter< T > pyramidWriter;
+
+		if ( singlePassPyramid && mrInfo.length > 1 && N5ApiPyramidWriter.numStreamingLevels( mrInfo, computeBlockSize ) > 1 && manifest.numComplete() == 0 )
+		{
+			pyramidWriter = new N5ApiPyramidWriter<>(
+					driverVolumeWriter,
+					mrInfo,
+					blocksize(),
+					computeBlockSize,
+					type,
+					storageType == StorageFormat.ZARR && omeZarrOneContainer ? currentChannelIndex : -1,
+					storageType == StorageFormat.ZARR && omeZarrOneContainer ? currentTPIndex : -1,
+					N5ApiPyramidWriter.defaultMaxStagingBytes );
+
+			IOFunctions.println( "Writing levels s0 ... s" + ( pyramidWriter.numStreamingLevels() - 1 ) + " in a single pass." );
+		}
+		else
+		{
+			pyramidWriter = null;
+		}
+
+		// compute blocks that overlap no view are neither computed nor written
+		final List< Interval > viewBoundingBoxes = skipEmptyBlocks ? viewBoundingBoxes( img, grid, bb, downsamplingF, anisoF, fusionGroup ) : null;
+		final AtomicInteger skipped = new AtomicInteger( 0 );
 
 		IOFunctions.println( "num blocks = " + Grid.create( bb.dimensionsAsLongArray(), blocksize() ).size() + ", size = " + bsX + "x" + bsY + "x" + bsZ );
 		IOFunctions.println( "num compute blocks = " + grid.size() + ", size = " + bsX*bsFactorX + "x" + bsY*bsFactorY + "x" + bsZ*bsFactorZ );
@@ -429,6 +504,32 @@ public class ExportN5Api implements ImgExport
 						{
 							try
 							{
+								if ( manifest.isComplete( gridBlock ) )
+								{
+									IJ.showProgress( progress.incrementAndGet(), grid.size() );
+									return;
+								}
+
+								if ( viewBoundingBoxes != null &&
+										!LazyFusionTools.overlapsAny( Intervals.translate( new FinalInterval( gridBlock[ 1 ] ), gridBlock[ 0 ] ), viewBoundingBoxes ) )
+								{
+									if ( pyramidWriter != null )
+										pyramidWriter.skipEmptyComputeBlock( gridBlock );
+
+									manifest.markComplete( gridBlock );
+									skipped.incrementAndGet();
+									IJ.showProgress( progress.incrementAndGet(), grid.size() );
+									return;
+								}
+
+								if ( pyramidWriter != null )
+								{
+									pyramidWriter.writeComputeBlock( img, gridBlock );
+									manifest.markComplete( gridBlock );
+									IJ.showProgress( progress.incrementAndGet(), grid.size() );
+									return;
+								}
+
 								final long[] blockOffset, blockSize, gridOffset;
 
 								final RandomAccessible< T >image;
@@ -466,6 +567,7 @@ public class ExportN5Api implements ImgExport
 										Views.offsetInterval(source, blockOffset, blockSize);
 
 								N5Utils.saveBlock(sourceGridBlock, driverVolumeWriter, mrInfo[ 0 ].dataset, gridOffset );
+								manifest.markComplete( gridBlock );
 
 								IJ.showProgress( progress.incrementAndGet(), grid.size() );
 							}
@@ -477,6 +579,8 @@ public class ExportN5Api implements ImgExport
 						} )
 				).get();
 
+			manifest.flush();
+
 			//myPool.shutdown();
 		}
 		catch (InterruptedException | ExecutionException e)
@@ -490,6 +594,33 @@ public class ExportN5Api implements ImgExport
 		IJ.showProgress( progress.getAndSet( 0 ), grid.size() );
 		IOFunctions.println( new Date( System.currentTimeMillis() ) + ": Saved full resolution, took: " + (System.currentTimeMillis() - time ) + " ms." );
 
+		if ( viewBoundingBoxes != null )
+			IOFunctions.println( new Date( System.currentTimeMillis() ) + ": Skipped " + skipped.get() + " of " + grid.size() + " compute blocks that overlap no view." );
+
+		if ( pyramidWriter != null )
+		{
+			time = System.currentTimeMillis();
+
+			try
+			{
+				// write blocks that could not be computed in memory
+				myPool.submit( () -> pyramidWriter.finish() ).get();
+			}
+			catch (InterruptedException | ExecutionException e)
+			{
+				IOFunctions.println( "Failed to write HDF5/N5/ZARR multi-resolution pyramid. Error: " + e );
+				e.printStackTrace();
+				return false;
+			}
+
+			IOFunctions.println( new Date( System.currentTimeMillis() ) + ": Saved remaining pyramid blocks, took: " + (System.currentTimeMillis() - time ) + " ms." );
+
+			myPool.shutdown();
+			try { myPool.awaitTermination( Long.MAX_VALUE, TimeUnit.HOURS); } catch (InterruptedException e) { e.printStackTrace(); }
+
+			return true;
+		}
+
 		//
 		// save multiresolution pyramid (s1 ... sN)
 		//
@@ -516,6 +647,9 @@ public class ExportN5Api implements ImgExport
 									blocksize()[1] * computeBlocksizeFactor()[ 1 ],
 									blocksize()[2] * computeBlocksizeFactor()[ 2 ] });*/
 
+			final N5ApiCompletionManifest levelManifest =
+					new N5ApiCompletionManifest( driverVolumeWriter, mrInfo[ level ].dataset, manifestKey, allBlocks, resume );
+
 			IOFunctions.println( new Date( System.currentTimeMillis() ) + ": Downsampling: " + Util.printCoordinates( mrInfo[ level ].absoluteDownsampling ) + " with relative downsampling of " + Util.printCoordinates( mrInfo[ level ].relativeDownsampling ));
 			IOFunctions.println( new Date( System.currentTimeMillis() ) + ": s" + level + " num blocks=" + allBlocks.size() );
 			IOFunctions.println( new Date( System.currentTimeMillis() ) + ": Loading '" + mrInfo[ level - 1 ].dataset + "', downsampled will be written as '" + mrInfo[ level ].dataset + "'." );
@@ -528,6 +662,12 @@ public class ExportN5Api implements ImgExport
 				myPool.submit( () -> allBlocks.parallelStream().forEach(
 						gridBlock ->
 						{
+							if ( levelManifest.isComplete( gridBlock ) )
+							{
+								IJ.showProgress( progress.incrementAndGet(), allBlocks.size() );
+								return;
+							}
+
 							// 5D OME-ZARR CONTAINER
 							if ( storageType == StorageFormat.ZARR && omeZarrOneContainer )
 							{
@@ -548,10 +688,13 @@ public class ExportN5Api implements ImgExport
 										gridBlock );
 							}
 
+							levelManifest.markComplete( gridBlock );
 
 							IJ.showProgress( progress.incrementAndGet(), allBlocks.size() );
 						})).get();
 
+				levelManifest.flush();
+
 			}
 			catch (InterruptedException | ExecutionException e)
 			{
@@ -570,9 +713,68 @@ public class ExportN5Api implements ImgExport
 		return true;
 	}
 
+	/**
+	 * @return the bounding boxes of all views relative to the fused image, or null if empty blocks cannot be determined
+	 */
+	protected < T extends RealType< T > & NativeType< T > > List< Interval > viewBoundingBoxes(
+			final RandomAccessibleInterval< T > img,
+			final List< long[][] > grid,
+			final Interval bb,
+			final double downsamplingF,
+			final double anisoF,
+			final Group< ? extends ViewDescription > fusionGroup )
+	{
+		// non-rigid fusion can move image content outside of the affine bounding boxes
+		if ( spimData == null || nonRigid )
+			return null;
+
+		final HashMap< ViewId, AffineTransform3D > registrations =
+				TransformVirtual.adjustAllTransforms(
+						fusionGroup.getViews(),
+						spimData.getViewRegistrations().getViewRegistrations(),
+						anisoF,
+						downsamplingF );
+
+		final long[] offset = bb.minAsLongArray();
+		Arrays.setAll( offset, d -> -offset[ d ] );
+
+		final List< Interval > viewBoundingBoxes = new ArrayList<>();
+
+		for ( final Interval box : LazyFusionTools.viewBoundingBoxes(
+				fusionGroup.getViews(),
+				registrations,
+				LazyFusionTools.assembleDimensions( fusionGroup.getViews(), spimData ),
+				LazyFusionTools.defaultAffineExpansion ) )
+			viewBoundingBoxes.add( Intervals.translate( box, offset ) );
+
+		// skipped blocks are not written, which is only correct if the fused image is zero where there is no view
+		// (e.g. not for a conversion to 16 bit with a negative minimum)
+		for ( final long[][] gridBlock : grid )
+		{
+			if ( !LazyFusionTools.overlapsAny( Intervals.translate( new FinalInterval( gridBlock[ 1 ] ), gridBlock[ 0 ] ), viewBoundingBoxes ) )
+			{
+				final RandomAccess< T > ra = img.randomAccess();
+				ra.setPosition( gridBlock[ 0 ] );
+
+				if ( ra.get().getRealDouble() != 0 )
+				{
+					IOFunctions.println( "Fused image is not zero outside of all views, cannot skip empty blocks." );
+					return null;
+				}
+
+				break;
+			}
+		}
+
+		return viewBoundingBoxes;
+	}
+
 	@Override
 	public boolean queryParameters( final FusionExportInterface fusion)
 	{
+		this.spimData = fusion.getSpimData();
+		this.nonRigid = fusion instanceof FusionGUI && ((FusionGUI)fusion).getNonRigidParameters().isActive();
+
 		//
 		// Initial dialog
 		//
@@ -609,6 +811,8 @@ public class ExportN5Api implements ImgExport
 				GUIHelper.smallStatusFont, GUIHelper.neutral );
 
 		gdInit.addCheckbox( "Create multi-resolution pyramid", defaultMultiRes );
+		gdInit.addCheckbox( "Compute_pyramid_in_a_single_pass (downsample in memory, no read-back)", defaultSinglePassPyramid );
+		gdInit.addCheckbox( "Resume_interrupted_export (skip blocks recorded as written, same parameters required)", defaultResume );
 
 		gdInit.showDialog();
 		if ( gdInit.wasCanceled() )
@@ -618,6 +822,8 @@ public class ExportN5Api implements ImgExport
 		this.compression = PluginHelper.parseCompression( gdInit );
 		this.bdv = defaultBDV = gdInit.getNextBoolean();
 		final boolean multiRes = defaultMultiRes = gdInit.getNextBoolean();
+		this.singlePassPyramid = defaultSinglePassPyramid = gdInit.getNextBoolean();
+		this.resume = defaultResume = gdInit.getNextBoolean();
 		this.splittingType = fusion.getSplittingType();
 		this.instantiate = new InstantiateViewSetupBigStitcher( splittingType );
 
@@ -31,6 +31,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.Vector;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -63,7 +64,9 @@ import net.imglib2.Interval;
 import net.imglib2.IterableInterval;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.cache.Cache;
 import net.imglib2.cache.CacheLoader;
+import net.imglib2.cache.img.CachedCellImg;
 import net.imglib2.cache.img.RandomAccessibleCacheLoader;
 import net.imglib2.cache.img.ReadOnlyCachedCellImgFactory;
 import net.imglib2.cache.img.ReadOnlyCachedCellImgOptions;
@@ -73,6 +76,7 @@ import net.imglib2.converter.RealTypeConverters;
 import net.imglib2.img.Img;
 import net.imglib2.img.ImgFactory;
 import net.imglib2.img.basictypeaccess.AccessFlags;
+import net.imglib2.img.basictypeaccess.ArrayDataAccessFactory;
 import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
 import net.imglib2.img.cell.Cell;
 import net.imglib2.img.cell.CellGrid;
@@ -109,6 +113,8 @@ import net.preibisch.mvrecon.process.fusion.transformed.weightcombination.Combin
 import net.preibisch.mvrecon.process.fusion.transformed.weights.ContentBasedRealRandomAccessible;
 import net.preibisch.mvrecon.process.interestpointregistration.TransformationTools;
 import net.preibisch.mvrecon.process.interestpointregistration.pairwise.constellation.grouping.Group;
+import util.BoundedSizeLoaderCache;
+import util.Lazy;
 
 public class FusionTools
 {
@@ -786,12 +792,22 @@ public class FusionTools
 		return cacheRandomAccessibleInterval( input, -1, type, cellDim );
 	}
 
+	/**
+	 * @param input - the image to cache
+	 * @param maxCacheSize - max number of cells, &lt;= 0 means unbounded (SoftReferences), or bounded by {@link Lazy#defaultMaxCacheBytes} if set
+	 * @param type - the pixel type
+	 * @param cellDim - the cell size
+	 * @return a cached image
+	 */
 	public static < T extends NativeType< T >, A extends ArrayDataAccess< A > > RandomAccessibleInterval< T > cacheRandomAccessibleInterval(
 			final RandomAccessibleInterval< T > input,
 			final long maxCacheSize,
 			final T type,
 			final int... cellDim )
 	{
+		if ( maxCacheSize <= 0 && Lazy.defaultMaxCacheBytes > 0 )
+			return cacheRandomAccessibleIntervalBytes( input, Lazy.defaultMaxCacheBytes, type, cellDim );
+
 		final ReadOnlyCachedCellImgOptions options = ReadOnlyCachedCellImgOptions.options()
 				.cellDimensions( cellDim )
 				.cacheType( maxCacheSize > 0 ? CacheType.BOUNDED : CacheType.SOFTREF )
@@ -808,6 +824,31 @@ public class FusionTools
 		return translateIfNecessary( input, copy );
 	}
 
+	/**
+	 * @param input - the image to cache
+	 * @param maxCacheBytes - the budget in bytes, shared by all caches with the same budget, least recently used cells are removed (see {@link BoundedSizeLoaderCache})
+	 * @param type - the pixel type
+	 * @param cellDim - the cell size
+	 * @return a cached image
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static < T extends NativeType< T > > RandomAccessibleInterval< T > cacheRandomAccessibleIntervalBytes(
+			final RandomAccessibleInterval< T > input,
+			final long maxCacheBytes,
+			final T type,
+			final int... cellDim )
+	{
+		final long[] dim = input.dimensionsAsLongArray();
+		final CellGrid grid = new CellGrid( dim, cellDim );
+		final Set< AccessFlags > accessFlags = AccessFlags.setOf( AccessFlags.VOLATILE );
+
+		final CacheLoader loader = RandomAccessibleCacheLoader.get( grid, input.view().zeroMin(), accessFlags );
+		final Cache cache = new BoundedSizeLoaderCache( maxCacheBytes, BoundedSizeLoaderCache.cellWeigher( type ) ).withLoader( loader );
+		final RandomAccessibleInterval< T > copy = new CachedCellImg( grid, type, cache, ArrayDataAccessFactory.get( type, accessFlags ) );
+
+		return translateIfNecessary( input, copy );
+	}
+
 	public static < T extends Type< T > > RandomAccessibleInterval< T > copyImg( final RandomAccessibleInterval< T > input, final ImgFactory< T > factory, final T type, final ExecutorService service  )
 	{
 		return copyImg( input, factory, type, service, false );
@@ -40,6 +40,8 @@ class Blending
 	 * Weights are {@code w=0} for the outermost {@code border} pixels of {@code interval} (and outside of {@code interval}).
 	 * Then weights transition from {@code 0<=w<=1} over {@code blending} pixels.
 	 * Weights are {@code w=1} inside {@code border+blending} from the {@code interval} bounds.
+	 * <p>
+	 * {@code interval} can be 2D or 3D. For 2D, {@code transform} must map the z=0 plane onto itself.
 	 *
 	 * @param interval
 	 * @param border
@@ -64,32 +66,32 @@ class Blending
 		 */
 		private final double[] d0;
 
-		private final int n = 3;
+		private final int n;
 
 		/**
 		 * min border distance.
 		 * for {@code x<b0: w(x)=0}.
 		 */
-		private final float[] b0 = new float[ n ];
+		private final float[] b0;
 
 		/**
 		 * min border+blend distance.
 		 * for {@code b0<x<b1: w(x)=fn(x-b0)}.
 		 */
-		private final float[] b1 = new float[ n ];
+		private final float[] b1;
 
 		/**
 		 * max border+blend distance.
 		 * for {@code b1<x<b2: w(x)=1}.
 		 */
-		private final float[] b2 = new float[ n ];
+		private final float[] b2;
 
 		/**
 		 * max border distance.
 		 * for {@code b2<x<b3: w(x)=fn(b3-x)}.
 		 * for {@code b3<x: w(x)=0}.
 		 */
-		private final float[] b3 = new float[ n ];
+		private final float[] b3;
 
 		private final float[] blending;
 
@@ -113,9 +115,16 @@ class Blending
 				final float[] blending,
 				final AffineTransform3D transform )
 		{
+			n = interval.numDimensions();
+			b0 = new float[ n ];
+			b1 = new float[ n ];
+			b2 = new float[ n ];
+			b3 = new float[ n ];
+
 			// concatenate shift-to-interval-min to transform
+			// (2D intervals are embedded in 3D at z=0)
 			t = new AffineTransform3D();
-			t.translate( interval.minAsDoubleArray() );
+			t.translate( Arrays.copyOf( interval.minAsDoubleArray(), 3 ) );
 			t.preConcatenate( transform );
 
 			d0 = t.inverse().d( 0 ).positionAsDoubleArray();
@@ -156,10 +165,10 @@ class Blending
 			final float[] weights = ( float[] ) dest;
 			final long x0 = srcPos[ 0 ];
 			final long y0 = srcPos[ 1 ];
-			final long z0 = srcPos[ 2 ];
+			final long z0 = n > 2 ? srcPos[ 2 ] : 0;
 			final int sx = size[ 0 ];
 			final int sy = size[ 1 ];
-			final int sz = size[ 2 ];
+			final int sz = n > 2 ? size[ 2 ] : 1;
 			final double[] p = { x0, 0, 0 };
 			for ( int z = 0; z < sz; ++z )
 			{
@@ -188,7 +197,6 @@ class Blending
 		@Override
 		public int numDimensions()
 		{
-			// TODO: do we need 2D ????
 			return n;
 		}
 
@@ -208,12 +216,12 @@ class Blending
 				final int length,
 				double[] transformed_start_pos )
 		{
-			final double[] pos = new double[ n ];
+			final double[] pos = new double[ 3 ];
 			t.applyInverse( pos, transformed_start_pos );
 			Arrays.fill( weights, offset, offset + length, 1 );
 			int from = 0;
 			int to = length;
-			for ( int d = 0; d < 3; ++d )
+			for ( int d = 0; d < n; ++d )
 			{
 				final float l0 = ( float ) pos[ d ];
 				final float dd = ( float ) d0[ d ];
@@ -265,57 +273,57 @@ class Blending
 				to = b3di;
 			}
 		}
+	}
 
-		private static float computeWeight(
-				final float l,
-				final float blending,
-				final float b0,
-				final float b1,
-				final float b2,
-				final float b3 )
-		{
-			if ( l < b0 )
-				return 0;
-			else if ( l < b1 )
-				return Lookup.get( ( l - b0 ) / blending );
-			else if ( l < b2 )
-				return 1;
-			else if ( l < b3 )
-				return Lookup.get( ( b3 - l ) / blending );
-			else
-				return 0;
-		}
+	static float computeWeight(
+			final float l,
+			final float blending,
+			final float b0,
+			final float b1,
+			final float b2,
+			final float b3 )
+	{
+		if ( l < b0 )
+			return 0;
+		else if ( l < b1 )
+			return Lookup.get( ( l - b0 ) / blending );
+		else if ( l < b2 )
+			return 1;
+		else if ( l < b3 )
+			return Lookup.get( ( b3 - l ) / blending );
+		else
+			return 0;
+	}
 
-		/**
-		 * Lookup table for blending weight function
-		 * {@code fn(x) = (Math.cos((1 - x) * Math.PI) + 1) / 2}
-		 */
-		private static final class Lookup
-		{
-			private static final int n = 30;
+	/**
+	 * Lookup table for blending weight function
+	 * {@code fn(x) = (Math.cos((1 - x) * Math.PI) + 1) / 2}
+	 */
+	static final class Lookup
+	{
+		private static final int n = 30;
 
-			// static lookup table for the blending function
-			// size of the array is n + 2
-			private static final float[] lookUp = createLookup( n );
+		// static lookup table for the blending function
+		// size of the array is n + 2
+		private static final float[] lookUp = createLookup( n );
 
-			private static float[] createLookup( final int n )
+		private static float[] createLookup( final int n )
+		{
+			final float[] lookup = new float[ n + 2 ];
+			for ( int i = 0; i <= n; i++ )
 			{
-				final float[] lookup = new float[ n + 2 ];
-				for ( int i = 0; i <= n; i++ )
-				{
-					final double d = ( double ) i / n;
-					lookup[ i ] = ( float ) ( ( Math.cos( ( 1 - d ) * Math.PI ) + 1 ) / 2 );
-				}
-				lookup[ n + 1 ] = lookup[ n ];
-				return lookup;
+				final double d = ( double ) i / n;
+				lookup[ i ] = ( float ) ( ( Math.cos( ( 1 - d ) * Math.PI ) + 1 ) / 2 );
 			}
+			lookup[ n + 1 ] = lookup[ n ];
+			return lookup;
+		}
 
-			static float get( final float d )
-			{
-				final int i = ( int ) ( d * n );
-				final float s = ( d * n ) - i;
-				return lookUp[ i ] * (1.0f - s) + lookUp[ i + 1 ] * s;
-			}
+		static float get( final float d )
+		{
+			final int i = ( int ) ( d * n );
+			final float s = ( d * n ) - i;
+			return lookUp[ i ] * (1.0f - s) + lookUp[ i + 1 ] * s;
 		}
 	}
 }
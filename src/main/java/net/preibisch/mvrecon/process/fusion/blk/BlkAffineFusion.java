@@ -50,6 +50,8 @@ import net.imglib2.algorithm.blocks.transform.Transform.Interpolation;
 import net.imglib2.converter.Converter;
 import net.imglib2.converter.RealUnsignedByteConverter;
 import net.imglib2.converter.RealUnsignedShortConverter;
+import net.imglib2.realtransform.AffineGet;
+import net.imglib2.realtransform.AffineTransform2D;
 import net.imglib2.realtransform.AffineTransform3D;
 import net.imglib2.type.NativeType;
 import net.imglib2.type.numeric.RealType;
@@ -65,6 +67,7 @@ import net.preibisch.mvrecon.process.downsampling.DownsampleTools;
 import net.preibisch.mvrecon.process.fusion.FusionTools;
 import net.preibisch.mvrecon.process.fusion.lazy.LazyAffineFusion;
 import net.preibisch.mvrecon.process.fusion.lazy.LazyFusionTools;
+import net.preibisch.mvrecon.process.fusion.transformed.weights.ContentBasedRealRandomAccessible;
 import net.preibisch.mvrecon.process.interestpointregistration.pairwise.constellation.grouping.Group;
 
 public class BlkAffineFusion
@@ -89,7 +92,7 @@ public class BlkAffineFusion
 				.filter( BasicViewSetup::hasSize )
 				.allMatch( vs -> vs.getSize().dimension( 2 ) == 1 );
 
-		if ( !supports( is2d, fusionType, intensityAdjustments ) )
+		if ( !supports( fusionType ) )
 		{
 			IOFunctions.println( "BlkAffineFusion: Fusion method not supported (yet). Falling back to LazyAffineFusion." );
 			return LazyAffineFusion.init( converter, imgloader, viewIds, viewRegistrations, viewDescriptions, fusionType, interpolationMethod, intensityAdjustments, fusionInterval, type, blockSize );
@@ -128,10 +131,26 @@ public class BlkAffineFusion
 			final double[] usedDownsampleFactors = new double[ 3 ];
 			RandomAccessibleInterval inputImg = DownsampleTools.openDownsampled( imgloader, viewId, model, usedDownsampleFactors );
 
-			final AffineTransform3D transform = concatenateBoundingBoxOffset( model, fusionInterval );
+			final AffineTransform3D transform;
+			final RandomAccessibleInterval weightImg;
+			if ( is2d )
+			{
+				// the 3D transform is reduced to its xy-part, which is embedded in 3D for masking and blending
+				transform = embed2d( concatenateBoundingBoxOffset( model, fusionInterval ) );
+				weightImg = Views.hyperSlice( inputImg, 2, inputImg.min( 2 ) );
+			}
+			else
+			{
+				transform = concatenateBoundingBoxOffset( model, fusionInterval );
+				weightImg = inputImg;
+			}
+
+			final AffineModel1D intensityAdjustment = intensityAdjustments == null ? null : intensityAdjustments.get( viewId );
 
 			final BlockSupplier< FloatType > viewBlocks = transformedBlocks(
 					Cast.unchecked( inputImg ),
+					is2d,
+					intensityAdjustment,
 					transform, interpolation );
 			images.add( viewBlocks );
 
@@ -145,20 +164,26 @@ public class BlkAffineFusion
 			switch ( fusionType )
 			{
 			case AVG:
-				weights.add( Masking.create( inputImg, border, transform ).andThen( Convert.convert( new FloatType() ) ) );
+				weights.add( Masking.create( weightImg, border, transform ).andThen( Convert.convert( new FloatType() ) ) );
 				break;
 			case AVG_BLEND:
-				weights.add( Blending.create( inputImg, border, blending, transform ) );
+				weights.add( Blending.create( weightImg, border, blending, transform ) );
 				break;
 			case MAX:
 			case FIRST_LOW:
-				masks.add( Masking.create( inputImg, border, transform ) );
+				masks.add( Masking.create( weightImg, border, transform ) );
 				break;
 			case FIRST_HIGH:
-				masks.add( Masking.create( inputImg, border, transform ) );
+				masks.add( Masking.create( weightImg, border, transform ) );
 				break;
 			case AVG_CONTENT:
+				weights.add( contentBasedBlocks( Cast.unchecked( weightImg ), intensityAdjustment, viewDescriptions.get( viewId ), usedDownsampleFactors, is2d ? to2d( transform ) : transform ) );
+				break;
 			case AVG_BLEND_CONTENT:
+				weights.add( CombineWeights.mul(
+						Blending.create( weightImg, border, blending, transform ),
+						contentBasedBlocks( Cast.unchecked( weightImg ), intensityAdjustment, viewDescriptions.get( viewId ), usedDownsampleFactors, is2d ? to2d( transform ) : transform ) ) );
+				break;
 			default:
 				// should never happen
 				throw new IllegalStateException();
@@ -170,6 +195,8 @@ public class BlkAffineFusion
 		{
 		case AVG:
 		case AVG_BLEND:
+		case AVG_CONTENT:
+		case AVG_BLEND_CONTENT:
 			floatBlocks = WeightedAverage.of( images, weights, overlap );
 			break;
 		case MAX:
@@ -181,8 +208,6 @@ public class BlkAffineFusion
 		case FIRST_HIGH:
 			floatBlocks = FirstWinsHighest.of( images, masks, overlap );
 			break;
-		case AVG_CONTENT:
-		case AVG_BLEND_CONTENT:
 		default:
 			// should never happen
 			throw new IllegalStateException();
@@ -192,10 +217,19 @@ public class BlkAffineFusion
 				floatBlocks,
 				converter, type )
 				.tile( 32 );
+
+		if ( is2d )
+		{
+			// fuse into a 2D cell image with 2D blocks, and add back the (singleton) z dimension
+			final long[] dimensions2d = { fusionInterval.dimension( 0 ), fusionInterval.dimension( 1 ) };
+			final int[] blockSize2d = { blockSize[ 0 ], blockSize[ 1 ] };
+			return Views.addDimension( BlockAlgoUtils.cellImg( blocks, dimensions2d, blockSize2d ), 0, 0 );
+		}
+
 		return BlockAlgoUtils.cellImg( blocks, fusionInterval.dimensionsAsLongArray(), blockSize );
 	}
 
-	private static < T extends NativeType< T > > BlockSupplier< T > convertToOutputType(
+	static < T extends NativeType< T > > BlockSupplier< T > convertToOutputType(
 			final BlockSupplier< FloatType > floatBlocks,
 			final Converter< FloatType, T > converter,
 			final T type )
@@ -232,17 +266,55 @@ public class BlkAffineFusion
 		}
 	}
 
-	private static < T extends NativeType< T > > BlockSupplier< FloatType > transformedBlocks(
+	static < T extends NativeType< T > > BlockSupplier< FloatType > transformedBlocks(
 			final RandomAccessibleInterval< T > inputImg,
+			final boolean is2d,
+			final AffineModel1D intensityAdjustment,
 			final AffineTransform3D transform,
 			final Interpolation interpolation )
 	{
-		return BlockSupplier.of( extendInput( inputImg ) )
-				.andThen( Convert.convert( new FloatType() ) )
-				.andThen( Transform.affine( transform, interpolation ) );
+		final RandomAccessible< T > extended = is2d
+				? Views.hyperSlice( extendInput( inputImg ), 2, inputImg.min( 2 ) )
+				: extendInput( inputImg );
+
+		BlockSupplier< FloatType > floatBlocks = BlockSupplier.of( extended )
+				.andThen( Convert.convert( new FloatType() ) );
+
+		// intensity adjustment is applied to the input image (before transforming), same as IntensityAdjuster in the lazy fusion
+		if ( intensityAdjustment != null )
+		{
+			final double[] m = new double[ 2 ];
+			intensityAdjustment.getMatrix( m );
+			floatBlocks = floatBlocks.andThen( LinearRange.linearRange( ( float ) m[ 0 ], ( float ) m[ 1 ] ) );
+		}
+
+		return floatBlocks.andThen( Transform.affine( is2d ? to2d( transform ) : transform, interpolation ) );
 	}
 
-	private static < T extends NativeType< T > > RandomAccessible< T > extendInput(
+	private static < T extends RealType< T > & NativeType< T > > BlockSupplier< FloatType > contentBasedBlocks(
+			final RandomAccessibleInterval< T > inputImg,
+			final AffineModel1D intensityAdjustment,
+			final BasicViewDescription< ? > viewDescription,
+			final double[] usedDownsampleFactors,
+			final AffineGet transform )
+	{
+		final double[] sigma1 = Util.getArrayFromValue( FusionTools.defaultContentBasedSigma1, 3 );
+		final double[] sigma2 = Util.getArrayFromValue( FusionTools.defaultContentBasedSigma2, 3 );
+
+		// adjust for the downsampling the input image was opened with
+		FusionTools.adjustContentBased( viewDescription, sigma1, sigma2, usedDownsampleFactors );
+
+		return ContentBased.create(
+				inputImg,
+				intensityAdjustment,
+				sigma1,
+				sigma2,
+				ContentBasedRealRandomAccessible.defaultScale,
+				LazyFusionTools.defaultBlockSize3d,
+				transform );
+	}
+
+	static < T extends NativeType< T > > RandomAccessible< T > extendInput(
 			final RandomAccessible< T > input )
 	{
 		if ( input instanceof IntervalView )
@@ -265,7 +337,7 @@ public class BlkAffineFusion
 		}
 	}
 
-	private static AffineTransform3D concatenateBoundingBoxOffset(
+	static AffineTransform3D concatenateBoundingBoxOffset(
 			final AffineTransform3D transformFromSource,
 			final Interval boundingBoxInTarget )
 	{
@@ -278,15 +350,40 @@ public class BlkAffineFusion
 		return t;
 	}
 
+	/**
+	 * Remove all z-components of a 3D transform, i.e. the returned transform maps the z=0 plane onto itself.
+	 */
+	private static AffineTransform3D embed2d( final AffineTransform3D transform )
+	{
+		final AffineTransform3D t = transform.copy();
 
-	private static boolean supports(
-			final boolean is2d,
-			final FusionType fusionType,
-			final Map< ViewId, AffineModel1D > intensityAdjustments )
+		// check if we have just scaling in 3d (same as FusionTools.fuseVirtual)
+		if ( t.get( 0, 2 ) != 0 || t.get( 1, 2 ) != 0 || t.get( 2, 0 ) != 0 || t.get( 2, 1 ) != 0 )
+			IOFunctions.println( "WARNING: You are trying to fuse 2d images with 3d registrations." );
+
+		t.set( 0, 0, 2 );
+		t.set( 0, 1, 2 );
+		t.set( 0, 2, 0 );
+		t.set( 0, 2, 1 );
+		t.set( 1, 2, 2 );
+		t.set( 0, 2, 3 );
+		return t;
+	}
+
+	private static AffineTransform2D to2d( final AffineTransform3D transform )
 	{
-		if ( is2d )
-			return false; // TODO
+		final AffineTransform2D t = new AffineTransform2D();
+		t.set(
+				transform.get( 0, 0 ), transform.get( 0, 1 ), transform.get( 0, 3 ),
+				transform.get( 1, 0 ), transform.get( 1, 1 ), transform.get( 1, 3 ) );
+		return t;
+	}
 
+	/**
+	 * @return true if the fusion type is implemented by the blocks, otherwise {@link LazyAffineFusion} is used
+	 */
+	private static boolean supports( final FusionType fusionType )
+	{
 		switch ( fusionType )
 		{
 		case AVG_BLEND:
@@ -294,15 +391,11 @@ public class BlkAffineFusion
 		case FIRST_HIGH:
 		case MAX:
 		case AVG:
-			break;
 		case AVG_CONTENT:
 		case AVG_BLEND_CONTENT:
-			return false; // TODO
+			return true;
+		default:
+			return false;
 		}
-
-		if ( intensityAdjustments != null )
-			return false; // TODO
-
-		return true;
 	}
 }
@@ -0,0 +1,276 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.process.fusion.blk;
+
+import static net.imglib2.algorithm.blocks.transform.Transform.Interpolation.NEARESTNEIGHBOR;
+import static net.imglib2.algorithm.blocks.transform.Transform.Interpolation.NLINEAR;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import mpicbg.models.AffineModel1D;
+import mpicbg.models.AffineModel3D;
+import mpicbg.spim.data.generic.sequence.BasicImgLoader;
+import mpicbg.spim.data.generic.sequence.BasicViewDescription;
+import mpicbg.spim.data.sequence.ViewId;
+import net.imglib2.Dimensions;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.algorithm.blocks.BlockAlgoUtils;
+import net.imglib2.algorithm.blocks.BlockSupplier;
+import net.imglib2.algorithm.blocks.convert.Convert;
+import net.imglib2.algorithm.blocks.transform.Transform.Interpolation;
+import net.imglib2.converter.Converter;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Cast;
+import net.imglib2.util.Pair;
+import net.imglib2.util.Util;
+import net.preibisch.legacy.io.IOFunctions;
+import net.preibisch.mvrecon.fiji.plugin.fusion.FusionGUI.FusionType;
+import net.preibisch.mvrecon.fiji.spimdata.interestpoints.ViewInterestPointLists;
+import net.preibisch.mvrecon.process.downsampling.DownsampleTools;
+import net.preibisch.mvrecon.process.fusion.FusionTools;
+import net.preibisch.mvrecon.process.fusion.lazy.LazyFusionTools;
+import net.preibisch.mvrecon.process.fusion.lazy.LazyNonRigidFusion;
+import net.preibisch.mvrecon.process.fusion.transformed.TransformVirtual;
+import net.preibisch.mvrecon.process.fusion.transformed.nonrigid.CorrespondingIP;
+import net.preibisch.mvrecon.process.fusion.transformed.nonrigid.NonRigidTools;
+import net.preibisch.mvrecon.process.fusion.transformed.nonrigid.SimpleReferenceIP;
+import net.preibisch.mvrecon.process.fusion.transformed.nonrigid.grid.ModelGrid;
+import net.preibisch.mvrecon.process.interestpointregistration.TransformationTools;
+
+/**
+ * Block-based version of {@link LazyNonRigidFusion}.
+ * <p>
+ * The non-rigid grids are computed exactly as in {@link LazyNonRigidFusion}, but
+ * every output block evaluates the grid once into a dense coordinate field
+ * (see {@link NonRigid}) instead of interpolating an affine model per pixel.
+ * Views without a grid (not enough corresponding interest points) are fused affine.
+ */
+public class BlkNonRigidFusion
+{
+	public static < T extends RealType< T > & NativeType< T > > RandomAccessibleInterval< T > init(
+			final Converter< FloatType, T > converter,
+			final BasicImgLoader imgloader,
+			final Map< ViewId, AffineTransform3D > viewRegistrations,
+			final Map< ViewId, ViewInterestPointLists > viewInterestPoints,
+			final Map< ViewId, ? extends BasicViewDescription< ? > > viewDescriptions,
+			final Collection< ? extends ViewId > viewsToFuse,
+			final Collection< ? extends ViewId > viewsToUse,
+			final List< String > labels,
+			final FusionType fusionType,
+			final boolean displayDistances,
+			final long[] controlPointDistance,
+			final double alpha,
+			final boolean virtualGrid,
+			final int interpolationMethod,
+			final Map< ? extends ViewId, AffineModel1D > intensityAdjustments,
+			final ExecutorService service,
+			final Interval fusionInterval,
+			final T type,
+			final int[] blockSize )
+	{
+		if ( !supports( fusionType, displayDistances ) )
+		{
+			IOFunctions.println( "BlkNonRigidFusion: Fusion method not supported (yet). Falling back to LazyNonRigidFusion." );
+			return LazyNonRigidFusion.init( converter, imgloader, viewRegistrations, viewInterestPoints, viewDescriptions, viewsToFuse, viewsToUse, labels, fusionType, displayDistances, controlPointDistance, alpha, virtualGrid, interpolationMethod, intensityAdjustments, service, fusionInterval, type, blockSize );
+		}
+
+		// finding the corresponding interest points is the same for all levels
+		final HashMap< ViewId, ArrayList< CorrespondingIP > > annotatedIps = NonRigidTools.assembleIPsForNonRigid( viewInterestPoints, viewsToUse, labels );
+
+		// find unique interest points in the pairs of images
+		final ArrayList< HashSet< CorrespondingIP > > uniqueIPs = NonRigidTools.findUniqueInterestPoints( annotatedIps );
+
+		// create final registrations for all views
+		final HashMap< ViewId, AffineTransform3D > registrations = TransformVirtual.adjustAllTransforms( viewRegistrations, Double.NaN, Double.NaN );
+
+		// transform unique interest points
+		final ArrayList< HashSet< CorrespondingIP > > transformedUniqueIPs = NonRigidTools.transformUniqueIPs( uniqueIPs, registrations );
+
+		// compute an average location of each unique interest point that is defined by many (2...n) corresponding interest points
+		// this location in world coordinates defines where each individual point should be "warped" to
+		final Pair< HashMap< ViewId, ArrayList< SimpleReferenceIP > >, Double > uniquePointsData = NonRigidTools.computeReferencePoints( annotatedIps.keySet(), transformedUniqueIPs );
+
+		// compute all grids, if it does not contain a grid we use the old affine model
+		final HashMap< ViewId, ModelGrid > nonrigidGrids = NonRigidTools.computeGrids( viewsToFuse, uniquePointsData.getA(), controlPointDistance, alpha, fusionInterval, virtualGrid, service );
+
+		final HashMap< ViewId, Dimensions > viewDimensions = LazyFusionTools.assembleDimensions( viewsToFuse, viewDescriptions );
+		final Interpolation interpolation = ( interpolationMethod == 1 ) ? NLINEAR : NEARESTNEIGHBOR;
+
+		// to be able to use the "lowest ViewId" wins strategy
+		final List< ? extends ViewId > sortedViewIds = new ArrayList<>( viewsToFuse );
+		Collections.sort( sortedViewIds );
+
+		// the non-rigid deformation can move views beyond their affine bounding box
+		final Overlap overlap = new Overlap(
+				sortedViewIds,
+				registrations,
+				viewDimensions,
+				NonRigidTools.defaultOverlapExpansion( uniquePointsData.getB() ),
+				3 )
+				.filter( fusionInterval )
+				.offset( fusionInterval.minAsLongArray() );
+
+		final List< BlockSupplier< FloatType > > images = new ArrayList<>( overlap.numViews() );
+		final List< BlockSupplier< FloatType > > weights = new ArrayList<>( overlap.numViews() );
+		final List< BlockSupplier< UnsignedByteType > > masks = new ArrayList<>( overlap.numViews() );
+
+		for ( final ViewId viewId : overlap.getViewIds() )
+		{
+			final ModelGrid grid = nonrigidGrids.get( viewId );
+			final AffineTransform3D model = registrations.get( viewId ).copy();
+			final AffineModel1D intensityAdjustment = intensityAdjustments == null ? null : intensityAdjustments.get( viewId );
+
+			// the model necessary to map to the image opened at a reduced resolution level
+			final double[] usedDownsampleFactors = new double[] { 1, 1, 1 };
+			final Pair< RandomAccessibleInterval, AffineTransform3D > inputData =
+					DownsampleTools.openDownsampled2( imgloader, viewId, model, usedDownsampleFactors );
+
+			final AffineModel3D invertedModelOpener;
+			if ( inputData.getB() != null )
+			{
+				model.concatenate( inputData.getB() );
+				invertedModelOpener = TransformationTools.getModel( inputData.getB() ).createInverse();
+			}
+			else
+			{
+				invertedModelOpener = null;
+			}
+
+			final RandomAccessibleInterval inputImg = inputData.getA();
+
+			final float[] blending = Util.getArrayFromValue( FusionTools.defaultBlendingRange, 3 );
+			final float[] border = Util.getArrayFromValue( FusionTools.defaultBlendingBorder, 3 );
+
+			// adjust both for z-scaling (anisotropy), downsampling, and registrations itself
+			FusionTools.adjustBlending( viewDescriptions.get( viewId ), blending, border, model );
+
+			if ( grid == null )
+			{
+				final AffineTransform3D transform = BlkAffineFusion.concatenateBoundingBoxOffset( model, fusionInterval );
+
+				images.add( BlkAffineFusion.transformedBlocks( Cast.unchecked( inputImg ), false, intensityAdjustment, transform, interpolation ) );
+
+				switch ( fusionType )
+				{
+				case AVG:
+					weights.add( Masking.create( inputImg, border, transform ).andThen( Convert.convert( new FloatType() ) ) );
+					break;
+				case AVG_BLEND:
+					weights.add( Blending.create( inputImg, border, blending, transform ) );
+					break;
+				case MAX:
+				case FIRST_LOW:
+				case FIRST_HIGH:
+					masks.add( Masking.create( inputImg, border, transform ) );
+					break;
+				default:
+					// should never happen
+					throw new IllegalStateException();
+				}
+			}
+			else
+			{
+				final NonRigid.CoordinateField field = new NonRigid.CoordinateField( grid, invertedModelOpener, fusionInterval.minAsLongArray() );
+
+				images.add( NonRigid.transform( Cast.unchecked( inputImg ), intensityAdjustment, field, interpolation ) );
+
+				switch ( fusionType )
+				{
+				case AVG:
+					weights.add( NonRigid.masking( inputImg, border, field ).andThen( Convert.convert( new FloatType() ) ) );
+					break;
+				case AVG_BLEND:
+					weights.add( NonRigid.blending( inputImg, border, blending, field ) );
+					break;
+				case MAX:
+				case FIRST_LOW:
+				case FIRST_HIGH:
+					masks.add( NonRigid.masking( inputImg, border, field ) );
+					break;
+				default:
+					// should never happen
+					throw new IllegalStateException();
+				}
+			}
+		}
+
+		final BlockSupplier< FloatType > floatBlocks;
+		switch ( fusionType )
+		{
+		case AVG:
+		case AVG_BLEND:
+			floatBlocks = WeightedAverage.of( images, weights, overlap );
+			break;
+		case MAX:
+			floatBlocks = MaxIntensity.of( images, masks, overlap );
+			break;
+		case FIRST_LOW:
+			floatBlocks = FirstWins.of( images, masks, overlap );
+			break;
+		case FIRST_HIGH:
+			floatBlocks = FirstWinsHighest.of( images, masks, overlap );
+			break;
+		default:
+			// should never happen
+			throw new IllegalStateException();
+		}
+
+		final BlockSupplier< T > blocks = BlkAffineFusion.convertToOutputType(
+				floatBlocks,
+				converter, type )
+				.tile( 32 );
+		return BlockAlgoUtils.cellImg( blocks, fusionInterval.dimensionsAsLongArray(), blockSize );
+	}
+
+	private static boolean supports( final FusionType fusionType, final boolean displayDistances )
+	{
+		if ( displayDistances )
+			return false;
+
+		switch ( fusionType )
+		{
+		case AVG_BLEND:
+		case FIRST_LOW:
+		case FIRST_HIGH:
+		case MAX:
+		case AVG:
+			return true;
+		case AVG_CONTENT:
+		case AVG_BLEND_CONTENT:
+		default:
+			return false; // TODO
+		}
+	}
+}
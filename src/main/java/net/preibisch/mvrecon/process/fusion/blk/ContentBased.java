@@ -0,0 +1,325 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.process.fusion.blk;
+
+import static net.imglib2.type.PrimitiveType.FLOAT;
+import static net.imglib2.util.Util.safeInt;
+
+import java.util.Arrays;
+
+import mpicbg.models.AffineModel1D;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.algorithm.blocks.AbstractBlockSupplier;
+import net.imglib2.algorithm.blocks.BlockAlgoUtils;
+import net.imglib2.algorithm.blocks.BlockSupplier;
+import net.imglib2.algorithm.blocks.convert.Convert;
+import net.imglib2.algorithm.blocks.transform.Transform;
+import net.imglib2.algorithm.gauss3.Gauss3;
+import net.imglib2.blocks.BlockInterval;
+import net.imglib2.blocks.TempArray;
+import net.imglib2.realtransform.AffineGet;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Cast;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
+/**
+ * Block-based version of the entropy approximation of
+ * {@link net.preibisch.mvrecon.process.fusion.transformed.weights.ContentBasedRealRandomAccessible}.
+ * <p>
+ * The weight is computed in the coordinate space of the input image as
+ * {@code gauss( ( I - gauss( I, sigma1 ) )^2, sigma2 ) / scale}, in two
+ * cached stages (one per Gaussian, each with its own halo), and then
+ * transformed into the output space with n-linear interpolation.
+ */
+class ContentBased
+{
+	/**
+	 * Conceptually, the entropy of {@code inputImg} is computed, then transformed with {@code transform}.
+	 *
+	 * @param inputImg
+	 * 		the (possibly downsampled) input image
+	 * @param intensityAdjustment
+	 * 		intensity adjustment that is applied to the input image, can be null
+	 * @param sigma1
+	 * 		sigma of the first Gaussian (in input image pixels)
+	 * @param sigma2
+	 * 		sigma of the second Gaussian (in input image pixels)
+	 * @param scale
+	 * 		the entropy is divided by {@code scale} to put weights into a "reasonable" range
+	 * @param blockSize
+	 * 		block size of the two cached intermediate images
+	 * @param transform
+	 * 		transforms input image coordinates into output coordinates
+	 */
+	public static < T extends RealType< T > & NativeType< T > > BlockSupplier< FloatType > create(
+			final RandomAccessibleInterval< T > inputImg,
+			final AffineModel1D intensityAdjustment,
+			final double[] sigma1,
+			final double[] sigma2,
+			final float scale,
+			final int[] blockSize,
+			final AffineGet transform )
+	{
+		final int n = inputImg.numDimensions();
+		final long[] dimensions = inputImg.dimensionsAsLongArray();
+		final int[] cellSize = Arrays.copyOf( blockSize, n );
+
+		BlockSupplier< FloatType > input = BlockSupplier.of( Views.extendMirrorDouble( Views.zeroMin( inputImg ) ) )
+				.andThen( Convert.convert( new FloatType() ) );
+
+		if ( intensityAdjustment != null )
+		{
+			final double[] m = new double[ 2 ];
+			intensityAdjustment.getMatrix( m );
+			input = input.andThen( LinearRange.linearRange( ( float ) m[ 0 ], ( float ) m[ 1 ] ) );
+		}
+
+		// compute ( I - gauss(I,sigma1) )^2
+		final RandomAccessibleInterval< FloatType > squaredDifference = BlockAlgoUtils.cellImg(
+				new GaussBlockSupplier( input, Arrays.copyOf( sigma1, n ), true, 1 ),
+				dimensions, cellSize );
+
+		// compute gauss( ( I - gauss(I,sigma1) )^2, sigma2 ) / scale
+		final RandomAccessibleInterval< FloatType > entropy = BlockAlgoUtils.cellImg(
+				new GaussBlockSupplier(
+						BlockSupplier.of( Views.extendMirrorDouble( squaredDifference ) ),
+						Arrays.copyOf( sigma2, n ), false, 1.0f / scale ),
+				dimensions, cellSize );
+
+		return BlockSupplier.of( Views.extendZero( Views.translate( entropy, inputImg.minAsLongArray() ) ) )
+				.andThen( Transform.affine( transform, Transform.Interpolation.NLINEAR ) );
+	}
+
+	/**
+	 * Separable Gaussian convolution of a {@code BlockSupplier< FloatType >}.
+	 * The source block is expanded by the kernel radius, convolved along each
+	 * dimension, and (optionally) subtracted from the source and squared.
+	 * Results are multiplied by {@code scale}.
+	 */
+	private static class GaussBlockSupplier extends AbstractBlockSupplier< FloatType >
+	{
+		private final BlockSupplier< FloatType > source;
+
+		private final int n;
+
+		private final float[][] halfkernels;
+
+		private final int[] radius;
+
+		private final boolean squaredDifference;
+
+		private final float scale;
+
+		private final TempArray< float[] >[] tempArrays;
+
+		GaussBlockSupplier(
+				final BlockSupplier< FloatType > source,
+				final double[] sigma,
+				final boolean squaredDifference,
+				final float scale )
+		{
+			this.source = source;
+			this.n = sigma.length;
+			this.squaredDifference = squaredDifference;
+			this.scale = scale;
+
+			final double[][] h = Gauss3.halfkernels( sigma );
+			halfkernels = new float[ n ][];
+			radius = new int[ n ];
+			for ( int d = 0; d < n; ++d )
+			{
+				radius[ d ] = h[ d ].length - 1;
+				halfkernels[ d ] = new float[ h[ d ].length ];
+				for ( int i = 0; i < h[ d ].length; ++i )
+					halfkernels[ d ][ i ] = ( float ) h[ d ][ i ];
+			}
+
+			tempArrays = Cast.unchecked( new TempArray[ 3 ] );
+			Arrays.setAll( tempArrays, i -> TempArray.forPrimitiveType( FLOAT ) );
+		}
+
+		private GaussBlockSupplier( final GaussBlockSupplier s )
+		{
+			source = s.source.independentCopy();
+			n = s.n;
+			halfkernels = s.halfkernels;
+			radius = s.radius;
+			squaredDifference = s.squaredDifference;
+			scale = s.scale;
+			tempArrays = Cast.unchecked( new TempArray[ 3 ] );
+			Arrays.setAll( tempArrays, i -> TempArray.forPrimitiveType( FLOAT ) );
+		}
+
+		@Override
+		public void copy( final Interval interval, final Object dest )
+		{
+			final BlockInterval blockInterval = BlockInterval.asBlockInterval( interval );
+			final long[] pos = blockInterval.min();
+			final int[] size = blockInterval.size();
+
+			final long[] srcMin = new long[ n ];
+			final long[] srcMax = new long[ n ];
+			final int[] srcSize = new int[ n ];
+			for ( int d = 0; d < n; ++d )
+			{
+				srcMin[ d ] = pos[ d ] - radius[ d ];
+				srcMax[ d ] = pos[ d ] + size[ d ] - 1 + radius[ d ];
+				srcSize[ d ] = size[ d ] + 2 * radius[ d ];
+			}
+
+			final int srcLen = safeInt( Intervals.numElements( srcSize ) );
+			final float[] src = tempArrays[ 0 ].get( srcLen );
+			source.copy( new FinalInterval( srcMin, srcMax ), src );
+
+			// convolve along each dimension, shrinking the buffer by 2*radius each time.
+			// the source is kept intact because it is needed for the squared difference.
+			float[] in = src;
+			final int[] inSize = srcSize.clone();
+			for ( int d = 0; d < n; ++d )
+			{
+				final int[] outSize = inSize.clone();
+				outSize[ d ] = size[ d ];
+				final float[] out = ( d == n - 1 )
+						? Cast.unchecked( dest )
+						: tempArrays[ 1 + d % 2 ].get( safeInt( Intervals.numElements( outSize ) ) );
+				convolve( in, inSize, d, halfkernels[ d ], out );
+				in = out;
+				inSize[ d ] = size[ d ];
+			}
+
+			final float[] fdest = Cast.unchecked( dest );
+			final int len = safeInt( Intervals.numElements( size ) );
+
+			if ( squaredDifference )
+			{
+				// subtract from the center of the source block and square
+				final int[] steps = new int[ n ];
+				steps[ 0 ] = 1;
+				for ( int d = 1; d < n; ++d )
+					steps[ d ] = steps[ d - 1 ] * srcSize[ d - 1 ];
+
+				final int[] p = new int[ n ];
+				for ( int i = 0; i < len; )
+				{
+					int o = 0;
+					for ( int d = 1; d < n; ++d )
+						o += ( p[ d ] + radius[ d ] ) * steps[ d ];
+					o += radius[ 0 ];
+
+					for ( int x = 0; x < size[ 0 ]; ++x, ++i )
+					{
+						final float diff = src[ o + x ] - fdest[ i ];
+						fdest[ i ] = diff * diff * scale;
+					}
+
+					for ( int d = 1; d < n; ++d )
+					{
+						if ( ++p[ d ] < size[ d ] )
+							break;
+						p[ d ] = 0;
+					}
+				}
+			}
+			else if ( scale != 1 )
+			{
+				for ( int i = 0; i < len; ++i )
+					fdest[ i ] *= scale;
+			}
+		}
+
+		/**
+		 * Convolve {@code in} along dimension {@code d} with the symmetric kernel {@code halfkernel}.
+		 * The size of {@code out} is the size of {@code in}, shrunk by {@code 2 * radius} in dimension {@code d}.
+		 */
+		private static void convolve(
+				final float[] in,
+				final int[] inSize,
+				final int d,
+				final float[] halfkernel,
+				final float[] out )
+		{
+			final int r = halfkernel.length - 1;
+
+			int stride = 1;
+			for ( int k = 0; k < d; ++k )
+				stride *= inSize[ k ];
+
+			int lines = 1;
+			for ( int k = d + 1; k < inSize.length; ++k )
+				lines *= inSize[ k ];
+
+			final int inLen = inSize[ d ];
+			final int outLen = inLen - 2 * r;
+
+			for ( int l = 0; l < lines; ++l )
+			{
+				final int inLine = l * inLen * stride;
+				final int outLine = l * outLen * stride;
+
+				for ( int x = 0; x < outLen; ++x )
+				{
+					final int o = outLine + x * stride;
+					final int c = inLine + ( x + r ) * stride;
+
+					final float w0 = halfkernel[ 0 ];
+					for ( int i = 0; i < stride; ++i )
+						out[ o + i ] = w0 * in[ c + i ];
+
+					for ( int k = 1; k <= r; ++k )
+					{
+						final float w = halfkernel[ k ];
+						final int cm = c - k * stride;
+						final int cp = c + k * stride;
+						for ( int i = 0; i < stride; ++i )
+							out[ o + i ] += w * ( in[ cm + i ] + in[ cp + i ] );
+					}
+				}
+			}
+		}
+
+		@Override
+		public BlockSupplier< FloatType > independentCopy()
+		{
+			return new GaussBlockSupplier( this );
+		}
+
+		@Override
+		public int numDimensions()
+		{
+			return n;
+		}
+
+		private static final FloatType type = new FloatType();
+
+		@Override
+		public FloatType getType()
+		{
+			return type;
+		}
+	}
+}
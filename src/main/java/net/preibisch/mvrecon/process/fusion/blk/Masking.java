@@ -37,6 +37,8 @@ class Masking
 	 * <p>
 	 * Weights are {@code w=0} for the outermost {@code border} pixels of {@code interval}.
 	 * Weights are {@code w=1} inside {@code border} from the {@code interval} bounds.
+	 * <p>
+	 * {@code interval} can be 2D or 3D. For 2D, {@code transform} must map the z=0 plane onto itself.
 	 *
 	 * @param interval
 	 * @param border
@@ -59,21 +61,21 @@ class Masking
 		 */
 		private final double[] d0;
 
-		private final int n = 3;
+		private final int n;
 
 		/**
 		 * min border distance.
 		 * for {@code x<b0: w(x)=0}.
 		 * for {@code b0<x<b3: w(x)=1}.
 		 */
-		private final float[] b0 = new float[ n ];
+		private final float[] b0;
 
 		/**
 		 * max border distance.
 		 * for {@code b0<x<b3: w(x)=1}.
 		 * for {@code b3<x: w(x)=0}.
 		 */
-		private final float[] b3 = new float[ n ];
+		private final float[] b3;
 
 		/**
 		 * Conceptually,the given {@code interval} is filled with masking weights, then transformed with {@code transform}.
@@ -90,9 +92,14 @@ class Masking
 				final float[] border,
 				final AffineTransform3D transform )
 		{
+			n = interval.numDimensions();
+			b0 = new float[ n ];
+			b3 = new float[ n ];
+
 			// concatenate shift-to-interval-min to transform
+			// (2D intervals are embedded in 3D at z=0)
 			t = new AffineTransform3D();
-			t.translate( interval.minAsDoubleArray() );
+			t.translate( Arrays.copyOf( interval.minAsDoubleArray(), 3 ) );
 			t.preConcatenate( transform );
 
 			d0 = t.inverse().d( 0 ).positionAsDoubleArray();
@@ -123,10 +130,10 @@ class Masking
 			final byte[] weights = ( byte[] ) dest;
 			final long x0 = srcPos[ 0 ];
 			final long y0 = srcPos[ 1 ];
-			final long z0 = srcPos[ 2 ];
+			final long z0 = n > 2 ? srcPos[ 2 ] : 0;
 			final int sx = size[ 0 ];
 			final int sy = size[ 1 ];
-			final int sz = size[ 2 ];
+			final int sz = n > 2 ? size[ 2 ] : 1;
 			final double[] p = { x0, 0, 0 };
 			for ( int z = 0; z < sz; ++z )
 			{
@@ -155,7 +162,6 @@ class Masking
 		@Override
 		public int numDimensions()
 		{
-			// TODO: do we need 2D ????
 			return n;
 		}
 
@@ -175,11 +181,11 @@ class Masking
 				final int length,
 				double[] transformed_start_pos )
 		{
-			final double[] pos = new double[ n ];
+			final double[] pos = new double[ 3 ];
 			t.applyInverse( pos, transformed_start_pos );
 			int b0di = 0;
 			int b3di = length;
-			for ( int d = 0; d < 3; ++d )
+			for ( int d = 0; d < n; ++d )
 			{
 				final float l0 = ( float ) pos[ d ];
 				final float dd = ( float ) d0[ d ];
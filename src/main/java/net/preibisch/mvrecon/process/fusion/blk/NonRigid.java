@@ -0,0 +1,611 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.process.fusion.blk;
+
+import static net.imglib2.type.PrimitiveType.FLOAT;
+import static net.imglib2.util.Util.safeInt;
+
+import java.util.Arrays;
+
+import mpicbg.models.AffineModel1D;
+import mpicbg.models.AffineModel3D;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.algorithm.blocks.AbstractBlockSupplier;
+import net.imglib2.algorithm.blocks.BlockSupplier;
+import net.imglib2.algorithm.blocks.convert.Convert;
+import net.imglib2.algorithm.blocks.transform.Transform.Interpolation;
+import net.imglib2.blocks.BlockInterval;
+import net.imglib2.blocks.TempArray;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Cast;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+import net.preibisch.mvrecon.process.fusion.transformed.nonrigid.grid.ModelGrid;
+import net.preibisch.mvrecon.process.fusion.transformed.nonrigid.grid.NumericAffineModel3D;
+
+/**
+ * Block-based non-rigid transformation of images, blending and masking weights.
+ * <p>
+ * For every block, the affine models of the {@link ModelGrid} control points that
+ * cover the block are read once, and interpolated (trilinearly, as in
+ * {@link net.preibisch.mvrecon.process.fusion.transformed.nonrigid.grid.ModelGridAccess})
+ * into a dense field of input image coordinates ({@link CoordinateField}).
+ * The field is shared between the image and the weights of a view, the input
+ * image is then copied in bulk and sampled from a flat array.
+ */
+class NonRigid
+{
+	/**
+	 * Conceptually, {@code inputImg} is transformed with the non-rigid {@code field}.
+	 * Outside of {@code inputImg} the value is 0.
+	 *
+	 * @param inputImg
+	 * 		the (possibly downsampled) input image
+	 * @param intensityAdjustment
+	 * 		intensity adjustment that is applied to the input image, can be null
+	 * @param field
+	 * 		maps output coordinates to {@code inputImg} coordinates
+	 * @param interpolation
+	 * 		nearest neighbor or n-linear
+	 */
+	public static < T extends NativeType< T > > BlockSupplier< FloatType > transform(
+			final RandomAccessibleInterval< T > inputImg,
+			final AffineModel1D intensityAdjustment,
+			final CoordinateField field,
+			final Interpolation interpolation )
+	{
+		BlockSupplier< FloatType > floatBlocks = BlockSupplier.of( BlkAffineFusion.extendInput( inputImg ) )
+				.andThen( Convert.convert( new FloatType() ) );
+
+		if ( intensityAdjustment != null )
+		{
+			final double[] m = new double[ 2 ];
+			intensityAdjustment.getMatrix( m );
+			floatBlocks = floatBlocks.andThen( LinearRange.linearRange( ( float ) m[ 0 ], ( float ) m[ 1 ] ) );
+		}
+
+		return new NonRigidTransformBlockSupplier( floatBlocks, inputImg, field, interpolation );
+	}
+
+	/**
+	 * Conceptually, the given {@code interval} is filled with blending weights (see {@link Blending}),
+	 * then transformed with the non-rigid {@code field}.
+	 */
+	public static BlockSupplier< FloatType > blending(
+			final Interval interval,
+			final float[] border,
+			final float[] blending,
+			final CoordinateField field )
+	{
+		return new NonRigidBlendingBlockSupplier( interval, border, blending, field );
+	}
+
+	/**
+	 * Conceptually, the given {@code interval} is filled with masking weights (see {@link Masking}),
+	 * then transformed with the non-rigid {@code field}.
+	 */
+	public static BlockSupplier< UnsignedByteType > masking(
+			final Interval interval,
+			final float[] border,
+			final CoordinateField field )
+	{
+		return new NonRigidMaskingBlockSupplier( interval, border, field );
+	}
+
+	/**
+	 * Dense input coordinates for a block of the output.
+	 */
+	static class Coordinates
+	{
+		CoordinateField field;
+
+		final long[] min = new long[ 3 ];
+
+		final int[] size = new int[ 3 ];
+
+		float[] x = new float[ 0 ], y = new float[ 0 ], z = new float[ 0 ];
+
+		/**
+		 * bounding box of all coordinates
+		 */
+		final double[] bbMin = new double[ 3 ], bbMax = new double[ 3 ];
+
+		boolean isFor( final CoordinateField field, final long[] min, final int[] size )
+		{
+			return this.field == field && Arrays.equals( this.min, min ) && Arrays.equals( this.size, size );
+		}
+
+		void ensureCapacity( final int len )
+		{
+			if ( x.length < len )
+			{
+				x = new float[ len ];
+				y = new float[ len ];
+				z = new float[ len ];
+			}
+		}
+	}
+
+	/**
+	 * Evaluates the interpolated affine models of a {@link ModelGrid} for blocks of the output.
+	 * <p>
+	 * The last computed {@link Coordinates} are kept per thread (not per view), so that the image and
+	 * weights of the same view, which are requested one after another for the same block, share them.
+	 */
+	static class CoordinateField
+	{
+		private static final ThreadLocal< Coordinates > coordinates = ThreadLocal.withInitial( Coordinates::new );
+
+		private final RandomAccessibleInterval< NumericAffineModel3D > grid;
+
+		private final long[] gridMin;
+
+		private final long[] controlPointDistance;
+
+		private final long[] offset;
+
+		private final AffineModel3D invertedModelOpener;
+
+		/**
+		 * @param grid
+		 * 		the non-rigid grid, maps world coordinates to input image coordinates
+		 * @param invertedModelOpener
+		 * 		maps full-resolution input coordinates to the coordinates of the (downsampled) image that was opened, can be null
+		 * @param offset
+		 * 		world coordinates of the output block at 0,0,0
+		 */
+		CoordinateField(
+				final ModelGrid grid,
+				final AffineModel3D invertedModelOpener,
+				final long[] offset )
+		{
+			this.grid = grid.getGrid();
+			this.gridMin = grid.getMin();
+			this.controlPointDistance = grid.getControlPointDistance();
+			this.invertedModelOpener = invertedModelOpener;
+			this.offset = offset.clone();
+		}
+
+		Coordinates get( final long[] min, final int[] size )
+		{
+			final Coordinates c = coordinates.get();
+			if ( !c.isFor( this, min, size ) )
+				compute( c, min, size );
+			return c;
+		}
+
+		private void compute( final Coordinates c, final long[] min, final int[] size )
+		{
+			c.field = this;
+			System.arraycopy( min, 0, c.min, 0, 3 );
+			System.arraycopy( size, 0, c.size, 0, 3 );
+			final int len = size[ 0 ] * size[ 1 ] * size[ 2 ];
+			c.ensureCapacity( len );
+			Arrays.fill( c.bbMin, Double.POSITIVE_INFINITY );
+			Arrays.fill( c.bbMax, Double.NEGATIVE_INFINITY );
+
+			// the range of control points covering the block
+			final long[] nodeMin = new long[ 3 ];
+			final int[] numNodes = new int[ 3 ];
+			for ( int d = 0; d < 3; ++d )
+			{
+				final long w0 = min[ d ] + offset[ d ] - gridMin[ d ];
+				final long w1 = w0 + size[ d ] - 1;
+				nodeMin[ d ] = Math.floorDiv( w0, controlPointDistance[ d ] );
+				numNodes[ d ] = ( int ) ( Math.floorDiv( w1, controlPointDistance[ d ] ) - nodeMin[ d ] + 2 );
+			}
+			final int nx = numNodes[ 0 ];
+			final int ny = numNodes[ 1 ];
+
+			// read the 12 coefficients of all control points once
+			final double[] nodes = new double[ nx * ny * numNodes[ 2 ] * 12 ];
+			final double[] tmp = new double[ 12 ];
+			final RandomAccess< NumericAffineModel3D > ra = Views.extendValue( grid, new NumericAffineModel3D() ).randomAccess();
+			final long[] p = new long[ 3 ];
+			int o = 0;
+			for ( int iz = 0; iz < numNodes[ 2 ]; ++iz )
+				for ( int iy = 0; iy < ny; ++iy )
+					for ( int ix = 0; ix < nx; ++ix )
+					{
+						p[ 0 ] = nodeMin[ 0 ] + ix;
+						p[ 1 ] = nodeMin[ 1 ] + iy;
+						p[ 2 ] = nodeMin[ 2 ] + iz;
+						ra.setPosition( p );
+						// getModel() returns a temporary instance of the grid cell that other threads read as well
+						final AffineModel3D model = ra.get().getModel().copy();
+						// concatenating is linear in the coefficients, so it can be done before interpolation
+						if ( invertedModelOpener != null )
+							model.preConcatenate( invertedModelOpener );
+						model.toArray( tmp );
+						System.arraycopy( tmp, 0, nodes, o, 12 );
+						o += 12;
+					}
+
+			// models interpolated in y and z for one row of control points
+			final double[] row = new double[ nx * 12 ];
+
+			final double cx = controlPointDistance[ 0 ];
+			final double cy = controlPointDistance[ 1 ];
+			final double cz = controlPointDistance[ 2 ];
+
+			int i = 0;
+			for ( int z = 0; z < size[ 2 ]; ++z )
+			{
+				final double wz = min[ 2 ] + offset[ 2 ] + z;
+				final double gz = ( wz - gridMin[ 2 ] ) / cz - nodeMin[ 2 ];
+				final int iz = ( int ) Math.floor( gz );
+				final double fz = gz - iz;
+
+				for ( int y = 0; y < size[ 1 ]; ++y )
+				{
+					final double wy = min[ 1 ] + offset[ 1 ] + y;
+					final double gy = ( wy - gridMin[ 1 ] ) / cy - nodeMin[ 1 ];
+					final int iy = ( int ) Math.floor( gy );
+					final double fy = gy - iy;
+
+					final double w00 = ( 1 - fy ) * ( 1 - fz );
+					final double w10 = fy * ( 1 - fz );
+					final double w01 = ( 1 - fy ) * fz;
+					final double w11 = fy * fz;
+
+					final int o00 = ( iz * ny + iy ) * nx * 12;
+					final int o10 = ( iz * ny + iy + 1 ) * nx * 12;
+					final int o01 = ( ( iz + 1 ) * ny + iy ) * nx * 12;
+					final int o11 = ( ( iz + 1 ) * ny + iy + 1 ) * nx * 12;
+					for ( int k = 0; k < nx * 12; ++k )
+						row[ k ] = w00 * nodes[ o00 + k ] + w10 * nodes[ o10 + k ] + w01 * nodes[ o01 + k ] + w11 * nodes[ o11 + k ];
+
+					for ( int x = 0; x < size[ 0 ]; ++x, ++i )
+					{
+						final double wx = min[ 0 ] + offset[ 0 ] + x;
+						final double gx = ( wx - gridMin[ 0 ] ) / cx - nodeMin[ 0 ];
+						final int ix = ( int ) Math.floor( gx );
+						final double fx = gx - ix;
+						final int a = ix * 12;
+						final int b = a + 12;
+
+						// AffineModel3D.toArray() order: m00, m10, m20, m01, m11, m21, m02, m12, m22, m03, m13, m23
+						final double m00 = row[ a ] + fx * ( row[ b ] - row[ a ] );
+						final double m10 = row[ a + 1 ] + fx * ( row[ b + 1 ] - row[ a + 1 ] );
+						final double m20 = row[ a + 2 ] + fx * ( row[ b + 2 ] - row[ a + 2 ] );
+						final double m01 = row[ a + 3 ] + fx * ( row[ b + 3 ] - row[ a + 3 ] );
+						final double m11 = row[ a + 4 ] + fx * ( row[ b + 4 ] - row[ a + 4 ] );
+						final double m21 = row[ a + 5 ] + fx * ( row[ b + 5 ] - row[ a + 5 ] );
+						final double m02 = row[ a + 6 ] + fx * ( row[ b + 6 ] - row[ a + 6 ] );
+						final double m12 = row[ a + 7 ] + fx * ( row[ b + 7 ] - row[ a + 7 ] );
+						final double m22 = row[ a + 8 ] + fx * ( row[ b + 8 ] - row[ a + 8 ] );
+						final double m03 = row[ a + 9 ] + fx * ( row[ b + 9 ] - row[ a + 9 ] );
+						final double m13 = row[ a + 10 ] + fx * ( row[ b + 10 ] - row[ a + 10 ] );
+						final double m23 = row[ a + 11 ] + fx * ( row[ b + 11 ] - row[ a + 11 ] );
+
+						final double sx = m00 * wx + m01 * wy + m02 * wz + m03;
+						final double sy = m10 * wx + m11 * wy + m12 * wz + m13;
+						final double sz = m20 * wx + m21 * wy + m22 * wz + m23;
+
+						c.x[ i ] = ( float ) sx;
+						c.y[ i ] = ( float ) sy;
+						c.z[ i ] = ( float ) sz;
+
+						if ( sx < c.bbMin[ 0 ] ) c.bbMin[ 0 ] = sx;
+						if ( sy < c.bbMin[ 1 ] ) c.bbMin[ 1 ] = sy;
+						if ( sz < c.bbMin[ 2 ] ) c.bbMin[ 2 ] = sz;
+						if ( sx > c.bbMax[ 0 ] ) c.bbMax[ 0 ] = sx;
+						if ( sy > c.bbMax[ 1 ] ) c.bbMax[ 1 ] = sy;
+						if ( sz > c.bbMax[ 2 ] ) c.bbMax[ 2 ] = sz;
+					}
+				}
+			}
+		}
+	}
+
+	private static class NonRigidTransformBlockSupplier extends AbstractBlockSupplier< FloatType >
+	{
+		private final BlockSupplier< FloatType > source;
+
+		private final long[] imgMin;
+
+		private final long[] imgMax;
+
+		private final CoordinateField field;
+
+		private final Interpolation interpolation;
+
+		private final TempArray< float[] > tempArray;
+
+		NonRigidTransformBlockSupplier(
+				final BlockSupplier< FloatType > source,
+				final Interval inputImg,
+				final CoordinateField field,
+				final Interpolation interpolation )
+		{
+			this.source = source;
+			this.imgMin = inputImg.minAsLongArray();
+			this.imgMax = inputImg.maxAsLongArray();
+			this.field = field;
+			this.interpolation = interpolation;
+			tempArray = TempArray.forPrimitiveType( FLOAT );
+		}
+
+		private NonRigidTransformBlockSupplier( final NonRigidTransformBlockSupplier s )
+		{
+			source = s.source.independentCopy();
+			imgMin = s.imgMin;
+			imgMax = s.imgMax;
+			field = s.field;
+			interpolation = s.interpolation;
+			tempArray = TempArray.forPrimitiveType( FLOAT );
+		}
+
+		@Override
+		public void copy( final Interval interval, final Object dest )
+		{
+			final BlockInterval blockInterval = BlockInterval.asBlockInterval( interval );
+			final int len = safeInt( Intervals.numElements( blockInterval.size() ) );
+			final Coordinates c = field.get( blockInterval.min(), blockInterval.size() );
+			final float[] fdest = Cast.unchecked( dest );
+
+			// the part of the input image that is required (at most the input image itself)
+			final long[] srcMin = new long[ 3 ];
+			final long[] srcMax = new long[ 3 ];
+			for ( int d = 0; d < 3; ++d )
+			{
+				srcMin[ d ] = Math.max( imgMin[ d ], ( long ) Math.floor( c.bbMin[ d ] ) );
+				srcMax[ d ] = Math.min( imgMax[ d ], ( long ) Math.floor( c.bbMax[ d ] ) + 1 );
+				if ( srcMin[ d ] > srcMax[ d ] )
+				{
+					Arrays.fill( fdest, 0, len, 0 );
+					return;
+				}
+			}
+
+			final int sx = ( int ) ( srcMax[ 0 ] - srcMin[ 0 ] + 1 );
+			final int sy = ( int ) ( srcMax[ 1 ] - srcMin[ 1 ] + 1 );
+			final int sxy = sx * sy;
+			final float[] src = tempArray.get( safeInt( ( long ) sxy * ( srcMax[ 2 ] - srcMin[ 2 ] + 1 ) ) );
+			source.copy( new FinalInterval( srcMin, srcMax ), src );
+
+			// to avoid interpolation artifacts from the outofboundsstrategy, the coordinate
+			// has to be bigger than min and smaller than max (same as AbstractTransformedIntervalRandomAccess)
+			final float minX = imgMin[ 0 ], minY = imgMin[ 1 ], minZ = imgMin[ 2 ];
+			final float maxX = imgMax[ 0 ], maxY = imgMax[ 1 ], maxZ = imgMax[ 2 ];
+			final float[] cx = c.x, cy = c.y, cz = c.z;
+
+			if ( interpolation == Interpolation.NLINEAR )
+			{
+				for ( int i = 0; i < len; ++i )
+				{
+					final float x = cx[ i ], y = cy[ i ], z = cz[ i ];
+					if ( x > minX && y > minY && z > minZ && x < maxX && y < maxY && z < maxZ )
+					{
+						final int x0 = ( int ) Math.floor( x );
+						final int y0 = ( int ) Math.floor( y );
+						final int z0 = ( int ) Math.floor( z );
+						final float fx = x - x0, fy = y - y0, fz = z - z0;
+						final int o = ( int ) ( ( z0 - srcMin[ 2 ] ) * sxy + ( y0 - srcMin[ 1 ] ) * sx + ( x0 - srcMin[ 0 ] ) );
+						final float v00 = src[ o ] + fx * ( src[ o + 1 ] - src[ o ] );
+						final float v10 = src[ o + sx ] + fx * ( src[ o + sx + 1 ] - src[ o + sx ] );
+						final float v01 = src[ o + sxy ] + fx * ( src[ o + sxy + 1 ] - src[ o + sxy ] );
+						final float v11 = src[ o + sxy + sx ] + fx * ( src[ o + sxy + sx + 1 ] - src[ o + sxy + sx ] );
+						final float v0 = v00 + fy * ( v10 - v00 );
+						final float v1 = v01 + fy * ( v11 - v01 );
+						fdest[ i ] = v0 + fz * ( v1 - v0 );
+					}
+					else
+					{
+						fdest[ i ] = 0;
+					}
+				}
+			}
+			else
+			{
+				for ( int i = 0; i < len; ++i )
+				{
+					final float x = cx[ i ], y = cy[ i ], z = cz[ i ];
+					if ( x > minX && y > minY && z > minZ && x < maxX && y < maxY && z < maxZ )
+					{
+						final long x0 = Math.round( x ) - srcMin[ 0 ];
+						final long y0 = Math.round( y ) - srcMin[ 1 ];
+						final long z0 = Math.round( z ) - srcMin[ 2 ];
+						fdest[ i ] = src[ ( int ) ( z0 * sxy + y0 * sx + x0 ) ];
+					}
+					else
+					{
+						fdest[ i ] = 0;
+					}
+				}
+			}
+		}
+
+		@Override
+		public BlockSupplier< FloatType > independentCopy()
+		{
+			return new NonRigidTransformBlockSupplier( this );
+		}
+
+		@Override
+		public int numDimensions()
+		{
+			return 3;
+		}
+
+		private static final FloatType type = new FloatType();
+
+		@Override
+		public FloatType getType()
+		{
+			return type;
+		}
+	}
+
+	private static class NonRigidBlendingBlockSupplier implements BlockSupplier< FloatType >
+	{
+		private final CoordinateField field;
+
+		private final long[] imgMin;
+
+		private final float[] b0 = new float[ 3 ], b1 = new float[ 3 ], b2 = new float[ 3 ], b3 = new float[ 3 ];
+
+		private final float[] blending;
+
+		NonRigidBlendingBlockSupplier(
+				final Interval interval,
+				final float[] border,
+				final float[] blending,
+				final CoordinateField field )
+		{
+			this.field = field;
+			this.imgMin = interval.minAsLongArray();
+
+			// same as Blending
+			for ( int d = 0; d < 3; ++d )
+			{
+				final int dim = ( int ) interval.dimension( d );
+				b0[ d ] = border[ d ];
+				b1[ d ] = border[ d ] + blending[ d ];
+				b2[ d ] = dim - 1 - border[ d ] - blending[ d ];
+				b3[ d ] = dim - 1 - border[ d ];
+
+				if ( b1[ d ] > b2[ d ] ) // there is no "inside region" where w=1
+				{
+					b1[ d ] = ( b1[ d ] + b2[ d ] ) / 2;
+					b2[ d ] = b1[ d ];
+				}
+			}
+
+			this.blending = blending.clone();
+		}
+
+		@Override
+		public void copy( final Interval interval, final Object dest )
+		{
+			final BlockInterval blockInterval = BlockInterval.asBlockInterval( interval );
+			final int len = safeInt( Intervals.numElements( blockInterval.size() ) );
+			final Coordinates c = field.get( blockInterval.min(), blockInterval.size() );
+			final float[] weights = Cast.unchecked( dest );
+
+			for ( int i = 0; i < len; ++i )
+			{
+				float w = Blending.computeWeight( c.x[ i ] - imgMin[ 0 ], blending[ 0 ], b0[ 0 ], b1[ 0 ], b2[ 0 ], b3[ 0 ] );
+				if ( w != 0 )
+					w *= Blending.computeWeight( c.y[ i ] - imgMin[ 1 ], blending[ 1 ], b0[ 1 ], b1[ 1 ], b2[ 1 ], b3[ 1 ] );
+				if ( w != 0 )
+					w *= Blending.computeWeight( c.z[ i ] - imgMin[ 2 ], blending[ 2 ], b0[ 2 ], b1[ 2 ], b2[ 2 ], b3[ 2 ] );
+				weights[ i ] = w;
+			}
+		}
+
+		@Override
+		public BlockSupplier< FloatType > threadSafe()
+		{
+			return this;
+		}
+
+		@Override
+		public BlockSupplier< FloatType > independentCopy()
+		{
+			return this;
+		}
+
+		@Override
+		public int numDimensions()
+		{
+			return 3;
+		}
+
+		private static final FloatType type = new FloatType();
+
+		@Override
+		public FloatType getType()
+		{
+			return type;
+		}
+	}
+
+	private static class NonRigidMaskingBlockSupplier implements BlockSupplier< UnsignedByteType >
+	{
+		private final CoordinateField field;
+
+		private final float[] b0 = new float[ 3 ], b3 = new float[ 3 ];
+
+		NonRigidMaskingBlockSupplier(
+				final Interval interval,
+				final float[] border,
+				final CoordinateField field )
+		{
+			this.field = field;
+
+			// same as Masking, but in absolute input coordinates
+			for ( int d = 0; d < 3; ++d )
+			{
+				b0[ d ] = interval.min( d ) + border[ d ];
+				b3[ d ] = interval.max( d ) - border[ d ];
+			}
+		}
+
+		@Override
+		public void copy( final Interval interval, final Object dest )
+		{
+			final BlockInterval blockInterval = BlockInterval.asBlockInterval( interval );
+			final int len = safeInt( Intervals.numElements( blockInterval.size() ) );
+			final Coordinates c = field.get( blockInterval.min(), blockInterval.size() );
+			final byte[] weights = ( byte[] ) dest;
+
+			for ( int i = 0; i < len; ++i )
+			{
+				final float x = c.x[ i ], y = c.y[ i ], z = c.z[ i ];
+				weights[ i ] = ( x < b0[ 0 ] || x >= b3[ 0 ] || y < b0[ 1 ] || y >= b3[ 1 ] || z < b0[ 2 ] || z >= b3[ 2 ] ) ? ( byte ) 0 : ( byte ) 1;
+			}
+		}
+
+		@Override
+		public BlockSupplier< UnsignedByteType > threadSafe()
+		{
+			return this;
+		}
+
+		@Override
+		public BlockSupplier< UnsignedByteType > independentCopy()
+		{
+			return this;
+		}
+
+		@Override
+		public int numDimensions()
+		{
+			return 3;
+		}
+
+		private static final UnsignedByteType type = new UnsignedByteType();
+
+		@Override
+		public UnsignedByteType getType()
+		{
+			return type;
+		}
+	}
+}
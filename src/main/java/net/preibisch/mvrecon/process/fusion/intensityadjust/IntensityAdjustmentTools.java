@@ -29,13 +29,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import mpicbg.models.Affine1D;
 import mpicbg.models.AffineModel1D;
 import mpicbg.models.IllDefinedDataPointsException;
 import mpicbg.models.Model;
 import mpicbg.models.NotEnoughDataPointsException;
-import mpicbg.models.Point;
 import mpicbg.models.PointMatch;
 import mpicbg.models.Tile;
 import mpicbg.models.TileConfiguration;
@@ -45,7 +48,6 @@ import mpicbg.spim.data.registration.ViewRegistration;
 import mpicbg.spim.data.sequence.ViewId;
 import net.imglib2.Cursor;
 import net.imglib2.Interval;
-import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.converter.Converters;
 import net.imglib2.realtransform.AffineTransform3D;
@@ -55,15 +57,20 @@ import net.imglib2.util.Util;
 import net.imglib2.util.ValuePair;
 import net.imglib2.view.Views;
 import net.preibisch.legacy.io.IOFunctions;
+import net.preibisch.mvrecon.Threads;
 import net.preibisch.mvrecon.fiji.spimdata.intensityadjust.IntensityAdjustments;
 import net.preibisch.mvrecon.process.fusion.FusionTools;
 import net.preibisch.mvrecon.process.fusion.transformed.TransformView;
 import net.preibisch.mvrecon.process.fusion.transformed.TransformVirtual;
 import net.preibisch.mvrecon.process.downsampling.DownsampleTools;
 import net.preibisch.mvrecon.process.interestpointregistration.pairwise.constellation.grouping.Group;
+import util.Grid;
 
 public class IntensityAdjustmentTools
 {
+	// block size for the parallel sampling of corresponding intensities
+	public static int[] defaultBlockSize = new int[] { 128, 128, 64 };
+
 	public static boolean containsAdjustments( final IntensityAdjustments adjustments, final Collection< ? extends ViewId > viewIds )
 	{
 		for ( final ViewId viewId : viewIds )
@@ -121,76 +128,176 @@ public class IntensityAdjustmentTools
 		final int m = images.size();
 
 		final HashMap< Integer, ViewId > viewMap = new HashMap<>();
-		final Cursor< FloatType > cursor = Views.iterable( images.get( 0 ) ).localizingCursor();
-		final ArrayList< RandomAccess< FloatType > > accesses = new ArrayList<>();
 
 		for ( int i = 0; i < m; ++i )
-		{
-			accesses.add( images.get( i ).randomAccess() );
 			viewMap.put( i, viewIds.get( i ) );
-		}
+
+		final IntensityReservoir[] reservoirs = sampleIntensities( images, maxMatches, Threads.numThreads() );
+
+		if ( reservoirs == null )
+			return null;
 
 		final HashMap< Pair< Integer, Integer >, ArrayList< PointMatch > > intensityMatches = new HashMap<>();
 
 		for ( int i = 0; i < m - 1; ++i )
 			for ( int j = i + 1; j < m; ++j )
-				intensityMatches.put( new ValuePair< Integer, Integer >( i, j ), new ArrayList<>() );
+			{
+				final IntensityReservoir r = reservoirs[ i * m + j ];
+				intensityMatches.put( new ValuePair< Integer, Integer >( i, j ), r == null ? new ArrayList<>() : r.toPointMatches() );
+			}
 
-		final ArrayList< Pair< Integer, Float > > values = new ArrayList<>();
+		final HashMap< ViewId, AffineModel1D > newModels = runGlobal( intensityMatches, viewMap, intensityModel );
 
-		while ( cursor.hasNext() )
+		if ( existingAdjustments != null )
 		{
-			cursor.fwd();
+			IOFunctions.println( "Updating previous intensity mappings ... " );
+
+			for ( final ViewId viewId : newModels.keySet() )
+			{
+				if ( existingAdjustments.containsKey( viewId ) )
+				{
+					final AffineModel1D updatedModel = existingAdjustments.get( viewId ).copy();
+					String out = Group.pvid( viewId ) + ": " + updatedModel + " >>> ";
+					updatedModel.preConcatenate( newModels.get( viewId ) );
+					IOFunctions.println( out + updatedModel );
+				}
+			}
+		}
 
-			values.clear();
+		return newModels;
+	}
 
-			for ( int i = 0; i < m; ++i )
+	/**
+	 * Samples corresponding intensities (both &gt;= 0) for all pairs of images. The images are processed in blocks
+	 * in parallel, each block collects a uniform sample per pair (reservoir sampling) that is merged in block order,
+	 * so the result is deterministic and at most (numThreads + 1) * maxMatches pairs of floats are kept per pair.
+	 *
+	 * @param images - all images (same interval), values &lt; 0 are outside
+	 * @param maxMatches - max number of corresponding intensities per pair
+	 * @param numThreads - number of threads
+	 * @return the reservoir for each pair (i &lt; j) at index i * m + j (null if there is no overlap), or null if the computation failed
+	 */
+	public static IntensityReservoir[] sampleIntensities(
+			final List< RandomAccessibleInterval< FloatType > > images,
+			final int maxMatches,
+			final int numThreads )
+	{
+		final int m = images.size();
+		final RandomAccessibleInterval< FloatType > first = images.get( 0 );
+		final int n = first.numDimensions();
+
+		final int[] blockSize = new int[ n ];
+		for ( int d = 0; d < n; ++d )
+			blockSize[ d ] = d < defaultBlockSize.length ? defaultBlockSize[ d ] : 64;
+
+		final List< long[][] > blocks = Grid.create( first.dimensionsAsLongArray(), blockSize );
+
+		final IntensityReservoir[] merged = new IntensityReservoir[ m * m ];
+		final Random rnd = new Random( 344 );
+		final ExecutorService service = Threads.createFixedExecutorService( numThreads );
+
+		try
+		{
+			for ( int start = 0; start < blocks.size(); start += numThreads )
 			{
-				final RandomAccess< FloatType > r = accesses.get( i );
-				r.setPosition( cursor );
+				final ArrayList< Callable< IntensityReservoir[] > > tasks = new ArrayList<>();
 
-				final float value = r.get().get();
+				for ( int b = start; b < Math.min( blocks.size(), start + numThreads ); ++b )
+				{
+					final int blockIndex = b;
+					tasks.add( () -> sampleBlock( images, blocks.get( blockIndex ), maxMatches, new Random( 344 + blockIndex ) ) );
+				}
 
-				if ( value >= 0 )
-					values.add( new ValuePair< Integer, Float >( i, value ) );
-			}
+				// merge in block order
+				for ( final Future< IntensityReservoir[] > future : service.invokeAll( tasks ) )
+				{
+					final IntensityReservoir[] r = future.get();
 
-			// there are corresponding intensities
-			if ( values.size() > 1 )
-				for ( int i = 0; i < values.size() - 1; ++i )
-					for ( int j = i + 1; j < values.size(); ++j )
+					for ( int k = 0; k < r.length; ++k )
 					{
-						final ArrayList< PointMatch > matches = intensityMatches.get( new ValuePair< Integer, Integer >( values.get( i ).getA(), values.get( j ).getA() ) );
-						matches.add( new PointMatch( new Point( new double[] { values.get( i ).getB() } ), new Point( new double[] { values.get( j ).getB() } ) ) );
+						if ( r[ k ] == null )
+							continue;
+
+						if ( merged[ k ] == null )
+							merged[ k ] = r[ k ];
+						else
+							merged[ k ].merge( r[ k ], rnd );
 					}
+				}
+			}
+		}
+		catch ( InterruptedException | ExecutionException e )
+		{
+			IOFunctions.println( "Failed to sample corresponding intensities: " + e );
+			e.printStackTrace();
+			return null;
+		}
+		finally
+		{
+			service.shutdown();
 		}
 
-		final Random rnd = new Random( 344 );
-		for ( final ArrayList< PointMatch > matches : intensityMatches.values() )
+		return merged;
+	}
+
+	protected static IntensityReservoir[] sampleBlock(
+			final List< RandomAccessibleInterval< FloatType > > images,
+			final long[][] block,
+			final int maxMatches,
+			final Random rnd )
+	{
+		final int m = images.size();
+		final int n = block[ 0 ].length;
+
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+
+		for ( int d = 0; d < n; ++d )
 		{
-			while ( matches.size() >= maxMatches )
-				matches.remove( rnd.nextInt( matches.size() ) );
+			min[ d ] = images.get( 0 ).min( d ) + block[ 0 ][ d ];
+			max[ d ] = min[ d ] + block[ 1 ][ d ] - 1;
 		}
 
-		final HashMap< ViewId, AffineModel1D > newModels = runGlobal( intensityMatches, viewMap, intensityModel );
+		// all cursors iterate the block in the same (flat) order
+		@SuppressWarnings( "unchecked" )
+		final Cursor< FloatType >[] cursors = new Cursor[ m ];
 
-		if ( existingAdjustments != null )
+		for ( int i = 0; i < m; ++i )
+			cursors[ i ] = Views.flatIterable( Views.interval( images.get( i ), min, max ) ).cursor();
+
+		final IntensityReservoir[] reservoirs = new IntensityReservoir[ m * m ];
+		final float[] values = new float[ m ];
+		final int[] index = new int[ m ];
+
+		while ( cursors[ 0 ].hasNext() )
 		{
-			IOFunctions.println( "Updating previous intensity mappings ... " );
+			int count = 0;
 
-			for ( final ViewId viewId : newModels.keySet() )
+			for ( int i = 0; i < m; ++i )
 			{
-				if ( existingAdjustments.containsKey( viewId ) )
+				final float value = cursors[ i ].next().get();
+
+				if ( value >= 0 )
 				{
-					final AffineModel1D updatedModel = existingAdjustments.get( viewId ).copy();
-					String out = Group.pvid( viewId ) + ": " + updatedModel + " >>> ";
-					updatedModel.preConcatenate( newModels.get( viewId ) );
-					IOFunctions.println( out + updatedModel );
+					values[ count ] = value;
+					index[ count++ ] = i;
 				}
 			}
+
+			// there are corresponding intensities
+			for ( int i = 0; i < count - 1; ++i )
+				for ( int j = i + 1; j < count; ++j )
+				{
+					final int k = index[ i ] * m + index[ j ];
+
+					if ( reservoirs[ k ] == null )
+						reservoirs[ k ] = new IntensityReservoir( maxMatches );
+
+					reservoirs[ k ].add( values[ i ], values[ j ], rnd );
+				}
 		}
 
-		return newModels;
+		return reservoirs;
 	}
 
 	/**
@@ -0,0 +1,167 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.process.fusion.intensityadjust;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import mpicbg.models.Point;
+import mpicbg.models.PointMatch;
+
+/**
+ * Uniform random sample (reservoir sampling) of at most maxSize corresponding intensity pairs
+ * stored in primitive float arrays. Two reservoirs can be merged into a uniform sample of the
+ * union of all pairs they have seen.
+ */
+public class IntensityReservoir
+{
+	final int maxSize;
+
+	float[] a, b;
+	int size = 0;
+	long seen = 0;
+
+	public IntensityReservoir( final int maxSize )
+	{
+		this.maxSize = Math.max( 0, maxSize );
+		this.a = new float[ Math.min( this.maxSize, 1024 ) ];
+		this.b = new float[ a.length ];
+	}
+
+	public int size() { return size; }
+	public long seen() { return seen; }
+
+	public void add( final float valueA, final float valueB, final Random rnd )
+	{
+		++seen;
+
+		if ( size < maxSize )
+		{
+			if ( size == a.length )
+			{
+				final int capacity = (int)Math.min( maxSize, Math.max( 16, size + ( (long)size >> 1 ) ) );
+				a = Arrays.copyOf( a, capacity );
+				b = Arrays.copyOf( b, capacity );
+			}
+
+			a[ size ] = valueA;
+			b[ size ] = valueB;
+			++size;
+		}
+		else
+		{
+			final long j = (long)( rnd.nextDouble() * seen );
+
+			if ( j < maxSize )
+			{
+				a[ (int)j ] = valueA;
+				b[ (int)j ] = valueB;
+			}
+		}
+	}
+
+	/**
+	 * Merges another reservoir into this one, the result is a uniform sample of all pairs seen by both.
+	 * The other reservoir is modified and must not be used afterwards.
+	 *
+	 * @param other - the other reservoir
+	 * @param rnd - the random number generator
+	 */
+	public void merge( final IntensityReservoir other, final Random rnd )
+	{
+		if ( other.seen == 0 )
+			return;
+
+		final long total = seen + other.seen;
+
+		// both are complete, just concatenate
+		if ( total <= maxSize )
+		{
+			for ( int i = 0; i < other.size; ++i )
+				add( other.a[ i ], other.b[ i ], rnd );
+
+			return;
+		}
+
+		final int newSize = maxSize;
+		final float[] newA = new float[ newSize ];
+		final float[] newB = new float[ newSize ];
+
+		// draw without replacement, the source is chosen proportional to the number of pairs it has not contributed yet,
+		// the element is chosen randomly from the remaining elements of its (uniform) sample (partial Fisher-Yates)
+		long remainingThis = seen, remainingOther = other.seen;
+		int takenThis = 0, takenOther = 0;
+
+		for ( int i = 0; i < newSize; ++i )
+		{
+			if ( (long)( rnd.nextDouble() * ( remainingThis + remainingOther ) ) < remainingThis )
+			{
+				final int j = takenThis + rnd.nextInt( size - takenThis );
+				swap( a, b, takenThis, j );
+				newA[ i ] = a[ takenThis ];
+				newB[ i ] = b[ takenThis ];
+				++takenThis;
+				--remainingThis;
+			}
+			else
+			{
+				final int j = takenOther + rnd.nextInt( other.size - takenOther );
+				swap( other.a, other.b, takenOther, j );
+				newA[ i ] = other.a[ takenOther ];
+				newB[ i ] = other.b[ takenOther ];
+				++takenOther;
+				--remainingOther;
+			}
+		}
+
+		this.a = newA;
+		this.b = newB;
+		this.size = newSize;
+		this.seen = total;
+	}
+
+	/**
+	 * @return the sampled intensity pairs as 1d PointMatches
+	 */
+	public ArrayList< PointMatch > toPointMatches()
+	{
+		final ArrayList< PointMatch > matches = new ArrayList<>( size );
+
+		for ( int i = 0; i < size; ++i )
+			matches.add( new PointMatch( new Point( new double[] { a[ i ] } ), new Point( new double[] { b[ i ] } ) ) );
+
+		return matches;
+	}
+
+	private static void swap( final float[] a, final float[] b, final int i, final int j )
+	{
+		final float ta = a[ i ];
+		a[ i ] = a[ j ];
+		a[ j ] = ta;
+
+		final float tb = b[ i ];
+		b[ i ] = b[ j ];
+		b[ j ] = tb;
+	}
+}
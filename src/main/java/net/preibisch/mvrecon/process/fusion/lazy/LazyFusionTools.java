@@ -159,6 +159,41 @@ public class LazyFusionTools {
 		return overlappingViewIds;
 	}
 
+	/**
+	 * @param allViewIds - the views
+	 * @param viewRegistrations - the (adjusted) registrations
+	 * @param viewDimensions - the dimensions of the views
+	 * @param expandOverlap - how much to expand each bounding box to be conservative
+	 * @return the expanded bounding boxes of all transformed views, e.g. to test many blocks using {@link #overlapsAny(Interval, List)}
+	 */
+	public static final ArrayList< Interval > viewBoundingBoxes(
+			final Collection< ? extends ViewId > allViewIds,
+			final Map< ? extends ViewId, ? extends AffineTransform3D > viewRegistrations,
+			final Map< ? extends ViewId, ? extends Dimensions > viewDimensions,
+			final int expandOverlap )
+	{
+		final ArrayList< Interval > boundingBoxes = new ArrayList<>();
+
+		for ( final ViewId viewId : allViewIds )
+		{
+			final AffineTransform3D t = viewRegistrations.get( viewId );
+			final Dimensions dim = viewDimensions.get( viewId );
+			final RealInterval ri = t.estimateBounds( new FinalInterval( dim ) );
+			boundingBoxes.add( Intervals.expand( Intervals.largestContainedInterval( ri ), expandOverlap ) );
+		}
+
+		return boundingBoxes;
+	}
+
+	public static boolean overlapsAny( final Interval targetBlock, final List< ? extends Interval > boundingBoxes )
+	{
+		for ( final Interval bounds : boundingBoxes )
+			if ( overlaps( targetBlock, bounds ) )
+				return true;
+
+		return false;
+	}
+
 	public static boolean overlaps( final Interval interval1, final Interval interval2 )
 	{
 		return !Intervals.isEmpty( Intervals.intersect( interval1, interval2 ) );
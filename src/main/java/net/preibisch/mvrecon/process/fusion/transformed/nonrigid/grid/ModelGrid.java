@@ -140,6 +140,13 @@ public class ModelGrid implements RealRandomAccessible< NumericAffineModel3D >
 
 	public double getAlpha() { return alpha; }
 
+	/**
+	 * @return the (zero-min) grid of affine models, the control point at grid position i is located at {@code i * controlPointDistance + min}
+	 */
+	public RandomAccessibleInterval< NumericAffineModel3D > getGrid() { return grid; }
+	public long[] getMin() { return min; }
+	public long[] getControlPointDistance() { return controlPointDistance; }
+
 	protected static final void getWorldCoordinates( final double[] pos, final Localizable l, final long[] min, final long[] controlPointDistance, final int n )
 	{
 		for ( int d = 0; d < n; ++d )
@@ -0,0 +1,218 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.process.interestpointdetection;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import mpicbg.spim.data.sequence.ImgLoader;
+import mpicbg.spim.data.sequence.MultiResolutionImgLoader;
+import mpicbg.spim.data.sequence.ViewId;
+import net.imglib2.Dimensions;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+import net.preibisch.legacy.io.IOFunctions;
+import net.preibisch.mvrecon.fiji.spimdata.intensityrange.IntensityRanges;
+import net.preibisch.mvrecon.process.downsampling.DownsampleTools;
+import net.preibisch.mvrecon.process.interestpointregistration.pairwise.constellation.grouping.Group;
+
+/**
+ * Estimates the min and max intensity of a view (used to normalize the image for the DoG) from a strided
+ * sample of the image at the resolution level the detection runs on, so the range matches the image that
+ * is normalized. A common range for all views is estimated from the lowest resolution level instead. The
+ * smallest and largest values can be clipped by a percentile to ignore e.g. hot pixels.
+ */
+public class IntensityRangeEstimation
+{
+	// take every n'th pixel in every dimension
+	public static int defaultStride = 4;
+
+	// the sample is not allowed to be larger than that, the stride is increased if necessary
+	public static int defaultMaxSamples = 1 << 22;
+
+	// percent of the samples ignored at the lower and upper end, 0 means the min and max of the sample
+	public static double defaultPercentile = 0.0;
+
+	/**
+	 * Returns the intensity range of a view from the cache, or estimates it and adds it to the cache. The
+	 * (virtually) downsampled image is only opened, just the sampled pixels are read.
+	 *
+	 * @param imgLoader - the imgloader
+	 * @param viewId - the view
+	 * @param downsampling - the downsampling the detection uses, e.g. { dsXY, dsXY, dsZ }
+	 * @param cache - where known intensity ranges are stored (e.g. {@link net.preibisch.mvrecon.fiji.spimdata.SpimData2#getIntensityRanges()}), can be null
+	 * @return { min, max }
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static double[] getOrEstimate( final ImgLoader imgLoader, final ViewId viewId, final long[] downsampling, final IntensityRanges cache )
+	{
+		final RandomAccessibleInterval img = DownsampleTools.openAndDownsample( imgLoader, viewId, downsampling, true ).getA();
+
+		return getOrEstimate( img, imgLoader, viewId, downsampling, cache );
+	}
+
+	/**
+	 * Returns the intensity range of a view from the cache, or estimates it from the lowest resolution level
+	 * (cheap for multi-resolution imgloaders, e.g. to find a common range for all views). Falls back to
+	 * {@link #getOrEstimate(ImgLoader, ViewId, long[], IntensityRanges)} if there is only one level.
+	 *
+	 * @param imgLoader - the imgloader
+	 * @param viewId - the view
+	 * @param downsampling - the downsampling the detection uses, only used for the fallback
+	 * @param cache - where known intensity ranges are stored, can be null
+	 * @return { min, max }
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static double[] getOrEstimateAtLowestLevel( final ImgLoader imgLoader, final ViewId viewId, final long[] downsampling, final IntensityRanges cache )
+	{
+		if ( !MultiResolutionImgLoader.class.isInstance( imgLoader ) )
+			return getOrEstimate( imgLoader, viewId, downsampling, cache );
+
+		final MultiResolutionImgLoader mrImgLoader = (MultiResolutionImgLoader)imgLoader;
+		final double[][] mipmapResolutions = mrImgLoader.getSetupImgLoader( viewId.getViewSetupId() ).getMipmapResolutions();
+
+		if ( mipmapResolutions.length < 2 )
+			return getOrEstimate( imgLoader, viewId, downsampling, cache );
+
+		final int level = DownsampleTools.findLowestResolutionLevel( mrImgLoader, viewId );
+		final long[] levelDownsampling = new long[ mipmapResolutions[ level ].length ];
+
+		for ( int d = 0; d < levelDownsampling.length; ++d )
+			levelDownsampling[ d ] = Math.round( mipmapResolutions[ level ][ d ] );
+
+		final RandomAccessibleInterval img = mrImgLoader.getSetupImgLoader( viewId.getViewSetupId() ).getImage( viewId.getTimePointId(), level );
+
+		// the level is small, look at every pixel (up to defaultMaxSamples)
+		return getOrEstimate( img, imgLoader, viewId, levelDownsampling, 1, cache );
+	}
+
+	/**
+	 * Returns the intensity range of a view from the cache, or estimates it from the image and adds it to the cache.
+	 *
+	 * @param img - the (downsampled) image of the view, e.g. as it is used for the detection
+	 * @param imgLoader - the imgloader img was loaded with
+	 * @param viewId - the view
+	 * @param downsampling - the downsampling of img, e.g. { dsXY, dsXY, dsZ }
+	 * @param cache - where known intensity ranges are stored (e.g. {@link net.preibisch.mvrecon.fiji.spimdata.SpimData2#getIntensityRanges()}), can be null
+	 * @param <T> - the type
+	 * @return { min, max }
+	 */
+	public static < T extends RealType< T > > double[] getOrEstimate(
+			final RandomAccessibleInterval< T > img,
+			final ImgLoader imgLoader,
+			final ViewId viewId,
+			final long[] downsampling,
+			final IntensityRanges cache )
+	{
+		return getOrEstimate( img, imgLoader, viewId, downsampling, defaultStride, cache );
+	}
+
+	protected static < T extends RealType< T > > double[] getOrEstimate(
+			final RandomAccessibleInterval< T > img,
+			final ImgLoader imgLoader,
+			final ViewId viewId,
+			final long[] downsampling,
+			final int stride,
+			final IntensityRanges cache )
+	{
+		final String key = key( imgLoader, downsampling, img );
+
+		if ( cache != null )
+		{
+			final double[] minmax = cache.getIntensityRange( viewId, key );
+
+			if ( minmax != null )
+				return minmax.clone();
+		}
+
+		final double[] minmax = minMax( img, stride, defaultPercentile );
+
+		IOFunctions.println( "(" + new Date( System.currentTimeMillis() ) + "): View " + Group.pvid( viewId ) + ", approximate Min=" + minmax[ 0 ] + " max=" + minmax[ 1 ] );
+
+		if ( cache != null )
+			cache.addIntensityRange( viewId, key, minmax[ 0 ], minmax[ 1 ] );
+
+		return minmax;
+	}
+
+	/**
+	 * A stored intensity range is only valid for the same key, i.e. if the imgloader (e.g. after resaving
+	 * or flatfield correction), the downsampling or the size of the image changed, it is estimated again.
+	 *
+	 * @param imgLoader - the imgloader
+	 * @param downsampling - the downsampling
+	 * @param img - the (downsampled) image
+	 * @return the key describing the image an intensity range is estimated from
+	 */
+	public static String key( final ImgLoader imgLoader, final long[] downsampling, final Dimensions img )
+	{
+		return imgLoader.getClass().getSimpleName() + ", downsampling=" + Arrays.toString( downsampling ) + ", dimensions=" + Arrays.toString( img.dimensionsAsLongArray() );
+	}
+
+	/**
+	 * @param img - the image
+	 * @param stride - take every n'th pixel in every dimension (increased if more than {@link #defaultMaxSamples} samples would be taken)
+	 * @param percentile - percent of the samples ignored at the lower and upper end
+	 * @param <T> - the type
+	 * @return { min, max }
+	 */
+	public static < T extends RealType< T > > double[] minMax( final RandomAccessibleInterval< T > img, final int stride, final double percentile )
+	{
+		final int n = img.numDimensions();
+
+		// make sure the sample does not get too large
+		final double numPixels = Intervals.numElements( img );
+		final int s = Math.max( Math.max( 1, stride ), (int)Math.ceil( Math.pow( numPixels / defaultMaxSamples, 1.0 / n ) ) );
+
+		final RandomAccessibleInterval< T > sample = s == 1 ? img : Views.subsample( Views.zeroMin( img ), s );
+
+		if ( percentile <= 0 )
+		{
+			double min = Double.MAX_VALUE;
+			double max = -Double.MAX_VALUE;
+
+			for ( final T t : Views.flatIterable( sample ) )
+			{
+				final double v = t.getRealDouble();
+				min = Math.min( min, v );
+				max = Math.max( max, v );
+			}
+
+			return new double[] { min, max };
+		}
+
+		final float[] values = new float[ (int)Intervals.numElements( sample ) ];
+
+		int i = 0;
+		for ( final T t : Views.flatIterable( sample ) )
+			values[ i++ ] = t.getRealFloat();
+
+		Arrays.sort( values );
+
+		final int clip = Math.min( values.length / 2, (int)Math.round( values.length * percentile / 100.0 ) );
+
+		return new double[] { values[ clip ], values[ values.length - 1 - clip ] };
+	}
+}
@@ -116,7 +116,7 @@ public class InterestPointTools
 				final InterestPoints list = lists.getInterestPointList( label );
 				int count;
 
-				if ( list.getCorrespondingInterestPointsCopy().size() > 0 )
+				if ( list.getCorrespondenceStore().size() > 0 )
 					count = 1;
 				else
 					count = 0;
@@ -26,6 +26,7 @@ import java.util.Collection;
 
 import mpicbg.spim.data.sequence.ImgLoader;
 import mpicbg.spim.data.sequence.ViewDescription;
+import net.preibisch.mvrecon.fiji.spimdata.intensityrange.IntensityRanges;
 
 public class InterestPointParameters
 {
@@ -39,6 +40,13 @@ public class InterestPointParameters
 	public double minIntensity = Double.NaN;
 	public double maxIntensity = Double.NaN;
 
+	// if min/max are not set, estimate them from a strided sample of the image the detection runs on
+	// instead of a full pass over the image (see IntensityRangeEstimation)
+	public boolean approximateMinMax = true;
+
+	// known min/max per view (e.g. SpimData2.getIntensityRanges()), estimated ones are added, can be null
+	public IntensityRanges intensityRanges = null;
+
 	public boolean limitDetections;
 	public int maxDetections;
 	public int maxDetectionsTypeIndex; // { "Brightest", "Around median (of those above threshold)", "Weakest (above threshold)" };
@@ -0,0 +1,331 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.process.interestpointdetection.methods.dog;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.Point;
+import net.imglib2.RandomAccessible;
+import net.imglib2.algorithm.gauss3.Gauss3;
+import net.imglib2.algorithm.localextrema.RefinedPeak;
+import net.imglib2.algorithm.localextrema.SubpixelLocalization;
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.iterator.LocalizingIntervalIterator;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+import net.preibisch.legacy.io.IOFunctions;
+import net.preibisch.legacy.segmentation.SimplePeak;
+import net.preibisch.mvrecon.fiji.spimdata.interestpoints.InterestPoint;
+import net.preibisch.mvrecon.fiji.spimdata.interestpoints.InterestPointValue;
+import net.preibisch.mvrecon.process.interestpointdetection.Localization;
+import util.Grid;
+
+/**
+ * Block-wise Difference-of-Gaussian detection. For every block (plus a halo) both Gaussians are computed
+ * into float arrays, the DoG is computed in place, and extrema are found and (quadratically) localized
+ * directly in that array, so only the peaks leave a block. No full-size Gauss or DoG images are created.
+ * <p>
+ * The halo is 1 pixel for the extremum search plus {@link #defaultLocalizationHalo} pixels that a peak
+ * may move during the quadratic localization (the reference implementation allows up to 10 moves, peaks
+ * that would move further than the halo stop at the border of the halo).
+ */
+public class BlockDoG
+{
+	public static int defaultLocalizationHalo = 3;
+
+	/**
+	 * @param inputFloat - the normalized input (must be defined around the interval, e.g. extended)
+	 * @param interval - the interval to detect in
+	 * @param sigma1 - sigma of the first Gaussian
+	 * @param sigma2 - sigma of the second Gaussian
+	 * @param kMin1Inv - the DoG normalization factor
+	 * @param minInitialPeakValue - threshold for the DoG extrema
+	 * @param minPeakValue - threshold after localization
+	 * @param localization - 0 (none), 1 (quadratic), 2 (gauss)
+	 * @param sigma - the initial sigma (for gauss localization)
+	 * @param findMin - find minima
+	 * @param findMax - find maxima
+	 * @param blockSize - the block size
+	 * @param service - the executor for the blocks
+	 * @return the detections
+	 */
+	public static ArrayList< InterestPoint > computeDoG(
+			final RandomAccessible< FloatType > inputFloat,
+			final Interval interval,
+			final double[] sigma1,
+			final double[] sigma2,
+			final float kMin1Inv,
+			final float minInitialPeakValue,
+			final float minPeakValue,
+			final int localization,
+			final double sigma,
+			final boolean findMin,
+			final boolean findMax,
+			final int[] blockSize,
+			final ExecutorService service )
+	{
+		final int n = interval.numDimensions();
+		final List< long[][] > grid = Grid.create( interval.dimensionsAsLongArray(), blockSize );
+
+		// extrema are only searched one pixel inside the interval
+		final Interval searchInterval = Intervals.expand( interval, -1 );
+
+		final ArrayList< Callable< BlockResult > > tasks = new ArrayList<>();
+
+		for ( final long[][] gridBlock : grid )
+		{
+			final long[] min = new long[ n ];
+			final long[] max = new long[ n ];
+
+			for ( int d = 0; d < n; ++d )
+			{
+				min[ d ] = interval.min( d ) + gridBlock[ 0 ][ d ];
+				max[ d ] = min[ d ] + gridBlock[ 1 ][ d ] - 1;
+			}
+
+			tasks.add( () -> processBlock(
+					inputFloat, interval, searchInterval, new FinalInterval( min, max ),
+					sigma1, sigma2, kMin1Inv, minInitialPeakValue, localization == 1, findMin, findMax ) );
+		}
+
+		final ArrayList< SimplePeak > peaks = new ArrayList<>();
+		final ArrayList< RefinedPeak< Point > > refined = new ArrayList<>();
+
+		try
+		{
+			// combined in block order
+			for ( final Future< BlockResult > future : service.invokeAll( tasks ) )
+			{
+				final BlockResult result = future.get();
+				peaks.addAll( result.peaks );
+				refined.addAll( result.refined );
+			}
+		}
+		catch ( InterruptedException | ExecutionException e )
+		{
+			IOFunctions.println( "Failed to compute block-wise DoG: " + e );
+			e.printStackTrace();
+			return new ArrayList<>();
+		}
+
+		if ( !DoGImgLib2.silent )
+			IOFunctions.println("(" + new Date(System.currentTimeMillis()) + "): Found " + peaks.size() + " initial peaks (before refinement) in " + grid.size() + " blocks." );
+
+		if ( localization == 0 )
+			return Localization.noLocalization( peaks, findMin, findMax, true );
+		else if ( localization == 2 )
+			return Localization.computeGaussLocalization( peaks, null, sigma, findMin, findMax, minPeakValue, true );
+
+		// same as Localization.computeQuadraticLocalization()
+		final ArrayList< InterestPoint > finalPeaks = new ArrayList<>();
+		int id = 0;
+
+		for ( final RefinedPeak< Point > r : refined )
+		{
+			if ( Math.abs( r.getValue() ) > minPeakValue )
+			{
+				final double[] tmp = new double[ n ];
+				for ( int d = 0; d < n; ++d )
+					tmp[ d ] = r.getDoublePosition( d );
+
+				finalPeaks.add( new InterestPointValue( id++, tmp, r.getValue() ) );
+			}
+		}
+
+		return finalPeaks;
+	}
+
+	private static class BlockResult
+	{
+		final ArrayList< SimplePeak > peaks = new ArrayList<>();
+		final ArrayList< RefinedPeak< Point > > refined = new ArrayList<>();
+	}
+
+	protected static BlockResult processBlock(
+			final RandomAccessible< FloatType > inputFloat,
+			final Interval interval,
+			final Interval searchInterval,
+			final Interval block,
+			final double[] sigma1,
+			final double[] sigma2,
+			final float kMin1Inv,
+			final float minInitialPeakValue,
+			final boolean quadraticLocalization,
+			final boolean findMin,
+			final boolean findMax ) throws IncompatibleTypeException
+	{
+		final int n = block.numDimensions();
+		final BlockResult result = new BlockResult();
+
+		final Interval search = Intervals.intersect( block, searchInterval );
+
+		if ( Intervals.isEmpty( search ) )
+			return result;
+
+		// the region the DoG is computed for
+		final int halo = 1 + ( quadraticLocalization ? defaultLocalizationHalo : 0 );
+		final Interval region = Intervals.intersect( Intervals.expand( block, halo ), interval );
+		final long[] regionMin = region.minAsLongArray();
+
+		final ArrayImg< FloatType, FloatArray > g2 = ArrayImgs.floats( region.dimensionsAsLongArray() );
+		final ArrayImg< FloatType, FloatArray > g1 = ArrayImgs.floats( region.dimensionsAsLongArray() );
+
+		Gauss3.gauss( sigma2, inputFloat, Views.translate( g2, regionMin ), 1 );
+		Gauss3.gauss( sigma1, inputFloat, Views.translate( g1, regionMin ), 1 );
+
+		// DoG in place
+		final float[] dog = g2.update( null ).getCurrentStorageArray();
+		final float[] gauss1 = g1.update( null ).getCurrentStorageArray();
+
+		for ( int i = 0; i < dog.length; ++i )
+			dog[ i ] = ( dog[ i ] - gauss1[ i ] ) * kMin1Inv;
+
+		// strides and offsets of the 3^n-1 neighbors
+		final long[] dim = region.dimensionsAsLongArray();
+		final int[] stride = new int[ n ];
+		stride[ 0 ] = 1;
+		for ( int d = 1; d < n; ++d )
+			stride[ d ] = stride[ d - 1 ] * (int)dim[ d - 1 ];
+
+		final int[] neighbors = neighborOffsets( stride );
+
+		// find extrema, same criteria as DoGImgLib2.findPeaks()
+		final LocalizingIntervalIterator it = new LocalizingIntervalIterator( search );
+		final int[] position = new int[ n ];
+
+		while ( it.hasNext() )
+		{
+			it.fwd();
+			it.localize( position );
+
+			int index = 0;
+			for ( int d = 0; d < n; ++d )
+				index += ( position[ d ] - regionMin[ d ] ) * stride[ d ];
+
+			final float center = dog[ index ];
+
+			// it can never be a desired peak as it is too low
+			if ( Math.abs( center ) < minInitialPeakValue )
+				continue;
+
+			boolean isMin = true;
+			boolean isMax = true;
+
+			for ( int k = 0; k < neighbors.length && ( isMin || isMax ); ++k )
+			{
+				final float value = dog[ index + neighbors[ k ] ];
+				isMin &= ( value >= center );
+				isMax &= ( value <= center );
+			}
+
+			// this mixup is intended, a minimum in the 2nd derivation is a maxima in image space and vice versa
+			if ( isMin )
+				result.peaks.add( new SimplePeak( position, Math.abs( center ), false, true ) );
+			else if ( isMax )
+				result.peaks.add( new SimplePeak( position, Math.abs( center ), true, false ) );
+		}
+
+		if ( !quadraticLocalization || result.peaks.size() == 0 )
+			return result;
+
+		// quadratic localization on the DoG of this block, peaks may only move where the DoG is known
+		// (at the border of the interval the DoG is mirrored, same as Localization.computeQuadraticLocalization)
+		final long[] validMin = new long[ n ];
+		final long[] validMax = new long[ n ];
+
+		for ( int d = 0; d < n; ++d )
+		{
+			validMin[ d ] = region.min( d ) == interval.min( d ) ? region.min( d ) : region.min( d ) + 1;
+			validMax[ d ] = region.max( d ) == interval.max( d ) ? region.max( d ) : region.max( d ) - 1;
+		}
+
+		final ArrayList< Point > peakList = new ArrayList<>();
+
+		for ( final SimplePeak peak : result.peaks )
+			if ( ( peak.isMax && findMax ) || ( peak.isMin && findMin ) )
+				peakList.add( new Point( peak.location ) );
+
+		final SubpixelLocalization< Point, FloatType > spl = new SubpixelLocalization<>( n );
+		spl.setAllowMaximaTolerance( true );
+		spl.setMaxNumMoves( 10 );
+
+		result.refined.addAll( SubpixelLocalization.refinePeaks(
+				peakList,
+				Views.extendMirrorDouble( Views.translate( g2, regionMin ) ),
+				new FinalInterval( validMin, validMax ),
+				spl.getReturnInvalidPeaks(),
+				spl.getMaxNumMoves(),
+				spl.getAllowMaximaTolerance(),
+				spl.getMaximaTolerance(),
+				spl.getAllowedToMoveInDim() ) );
+
+		return result;
+	}
+
+	/**
+	 * @param stride - the strides of the array
+	 * @return the index offsets of all 3^n-1 neighbors
+	 */
+	protected static int[] neighborOffsets( final int[] stride )
+	{
+		final int n = stride.length;
+		final int numNeighbors = (int)Math.round( Math.pow( 3, n ) ) - 1;
+		final int[] offsets = new int[ numNeighbors ];
+		final int[] o = new int[ n ];
+
+		int k = 0;
+
+		for ( int i = 0; i <= numNeighbors; ++i )
+		{
+			// i in base 3, digit-1 is the offset in each dimension
+			int tmp = i;
+			boolean center = true;
+			int offset = 0;
+
+			for ( int d = 0; d < n; ++d )
+			{
+				o[ d ] = tmp % 3 - 1;
+				tmp /= 3;
+				center &= o[ d ] == 0;
+				offset += o[ d ] * stride[ d ];
+			}
+
+			if ( !center )
+				offsets[ k++ ] = offset;
+		}
+
+		return offsets;
+	}
+}
@@ -22,9 +22,15 @@
  */
 package net.preibisch.mvrecon.process.interestpointdetection.methods.dog;
 
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import ij.IJ;
 import mpicbg.spim.data.sequence.ViewDescription;
@@ -32,20 +38,37 @@ import mpicbg.spim.data.sequence.ViewId;
 import net.imglib2.FinalInterval;
 import net.imglib2.RandomAccessible;
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImg;
 import net.imglib2.realtransform.AffineTransform3D;
 import net.imglib2.type.NativeType;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Intervals;
 import net.imglib2.util.Pair;
+import net.imglib2.util.Util;
+import net.imglib2.util.ValuePair;
 import net.imglib2.view.Views;
 import net.preibisch.legacy.io.IOFunctions;
 import net.preibisch.mvrecon.Threads;
 import net.preibisch.mvrecon.fiji.spimdata.interestpoints.InterestPoint;
 import net.preibisch.mvrecon.process.downsampling.DownsampleTools;
+import net.preibisch.mvrecon.process.fusion.FusionTools;
+import net.preibisch.mvrecon.process.interestpointdetection.IntensityRangeEstimation;
 import net.preibisch.mvrecon.process.interestpointdetection.InterestPointTools;
 
 public class DoG
 {
+	// how many views are processed at once, <= 0 means automatic (number of threads / 4)
+	public static int defaultNumConcurrentViews = 0;
+
+	// fraction of the max heap that views loaded ahead of their detection may use
+	public static double defaultMemoryFraction = 0.5;
+
 	final DoGParameters dog;
 
 	public DoG( final DoGParameters dog )
@@ -122,79 +145,222 @@ public class DoG
 		return ips;
 	}
 
+	/**
+	 * Detects interest points in all views of dog.toProcess. Several views are processed concurrently
+	 * ({@link #defaultNumConcurrentViews}), all of them share one thread pool for the computation
+	 * ({@link Threads#numThreads()}). Views are loaded (and downsampled) in order by a separate thread
+	 * ahead of the computation as long as their estimated size fits into the memory budget
+	 * ({@link #defaultMemoryFraction} of the max heap), so I/O and computation overlap. The detections
+	 * of each view do not depend on how many views are processed at once.
+	 *
+	 * @param interestPoints - the map to add the detections to
+	 * @param dog - the parameters
+	 */
 	public static void addInterestPoints( final HashMap< ViewId, List< InterestPoint > > interestPoints, final DoGParameters dog )
 	{
 		if ( dog.showProgress() )
 			IJ.showProgress( dog.showProgressMin );
 
-		int count = 1;
-
 		// TODO: special iterator that takes into account missing views
+		final ArrayList< ViewDescription > views = new ArrayList<>();
+
 		for ( final ViewDescription vd : dog.toProcess )
+			if ( vd.isPresent() )
+				views.add( vd );
+
+		final int numThreads = Threads.numThreads();
+
+		// the GPU is not shared
+		final int numConcurrentViews = Math.max( 1, Math.min( views.size(),
+				dog.cuda != null ? 1 : ( defaultNumConcurrentViews > 0 ? defaultNumConcurrentViews : numThreads / 4 ) ) );
+
+		final int budgetMB = (int)Math.max( 1, Math.min( Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() * defaultMemoryFraction / ( 1024 * 1024 ) ) );
+		final Semaphore memory = new Semaphore( budgetMB, true );
+
+		if ( views.size() > 1 )
+			IOFunctions.println( "(" + new Date( System.currentTimeMillis() ) + "): Detecting in " + views.size() + " views, " +
+					numConcurrentViews + " at once, " + numThreads + " threads, memory budget for prefetching " + budgetMB + " MB." );
+
+		final ExecutorService service = Threads.createFixedExecutorService( numThreads );
+		final ExecutorService loader = Threads.createFixedExecutorService( 1 );
+		final ExecutorService viewService = Threads.createFixedExecutorService( numConcurrentViews );
+
+		final AtomicInteger count = new AtomicInteger( 1 );
+		final ArrayList< Future< ? > > futures = new ArrayList<>();
+
+		for ( final ViewDescription vd : views )
+		{
+			final int requiredMB = Math.min( budgetMB, estimateMB( vd, dog ) );
+
+			// filled by the loader if not provided, visible to the detection after loaded.get()
+			final double[] minmax = new double[] { dog.minIntensity, dog.maxIntensity };
+
+			// load (and downsample) in order, ahead of the detection, limited by the memory budget
+			@SuppressWarnings({"rawtypes", "unchecked" })
+			final Future< Pair< RandomAccessibleInterval, AffineTransform3D > > loaded = loader.submit( () ->
+			{
+				memory.acquire( requiredMB );
+
+				try
+				{
+					final long[] downsampling = new long[] { dog.downsampleXY, dog.downsampleXY, dog.downsampleZ };
+
+					// downsampling is not virtual!
+					final Pair< RandomAccessibleInterval, AffineTransform3D > input = DownsampleTools.openAndDownsample(
+							dog.imgloader,
+							vd,
+							downsampling,
+							false );
+
+					// without downsampling (or if a mipmap level matches) the image is still loaded lazily
+					final RandomAccessibleInterval img = load( input.getA(), service );
+
+					// estimated from the image that is normalized, no additional I/O
+					if ( dog.approximateMinMax && ( Double.isNaN( minmax[ 0 ] ) || Double.isNaN( minmax[ 1 ] ) ) )
+					{
+						final double[] range = IntensityRangeEstimation.getOrEstimate( img, dog.imgloader, vd, downsampling, dog.intensityRanges );
+						minmax[ 0 ] = range[ 0 ];
+						minmax[ 1 ] = range[ 1 ];
+					}
+
+					return new ValuePair<>( img, input.getB() );
+				}
+				catch ( Throwable e )
+				{
+					memory.release( requiredMB );
+					throw e;
+				}
+			});
+
+			futures.add( viewService.submit( () ->
+			{
+				// make sure not everything crashes if one file is missing
+				try
+				{
+					@SuppressWarnings({"rawtypes" })
+					final Pair< RandomAccessibleInterval, AffineTransform3D > input = loaded.get();
+
+					try
+					{
+						final List< InterestPoint > ips = detect( input, minmax[ 0 ], minmax[ 1 ], dog, service );
+
+						synchronized ( interestPoints )
+						{
+							interestPoints.put( vd, ips );
+						}
+					}
+					finally
+					{
+						memory.release( requiredMB );
+					}
+				}
+				catch ( Exception e )
+				{
+					IOFunctions.println( "An error occured (DOG): " + e );
+					IOFunctions.println( "Failed to segment angleId: "
+							+ vd.getViewSetup().getAngle().getId() + " channelId: "
+							+ vd.getViewSetup().getChannel().getId() + " illumId: "
+							+ vd.getViewSetup().getIllumination().getId()
+							+ ". Continuing with next one." );
+					e.printStackTrace();
+				}
+
+				if ( dog.showProgress() )
+					IJ.showProgress( dog.showProgressMin + 
+							( (double)(count.getAndIncrement()) / (double)dog.toProcess.size() ) / ( dog.showProgressMax - dog.showProgressMin ) );
+			}) );
+		}
+
+		for ( final Future< ? > future : futures )
 		{
-			// make sure not everything crashes if one file is missing
 			try
 			{
-				//
-				// open the corresponding image (if present at this timepoint)
-				//
-				if ( !vd.isPresent() )
-					continue;
-
-				final ExecutorService service = Threads.createFixedExecutorService( Threads.numThreads() );
-
-				// downsampling is not virtual!
-				@SuppressWarnings({"rawtypes" })
-				final Pair<RandomAccessibleInterval, AffineTransform3D> input =
-						DownsampleTools.openAndDownsample(
-								dog.imgloader,
-								vd,
-								new long[] { dog.downsampleXY, dog.downsampleXY, dog.downsampleZ },
-								false );
-
-				List< InterestPoint > ips = DoGImgLib2.computeDoG(
-							(RandomAccessible)Views.extendMirrorSingle( input.getA() ),
-							null, // mask
-							new FinalInterval( input.getA() ),
-							dog.sigma,
-							dog.threshold,
-							dog.localization,
-							dog.findMin,
-							dog.findMax,
-							dog.minIntensity,
-							dog.maxIntensity,
-							DoGImgLib2.blockSize,
-							service,
-							dog.cuda,
-							dog.deviceCUDA,
-							dog.accurateCUDA,
-							dog.percentGPUMem );
-
-				service.shutdown();
-
-				if ( dog.limitDetections )
-					ips = InterestPointTools.limitList( dog.maxDetections, dog.maxDetectionsTypeIndex, ips );
-
-				DownsampleTools.correctForDownsampling( ips, input.getB() );
-
-				interestPoints.put( vd, ips );
-			} catch ( Exception e )
+				future.get();
+			}
+			catch ( InterruptedException | ExecutionException e )
 			{
 				IOFunctions.println( "An error occured (DOG): " + e );
-				IOFunctions.println( "Failed to segment angleId: "
-						+ vd.getViewSetup().getAngle().getId() + " channelId: "
-						+ vd.getViewSetup().getChannel().getId() + " illumId: "
-						+ vd.getViewSetup().getIllumination().getId()
-						+ ". Continuing with next one." );
 				e.printStackTrace();
 			}
-
-			if ( dog.showProgress() )
-				IJ.showProgress( dog.showProgressMin + 
-						( (double)(count++) / (double)dog.toProcess.size() ) / ( dog.showProgressMax - dog.showProgressMin ) );
 		}
 
+		viewService.shutdown();
+		loader.shutdown();
+		service.shutdown();
+
 		if ( dog.showProgress() )
 			IJ.showProgress( dog.showProgressMax );
 	}
+
+	/**
+	 * @param img - the (downsampled) image of a view
+	 * @param service - for copying
+	 * @return img if it is already in memory, otherwise an in-memory copy so it is read before the detection
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	protected static RandomAccessibleInterval load( final RandomAccessibleInterval img, final ExecutorService service )
+	{
+		if ( img instanceof ArrayImg || img instanceof PlanarImg || img instanceof CellImg )
+			return img;
+
+		final NativeType type = (NativeType)Util.getTypeFromInterval( img );
+		final ImgFactory factory;
+
+		if ( Intervals.numElements( img ) <= Integer.MAX_VALUE )
+			factory = new ArrayImgFactory( type );
+		else
+			factory = new CellImgFactory( type );
+
+		return FusionTools.copyImg( img, factory, type, service );
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	protected static List< InterestPoint > detect(
+			final Pair< RandomAccessibleInterval, AffineTransform3D > input,
+			final double minIntensity,
+			final double maxIntensity,
+			final DoGParameters dog,
+			final ExecutorService service )
+	{
+		List< InterestPoint > ips = DoGImgLib2.computeDoG(
+					(RandomAccessible)Views.extendMirrorSingle( input.getA() ),
+					null, // mask
+					new FinalInterval( input.getA() ),
+					dog.sigma,
+					dog.threshold,
+					dog.localization,
+					dog.findMin,
+					dog.findMax,
+					minIntensity,
+					maxIntensity,
+					DoGImgLib2.blockSize,
+					service,
+					dog.cuda,
+					dog.deviceCUDA,
+					dog.accurateCUDA,
+					dog.percentGPUMem );
+
+		if ( dog.limitDetections )
+			ips = InterestPointTools.limitList( dog.maxDetections, dog.maxDetectionsTypeIndex, ips );
+
+		DownsampleTools.correctForDownsampling( ips, input.getB() );
+
+		return ips;
+	}
+
+	/**
+	 * @return estimated memory in MB for the downsampled image of a view (as float, ignoring downsampling relative to z)
+	 */
+	protected static int estimateMB( final ViewDescription vd, final DoGParameters dog )
+	{
+		if ( !vd.getViewSetup().hasSize() )
+			return 1;
+
+		double numPixels = 1;
+
+		for ( int d = 0; d < vd.getViewSetup().getSize().numDimensions(); ++d )
+			numPixels *= vd.getViewSetup().getSize().dimension( d ) / (double)Math.max( 1, d < 2 ? dog.downsampleXY : dog.downsampleZ );
+
+		return (int)Math.min( Integer.MAX_VALUE, Math.ceil( numPixels * 4 / ( 1024 * 1024 ) ) );
+	}
 }
@@ -87,6 +87,9 @@ public class DoGImgLib2
 {
 	public static boolean silent = false;
 	public static int[] blockSize = new int[] {96, 96, 64};
+
+	// use the fused block-wise engine (BlockDoG) if there is no mask and no CUDA
+	public static boolean useBlockDoG = true;
 	public static enum SpecialPoint { INVALID, MIN, MAX };
 
 	public static void main ( String[] args )
@@ -219,6 +222,18 @@ public class DoGImgLib2
 			IOFunctions.println( "(" + new Date(System.currentTimeMillis()) + "): computing DoG with (sigma=" + initialSigma + ", " +
 				"threshold=" + minPeakValue + ", sigma1=" + Util.printCoordinates( sigma1 ) + ", sigma2=" + Util.printCoordinates( sigma2 ) + ")" );
 
+		if ( mask == null && cuda == null && useBlockDoG )
+		{
+			final ArrayList< InterestPoint > finalPeaks = BlockDoG.computeDoG(
+					inputFloat, interval, sigma1, sigma2, K_MIN1_INV, minInitialPeakValue, minPeakValue,
+					localization, sigma, findMin, findMax, blockSize, service );
+
+			if ( !silent )
+				IOFunctions.println("(" + new Date(System.currentTimeMillis()) + "): Found " + finalPeaks.size() + " final peaks." );
+
+			return finalPeaks;
+		}
+
 		final long[] minInterval = new long[ inputFloat.numDimensions() ];
 		interval.min( minInterval );
 
@@ -25,9 +25,9 @@ package net.preibisch.mvrecon.process.interestpointregistration;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -68,9 +68,10 @@ import net.imglib2.util.ValuePair;
 import net.preibisch.legacy.io.IOFunctions;
 import net.preibisch.mvrecon.fiji.spimdata.ViewSetupUtils;
 import net.preibisch.mvrecon.fiji.spimdata.boundingbox.BoundingBox;
-import net.preibisch.mvrecon.fiji.spimdata.interestpoints.CorrespondingInterestPoints;
+import net.preibisch.mvrecon.fiji.spimdata.interestpoints.CorrespondenceStore;
 import net.preibisch.mvrecon.fiji.spimdata.interestpoints.InterestPoint;
 import net.preibisch.mvrecon.fiji.spimdata.interestpoints.InterestPoints;
+import net.preibisch.mvrecon.fiji.spimdata.interestpoints.InterestPointStore;
 import net.preibisch.mvrecon.fiji.spimdata.interestpoints.ViewInterestPointLists;
 import net.preibisch.mvrecon.process.boundingbox.BoundingBoxMaximal;
 import net.preibisch.mvrecon.process.interestpointregistration.pairwise.constellation.grouping.Group;
@@ -711,10 +712,14 @@ public class TransformationTools
 			final boolean transform )
 	{
 		final HashMap< String, List< InterestPoint > > lists = new HashMap<>();
+		final AffineTransform3D t = transform ? getTransform( viewId, registrations ) : null;
 
 		labelMap.get( viewId ).forEach( ( label, weight ) -> {
 
-			final List< InterestPoint > listLocal = interestpoints.get( viewId ).getInterestPointList( label ).getInterestPointsCopy();
+			final InterestPoints ipList = interestpoints.get( viewId ).getInterestPointList( label );
+
+			// transformed points are created straight from the columns, no local copy is needed
+			final List< InterestPoint > listLocal = t == null ? ipList.getInterestPointsCopy() : applyTransformation( ipList.getInterestPointStore(), t );
 
 			lists.put( label, listLocal );
 
@@ -727,15 +732,7 @@ public class TransformationTools
 			}
 		});
 
-		if ( transform )
-		{
-			final AffineTransform3D t = getTransform( viewId, registrations );
-			return applyTransformation( lists, t );
-		}
-		else
-		{
-			return lists;
-		}
+		return lists;
 	}
 
 	/* call this method to load interestpoints and apply current transformation */
@@ -757,7 +754,7 @@ public class TransformationTools
 			final boolean transform )
 	{
 		final InterestPoints ipList = interestpoints.get( viewId ).getInterestPointList( labelMap.get( viewId ) );
-		final List< InterestPoint > allPoints = ipList.getInterestPointsCopy();
+		final InterestPointStore allPoints = ipList.getInterestPointStore();
 		final ArrayList< InterestPoint > corrPoints = new ArrayList<>();
 
 		if ( allPoints == null )
@@ -771,24 +768,27 @@ public class TransformationTools
 		}
 
 		// keep only those interest points who have correspondences
-		final HashSet< Integer > idSet = new HashSet<>();
+		final CorrespondenceStore corr = ipList.getCorrespondenceStore();
+		final int[] ids = Arrays.copyOf( corr.getDetectionIdArray(), corr.size() );
+		Arrays.sort( ids );
 
-		for ( final CorrespondingInterestPoints cip : ipList.getCorrespondingInterestPointsCopy() )
-			idSet.add( cip.getDetectionId() );
+		final AffineTransform3D t = transform ? getTransform( viewId, registrations ) : null;
+		final double[] l = new double[ allPoints.numDimensions() ];
 
-		for ( final InterestPoint ip : allPoints )
-			if ( idSet.contains( ip.getId() ) )
-				corrPoints.add( ip );
+		// only the points with correspondences are created
+		for ( int i = 0; i < allPoints.size(); ++i )
+			if ( Arrays.binarySearch( ids, allPoints.getId( i ) ) >= 0 )
+			{
+				allPoints.localize( i, l );
 
-		if ( transform )
-		{
-			final AffineTransform3D t = getTransform( viewId, registrations );
-			return applyTransformation( corrPoints, t );
-		}
-		else
-		{
-			return corrPoints;
-		}
+				final double[] lt = l.clone();
+				if ( t != null )
+					t.apply( l, lt );
+
+				corrPoints.add( new InterestPoint( allPoints.getId( i ), lt ) );
+			}
+
+		return corrPoints;
 	}
 
 	public static <V> AffineTransform3D getTransform( final V viewId, final Map< V, ViewRegistration > registrations )
@@ -822,6 +822,24 @@ public class TransformationTools
 		return transformedList;
 	}
 
+	public static List< InterestPoint > applyTransformation( final InterestPointStore store, final AffineTransform3D m )
+	{
+		final ArrayList< InterestPoint > transformedList = new ArrayList<>( store.size() );
+		final double[] tmp = new double[ 3 ];
+
+		for ( int i = 0; i < store.size(); ++i )
+		{
+			store.localize( i, tmp );
+
+			final double[] l = new double[ 3 ];
+			m.apply( tmp, l );
+
+			transformedList.add( new InterestPoint( store.getId( i ), l ) );
+		}
+
+		return transformedList;
+	}
+
 	public static <V> void storeTransformation(
 			final ViewRegistration vr,
 			final V viewId,
@@ -0,0 +1,164 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.process.interestpointregistration.global;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import mpicbg.models.ErrorStatistic;
+import mpicbg.models.IllDefinedDataPointsException;
+import mpicbg.models.Model;
+import mpicbg.models.NotEnoughDataPointsException;
+import mpicbg.models.Tile;
+import mpicbg.models.TileConfiguration;
+import net.preibisch.legacy.io.IOFunctions;
+import net.preibisch.mvrecon.process.interestpointregistration.global.convergence.ConvergenceStrategy;
+
+/**
+ * Multi-threaded alternative to {@link TileConfiguration#optimizeSilently(ErrorStatistic, double, int, int)}.
+ * <p>
+ * Each iteration is a (damped) Jacobi step: first all free tiles fit their model in parallel against the
+ * current world coordinates of their neighbors, then all tiles apply their new model in parallel, and
+ * finally all tile errors are updated in parallel. Since no tile sees a model of the current iteration
+ * of another tile, the result does not depend on the number of threads or the order of the tiles.
+ * The same convergence criteria (max error, max iterations, plateau width) as in mpicbg are used.
+ */
+public class ConcurrentTileOptimizer
+{
+	// how much a tile moves its points towards the new model per iteration, undamped Jacobi can oscillate
+	public static double defaultDamp = 0.75;
+
+	// print error and timing every n iterations
+	public static int defaultReportInterval = 100;
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static void optimize( final TileConfiguration tc, final ConvergenceStrategy cs ) throws NotEnoughDataPointsException, IllDefinedDataPointsException
+	{
+		final ArrayList< Tile< ? > > tiles = new ArrayList<>( tc.getTiles() );
+		final ArrayList< Tile< ? > > freeTiles = new ArrayList<>();
+
+		for ( final Tile< ? > tile : tiles )
+			if ( !tc.getFixedTiles().contains( tile ) )
+				freeTiles.add( tile );
+
+		final Model[] newModels = new Model[ freeTiles.size() ];
+
+		final int maxIterations = cs.getMaxIterations();
+		final int maxPlateauwidth = cs.getMaxPlateauWidth();
+		final ErrorStatistic observer = new ErrorStatistic( maxPlateauwidth + 1 );
+
+		final ForkJoinPool pool = new ForkJoinPool( cs.getNumThreads() );
+
+		IOFunctions.println( "(" + new Date( System.currentTimeMillis() ) + "): Concurrent global optimization of " + tiles.size() + " tiles using " + cs.getNumThreads() + " threads." );
+
+		try
+		{
+			// initialize the configuration with the current model of each tile
+			pool.submit( () -> tiles.parallelStream().forEach( t -> t.apply() ) ).get();
+
+			long time = System.currentTimeMillis();
+			int i = 0;
+			boolean proceed = i < maxIterations;
+
+			while ( proceed )
+			{
+				// fit all free tiles to the current world coordinates of their neighbors
+				pool.submit( () -> IntStream.range( 0, freeTiles.size() ).parallel().forEach( j ->
+				{
+					final Tile< ? > tile = freeTiles.get( j );
+					final Model model = tile.getModel().copy();
+
+					try
+					{
+						model.fit( tile.getMatches() );
+						newModels[ j ] = model;
+					}
+					catch ( NotEnoughDataPointsException | IllDefinedDataPointsException e )
+					{
+						newModels[ j ] = null;
+					}
+				}) ).get();
+
+				// apply the new models (every point belongs to exactly one tile)
+				pool.submit( () -> IntStream.range( 0, freeTiles.size() ).parallel().forEach( j ->
+				{
+					if ( newModels[ j ] == null )
+						return;
+
+					final Tile tile = freeTiles.get( j );
+					tile.getModel().set( newModels[ j ] );
+					tile.apply( defaultDamp );
+				}) ).get();
+
+				// update the errors of all tiles
+				pool.submit( () -> tiles.parallelStream().forEach( t -> t.updateCost() ) ).get();
+
+				double error = 0;
+				for ( final Tile< ? > tile : tiles )
+					error += tile.getDistance();
+				error /= tiles.size();
+
+				observer.add( error );
+
+				if ( i > maxPlateauwidth )
+				{
+					proceed = error > cs.getMaxError();
+
+					int d = maxPlateauwidth;
+					while ( !proceed && d >= 1 )
+					{
+						proceed |= Math.abs( observer.getWideSlope( d ) ) > 0.0001;
+						d /= 2;
+					}
+				}
+
+				proceed &= ++i < maxIterations;
+
+				if ( i % defaultReportInterval == 0 || !proceed )
+				{
+					final long now = System.currentTimeMillis();
+					final int n = i % defaultReportInterval == 0 ? defaultReportInterval : i % defaultReportInterval;
+
+					IOFunctions.println( "(" + new Date( now ) + "): iteration " + i + ", avg error: " + error + "px, " +
+							( ( now - time ) / (double)n ) + " ms/iteration" );
+
+					time = now;
+				}
+			}
+		}
+		catch ( InterruptedException | ExecutionException e )
+		{
+			throw new RuntimeException( "Concurrent global optimization failed: " + e, e );
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+
+		// one sequential, undamped iteration that applies the final models and updates the errors of the TileConfiguration
+		tc.optimizeSilently( new ErrorStatistic( 2 ), cs.getMaxError(), 1, 1 );
+	}
+}
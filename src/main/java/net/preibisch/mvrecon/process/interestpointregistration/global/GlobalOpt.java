@@ -107,9 +107,7 @@ public class GlobalOpt
 			else
 				IOFunctions.println( "(" + new Date( System.currentTimeMillis() ) + "): prealigned all tiles" );
 
-			System.out.println( "new code ... ");
-
-			tc.optimizeSilently(new ErrorStatistic( cs.getMaxPlateauWidth() + 1 ), cs.getMaxError(), cs.getMaxIterations(), cs.getMaxPlateauWidth() );
+			optimize( tc, cs );
 			//tc.optimize( cs.getMaxError(), cs.getMaxIterations(), cs.getMaxPlateauWidth() );
 
 			IOFunctions.println( "(" + new Date( System.currentTimeMillis() ) + "): Global optimization of " + 
@@ -147,6 +145,26 @@ public class GlobalOpt
 		return map;
 	}
 
+	/**
+	 * Optimizes the TileConfiguration, sequentially or concurrently depending on {@link ConvergenceStrategy#getNumThreads()}.
+	 *
+	 * @param tc - the tile configuration
+	 * @param cs - the convergence strategy
+	 * @throws NotEnoughDataPointsException - if a model cannot be fit
+	 * @throws IllDefinedDataPointsException - if a model cannot be fit
+	 */
+	public static void optimize( final TileConfiguration tc, final ConvergenceStrategy cs ) throws NotEnoughDataPointsException, IllDefinedDataPointsException
+	{
+		final long time = System.currentTimeMillis();
+
+		if ( cs.getNumThreads() > 1 )
+			ConcurrentTileOptimizer.optimize( tc, cs );
+		else
+			tc.optimizeSilently( new ErrorStatistic( cs.getMaxPlateauWidth() + 1 ), cs.getMaxError(), cs.getMaxIterations(), cs.getMaxPlateauWidth() );
+
+		IOFunctions.println( "(" + new Date( System.currentTimeMillis() ) + "): Optimization took " + ( System.currentTimeMillis() - time ) + " ms." );
+	}
+
 	public static < M extends Model< M > > Pair< HashMap< ViewId, Tile< M > >, ArrayList< Group< ViewId > > > initGlobalOpt(
 			final M model,
 			final PointMatchCreator pmc,
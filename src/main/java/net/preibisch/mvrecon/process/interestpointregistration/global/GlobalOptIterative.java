@@ -29,7 +29,6 @@ import java.util.Date;
 import java.util.HashMap;
 
 import mpicbg.models.Affine3D;
-import mpicbg.models.ErrorStatistic;
 import mpicbg.models.Model;
 import mpicbg.models.RigidModel3D;
 import mpicbg.models.Tile;
@@ -113,7 +112,7 @@ public class GlobalOptIterative
 				else
 					IOFunctions.println( "(" + new Date( System.currentTimeMillis() ) + "): prealigned all tiles" );
 
-				tc.optimizeSilently(new ErrorStatistic( ics.getMaxPlateauWidth() + 1 ), ics.getMaxError(), ics.getMaxIterations(), ics.getMaxPlateauWidth() );
+				GlobalOpt.optimize( tc, ics );
 				/*TileUtil.optimizeConcurrently(
 						new ErrorStatistic( ics.getMaxPlateauWidth() + 1 ),  ics.getMaxError(), ics.getMaxIterations(), ics.getMaxPlateauWidth(), 1.0f,
 						tc, tc.getTiles(), tc.getFixedTiles(), Runtime.getRuntime().availableProcessors());*/
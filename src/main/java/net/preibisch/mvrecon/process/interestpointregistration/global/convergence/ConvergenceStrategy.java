@@ -24,9 +24,13 @@ package net.preibisch.mvrecon.process.interestpointregistration.global.convergen
 
 public class ConvergenceStrategy
 {
+	// threads for the global optimization, 1 == mpicbg's sequential TileConfiguration.optimizeSilently()
+	public static int defaultNumThreads = 1;
+
 	double maxAllowedError;
 	int maxIterations;
 	int maxPlateauwidth;
+	int numThreads = defaultNumThreads;
 
 	public ConvergenceStrategy( final double maxAllowedError )
 	{
@@ -46,4 +50,7 @@ public class ConvergenceStrategy
 	public double getMaxError() { return maxAllowedError; }
 	public int getMaxIterations() { return maxIterations; }
 	public int getMaxPlateauWidth() { return maxPlateauwidth; }
+	public int getNumThreads() { return numThreads; }
+
+	public ConvergenceStrategy setNumThreads( final int numThreads ) { this.numThreads = numThreads; return this; }
 }
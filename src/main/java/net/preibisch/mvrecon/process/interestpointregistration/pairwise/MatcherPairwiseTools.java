@@ -41,6 +41,7 @@ import net.imglib2.util.Pair;
 import net.imglib2.util.ValuePair;
 import net.preibisch.legacy.mpicbg.PointMatchGeneric;
 import net.preibisch.mvrecon.Threads;
+import net.preibisch.mvrecon.fiji.spimdata.interestpoints.CorrespondenceStore;
 import net.preibisch.mvrecon.fiji.spimdata.interestpoints.CorrespondingInterestPoints;
 import net.preibisch.mvrecon.fiji.spimdata.interestpoints.InterestPoint;
 import net.preibisch.mvrecon.fiji.spimdata.interestpoints.InterestPoints;
@@ -88,7 +89,7 @@ public class MatcherPairwiseTools
 
 			map.get( viewId ).forEach( (label, list ) -> {
 				
-				final ArrayList< CorrespondingInterestPoints > cList = new ArrayList<>();
+				final CorrespondenceStore cList = new CorrespondenceStore( 16 );
 				list.setCorrespondingInterestPoints( cList );
 				mapPerLabel.put(label, cList);
 			} );
@@ -218,19 +219,20 @@ public class MatcherPairwiseTools
 			final InterestPoints listA,
 			final InterestPoints listB )
 	{
-		final List< CorrespondingInterestPoints > corrListA = listA.getCorrespondingInterestPointsCopy();
-		final List< CorrespondingInterestPoints > corrListB = listB.getCorrespondingInterestPointsCopy();
+		// copies only the primitive columns, no CorrespondingInterestPoints objects are created
+		final CorrespondenceStore corrListA = new CorrespondenceStore( listA.getCorrespondenceStore() );
+		final CorrespondenceStore corrListB = new CorrespondenceStore( listB.getCorrespondenceStore() );
+
+		final int codeB = corrListA.code( viewIdB, labelB );
+		final int codeA = corrListB.code( viewIdA, labelA );
 
 		for ( final PointMatchGeneric< I > pm : correspondences )
 		{
-			final I pA = pm.getPoint1();
-			final I pB = pm.getPoint2();
-
-			final CorrespondingInterestPoints correspondingToA = new CorrespondingInterestPoints( pA.getId(), viewIdB, labelB, pB.getId() );
-			final CorrespondingInterestPoints correspondingToB = new CorrespondingInterestPoints( pB.getId(), viewIdA, labelA, pA.getId() );
+			final int idA = pm.getPoint1().getId();
+			final int idB = pm.getPoint2().getId();
 
-			corrListA.add( correspondingToA );
-			corrListB.add( correspondingToB );
+			corrListA.add( idA, codeB, idB );
+			corrListB.add( idB, codeA, idA );
 		}
 
 		listA.setCorrespondingInterestPoints( corrListA );
@@ -29,11 +29,20 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import mpicbg.models.Model;
 import mpicbg.models.NotEnoughDataPointsException;
+import mpicbg.models.Point;
 import mpicbg.models.PointMatch;
 import net.preibisch.legacy.mpicbg.PointMatchGeneric;
+import net.preibisch.mvrecon.Threads;
 import net.preibisch.mvrecon.fiji.ImgLib2Temp.Pair;
 import net.preibisch.mvrecon.fiji.ImgLib2Temp.ValuePair;
 import net.preibisch.mvrecon.fiji.spimdata.interestpoints.InterestPoint;
@@ -46,6 +55,18 @@ import net.preibisch.mvrecon.process.pointcloud.pointdescriptor.LinkedPoint;
  */
 public class RANSAC
 {
+	// seed of the first thread for multi-threaded RANSAC (thread t uses seed + t)
+	public static long defaultSeed = 69997;
+
+	// hypotheses per thread between two checks of the early stopping criterion
+	public static int defaultIterationsPerRound = 100;
+
+	// multi-threaded RANSAC stops once the probability of having missed a better model is below 1 - confidence (<=0 disables)
+	public static double defaultConfidence = 0.999;
+
+	// shared by all multi-threaded RANSAC calls, which themselves run in parallel for many pairs of views
+	private static ExecutorService service = null;
+
 	public static < I extends InterestPoint > Pair< String, Double > computeRANSAC(
 			final ArrayList< PointMatchGeneric < I > > correspondenceCandidates,
 			final ArrayList< PointMatchGeneric < I > > inlierList,
@@ -54,6 +75,19 @@ public class RANSAC
 			final double minInlierRatio, 
 			final double minNumberInlierFactor, 
 			final int numIterations )
+	{
+		return computeRANSAC( correspondenceCandidates, inlierList, model, maxEpsilon, minInlierRatio, minNumberInlierFactor, numIterations, 1 );
+	}
+
+	public static < I extends InterestPoint > Pair< String, Double > computeRANSAC(
+			final ArrayList< PointMatchGeneric < I > > correspondenceCandidates,
+			final ArrayList< PointMatchGeneric < I > > inlierList,
+			final Model<?> model, 
+			final double maxEpsilon, 
+			final double minInlierRatio, 
+			final double minNumberInlierFactor, 
+			final int numIterations,
+			final int numThreads )
 	{
 		final int numCorrespondences = correspondenceCandidates.size();
 		final int minNumCorrespondences = Math.max( model.getMinNumMatches(), (int)Math.round( model.getMinNumMatches() * minNumberInlierFactor ) );
@@ -93,11 +127,13 @@ public class RANSAC
 					numIterations,
 					maxEpsilon, minInlierRatio );*/
 		
-			modelFound = model.filterRansac(
+			modelFound = filterRansac(
+					model,
 					candidates,
 					inliers,
 					numIterations,
-					maxEpsilon, minInlierRatio ); 
+					maxEpsilon, minInlierRatio,
+					numThreads );
 		}
 		catch ( NotEnoughDataPointsException e )
 		{
@@ -123,11 +159,13 @@ public class RANSAC
 
 				try
 				{
-					modelFound = model.filterRansac(
+					modelFound = filterRansac(
+							model,
 							candidates,
 							inliers,
 							numIterations,
-							maxEpsilon, minInlierRatio );
+							maxEpsilon, minInlierRatio,
+							numThreads );
 				}
 				catch ( NotEnoughDataPointsException e )
 				{
@@ -164,6 +202,259 @@ public class RANSAC
 		}
 	}
 
+	/**
+	 * Same as {@link Model#filterRansac(List, java.util.Collection, int, double, double)}, but optionally multi-threaded.
+	 *
+	 * @param model - the model
+	 * @param candidates - the candidates
+	 * @param inliers - will be filled with the inliers
+	 * @param numIterations - max number of RANSAC iterations
+	 * @param maxEpsilon - max error
+	 * @param minInlierRatio - min inlier ratio
+	 * @param numThreads - number of parallel tasks on the shared pool ({@link #ransacService()}), 1 calls {@link Model#filterRansac(List, java.util.Collection, int, double, double)}
+	 * @return true if a model was found
+	 * @throws NotEnoughDataPointsException - if there are not enough candidates
+	 */
+	public static < P extends PointMatch > boolean filterRansac(
+			final Model< ? > model,
+			final List< P > candidates,
+			final List< P > inliers,
+			final int numIterations,
+			final double maxEpsilon,
+			final double minInlierRatio,
+			final int numThreads ) throws NotEnoughDataPointsException
+	{
+		if ( numThreads <= 1 )
+			return model.filterRansac( candidates, inliers, numIterations, maxEpsilon, minInlierRatio );
+
+		final ArrayList< P > temp = new ArrayList<>();
+
+		// same as Model.filterRansac(): ransac, then iteratively filter with maxTrust=4
+		return ransacMultiThreaded( model, candidates, temp, numIterations, maxEpsilon, minInlierRatio, numThreads ) &&
+				model.filter( temp, inliers, 4.0, model.getMinNumMatches() );
+	}
+
+	/**
+	 * RANSAC where hypothesis generation and scoring is split across threads. Each thread has its own
+	 * random number generator (seeded with {@link #defaultSeed} + thread index) and its own copy of the
+	 * candidates (applying a model modifies the world coordinates). Hypotheses are computed in rounds of
+	 * {@link #defaultIterationsPerRound} per thread, after each round the best model is selected in thread
+	 * order and the number of required iterations is updated for the inlier ratio found so far
+	 * (log(1-confidence)/log(1-w^s)), thus the result is reproducible for a fixed number of threads.
+	 *
+	 * @return true if a model was found, the model is set to the best hypothesis
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static < P extends PointMatch > boolean ransacMultiThreaded(
+			final Model< ? > model,
+			final List< P > candidates,
+			final List< P > inliers,
+			final int numIterations,
+			final double maxEpsilon,
+			final double minInlierRatio,
+			final int numThreads ) throws NotEnoughDataPointsException
+	{
+		final int minNumMatches = model.getMinNumMatches();
+		final int numCandidates = candidates.size();
+
+		inliers.clear();
+
+		if ( numCandidates < minNumMatches )
+			throw new NotEnoughDataPointsException( numCandidates + " data points are not enough to solve the Model, at least " + minNumMatches + " data points required." );
+
+		final ExecutorService service = ransacService();
+
+		// per-thread state
+		final ArrayList< Random > rnds = new ArrayList<>();
+		final ArrayList< Model > models = new ArrayList<>();
+		final ArrayList< ArrayList< PointMatch > > localCandidates = new ArrayList<>();
+
+		for ( int t = 0; t < numThreads; ++t )
+		{
+			rnds.add( new Random( defaultSeed + t ) );
+			models.add( model.copy() );
+
+			final ArrayList< PointMatch > local = new ArrayList<>( numCandidates );
+			for ( final P pm : candidates )
+				local.add( new PointMatch(
+						new Point( pm.getP1().getL().clone(), pm.getP1().getW().clone() ),
+						new Point( pm.getP2().getL().clone(), pm.getP2().getW().clone() ),
+						pm.getWeight() ) );
+
+			localCandidates.add( local );
+		}
+
+		Model bestModel = null;
+		int[] bestInliers = null;
+		int bestNumInliers = 0;
+
+		int done = 0;
+		int required = numIterations;
+
+		try
+		{
+			while ( done < required )
+			{
+				final int perThread = Math.min( defaultIterationsPerRound, ( required - done + numThreads - 1 ) / numThreads );
+				final ArrayList< Callable< RansacHypothesis > > tasks = new ArrayList<>();
+
+				for ( int t = 0; t < numThreads; ++t )
+				{
+					final int thread = t;
+					tasks.add( () -> bestHypothesis( models.get( thread ), localCandidates.get( thread ), rnds.get( thread ), perThread, maxEpsilon, minInlierRatio, minNumMatches ) );
+				}
+
+				// merged in thread order, first wins on ties
+				for ( final Future< RansacHypothesis > future : service.invokeAll( tasks ) )
+				{
+					final RansacHypothesis h = future.get();
+
+					if ( h != null && h.numInliers > bestNumInliers )
+					{
+						bestModel = h.model;
+						bestInliers = h.inliers;
+						bestNumInliers = h.numInliers;
+					}
+				}
+
+				done += perThread * numThreads;
+
+				if ( defaultConfidence > 0 && bestModel != null )
+				{
+					final double w = Math.pow( (double)bestNumInliers / (double)numCandidates, minNumMatches );
+
+					if ( w >= 1.0 )
+						break;
+
+					final double n = Math.ceil( Math.log( 1.0 - defaultConfidence ) / Math.log( 1.0 - w ) );
+
+					if ( !Double.isNaN( n ) && n < required )
+						required = (int)Math.max( 1, n );
+				}
+			}
+		}
+		catch ( InterruptedException | ExecutionException e )
+		{
+			throw new RuntimeException( "Multi-threaded RANSAC failed: " + e, e );
+		}
+
+		if ( bestModel == null )
+			return false;
+
+		( (Model)model ).set( bestModel );
+
+		for ( int i = 0; i < bestNumInliers; ++i )
+			inliers.add( candidates.get( bestInliers[ i ] ) );
+
+		return true;
+	}
+
+	/**
+	 * @return the pool that evaluates the hypotheses of all multi-threaded RANSAC calls, its size
+	 * ({@link Threads#numThreads()}) bounds the number of threads no matter how many pairs are matched at once
+	 */
+	protected static synchronized ExecutorService ransacService()
+	{
+		if ( service == null )
+		{
+			final AtomicInteger count = new AtomicInteger();
+
+			service = Executors.newFixedThreadPool( Threads.numThreads(), r ->
+			{
+				final Thread t = new Thread( r, "ransac-" + count.incrementAndGet() );
+				t.setDaemon( true );
+				return t;
+			});
+		}
+
+		return service;
+	}
+
+	private static class RansacHypothesis
+	{
+		final Model< ? > model;
+		final int[] inliers;
+		final int numInliers;
+
+		RansacHypothesis( final Model< ? > model, final int[] inliers, final int numInliers )
+		{
+			this.model = model;
+			this.inliers = inliers;
+			this.numInliers = numInliers;
+		}
+	}
+
+	/**
+	 * @return the best of numIterations hypotheses (same selection as mpicbg's Model.ransac), or null
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static RansacHypothesis bestHypothesis(
+			final Model m,
+			final ArrayList< PointMatch > candidates,
+			final Random rnd,
+			final int numIterations,
+			final double maxEpsilon,
+			final double minInlierRatio,
+			final int minNumMatches )
+	{
+		final int numCandidates = candidates.size();
+		final HashSet< PointMatch > minMatches = new HashSet<>();
+
+		int[] inliers = new int[ numCandidates ];
+		int[] bestInliers = new int[ numCandidates ];
+		int bestNumInliers = 0;
+		Model bestModel = null;
+
+		for ( int i = 0; i < numIterations; ++i )
+		{
+			// choose minNumMatches disjunctive matches randomly
+			minMatches.clear();
+
+			for ( int j = 0; j < minNumMatches; ++j )
+			{
+				PointMatch p;
+				do
+				{
+					p = candidates.get( ( int )( rnd.nextDouble() * numCandidates ) );
+				}
+				while ( minMatches.contains( p ) );
+
+				minMatches.add( p );
+			}
+
+			try
+			{
+				m.fit( minMatches );
+			}
+			catch ( Exception e )
+			{
+				continue;
+			}
+
+			int numInliers = 0;
+
+			for ( int k = 0; k < numCandidates; ++k )
+			{
+				final PointMatch pm = candidates.get( k );
+				pm.apply( m );
+
+				if ( pm.getDistance() < maxEpsilon )
+					inliers[ numInliers++ ] = k;
+			}
+
+			if ( (double)numInliers / (double)numCandidates > minInlierRatio && numInliers >= minNumMatches && numInliers > bestNumInliers )
+			{
+				final int[] tmp = bestInliers;
+				bestInliers = inliers;
+				inliers = tmp;
+				bestNumInliers = numInliers;
+				bestModel = m.copy();
+			}
+		}
+
+		return bestModel == null ? null : new RansacHypothesis( bestModel, bestInliers, bestNumInliers );
+	}
+
 	/**
 	 * a class that computes hash and equals only using the coordinates of a double[] array
 	 */
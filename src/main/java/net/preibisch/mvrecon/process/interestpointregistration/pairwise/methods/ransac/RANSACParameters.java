@@ -36,9 +36,13 @@ public class RANSACParameters
 	public static float min_inlier_ratio = 0.1f;
 	public static int num_iterations = 10000;
 	public static float min_inlier_factor = 3f;
+
+	// threads for a single RANSAC, 1 == single-threaded (useful if there are only few pairs to match)
+	public static int num_threads = 1;
 	
 	protected float maxEpsilon, minInlierRatio, minInlierFactor;
 	protected int numIterations;
+	protected int numThreads = num_threads;
 
 	public RANSACParameters( final float maxEpsilon, final float minInlierRatio, final float minInlierFactor, final int numIterations )
 	{
@@ -60,9 +64,11 @@ public class RANSACParameters
 	public float getMinInlierRatio() { return minInlierRatio; }
 	public float getMinInlierFactor() { return minInlierFactor; }
 	public int getNumIterations() { return numIterations; }
+	public int getNumThreads() { return numThreads; }
 
 	public RANSACParameters setMaxEpsilon( final float maxEpsilon ) { this.maxEpsilon = maxEpsilon; return this; }
 	public RANSACParameters setMinInlierRatio( final float minInlierRatio ) { this.minInlierRatio = minInlierRatio; return this;  }
 	public RANSACParameters setMinInlierFactor( final float minInlierFactor ) { this.minInlierFactor = minInlierFactor; return this;  }
 	public RANSACParameters setNumIterations( final int numIterations ) { this.numIterations = numIterations; return this;  }
+	public RANSACParameters setNumThreads( final int numThreads ) { this.numThreads = numThreads; return this;  }
 }
@@ -23,10 +23,14 @@
 package net.preibisch.mvrecon.process.interestpointregistration.pairwise.methods.rgldm;
 
 import java.util.ArrayList;
+import java.util.TreeSet;
 
 import mpicbg.models.Point;
 import net.imglib2.KDTree;
+import net.imglib2.RealLocalizable;
+import net.imglib2.RealPoint;
 import net.imglib2.neighborsearch.KNearestNeighborSearchOnKDTree;
+import net.imglib2.neighborsearch.RadiusNeighborSearchOnKDTree;
 import net.preibisch.legacy.mpicbg.PointMatchGeneric;
 import net.preibisch.mvrecon.fiji.spimdata.interestpoints.InterestPoint;
 import net.preibisch.mvrecon.process.pointcloud.pointdescriptor.AbstractPointDescriptor;
@@ -39,6 +43,9 @@ import net.preibisch.mvrecon.process.pointcloud.pointdescriptor.similarity.Squar
 
 public class RGLDMMatcher< I extends InterestPoint >
 {
+	// find best and second best descriptors using a KDTree instead of comparing all pairs (identical result)
+	public static boolean defaultUseDescriptorKDTree = true;
+
 	public ArrayList< PointMatchGeneric< I > > extractCorrespondenceCandidates( 
 			final ArrayList< I > nodeListA,
 			final ArrayList< I > nodeListB,
@@ -54,7 +61,7 @@ public class RGLDMMatcher< I extends InterestPoint >
 		final KDTree< I > treeB = new KDTree< I >( nodeListB, nodeListB );
 		
 		/* extract point descriptors */
-		final Matcher matcher = new SubsetMatcher( numNeighbors, numNeighbors + redundancy );
+		final SubsetMatcher matcher = new SubsetMatcher( numNeighbors, numNeighbors + redundancy );
 		final int numRequiredNeighbors = matcher.getRequiredNumNeighbors();
 		
 		final SimilarityMeasure similarityMeasure = new SquareDistance();
@@ -62,7 +69,172 @@ public class RGLDMMatcher< I extends InterestPoint >
 		final ArrayList< SimplePointDescriptor< I > > descriptorsA = createSimplePointDescriptors( treeA, nodeListA, numRequiredNeighbors, matcher, similarityMeasure );
 		final ArrayList< SimplePointDescriptor< I > > descriptorsB = createSimplePointDescriptors( treeB, nodeListB, numRequiredNeighbors, matcher, similarityMeasure );
 
-		return findCorrespondingDescriptors( descriptorsA, descriptorsB, ratioOfDistance, differenceThreshold, limitSearchRadius, searchRadius );
+		if ( defaultUseDescriptorKDTree )
+			return findCorrespondingDescriptorsKDTree( descriptorsA, descriptorsB, matcher.getNeighbors(), ratioOfDistance, differenceThreshold, limitSearchRadius, searchRadius );
+		else
+			return findCorrespondingDescriptors( descriptorsA, descriptorsB, ratioOfDistance, differenceThreshold, limitSearchRadius, searchRadius );
+	}
+
+	/**
+	 * Same result as {@link #findCorrespondingDescriptors(ArrayList, ArrayList, double, double, boolean, double)}, but only the
+	 * descriptors of B that can be the best or second best match are compared with each descriptor of A:
+	 * <p>
+	 * If limitSearchRadius is set, these are all descriptors of B within the search radius (KDTree on the basis points).
+	 * Otherwise the descriptor distance is the minimal (square) distance between any of the subsets of A and B, i.e. a
+	 * nearest neighbor search on the flattened subset vectors. Each descriptor of B contributes numCombinations vectors,
+	 * so the numCombinations + 1 nearest vectors of each subset of A contain at least the two best descriptors of B for
+	 * this subset, and the union over all subsets of A contains the best and second best descriptor overall.
+	 * <p>
+	 * The candidates are compared in the original order using {@link AbstractPointDescriptor#descriptorDistance(AbstractPointDescriptor)},
+	 * thus distances and tie-breaking are identical to the all-pairs comparison.
+	 *
+	 * @param descriptorsA - descriptors of A
+	 * @param descriptorsB - descriptors of B
+	 * @param combinations - the subsets of neighbors compared by the {@link SubsetMatcher} of the descriptors
+	 * @param nTimesBetter - ratio of distance
+	 * @param differenceThreshold - max difference
+	 * @param limitSearchRadius - only compare descriptors with basis points closer than searchRadius
+	 * @param searchRadius - the search radius
+	 * @param <I> interest point type
+	 * @return the correspondence candidates
+	 */
+	protected static final < I extends InterestPoint > ArrayList< PointMatchGeneric< I > > findCorrespondingDescriptorsKDTree(
+			final ArrayList< SimplePointDescriptor< I > > descriptorsA,
+			final ArrayList< SimplePointDescriptor< I > > descriptorsB,
+			final int[][] combinations,
+			final double nTimesBetter,
+			final double differenceThreshold,
+			final boolean limitSearchRadius,
+			final double searchRadius )
+	{
+		final ArrayList< PointMatchGeneric< I > > correspondenceCandidates = new ArrayList<>();
+
+		if ( descriptorsA.size() == 0 || descriptorsB.size() < 2 )
+			return correspondenceCandidates;
+
+		final ArrayList< Integer > indicesB = new ArrayList<>( descriptorsB.size() );
+		for ( int j = 0; j < descriptorsB.size(); ++j )
+			indicesB.add( j );
+
+		final int numCombinations = combinations.length;
+		final int n = descriptorsA.get( 0 ).numDimensions();
+
+		final RadiusNeighborSearchOnKDTree< Integer > radiusSearch;
+		final KNearestNeighborSearchOnKDTree< Integer > nnSearch;
+		final int k = Math.min( numCombinations + 1, descriptorsB.size() * numCombinations );
+
+		if ( limitSearchRadius )
+		{
+			// KDTree on the basis points (InterestPoint is localized by its world coordinates, same as Point.distance)
+			final ArrayList< RealLocalizable > basisPointsB = new ArrayList<>( descriptorsB.size() );
+			for ( final SimplePointDescriptor< I > descriptorB : descriptorsB )
+				basisPointsB.add( descriptorB.getBasisPoint() );
+
+			radiusSearch = new RadiusNeighborSearchOnKDTree<>( new KDTree<>( indicesB, basisPointsB ) );
+			nnSearch = null;
+		}
+		else
+		{
+			// KDTree on all flattened subsets of B
+			final ArrayList< Integer > values = new ArrayList<>( descriptorsB.size() * numCombinations );
+			final ArrayList< RealPoint > subsetsB = new ArrayList<>( descriptorsB.size() * numCombinations );
+
+			for ( int j = 0; j < descriptorsB.size(); ++j )
+				for ( int b = 0; b < numCombinations; ++b )
+				{
+					values.add( indicesB.get( j ) );
+					subsetsB.add( subsetVector( descriptorsB.get( j ), combinations[ b ], n ) );
+				}
+
+			radiusSearch = null;
+			nnSearch = new KNearestNeighborSearchOnKDTree<>( new KDTree<>( values, subsetsB ), k );
+		}
+
+		final TreeSet< Integer > candidates = new TreeSet<>();
+		final RealPoint basisPointA = new RealPoint( n );
+
+		for ( final SimplePointDescriptor< I > descriptorA : descriptorsA )
+		{
+			candidates.clear();
+
+			if ( limitSearchRadius )
+			{
+				// slightly larger radius, the exact test is below
+				basisPointA.setPosition( descriptorA.getBasisPoint() );
+				radiusSearch.search( basisPointA, searchRadius * ( 1.0 + 1e-9 ) + 1e-9, false );
+
+				for ( int i = 0; i < radiusSearch.numNeighbors(); ++i )
+					candidates.add( radiusSearch.getSampler( i ).get() );
+			}
+			else
+			{
+				for ( int a = 0; a < numCombinations; ++a )
+				{
+					nnSearch.search( subsetVector( descriptorA, combinations[ a ], n ) );
+
+					for ( int i = 0; i < k; ++i )
+						candidates.add( nnSearch.getSampler( i ).get() );
+				}
+			}
+
+			double bestDifference = Double.MAX_VALUE;
+			double secondBestDifference = Double.MAX_VALUE;
+
+			SimplePointDescriptor< I > bestMatch = null;
+
+			// same order as the all-pairs comparison
+			for ( final int j : candidates )
+			{
+				final SimplePointDescriptor< I > descriptorB = descriptorsB.get( j );
+
+				if ( limitSearchRadius && Point.distance( descriptorA.getBasisPoint(), descriptorB.getBasisPoint() ) > searchRadius )
+					continue;
+
+				final double difference = descriptorA.descriptorDistance( descriptorB );
+
+				if ( difference < secondBestDifference )
+				{
+					secondBestDifference = difference;
+
+					if ( secondBestDifference < bestDifference )
+					{
+						secondBestDifference = bestDifference;
+						bestDifference = difference;
+						bestMatch = descriptorB;
+					}
+				}
+			}
+
+			if ( bestDifference < differenceThreshold && bestDifference * nTimesBetter < secondBestDifference && secondBestDifference != Double.MAX_VALUE ) // there must be a second one (make sure 2nd best is set)
+			{
+				// add correspondence for the two basis points of the descriptor
+				I detectionA = descriptorA.getBasisPoint();
+				I detectionB = bestMatch.getBasisPoint();
+
+				// for RANSAC
+				correspondenceCandidates.add( new PointMatchGeneric< I >( detectionA, detectionB ) );
+			}
+		}
+
+		return correspondenceCandidates;
+	}
+
+	/**
+	 * @return the relative (world) coordinates of a subset of the neighbors of a descriptor as one vector
+	 */
+	protected static RealPoint subsetVector( final AbstractPointDescriptor< ?, ? > descriptor, final int[] subset, final int n )
+	{
+		final double[] v = new double[ subset.length * n ];
+
+		for ( int i = 0; i < subset.length; ++i )
+		{
+			final double[] w = descriptor.getDescriptorPoint( subset[ i ] ).getW();
+
+			for ( int d = 0; d < n; ++d )
+				v[ i * n + d ] = w[ d ];
+		}
+
+		return RealPoint.wrap( v );
 	}
 	
 	protected static final < I extends InterestPoint, D extends AbstractPointDescriptor< I , D > > ArrayList< PointMatchGeneric< I > > findCorrespondingDescriptors(
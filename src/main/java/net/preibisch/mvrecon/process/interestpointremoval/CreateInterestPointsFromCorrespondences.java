@@ -93,7 +93,7 @@ public class CreateInterestPointsFromCorrespondences
 			vipl.addInterestPointList( params.getNewLabel(), newIpl );
 
 			IOFunctions.println( new Date( System.currentTimeMillis() ) + ": TP=" + vd.getTimePointId() + " ViewSetup=" + vd.getViewSetupId() + 
-					", Detections: " + oldIpl.getInterestPointsCopy().size() + " >>> " + newIpl.getInterestPointsCopy().size() );
+					", Detections: " + oldIpl.getInterestPointStore().size() + " >>> " + newIpl.getInterestPointStore().size() );
 		}
 
 		return true;
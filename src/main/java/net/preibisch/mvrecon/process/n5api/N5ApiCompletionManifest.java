@@ -0,0 +1,216 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.process.n5api;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.janelia.saalfeldlab.n5.N5Writer;
+
+import net.preibisch.legacy.io.IOFunctions;
+
+/**
+ * Persistent record of which compute blocks of a dataset were already written, so an interrupted
+ * export can be resumed. The manifest is a bitset over the list of compute blocks that is stored as
+ * a long[] attribute of the dataset ({ numBlocks, bits ... }). Blocks are identified by their grid
+ * position (gridBlock[ 2 ]), therefore a manifest is only valid for the same dimensions, blocksize
+ * and compute blocksize, which is verified using the number of blocks.
+ * <p>
+ * A block must be marked complete only after it was written, an interruption therefore only causes
+ * blocks to be written again, never to be missing.
+ */
+public class N5ApiCompletionManifest
+{
+	public static String defaultAttributeKey = "completedBlocks";
+
+	// how many completed blocks are collected before the manifest is written
+	public static int defaultFlushInterval = 64;
+
+	final N5Writer n5;
+	final String dataset, attributeKey;
+	final int numBlocks, flushInterval;
+	final Map< List< Long >, Integer > gridPositionToIndex;
+	final BitSet completed;
+
+	int unflushed = 0;
+
+	/**
+	 * @param n5 - the writer
+	 * @param dataset - the dataset the manifest is stored with
+	 * @param attributeKey - the attribute name (e.g. {@link #attributeKey(long, long)})
+	 * @param jobs - all compute blocks for this dataset (offset, size, grid position, ...)
+	 * @param resume - if true, loads an existing manifest and reports its blocks as complete; otherwise starts empty
+	 */
+	public N5ApiCompletionManifest(
+			final N5Writer n5,
+			final String dataset,
+			final String attributeKey,
+			final List< long[][] > jobs,
+			final boolean resume )
+	{
+		this.n5 = n5;
+		this.dataset = dataset;
+		this.attributeKey = attributeKey;
+		this.numBlocks = jobs.size();
+		this.flushInterval = defaultFlushInterval;
+		this.gridPositionToIndex = new HashMap<>();
+
+		for ( int i = 0; i < jobs.size(); ++i )
+			gridPositionToIndex.put( key( jobs.get( i )[ 2 ] ), i );
+
+		this.completed = resume ? load() : new BitSet( numBlocks );
+
+		if ( resume )
+			IOFunctions.println( "Resuming '" + dataset + "': " + completed.cardinality() + " of " + numBlocks + " blocks are already written." );
+	}
+
+	/**
+	 * @param currentChannelIndex - channel index for 5D OME-ZARR, -1 otherwise
+	 * @param currentTPIndex - timepoint index for 5D OME-ZARR, -1 otherwise
+	 * @return the attribute key, 5D OME-ZARR datasets are shared by channels and timepoints and need one manifest each
+	 */
+	public static String attributeKey( final long currentChannelIndex, final long currentTPIndex )
+	{
+		if ( currentChannelIndex >= 0 && currentTPIndex >= 0 )
+			return defaultAttributeKey + "_c" + currentChannelIndex + "_t" + currentTPIndex;
+		else
+			return defaultAttributeKey;
+	}
+
+	/**
+	 * @param n5 - the writer
+	 * @param dataset - the dataset the manifest is stored with
+	 * @param attributeKey - the attribute name
+	 * @return true if a previous run recorded (some) written blocks for this dataset
+	 */
+	public static boolean exists( final N5Writer n5, final String dataset, final String attributeKey )
+	{
+		try
+		{
+			if ( !n5.datasetExists( dataset ) )
+				return false;
+
+			final long[] manifest = n5.getAttribute( dataset, attributeKey, long[].class );
+
+			return manifest != null && manifest.length > 1;
+		}
+		catch ( Exception e )
+		{
+			return false;
+		}
+	}
+
+	public boolean isComplete( final long[][] gridBlock )
+	{
+		final Integer index = gridPositionToIndex.get( key( gridBlock[ 2 ] ) );
+
+		synchronized ( completed )
+		{
+			return index != null && completed.get( index );
+		}
+	}
+
+	public void markComplete( final long[][] gridBlock )
+	{
+		final Integer index = gridPositionToIndex.get( key( gridBlock[ 2 ] ) );
+
+		if ( index == null )
+			return;
+
+		synchronized ( completed )
+		{
+			completed.set( index );
+
+			if ( ++unflushed >= flushInterval )
+				flush();
+		}
+	}
+
+	public int numComplete()
+	{
+		synchronized ( completed )
+		{
+			return completed.cardinality();
+		}
+	}
+
+	public int numBlocks() { return numBlocks; }
+
+	/**
+	 * Writes the manifest, should be called once all blocks are processed.
+	 */
+	public void flush()
+	{
+		synchronized ( completed )
+		{
+			final long[] bits = completed.toLongArray();
+			final long[] manifest = new long[ bits.length + 1 ];
+
+			manifest[ 0 ] = numBlocks;
+			System.arraycopy( bits, 0, manifest, 1, bits.length );
+
+			try
+			{
+				n5.setAttribute( dataset, attributeKey, manifest );
+				unflushed = 0;
+			}
+			catch ( Exception e )
+			{
+				// not fatal, the export continues but cannot be resumed from this point
+				IOFunctions.println( "Couldn't write completion manifest for '" + dataset + "': " + e );
+			}
+		}
+	}
+
+	protected BitSet load()
+	{
+		try
+		{
+			final long[] manifest = n5.getAttribute( dataset, attributeKey, long[].class );
+
+			if ( manifest == null || manifest.length == 0 )
+				return new BitSet( numBlocks );
+
+			if ( manifest[ 0 ] != numBlocks )
+			{
+				IOFunctions.println( "Completion manifest of '" + dataset + "' was written for " + manifest[ 0 ] + " blocks, but there are " + numBlocks + " blocks now (different parameters?). Writing all blocks." );
+				return new BitSet( numBlocks );
+			}
+
+			return BitSet.valueOf( Arrays.copyOfRange( manifest, 1, manifest.length ) );
+		}
+		catch ( Exception e )
+		{
+			IOFunctions.println( "Couldn't read completion manifest of '" + dataset + "', writing all blocks: " + e );
+			return new BitSet( numBlocks );
+		}
+	}
+
+	protected static List< Long > key( final long[] gridPosition )
+	{
+		return Arrays.asList( Arrays.stream( gridPosition ).boxed().toArray( Long[]::new ) );
+	}
+}
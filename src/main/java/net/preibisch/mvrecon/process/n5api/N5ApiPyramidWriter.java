@@ -0,0 +1,447 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.process.n5api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.janelia.saalfeldlab.n5.N5Writer;
+import org.janelia.saalfeldlab.n5.imglib2.N5Utils;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.algorithm.blocks.BlockSupplier;
+import net.imglib2.algorithm.blocks.downsample.Downsample;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
+import net.preibisch.legacy.io.IOFunctions;
+import net.preibisch.mvrecon.process.n5api.N5ApiTools.MultiResolutionLevelInfo;
+
+/**
+ * Writes a full multi-resolution pyramid (s0 ... sN) in a single pass over the s0 compute blocks.
+ * <p>
+ * Each compute block is fused once into memory, written to s0 and then downsampled in memory
+ * level by level, so s1 ... sN never have to be read back from the container. This requires the
+ * compute block size to be divisible by the absolute downsampling of a level, which makes every
+ * compute block map exactly onto a region of that level (see {@link #numStreamingLevels(MultiResolutionLevelInfo[], int[])}).
+ * <p>
+ * Output blocks of coarser levels that are larger than the downsampled compute block are assembled
+ * in a bounded staging cache until all contributing compute blocks are done. Blocks that do not fit
+ * into the staging budget, and all levels that cannot be streamed, are written afterwards by
+ * {@link #finish()} using the previous read-back path ({@link N5ApiTools#writeDownsampledBlock(N5Writer, MultiResolutionLevelInfo, MultiResolutionLevelInfo, long[][])}).
+ * <p>
+ * Downsampling uses the same {@link Downsample} operator as the read-back path, therefore the result is identical.
+ *
+ * @param <T> pixel type
+ */
+public class N5ApiPyramidWriter< T extends RealType< T > & NativeType< T > >
+{
+	public static long defaultMaxStagingBytes = 1024l * 1024l * 1024l; // 1 GB
+
+	final N5Writer n5;
+	final MultiResolutionLevelInfo[] mrInfo;
+	final int[] blockSize;
+	final T type;
+	final long currentChannelIndex, currentTPIndex;
+	final int numStreamingLevels;
+	final long maxStagingBytes;
+	final long bytesPerPixel;
+
+	// staged output blocks of levels s1 ... sN, key is [level, gx, gy, gz]
+	final Map< List< Long >, StagedBlock< T > > staged = new HashMap<>();
+	long stagedBytes = 0;
+
+	// output blocks per level that did not fit into the staging cache (written by finish())
+	final List< Set< List< Long > > > deferred = new ArrayList<>();
+
+	final AtomicLong directBlocks = new AtomicLong(), stagedBlocks = new AtomicLong(), deferredBlocks = new AtomicLong();
+
+	/**
+	 * @param n5 - the writer
+	 * @param mrInfo - the multi-resolution pyramid, for 5D OME-ZARR the first three dimensions are used
+	 * @param blockSize - the 3d blocksize of the datasets
+	 * @param computeBlockSize - the 3d compute blocksize, must be a multiple of blockSize
+	 * @param type - the pixel type
+	 * @param currentChannelIndex - channel index for 5D OME-ZARR, -1 otherwise
+	 * @param currentTPIndex - timepoint index for 5D OME-ZARR, -1 otherwise
+	 * @param maxStagingBytes - how many bytes the staging cache for partially complete blocks may use
+	 */
+	public N5ApiPyramidWriter(
+			final N5Writer n5,
+			final MultiResolutionLevelInfo[] mrInfo,
+			final int[] blockSize,
+			final int[] computeBlockSize,
+			final T type,
+			final long currentChannelIndex,
+			final long currentTPIndex,
+			final long maxStagingBytes )
+	{
+		this.n5 = n5;
+		this.mrInfo = mrInfo;
+		this.blockSize = blockSize;
+		this.type = type.createVariable();
+		this.currentChannelIndex = currentChannelIndex;
+		this.currentTPIndex = currentTPIndex;
+		this.numStreamingLevels = numStreamingLevels( mrInfo, computeBlockSize );
+		this.maxStagingBytes = maxStagingBytes;
+		this.bytesPerPixel = Math.max( 1, type.getBitsPerPixel() / 8 );
+
+		for ( int level = 0; level < mrInfo.length; ++level )
+			deferred.add( new HashSet<>() );
+	}
+
+	/**
+	 * @param mrInfo - the multi-resolution pyramid
+	 * @param computeBlockSize - the 3d compute blocksize
+	 * @return the number of levels (including s0) that can be computed in memory from a compute block
+	 */
+	public static int numStreamingLevels( final MultiResolutionLevelInfo[] mrInfo, final int[] computeBlockSize )
+	{
+		for ( int level = 1; level < mrInfo.length; ++level )
+			for ( int d = 0; d < 3; ++d )
+				if ( computeBlockSize[ d ] % mrInfo[ level ].absoluteDownsampling[ d ] != 0 )
+					return level;
+
+		return mrInfo.length;
+	}
+
+	public int numStreamingLevels() { return numStreamingLevels; }
+
+	/**
+	 * Fuses one compute block, writes it to s0 and all streamable levels.
+	 *
+	 * @param img - the 3d zero-min image to save
+	 * @param gridBlock - the compute block (offset, size, grid position) in s0
+	 */
+	public void writeComputeBlock( final RandomAccessible< T > img, final long[][] gridBlock )
+	{
+		// fuse the compute block once
+		final ArrayImg< T, ? > s0 = new ArrayImgFactory<>( type ).create( gridBlock[ 1 ] );
+		copy( Views.interval( img, Intervals.translate( new FinalInterval( gridBlock[ 1 ] ), gridBlock[ 0 ] ) ), s0 );
+
+		// s0 compute blocks are aligned to the dataset blocks
+		writeRegion( 0, s0, gridBlock[ 0 ] );
+
+		ArrayImg< T, ? > previous = s0;
+		long[] previousMin = gridBlock[ 0 ];
+
+		for ( int level = 1; level < numStreamingLevels; ++level )
+		{
+			final int[] abs = mrInfo[ level ].absoluteDownsampling;
+			final int[] rel = mrInfo[ level ].relativeDownsampling;
+
+			final long[] min = new long[ 3 ];
+			final long[] size = new long[ 3 ];
+
+			for ( int d = 0; d < 3; ++d )
+			{
+				min[ d ] = gridBlock[ 0 ][ d ] / abs[ d ];
+				size[ d ] = Math.min( mrInfo[ level ].dimensions[ d ], ( gridBlock[ 0 ][ d ] + gridBlock[ 1 ][ d ] ) / abs[ d ] ) - min[ d ];
+
+				// compute block at the border that does not contribute to this level (and coarser ones)
+				if ( size[ d ] <= 0 )
+					return;
+			}
+
+			final BlockSupplier< T > blocks =
+					BlockSupplier.of( Views.extendBorder( Views.translate( previous, previousMin ) ) )
+					.andThen( Downsample.downsample( Arrays.copyOf( rel, 3 ) ) );
+
+			final ArrayImg< T, ? > current = new ArrayImgFactory<>( type ).create( size );
+			blocks.copy( Intervals.translate( new FinalInterval( size ), min ), ( ( ArrayDataAccess< ? > ) current.update( null ) ).getCurrentStorageArray() );
+
+			writeRegion( level, current, min );
+
+			previous = current;
+			previousMin = min;
+		}
+	}
+
+	/**
+	 * Records a compute block that is known to be empty (e.g. it overlaps no view). Nothing is computed
+	 * or written for it, but output blocks of coarser levels that it partially covers are completed.
+	 *
+	 * @param gridBlock - the compute block (offset, size, grid position) in s0
+	 */
+	public void skipEmptyComputeBlock( final long[][] gridBlock )
+	{
+		for ( int level = 1; level < numStreamingLevels; ++level )
+		{
+			final int[] abs = mrInfo[ level ].absoluteDownsampling;
+
+			final long[] min = new long[ 3 ];
+			final long[] max = new long[ 3 ];
+
+			for ( int d = 0; d < 3; ++d )
+			{
+				min[ d ] = gridBlock[ 0 ][ d ] / abs[ d ];
+				max[ d ] = Math.min( mrInfo[ level ].dimensions[ d ], ( gridBlock[ 0 ][ d ] + gridBlock[ 1 ][ d ] ) / abs[ d ] ) - 1;
+
+				if ( max[ d ] < min[ d ] )
+					return;
+			}
+
+			writeRegion( level, new FinalInterval( min, max ), null );
+		}
+	}
+
+	/**
+	 * Writes all dataset blocks of one level that are fully covered by the region, stages the others.
+	 */
+	protected void writeRegion( final int level, final ArrayImg< T, ? > data, final long[] regionMin )
+	{
+		final RandomAccessibleInterval< T > region = Views.translate( data, regionMin );
+		writeRegion( level, region, region );
+	}
+
+	/**
+	 * @param region - the region of this level
+	 * @param data - the data of the region, if null the region is empty (all zero) and blocks it covers completely are not written
+	 */
+	protected void writeRegion( final int level, final Interval region, final RandomAccessibleInterval< T > data )
+	{
+		final long[] dim = mrInfo[ level ].dimensions;
+
+		final long[] gMin = new long[ 3 ];
+		final long[] gMax = new long[ 3 ];
+
+		for ( int d = 0; d < 3; ++d )
+		{
+			gMin[ d ] = region.min( d ) / blockSize[ d ];
+			gMax[ d ] = region.max( d ) / blockSize[ d ];
+		}
+
+		final long[] blockMin = new long[ 3 ];
+		final long[] blockMax = new long[ 3 ];
+
+		for ( long gz = gMin[ 2 ]; gz <= gMax[ 2 ]; ++gz )
+			for ( long gy = gMin[ 1 ]; gy <= gMax[ 1 ]; ++gy )
+				for ( long gx = gMin[ 0 ]; gx <= gMax[ 0 ]; ++gx )
+				{
+					final long[] g = new long[] { gx, gy, gz };
+
+					for ( int d = 0; d < 3; ++d )
+					{
+						blockMin[ d ] = g[ d ] * blockSize[ d ];
+						blockMax[ d ] = Math.min( dim[ d ], blockMin[ d ] + blockSize[ d ] ) - 1;
+					}
+
+					final Interval block = new FinalInterval( blockMin, blockMax );
+
+					if ( Intervals.contains( region, block ) )
+					{
+						if ( data != null )
+						{
+							save( level, Views.zeroMin( Views.interval( data, block ) ), g );
+							directBlocks.incrementAndGet();
+						}
+					}
+					else
+					{
+						stage( level, region, data, block, g );
+					}
+				}
+	}
+
+	protected void stage( final int level, final Interval region, final RandomAccessibleInterval< T > data, final Interval block, final long[] g )
+	{
+		final List< Long > key = Arrays.asList( (long)level, g[ 0 ], g[ 1 ], g[ 2 ] );
+		final Interval intersection = Intervals.intersect( region, block );
+
+		final StagedBlock< T > stagedBlock;
+
+		synchronized ( staged )
+		{
+			if ( deferred.get( level ).contains( key ) )
+				return;
+
+			final StagedBlock< T > existing = staged.get( key );
+
+			if ( existing == null )
+			{
+				final long bytes = Intervals.numElements( block ) * bytesPerPixel;
+
+				if ( stagedBytes + bytes > maxStagingBytes )
+				{
+					// does not fit, will be written from the previous level once it is complete
+					deferred.get( level ).add( key );
+					deferredBlocks.incrementAndGet();
+					return;
+				}
+
+				stagedBlock = new StagedBlock<>( block, type );
+				staged.put( key, stagedBlock );
+				stagedBytes += bytes;
+			}
+			else
+			{
+				stagedBlock = existing;
+			}
+		}
+
+		final boolean complete;
+
+		synchronized ( stagedBlock )
+		{
+			// staged blocks are initialized with zeros, nothing to copy for empty regions
+			if ( data != null )
+				copy( Views.interval( data, intersection ), Views.interval( stagedBlock.data, intersection ) );
+
+			stagedBlock.missing -= Intervals.numElements( intersection );
+			complete = stagedBlock.missing == 0;
+		}
+
+		if ( complete )
+		{
+			save( level, Views.zeroMin( stagedBlock.data ), g );
+			stagedBlocks.incrementAndGet();
+
+			synchronized ( staged )
+			{
+				staged.remove( key );
+				stagedBytes -= Intervals.numElements( block ) * bytesPerPixel;
+			}
+		}
+	}
+
+	protected void save( final int level, final RandomAccessibleInterval< T > block, final long[] gridOffset )
+	{
+		final String dataset = mrInfo[ level ].dataset;
+
+		if ( currentChannelIndex >= 0 && currentTPIndex >= 0 )
+		{
+			// 5D OME-ZARR CONTAINER, the block is 3d, make it 5d
+			final RandomAccessibleInterval< T > block5d = Views.addDimension( Views.addDimension( block, 0, 0 ), 0, 0 );
+			final long[] gridOffset5d = new long[] { gridOffset[ 0 ], gridOffset[ 1 ], gridOffset[ 2 ], currentChannelIndex, currentTPIndex };
+
+			if ( level == 0 )
+				N5Utils.saveBlock( block5d, n5, dataset, gridOffset5d );
+			else
+				N5Utils.saveNonEmptyBlock( block5d, n5, dataset, gridOffset5d, type );
+		}
+		else
+		{
+			if ( level == 0 )
+				N5Utils.saveBlock( block, n5, dataset, gridOffset );
+			else
+				N5Utils.saveNonEmptyBlock( block, n5, dataset, gridOffset, type );
+		}
+	}
+
+	/**
+	 * Writes all blocks that could not be computed in memory by reading back the previous level. Must
+	 * be called after all compute blocks were written; parallelizes using the common (or the calling) ForkJoinPool.
+	 */
+	public void finish()
+	{
+		// anything left in staging is incomplete (should not happen, e.g. if a compute block failed)
+		synchronized ( staged )
+		{
+			for ( final List< Long > key : staged.keySet() )
+				if ( deferred.get( key.get( 0 ).intValue() ).add( key ) )
+					deferredBlocks.incrementAndGet();
+
+			staged.clear();
+			stagedBytes = 0;
+		}
+
+		IOFunctions.println( "Single-pass pyramid: " + directBlocks.get() + " blocks written directly, " + stagedBlocks.get() + " assembled in staging cache, " + deferredBlocks.get() + " deferred." );
+
+		for ( int level = 1; level < mrInfo.length; ++level )
+		{
+			final int s = level;
+			final List< long[][] > blocks = new ArrayList<>();
+
+			if ( level < numStreamingLevels )
+			{
+				for ( final List< Long > key : deferred.get( level ) )
+				{
+					final long[] g = new long[] { key.get( 1 ), key.get( 2 ), key.get( 3 ) };
+					final long[] offset = new long[ 3 ];
+					final long[] size = new long[ 3 ];
+
+					for ( int d = 0; d < 3; ++d )
+					{
+						offset[ d ] = g[ d ] * blockSize[ d ];
+						size[ d ] = Math.min( mrInfo[ level ].dimensions[ d ], offset[ d ] + blockSize[ d ] ) - offset[ d ];
+					}
+
+					blocks.add( new long[][] { offset, size, g } );
+				}
+			}
+			else
+			{
+				IOFunctions.println( "Level s" + level + " (downsampling " + Util.printCoordinates( mrInfo[ level ].absoluteDownsampling ) + ") cannot be computed in memory, reading back s" + ( level - 1 ) + "." );
+
+				blocks.addAll( N5ApiTools.assembleJobs(
+						null,
+						new long[] { mrInfo[ level ].dimensions[ 0 ], mrInfo[ level ].dimensions[ 1 ], mrInfo[ level ].dimensions[ 2 ] },
+						blockSize ) );
+			}
+
+			blocks.parallelStream().forEach( gridBlock ->
+			{
+				if ( currentChannelIndex >= 0 && currentTPIndex >= 0 )
+					N5ApiTools.writeDownsampledBlock5dOMEZARR( n5, mrInfo[ s ], mrInfo[ s - 1 ], gridBlock, currentChannelIndex, currentTPIndex );
+				else
+					N5ApiTools.writeDownsampledBlock( n5, mrInfo[ s ], mrInfo[ s - 1 ], gridBlock );
+			});
+		}
+	}
+
+	protected static < T extends RealType< T > > void copy( final RandomAccessibleInterval< T > input, final RandomAccessibleInterval< T > output )
+	{
+		final Cursor< T > cIn = Views.flatIterable( input ).cursor();
+		final Cursor< T > cOut = Views.flatIterable( output ).cursor();
+
+		while ( cOut.hasNext() )
+			cOut.next().set( cIn.next() );
+	}
+
+	protected static class StagedBlock< T extends RealType< T > & NativeType< T > >
+	{
+		final RandomAccessibleInterval< T > data;
+		long missing;
+
+		public StagedBlock( final Interval block, final T type )
+		{
+			this.data = Views.translate( new ArrayImgFactory<>( type ).create( block ), block.minAsLongArray() );
+			this.missing = Intervals.numElements( block );
+		}
+	}
+}
@@ -250,6 +250,37 @@ public class N5ApiTools
 			final Compression compression,
 			final int[] blockSize, // 3d by default, can be up to 5d for ome-zarr
 			final int[][] downsamplings ) // TODO:  3d by default, can be up to 5d for ome-zarr
+	{
+		final MultiResolutionLevelInfo[] mrInfo = multiResolutionPyramid( viewId, viewIdToDataset, dataType, dimensionsS0, blockSize, downsamplings );
+
+		for ( int level = 0; level < mrInfo.length; ++level )
+		{
+			driverVolumeWriter.createDataset(
+					mrInfo[ level ].dataset,
+					mrInfo[ level ].dimensions,
+					blockSize,
+					dataType,
+					compression );
+
+			if ( level > 0 )
+				driverVolumeWriter.setAttribute( mrInfo[ level ].dataset, "downsamplingFactors", downsamplings[ level ] );
+		}
+
+		return mrInfo;
+	}
+
+	/**
+	 * Computes the levels of a multi-resolution pyramid as set up by
+	 * {@link #setupMultiResolutionPyramid(N5Writer, ViewId, BiFunction, DataType, long[], Compression, int[], int[][])},
+	 * but does not create (or modify) any datasets, e.g. to continue writing into an existing pyramid.
+	 */
+	public static MultiResolutionLevelInfo[] multiResolutionPyramid(
+			final ViewId viewId,
+			final BiFunction<ViewId, Integer, String> viewIdToDataset,
+			final DataType dataType,
+			final long[] dimensionsS0,
+			final int[] blockSize,
+			final int[][] downsamplings )
 	{
 		final MultiResolutionLevelInfo[] mrInfo = new MultiResolutionLevelInfo[ downsamplings.length];
 
@@ -260,13 +291,6 @@ public class N5ApiTools
 		mrInfo[ 0 ] = new MultiResolutionLevelInfo(
 				viewIdToDataset.apply( viewId, 0 ), dimensionsS0.clone(), dataType, relativeDownsampling, downsamplings[ 0 ], blockSize );
 
-		driverVolumeWriter.createDataset(
-				viewIdToDataset.apply( viewId, 0 ),
-				dimensionsS0,
-				blockSize,
-				dataType,
-				compression );
-
 		long[] previousDim = dimensionsS0.clone();
 
 		// set up s1 ... sN
@@ -274,23 +298,12 @@ public class N5ApiTools
 		{
 			relativeDownsampling = computeRelativeDownsampling( downsamplings, level );
 
-			final String datasetLevel = viewIdToDataset.apply( viewId, level );
-
 			final long[] dim = new long[ previousDim.length ];
 			for ( int d = 0; d < dim.length; ++d )
 				dim[ d ] = previousDim[ d ] / relativeDownsampling[ d ];
 
 			mrInfo[ level ] = new MultiResolutionLevelInfo(
-					datasetLevel, dim.clone(), dataType, relativeDownsampling, downsamplings[ level ], blockSize );
-
-			driverVolumeWriter.createDataset(
-					datasetLevel,
-					dim,
-					blockSize,
-					dataType,
-					compression );
-
-			driverVolumeWriter.setAttribute( datasetLevel, "downsamplingFactors", downsamplings[ level ] );
+					viewIdToDataset.apply( viewId, level ), dim.clone(), dataType, relativeDownsampling, downsamplings[ level ], blockSize );
 
 			previousDim = dim;
 		}
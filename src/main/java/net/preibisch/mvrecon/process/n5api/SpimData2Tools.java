@@ -73,9 +73,9 @@ import net.preibisch.mvrecon.fiji.spimdata.SpimData2;
 import net.preibisch.mvrecon.fiji.spimdata.XmlIoSpimData2;
 import net.preibisch.mvrecon.fiji.spimdata.boundingbox.BoundingBoxes;
 import net.preibisch.mvrecon.fiji.spimdata.intensityadjust.IntensityAdjustments;
-import net.preibisch.mvrecon.fiji.spimdata.interestpoints.CorrespondingInterestPoints;
-import net.preibisch.mvrecon.fiji.spimdata.interestpoints.InterestPoint;
+import net.preibisch.mvrecon.fiji.spimdata.interestpoints.CorrespondenceStore;
 import net.preibisch.mvrecon.fiji.spimdata.interestpoints.InterestPoints;
+import net.preibisch.mvrecon.fiji.spimdata.interestpoints.InterestPointStore;
 import net.preibisch.mvrecon.fiji.spimdata.interestpoints.ViewInterestPointLists;
 import net.preibisch.mvrecon.fiji.spimdata.interestpoints.ViewInterestPoints;
 import net.preibisch.mvrecon.fiji.spimdata.pointspreadfunctions.PointSpreadFunctions;
@@ -625,8 +625,9 @@ public class SpimData2Tools
 
 					ipLists.getHashMap().forEach( (label,interestpoints) ->
 					{
-						final List<InterestPoint> points = interestpoints.getInterestPointsCopy();
-						final List<CorrespondingInterestPoints> corr = interestpoints.getCorrespondingInterestPointsCopy();
+						// copies the columns, no InterestPoint objects are created
+						final InterestPointStore points = new InterestPointStore( interestpoints.getInterestPointStore() );
+						final CorrespondenceStore corr = new CorrespondenceStore( interestpoints.getCorrespondenceStore() );
 
 						final InterestPoints interestpointsNew = InterestPoints.newInstance( basePath, viewId, label );
 						interestpointsNew.setInterestPoints( points );
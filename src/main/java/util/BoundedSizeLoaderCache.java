@@ -0,0 +1,418 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+import net.imglib2.cache.CacheLoader;
+import net.imglib2.cache.LoaderCache;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.type.NativeType;
+
+/**
+ * A {@link LoaderCache} that is bounded by the size (in bytes) of its values instead of relying on
+ * {@link java.lang.ref.SoftReference}s. The budget is a {@link Budget} that is shared by all caches
+ * created with it (by default all caches created with the same number of bytes, see
+ * {@link Budget#shared(long)}), so the bound holds for all open images together. When the budget is
+ * exceeded, the least recently used values of any of these caches are removed (strong references, so
+ * the memory use is predictable and the GC is not involved). A value that is larger than the budget
+ * is still kept until the next value is loaded.
+ * <p>
+ * Concurrent requests for the same key load it only once. Hits, misses and evictions are counted
+ * per instance and for all instances ({@link #totalHits()}, ...).
+ *
+ * @param <K> - key type
+ * @param <V> - value type
+ */
+public class BoundedSizeLoaderCache< K, V > implements LoaderCache< K, V >
+{
+	private static final AtomicLong totalHits = new AtomicLong(), totalMisses = new AtomicLong(), totalEvictions = new AtomicLong();
+
+	/**
+	 * A memory budget shared by several caches, all access is synchronized on the budget.
+	 */
+	public static class Budget
+	{
+		private static final ConcurrentHashMap< Long, Budget > shared = new ConcurrentHashMap<>();
+
+		final long maxBytes;
+		long currentBytes = 0;
+
+		// loaded values of all caches using this budget, access-ordered, the first entry is the least recently used
+		final LinkedHashMap< Entry< ?, ? >, Entry< ?, ? > > lru = new LinkedHashMap<>( 16, 0.75f, true );
+
+		public Budget( final long maxBytes )
+		{
+			this.maxBytes = maxBytes;
+		}
+
+		/**
+		 * @param maxBytes - the budget in bytes
+		 * @return the budget that is shared by all caches created with the same number of bytes
+		 */
+		public static Budget shared( final long maxBytes )
+		{
+			return shared.computeIfAbsent( maxBytes, Budget::new );
+		}
+
+		public long maxBytes() { return maxBytes; }
+		public synchronized long currentBytes() { return currentBytes; }
+		public synchronized int size() { return lru.size(); }
+
+		// must be called while holding the lock on the budget
+		private void evict()
+		{
+			final Iterator< Entry< ?, ? > > it = lru.keySet().iterator();
+
+			// keep at least the most recently used value
+			while ( currentBytes > maxBytes && lru.size() > 1 && it.hasNext() )
+			{
+				final Entry< ?, ? > entry = it.next();
+
+				it.remove();
+				currentBytes -= entry.weight;
+				entry.remove();
+			}
+		}
+
+		@Override
+		public synchronized String toString()
+		{
+			return "Budget: " + lru.size() + " values, " + ( currentBytes / ( 1024 * 1024 ) ) + " of " + ( maxBytes / ( 1024 * 1024 ) ) + " MB";
+		}
+	}
+
+	private static class Entry< K, V >
+	{
+		final BoundedSizeLoaderCache< K, V > cache;
+		final K key;
+		final CompletableFuture< V > value = new CompletableFuture<>();
+		long weight = 0;
+
+		Entry( final BoundedSizeLoaderCache< K, V > cache, final K key )
+		{
+			this.cache = cache;
+			this.key = key;
+		}
+
+		// evicted from the budget, must be called while holding the lock on the budget
+		void remove()
+		{
+			if ( cache.map.remove( key, this ) )
+			{
+				cache.currentBytes -= weight;
+				++cache.evictions;
+				totalEvictions.incrementAndGet();
+			}
+		}
+	}
+
+	final Budget budget;
+	final ToLongFunction< V > weigher;
+
+	// guarded by the lock on the budget
+	final HashMap< K, Entry< K, V > > map = new HashMap<>();
+
+	long currentBytes = 0;
+	long hits = 0, misses = 0, evictions = 0;
+
+	// the key of the last getIfPresent() on this thread that missed, so the following get() is not counted again
+	final ThreadLocal< Object > lastMiss = new ThreadLocal<>();
+
+	/**
+	 * @param budget - the (shared) budget
+	 * @param weigher - computes the size of a value in bytes
+	 */
+	public BoundedSizeLoaderCache( final Budget budget, final ToLongFunction< V > weigher )
+	{
+		this.budget = budget;
+		this.weigher = weigher;
+	}
+
+	/**
+	 * @param maxBytes - the budget in bytes, shared with all caches created with the same number of bytes
+	 * @param weigher - computes the size of a value in bytes
+	 */
+	public BoundedSizeLoaderCache( final long maxBytes, final ToLongFunction< V > weigher )
+	{
+		this( Budget.shared( maxBytes ), weigher );
+	}
+
+	@Override
+	public V getIfPresent( final K key )
+	{
+		synchronized ( budget )
+		{
+			final Entry< K, V > entry = map.get( key );
+
+			if ( entry == null || !entry.value.isDone() || entry.value.isCompletedExceptionally() )
+			{
+				++misses;
+				totalMisses.incrementAndGet();
+				lastMiss.set( key );
+
+				return null;
+			}
+
+			budget.lru.get( entry );
+			lastMiss.remove();
+
+			++hits;
+			totalHits.incrementAndGet();
+
+			return entry.value.getNow( null );
+		}
+	}
+
+	@Override
+	public V get( final K key, final CacheLoader< ? super K, ? extends V > loader ) throws ExecutionException
+	{
+		final Entry< K, V > entry;
+		final boolean load;
+
+		// a getIfPresent() for the same key just counted this request as a miss
+		final boolean counted = key.equals( lastMiss.get() );
+		lastMiss.remove();
+
+		synchronized ( budget )
+		{
+			final Entry< K, V > existing = map.get( key );
+
+			if ( existing == null )
+			{
+				entry = new Entry<>( this, key );
+				map.put( key, entry );
+				load = true;
+
+				if ( !counted )
+				{
+					++misses;
+					totalMisses.incrementAndGet();
+				}
+			}
+			else
+			{
+				entry = existing;
+				load = false;
+
+				budget.lru.get( entry );
+
+				if ( !counted )
+				{
+					++hits;
+					totalHits.incrementAndGet();
+				}
+			}
+		}
+
+		if ( !load )
+		{
+			try
+			{
+				return entry.value.get();
+			}
+			catch ( InterruptedException e )
+			{
+				Thread.currentThread().interrupt();
+				throw new ExecutionException( e );
+			}
+		}
+
+		final V value;
+
+		try
+		{
+			value = loader.get( key );
+		}
+		catch ( Exception e )
+		{
+			synchronized ( budget )
+			{
+				map.remove( key, entry );
+			}
+
+			entry.value.completeExceptionally( e );
+			throw new ExecutionException( e );
+		}
+
+		entry.value.complete( value );
+
+		final long weight = weigher.applyAsLong( value );
+
+		synchronized ( budget )
+		{
+			// might have been invalidated in the meantime
+			if ( map.get( key ) == entry )
+			{
+				entry.weight = weight;
+				currentBytes += weight;
+				budget.currentBytes += weight;
+				budget.lru.put( entry, entry );
+				budget.evict();
+			}
+		}
+
+		return value;
+	}
+
+	// must be called while holding the lock on the budget
+	private void remove( final Entry< K, V > entry )
+	{
+		// entries that are still loading are not part of the budget yet
+		if ( budget.lru.remove( entry ) != null )
+		{
+			currentBytes -= entry.weight;
+			budget.currentBytes -= entry.weight;
+		}
+	}
+
+	@Override
+	public void invalidate( final K key )
+	{
+		synchronized ( budget )
+		{
+			final Entry< K, V > entry = map.remove( key );
+
+			if ( entry != null )
+				remove( entry );
+		}
+	}
+
+	@Override
+	public void invalidateIf( final long parallelismThreshold, final Predicate< K > condition )
+	{
+		synchronized ( budget )
+		{
+			final ArrayList< K > keys = new ArrayList<>();
+
+			for ( final K key : map.keySet() )
+				if ( condition.test( key ) )
+					keys.add( key );
+
+			for ( final K key : keys )
+				remove( map.remove( key ) );
+		}
+	}
+
+	@Override
+	public void invalidateAll( final long parallelismThreshold )
+	{
+		synchronized ( budget )
+		{
+			for ( final Entry< K, V > entry : map.values() )
+				remove( entry );
+
+			map.clear();
+		}
+	}
+
+	public Budget budget() { return budget; }
+	public long maxBytes() { return budget.maxBytes; }
+	public long currentBytes() { synchronized ( budget ) { return currentBytes; } }
+	public int size() { synchronized ( budget ) { return map.size(); } }
+
+	public long hits() { synchronized ( budget ) { return hits; } }
+	public long misses() { synchronized ( budget ) { return misses; } }
+	public long evictions() { synchronized ( budget ) { return evictions; } }
+
+	public static long totalHits() { return totalHits.get(); }
+	public static long totalMisses() { return totalMisses.get(); }
+	public static long totalEvictions() { return totalEvictions.get(); }
+
+	public static void resetTotalStatistics()
+	{
+		totalHits.set( 0 );
+		totalMisses.set( 0 );
+		totalEvictions.set( 0 );
+	}
+
+	/**
+	 * @return hits, misses and evictions of all instances
+	 */
+	public static String totalStatistics()
+	{
+		final long h = totalHits(), m = totalMisses();
+		return "cache hits: " + h + ", misses: " + m + ", evictions: " + totalEvictions() +
+				", hit rate: " + ( h + m == 0 ? 0 : Math.round( 1000.0 * h / ( h + m ) ) / 10.0 ) + "%";
+	}
+
+	@Override
+	public String toString()
+	{
+		synchronized ( budget )
+		{
+			return "BoundedSizeLoaderCache: " + map.size() + " values, " + ( currentBytes / ( 1024 * 1024 ) ) + " MB (" + budget + "), " +
+					"hits: " + hits + ", misses: " + misses + ", evictions: " + evictions;
+		}
+	}
+
+	/**
+	 * @param type - the pixel type of the cells
+	 * @return a weigher for {@link Cell}s of an image of the given type
+	 */
+	public static < T extends NativeType< T > > ToLongFunction< Cell< ? > > cellWeigher( final T type )
+	{
+		final double entitiesPerPixel = type.getEntitiesPerPixel().getRatio();
+		final int bytesPerEntity;
+
+		switch ( type.getNativeTypeFactory().getPrimitiveType() )
+		{
+			case BOOLEAN:
+			case BYTE:
+				bytesPerEntity = 1;
+				break;
+			case SHORT:
+			case CHAR:
+				bytesPerEntity = 2;
+				break;
+			case INT:
+			case FLOAT:
+				bytesPerEntity = 4;
+				break;
+			default:
+				bytesPerEntity = 8;
+		}
+
+		return cell -> (long)Math.ceil( cell.size() * entitiesPerPixel ) * bytesPerEntity;
+	}
+
+	/**
+	 * @param maxBytes - the budget in bytes
+	 * @param type - the pixel type of the cells
+	 * @return a cache for cells of an image of the given type
+	 */
+	public static < A, T extends NativeType< T > > BoundedSizeLoaderCache< Long, Cell< A > > forCells( final long maxBytes, final T type )
+	{
+		final ToLongFunction< Cell< ? > > weigher = cellWeigher( type );
+		return new BoundedSizeLoaderCache< Long, Cell< A > >( maxBytes, cell -> weigher.applyAsLong( cell ) );
+	}
+}
@@ -22,6 +22,9 @@ package util;
  * #L%
  */
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -679,6 +682,90 @@ public class FFTConvolution< R extends RealType< R > >
 		}
 	}
 
+	/**
+	 * Repeated convolution of images with the same interval by kernels of the same size whose FFTs are precomputed (e.g. the
+	 * blocks of a deconvolution, see {@link #computeKernelFFT(Interval, long[], long[], boolean, RandomAccessible, ImgFactory, ExecutorService)}).
+	 * The padded interval of the image is computed once per combination of image interval and kernel size, and the FFT of the
+	 * image is computed into a complex buffer that is reused by all convolutions of the same padded size, instead of creating
+	 * a new {@link FFTConvolution} and new complex images every time.
+	 * 
+	 * NOTE: not thread-safe, use one Plan per thread.
+	 */
+	public static class Plan
+	{
+		final ImgFactory< ComplexFloatType > fftFactory;
+		final ExecutorService service;
+
+		// padded intervals of the image, key: image interval (min, max) + kernel dimensions
+		final HashMap< List< Long >, Interval > imgConvolutionIntervals = new HashMap<>();
+
+		// complex buffers, key: fft dimensions
+		final HashMap< List< Long >, Img< ComplexFloatType > > fftBuffers = new HashMap<>();
+
+		/**
+		 * @param fftFactory - used to create the complex buffers
+		 * @param service - used for computing the FFTs
+		 */
+		public Plan( final ImgFactory< ComplexFloatType > fftFactory, final ExecutorService service )
+		{
+			this.fftFactory = fftFactory;
+			this.service = service;
+		}
+
+		/**
+		 * Computes the convolution, the image is padded as in {@link FFTConvolution#convolve()}.
+		 * 
+		 * @param img - the image, extended (e.g. mirror)
+		 * @param imgInterval - the interval of the image to convolve
+		 * @param kernelInterval - the interval of the kernel whose FFT is provided
+		 * @param kernelFFT - the FFT of the kernel, computed for the same image and kernel size
+		 * @param output - the result, same size as imgInterval
+		 */
+		public < R extends RealType< R > > void convolve(
+				final RandomAccessible< R > img,
+				final Interval imgInterval,
+				final Interval kernelInterval,
+				final Img< ComplexFloatType > kernelFFT,
+				final RandomAccessibleInterval< R > output )
+		{
+			final Img< ComplexFloatType > fftImg = fftBuffer( kernelFFT );
+
+			FFT.realToComplex( Views.interval( img, imgConvolutionInterval( imgInterval, kernelInterval ) ), fftImg, service );
+
+			// multiply in place
+			multiplyComplex( fftImg, kernelFFT );
+
+			// inverse FFT in place
+			FFT.complexToRealUnpad( fftImg, output, service );
+		}
+
+		protected Interval imgConvolutionInterval( final Interval imgInterval, final Interval kernelInterval )
+		{
+			final int n = imgInterval.numDimensions();
+			final ArrayList< Long > key = new ArrayList<>( n * 3 );
+
+			for ( int d = 0; d < n; ++d )
+			{
+				key.add( imgInterval.min( d ) );
+				key.add( imgInterval.max( d ) );
+				key.add( kernelInterval.dimension( d ) );
+			}
+
+			return imgConvolutionIntervals.computeIfAbsent( key, k -> setupFFTs( imgInterval, kernelInterval, new long[ n ], new long[ n ] ).getA() );
+		}
+
+		protected Img< ComplexFloatType > fftBuffer( final Img< ComplexFloatType > kernelFFT )
+		{
+			final ArrayList< Long > key = new ArrayList<>( kernelFFT.numDimensions() );
+
+			for ( int d = 0; d < kernelFFT.numDimensions(); ++d )
+				key.add( kernelFFT.dimension( d ) );
+
+			// the FFT of the image has the same size as the FFT of the kernel
+			return fftBuffers.computeIfAbsent( key, k -> fftFactory.create( kernelFFT ) );
+		}
+	}
+
 	/*
 	 * Set the executor service to use.
 	 * 
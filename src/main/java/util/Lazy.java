@@ -51,6 +51,7 @@ import java.util.function.Consumer;
 import net.imglib2.Interval;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.cache.Cache;
+import net.imglib2.cache.LoaderCache;
 import net.imglib2.cache.img.CachedCellImg;
 import net.imglib2.cache.img.CellLoader;
 import net.imglib2.cache.img.LoadedCellCacheLoader;
@@ -75,6 +76,18 @@ import net.imglib2.util.Intervals;
  */
 public class Lazy {
 
+	/**
+	 * System property to set {@link #defaultMaxCacheBytes} at startup, e.g. -Dmvrecon.maxCacheBytes=8000000000
+	 */
+	public static final String maxCacheBytesProperty = "mvrecon.maxCacheBytes";
+
+	/**
+	 * Budget in bytes shared by the cell caches of all images created by {@link #createImg(Interval, int[], NativeType, Set, CellLoader)}
+	 * and {@link #process(Interval, int[], NativeType, Set, Consumer)}, values &lt;= 0 use an unbounded {@link SoftRefLoaderCache}.
+	 * Initialized from the system property {@link #maxCacheBytesProperty}, the fusion and detection dialogs set it too.
+	 */
+	public static long defaultMaxCacheBytes = Long.getLong(maxCacheBytesProperty, -1);
+
 	private Lazy() {}
 
 	/*
@@ -130,12 +143,38 @@ public class Lazy {
 			final Set<AccessFlags> accessFlags,
 			final CellLoader<T> loader) {
 
+		return createImg(targetInterval, blockSize, type, accessFlags, loader, defaultMaxCacheBytes);
+	}
+
+	/*
+	 * Create a memory {@link CachedCellImg} with a {@link CellLoader} and a cache that is bounded by size.
+	 *
+	 * @param targetInterval
+	 * @param blockSize
+	 * @param type
+	 * @param accessFlags
+	 * @param loader
+	 * @param maxCacheBytes - budget of the {@link BoundedSizeLoaderCache} in bytes (shared by all caches with the same budget), &lt;= 0 uses a {@link SoftRefLoaderCache}
+	 * @return
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public static <T extends NativeType<T>> CachedCellImg<T, ?> createImg(
+			final Interval targetInterval,
+			final int[] blockSize,
+			final T type,
+			final Set<AccessFlags> accessFlags,
+			final CellLoader<T> loader,
+			final long maxCacheBytes) {
+
 		final long[] dimensions = Intervals.dimensionsAsLongArray(targetInterval);
 		final CellGrid grid = new CellGrid(dimensions, blockSize);
 
-		@SuppressWarnings({"unchecked", "rawtypes"})
+		final LoaderCache loaderCache = maxCacheBytes > 0 ?
+				new BoundedSizeLoaderCache(maxCacheBytes, BoundedSizeLoaderCache.cellWeigher(type)) :
+				new SoftRefLoaderCache();
+
 		final Cache<Long, Cell<?>> cache =
-				new SoftRefLoaderCache().withLoader(LoadedCellCacheLoader.get(grid, loader, type, accessFlags));
+				loaderCache.withLoader(LoadedCellCacheLoader.get(grid, loader, type, accessFlags));
 
 		return createImg(grid, cache, type, accessFlags);
 	}
@@ -164,4 +203,32 @@ public class Lazy {
 				accessFlags,
 				op::accept);
 	}
+
+	/*
+	 * Create a memory {@link CachedCellImg} with a cell generator {@link Consumer} and a cache that is bounded by size.
+	 *
+	 * @param targetInterval
+	 * @param blockSize
+	 * @param type
+	 * @param accessFlags
+	 * @param op
+	 * @param maxCacheBytes - budget of the {@link BoundedSizeLoaderCache} in bytes (shared by all caches with the same budget), &lt;= 0 uses a {@link SoftRefLoaderCache}
+	 * @return
+	 */
+	public static <T extends NativeType<T>> CachedCellImg<T, ?> process(
+			final Interval targetInterval,
+			final int[] blockSize,
+			final T type,
+			final Set<AccessFlags> accessFlags,
+			final Consumer<RandomAccessibleInterval<T>> op,
+			final long maxCacheBytes) {
+
+		return createImg(
+				targetInterval,
+				blockSize,
+				type,
+				accessFlags,
+				op::accept,
+				maxCacheBytes);
+	}
 }
@@ -0,0 +1,202 @@
+/*-
+ * #%L
+ * Software for the reconstruction of multi-view microscopic acquisitions
+ * like Selective Plane Illumination Microscopy (SPIM) Data.
+ * %%
+ * Copyright (C) 2012 - 2025 Multiview Reconstruction developers.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+package net.preibisch.mvrecon.process.deconvolution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.real.FloatType;
+import net.preibisch.mvrecon.process.cuda.Block;
+import net.preibisch.mvrecon.process.deconvolution.BlockPipeline.WriteBack;
+
+public class BlockPipelineTest
+{
+	static final int READ = 0, WRITE = 1;
+
+	/**
+	 * Processing the batches one after the other (as before the pipelining) reads all blocks of batch i,
+	 * then writes back batch i-1, and writes back the last batch at the end. So a write of batch w happens
+	 * before a read of batch r if and only if w &lt;= r - 2, which must hold for every pair of events no
+	 * matter how the threads of the pipeline interleave.
+	 */
+	@Test( timeout = 60000 )
+	public void testPipelinedOrderEqualsBatchSerialOrder()
+	{
+		final Random rnd = new Random( 42 );
+
+		for ( int run = 0; run < 100; ++run )
+		{
+			final List< List< Block > > batches = batches( 1 + rnd.nextInt( 6 ), rnd );
+			final RecordingSteps steps = new RecordingSteps( batches, rnd.nextLong(), -1 );
+
+			new BlockPipeline( batches ).run( 1 + rnd.nextInt( 4 ), steps );
+
+			assertSerialOrder( batches, steps.events );
+		}
+	}
+
+	/**
+	 * A failing block aborts the pipeline, the other threads return and the failure is rethrown.
+	 */
+	@Test( timeout = 60000 )
+	public void testFailureIsRethrown()
+	{
+		final Random rnd = new Random( 42 );
+
+		for ( int run = 0; run < 20; ++run )
+		{
+			final List< List< Block > > batches = batches( 3 + rnd.nextInt( 4 ), rnd );
+			final int numBlocks = batches.stream().mapToInt( List::size ).sum();
+
+			try
+			{
+				new BlockPipeline( batches ).run( 1 + rnd.nextInt( 4 ), new RecordingSteps( batches, rnd.nextLong(), rnd.nextInt( numBlocks ) ) );
+				fail( "the failure of a block was not rethrown" );
+			}
+			catch ( IllegalStateException e )
+			{
+				assertEquals( "failing block", e.getMessage() );
+			}
+		}
+	}
+
+	protected static List< List< Block > > batches( final int numBatches, final Random rnd )
+	{
+		final List< List< Block > > batches = new ArrayList<>();
+
+		for ( int b = 0; b < numBatches; ++b )
+			batches.add( Collections.nCopies( 1 + rnd.nextInt( 4 ), (Block)null ) );
+
+		return batches;
+	}
+
+	/**
+	 * Copying and pasting is replaced by logging events { READ or WRITE, batch, blockId } in the order they happen,
+	 * copying and computing take a random amount of time.
+	 */
+	protected static class RecordingSteps implements BlockPipeline.Steps
+	{
+		final List< int[] > events = Collections.synchronizedList( new ArrayList<>() );
+		final ArrayList< Integer > batchOf = new ArrayList<>();
+		final ThreadLocal< Random > rnd;
+		final int failingBlock;
+
+		/**
+		 * @param batches - the batches, blocks are numbered consecutively over all batches
+		 * @param seed - for the random timing
+		 * @param failingBlock - the block whose computation fails, -1 for none
+		 */
+		public RecordingSteps( final List< List< Block > > batches, final long seed, final int failingBlock )
+		{
+			for ( int b = 0; b < batches.size(); ++b )
+				batchOf.addAll( Collections.nCopies( batches.get( b ).size(), b ) );
+
+			this.rnd = ThreadLocal.withInitial( () -> new Random( seed + Thread.currentThread().getId() ) );
+			this.failingBlock = failingBlock;
+		}
+
+		@Override
+		public void startBatch( final int batch ) {}
+
+		@Override
+		public void copy( final int threadId, final int blockId, final Block block )
+		{
+			// the block has read psi once the copy is done
+			sleep();
+			events.add( new int[] { READ, batchOf.get( blockId ), blockId } );
+		}
+
+		@Override
+		public void compute( final int threadId, final int blockId, final Block block )
+		{
+			if ( blockId == failingBlock )
+				throw new IllegalStateException( "failing block" );
+
+			sleep();
+		}
+
+		@Override
+		public void paste( final int threadId, final int blockId, final Block block )
+		{
+			events.add( new int[] { WRITE, batchOf.get( blockId ), blockId } );
+		}
+
+		@Override
+		public Img< FloatType > save( final int threadId, final int blockId, final Block block ) { return null; }
+
+		@Override
+		public void pasteSaved( final WriteBack writeBack )
+		{
+			events.add( new int[] { WRITE, writeBack.batch, writeBack.blockId } );
+		}
+
+		protected void sleep()
+		{
+			try
+			{
+				Thread.sleep( rnd.get().nextInt( 5 ) );
+			}
+			catch ( InterruptedException e )
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	protected static void assertSerialOrder( final List< List< Block > > batches, final List< int[] > events )
+	{
+		final int numBlocks = batches.stream().mapToInt( List::size ).sum();
+		final int[] numReads = new int[ numBlocks ];
+		final int[] numWrites = new int[ numBlocks ];
+
+		for ( final int[] event : events )
+			++( event[ 0 ] == READ ? numReads : numWrites )[ event[ 2 ] ];
+
+		for ( int blockId = 0; blockId < numBlocks; ++blockId )
+		{
+			assertEquals( "reads of block " + blockId, 1, numReads[ blockId ] );
+			assertEquals( "writes of block " + blockId, 1, numWrites[ blockId ] );
+		}
+
+		for ( int i = 0; i < events.size(); ++i )
+			for ( int j = 0; j < events.size(); ++j )
+			{
+				final int[] write = events.get( i );
+				final int[] read = events.get( j );
+
+				if ( write[ 0 ] == WRITE && read[ 0 ] == READ )
+					assertTrue(
+							"write of batch " + write[ 1 ] + ( i < j ? " before " : " after " ) + "read of batch " + read[ 1 ],
+							( i < j ) == ( write[ 1 ] <= read[ 1 ] - 2 ) );
+			}
+	}
+}